@@ -54,6 +54,29 @@ public class TwoDColorMapper {
         return new Color(scaledImage.getRGB(x, y));
     }
 
+    /**
+     * Returns the scaled color map as a lookup table of RGB values without
+     * alpha. The color of getColor1(x, y) is at y * getScaledWidth() + x.
+     *
+     * @return The lookup table.
+     */
+    public int[] getColorTable() {
+        int width = scaledImage.getWidth();
+        int[] table = scaledImage.getRGB(0, 0, width, scaledImage.getHeight(), null, 0, width);
+        for (int i = 0; i < table.length; i++) {
+            table[i] &= 0xFFFFFF;
+        }
+        return table;
+    }
+
+    public int getScaledWidth() {
+        return scaledImage.getWidth();
+    }
+
+    public int getScaledHeight() {
+        return scaledImage.getHeight();
+    }
+
     public Color getColor(int x, int y, double value, double min, double max) {
         Color baseColor = new Color(scaledImage.getRGB(x, y));
         RGB rgbbasecolor = new RGB(baseColor.getRed(), baseColor.getGreen(), baseColor.getBlue(),
@@ -1,23 +1,29 @@
 package dbvis.visualsummaries.data;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.math3.stat.StatUtils;
 
 /**
  * Loads the datasets in a specified folder. Checks the specified folder for CSV
@@ -30,6 +36,9 @@ import org.apache.commons.math3.stat.StatUtils;
  */
 public class CSVDataLoader {
 
+    // Files are split into chunks of at least this size.
+    private static final long MIN_CHUNK_BYTES = 4L * 1024 * 1024;
+
     public static void checkAndLoadCSVDataSets(String[] datapath) {
         File folder;
         String localdir = "./data";
@@ -58,116 +67,528 @@ public class CSVDataLoader {
             System.out.println("NO DATA FILES");
             System.exit(0);
         }
-        for (File file : datafiles) {
-            loadFile(file);
+
+        // Chunks of all files are parsed on one pool; the datasets are added to
+        // the session in file order once they are complete.
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<CSVDataSet>> datasets = new ArrayList<>();
+            for (File file : datafiles) {
+                datasets.add(loadFile(file, executor, threads));
+            }
+
+            for (Future<CSVDataSet> dataset : datasets) {
+                CSVDataSet csvd = dataset.get();
+                if (csvd != null) {
+                    SessionData.getInstance().addDataset(csvd);
+                }
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Function loads a single csv file into a dataset.
+     *
+     * @param file The csv file.
+     * @return The dataset, or null if the file could not be read.
+     */
+    public static CSVDataSet loadFile(File file) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            return loadFile(file, executor, threads).get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Function submits the parsing of a csv file to an executor. The file is split
+     * into chunks at line boundaries, which are read in two passes. The first
+     * pass counts the rows and movers of every chunk, which gives the size of the
+     * dataset. The second pass parses every chunk into the primitive columns of
+     * the dataset, writing every row at its final position, and builds min/max
+     * and a quantile sketch per feature. Tasks only start when the tasks they
+     * depend on are done, so they never block the pool.
+     *
+     * Fields may be quoted, but quoted fields cannot contain line breaks. A line
+     * counts as a row when it has all fields and its frame and id are integers;
+     * rows with other malformed values are skipped in the second pass.
+     *
+     * @param file     The csv file.
+     * @param executor The executor to run the tasks on.
+     * @param threads  The number of threads of the executor.
+     * @return Future of the dataset, which is null if the file could not be read.
+     */
+    private static Future<CSVDataSet> loadFile(File file, ExecutorService executor, int threads) {
+
+        List<String> featurelist;
+        long dataStart;
+
+        try {
+            // Read the header line
+            try (BufferedReader br = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String header = br.readLine();
+                if (header == null) {
+                    System.out.println("Empty data file: " + file.getName());
+                    return CompletableFuture.completedFuture(null);
+                }
+                featurelist = splitLine(header);
+                dataStart = header.getBytes(StandardCharsets.UTF_8).length;
+            }
+            dataStart = skipLineBreak(file, dataStart);
+        } catch (IOException ex) {
+            Logger.getLogger(CSVDataLoader.class.getName()).log(Level.SEVERE, null, ex);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        System.out.println("Features found: " + featurelist);
+
+        int frameIndex = featurelist.indexOf("frame");
+        int idIndex = featurelist.indexOf("id");
+        if (frameIndex < 0 || idIndex < 0 || !featurelist.contains("x") || !featurelist.contains("y")) {
+            System.out.println("Data file " + file.getName() + " needs frame, id, x and y columns.");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Split the data into chunks that start at the beginning of a line
+        List<Long> bounds = new ArrayList<>();
+        try {
+            long length = file.length();
+            int chunks = (int) Math.max(1, Math.min(4L * threads, (length - dataStart) / MIN_CHUNK_BYTES));
+
+            bounds.add(dataStart);
+            for (int c = 1; c < chunks; c++) {
+                long bound = nextLineStart(file, dataStart + (length - dataStart) * c / chunks);
+                if (bound > bounds.get(bounds.size() - 1) && bound < length) {
+                    bounds.add(bound);
+                }
+            }
+            bounds.add(length);
+        } catch (IOException ex) {
+            Logger.getLogger(CSVDataLoader.class.getName()).log(Level.SEVERE, null, ex);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // First pass: rows and movers per chunk
+        List<CompletableFuture<ChunkCount>> counts = new ArrayList<>();
+        for (int c = 0; c + 1 < bounds.size(); c++) {
+            long from = bounds.get(c);
+            long to = bounds.get(c + 1);
+            counts.add(CompletableFuture.supplyAsync(
+                    () -> countChunk(file, from, to, featurelist.size(), frameIndex, idIndex), executor));
+        }
+
+        return allOf(counts).thenCompose(v -> {
+            Layout layout = createLayout(file, featurelist, frameIndex, counts);
+            if (layout == null) {
+                return CompletableFuture.<CSVDataSet>completedFuture(null);
+            }
+
+            // Second pass: values at their final positions
+            List<CompletableFuture<QuantileSketch[]>> sketches = new ArrayList<>();
+            for (int c = 0; c + 1 < bounds.size(); c++) {
+                long from = bounds.get(c);
+                long to = bounds.get(c + 1);
+                sketches.add(CompletableFuture.supplyAsync(
+                        () -> parseChunk(file, from, to, featurelist, frameIndex, idIndex, layout), executor));
+            }
+
+            return allOf(sketches).thenApply(w -> assemble(file, featurelist, frameIndex, layout, sketches));
+        }).exceptionally(ex -> {
+            Logger.getLogger(CSVDataLoader.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        });
+    }
+
+    private static CompletableFuture<Void> allOf(List<? extends CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Determines the size of the dataset from the counts of the chunks and
+     * allocates its columns.
+     *
+     * @return The layout, or null if the file has no rows.
+     */
+    private static Layout createLayout(File file, List<String> featurelist, int frameIndex,
+            List<CompletableFuture<ChunkCount>> counts) {
+
+        long rows = 0;
+        BitSet moversids = new BitSet();
+        for (CompletableFuture<ChunkCount> count : counts) {
+            rows += count.join().rows;
+            moversids.or(count.join().ids);
+        }
+        System.out.println("Dataset rows: " + rows);
+
+        int uniquemovers = moversids.cardinality();
+        System.out.println(uniquemovers + " unique movers.");
+        if (uniquemovers == 0) {
+            System.out.println("No rows in data file " + file.getName());
+            return null;
         }
+
+        // Determine dataset dimensions
+        System.out.println("Dataset size:" + uniquemovers + " movers in " + rows / uniquemovers + " frames.");
+        int numFrames = (int) (rows / uniquemovers);
+
+        return new Layout(featurelist.size(), frameIndex, numFrames, uniquemovers);
     }
 
-    private static void loadFile(File file) {
+    /**
+     * Creates the dataset from the filled columns and the sketches of the
+     * chunks.
+     */
+    private static CSVDataSet assemble(File file, List<String> featurelist, int frameIndex, Layout layout,
+            List<CompletableFuture<QuantileSketch[]>> chunks) {
 
-        DataPoint[][] baseData; // baseData[frame][fish]
         HashMap<String, Double> featureMinValues = new HashMap<>();
         HashMap<String, Double> featureMaxValues = new HashMap<>();
         HashMap<String, Double[]> deciles = new HashMap<>();
 
-        Reader in;
+        // Assign feature percentiles and min/max values
+        for (int f = 0; f < featurelist.size(); f++) {
+            if (f == frameIndex) {
+                continue;
+            }
+            QuantileSketch sketch = new QuantileSketch();
+            for (CompletableFuture<QuantileSketch[]> chunk : chunks) {
+                sketch.merge(chunk.join()[f]);
+            }
 
-        try {
-            // Load CSV
-            in = new FileReader(file);
-            CSVFormat csvFileFormat = CSVFormat.RFC4180.withFirstRecordAsHeader();
-            CSVParser csvFileParser = new CSVParser(in, csvFileFormat);
-            List<CSVRecord> csvRecords = csvFileParser.getRecords();
-            System.out.println("Dataset rows: " + csvRecords.size());
-
-            // Extract unique movers (not very efficient, to be replaced with Maps)
-            HashMap<String, String> moversids = new HashMap<>();
-            for (CSVRecord csvr : csvRecords) {
-                moversids.put(csvr.get("id"), csvr.get("id"));
-            }
-            int uniquemovers = moversids.keySet().size();
-            System.out.println(uniquemovers + " unique movers.");
-
-            // Extract featurelist
-            ArrayList<String> featurelist = new ArrayList<>();
-            featurelist.addAll(csvFileParser.getHeaderMap().keySet());
-            System.out.println("Features found: " + featurelist);
-
-            // Assign feature percentiles and min/max values
-            for (String feature : featurelist) {
-                if (feature.equals("frame")) {
+            Double[] decilesarr = new Double[9];
+            for (int j = 1; j < 10; j++) {
+                decilesarr[j - 1] = sketch.percentile(j * 10);
+            }
+            String feature = featurelist.get(f);
+            deciles.put(feature, decilesarr);
+            featureMinValues.put(feature, sketch.getMin());
+            featureMaxValues.put(feature, sketch.getMax());
+        }
+
+        // Columns, [frame * uniquemovers + id]
+        HashMap<String, double[]> columns = new HashMap<>();
+        double[] xs = null;
+        double[] ys = null;
+        for (int f = 0; f < featurelist.size(); f++) {
+            String feature = featurelist.get(f);
+            if (feature.equals("x")) {
+                xs = layout.values[f];
+            } else if (feature.equals("y")) {
+                ys = layout.values[f];
+            } else if (f != frameIndex) {
+                columns.put(feature, layout.values[f]);
+            }
+        }
+
+        return new ColumnarDataSet(featurelist, layout.frames, layout.movers, xs, ys, layout.ids, columns,
+                deciles, file.getName(), featureMinValues, featureMaxValues);
+    }
+
+    /**
+     * Counts the rows and movers in the byte range [from, to) of a file.
+     */
+    private static ChunkCount countChunk(File file, long from, long to, int numFeatures, int frameIndex,
+            int idIndex) {
+
+        ChunkCount count = new ChunkCount();
+
+        try (LineReader in = new LineReader(file, from, to)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> fields = splitLine(line);
+                if (fields.size() != numFeatures) {
                     continue;
                 }
-                double[] temp = new double[csvRecords.size()];
-                int i = 0;
+                try {
+                    Integer.parseInt(fields.get(frameIndex).trim());
+                    int id = Integer.parseInt(fields.get(idIndex).trim());
+                    if (id >= 0) {
+                        count.ids.set(id);
+                    }
+                    count.rows++;
+                } catch (NumberFormatException e) {
+                    // Reported by the second pass
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return count;
+    }
+
+    /**
+     * Parses the lines in the byte range [from, to) of a file into the columns of
+     * the layout.
+     *
+     * @return The sketch of every feature, null for the frame.
+     */
+    private static QuantileSketch[] parseChunk(File file, long from, long to, List<String> featurelist,
+            int frameIndex, int idIndex, Layout layout) {
+
+        QuantileSketch[] sketches = new QuantileSketch[featurelist.size()];
+        for (int f = 0; f < sketches.length; f++) {
+            if (f != frameIndex) {
+                sketches[f] = new QuantileSketch();
+            }
+        }
+        double[] row = new double[featurelist.size()];
+
+        try (LineReader in = new LineReader(file, from, to)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                List<String> fields = splitLine(line);
+                int frame;
+                int id;
+                try {
+                    if (fields.size() != featurelist.size()) {
+                        throw new NumberFormatException();
+                    }
+                    frame = Integer.parseInt(fields.get(frameIndex).trim());
+                    id = Integer.parseInt(fields.get(idIndex).trim());
 
-                double min = Double.MAX_VALUE;
-                double max = Double.MIN_VALUE;
-                for (CSVRecord csvr : csvRecords) {
-                    temp[i] = Double.parseDouble(csvr.get(feature));
-                    if (temp[i] < min) {
-                        min = temp[i];
+                    // Parse the whole row before storing it
+                    for (int f = 0; f < fields.size(); f++) {
+                        if (f != frameIndex) {
+                            row[f] = Double.parseDouble(fields.get(f));
+                        }
                     }
-                    if (temp[i] > max) {
-                        max = temp[i];
+                } catch (NumberFormatException e) {
+                    System.out.println("Skipping malformed line in " + file.getName() + ": " + line);
+                    continue;
+                }
+
+                for (int f = 0; f < row.length; f++) {
+                    if (sketches[f] != null) {
+                        sketches[f].add(row[f]);
                     }
+                }
+
+                if (frame < 0 || frame >= layout.frames || id < 0 || id >= layout.movers) {
+                    System.out.println("baseData size: basedata[" + layout.frames + "][" + layout.movers + "]");
+                    System.out.println(frame + "/" + id);
+                    continue;
+                }
+
+                int index = frame * layout.movers + id;
+                layout.ids[index] = id;
+                for (int f = 0; f < row.length; f++) {
+                    if (layout.values[f] != null) {
+                        layout.values[f][index] = row[f];
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return sketches;
+    }
+
+    /**
+     * Splits a csv line into its fields. Quotes around fields are removed and
+     * doubled quotes inside quoted fields are unescaped.
+     */
+    static List<String> splitLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
 
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
                     i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
                 }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+
+        return fields;
+    }
+
+    /**
+     * Returns the offset after the line break at the given offset, if there is
+     * one.
+     */
+    private static long skipLineBreak(File file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            int c = raf.read();
+            if (c == '\r') {
+                offset++;
+                c = raf.read();
+            }
+            if (c == '\n') {
+                offset++;
+            }
+        }
+        return offset;
+    }
 
-                Double[] decilesarr = new Double[9];
-                for (int j = 1; j < 10; j++) {
-                    decilesarr[j - 1] = StatUtils.percentile(temp, j * 10);
-                    // System.out.println("Percentile " + j*10 + ": " + StatUtils.percentile(temp,
-                    // j*10));
+    /**
+     * Returns the offset of the first line that starts at or after the given
+     * offset.
+     */
+    private static long nextLineStart(File file, long offset) throws IOException {
+        if (offset == 0) {
+            return 0;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset - 1);
+            byte[] block = new byte[8192];
+            long position = offset - 1;
+            int read;
+            while ((read = raf.read(block)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (block[i] == '\n') {
+                        return position + i + 1;
+                    }
                 }
-                deciles.put(feature, decilesarr);
-                featureMinValues.put(feature, min);
-                featureMaxValues.put(feature, max);
+                position += read;
             }
+            return position;
+        }
+    }
 
-            // Determine dataset dimensions
-            int frames = Math.toIntExact(csvRecords.size());
-            System.out.println("Dataset size:" + uniquemovers + " movers in " + frames / uniquemovers + " frames.");
-            baseData = new DataPoint[(int) (frames / uniquemovers)][uniquemovers];
-            // baseData = new DataPoint[30][uniquemovers];
+    /**
+     * Reads the lines that start in the byte range [from, to) of a file. The
+     * file is read in blocks; the last line may extend beyond the range.
+     */
+    private static class LineReader implements Closeable {
 
-            for (int i = 0; i < csvRecords.size(); i++) {
-                CSVRecord csvr = csvRecords.get(i);
+        private final FileInputStream in;
+        private final long to;
+        private long position;
+
+        private final byte[] block = new byte[1 << 16];
+        private int blockStart = 0;
+        private int blockEnd = 0;
+        private boolean end = false;
+
+        private byte[] line = new byte[256];
+
+        LineReader(File file, long from, long to) throws IOException {
+            this.in = new FileInputStream(file);
+            this.to = to;
+            this.position = from;
+            in.getChannel().position(from);
+        }
 
-                DataPoint dp = new DataPoint(Double.parseDouble(csvr.get("x")), Double.parseDouble(csvr.get("y")),
-                        Integer.parseInt(csvr.get("id")));
+        /**
+         * Returns the next line without its line break, or null after the last
+         * line of the range.
+         */
+        String readLine() throws IOException {
+            if (position >= to || end) {
+                return null;
+            }
 
-                for (int j = 0; j < featurelist.size(); j++) {
-                    String feature = featurelist.get(j);
-                    if (feature.equals("frame") || feature.equals("x") || feature.equals("y")) {
-                        continue;
+            int length = 0;
+            while (true) {
+                if (blockStart == blockEnd) {
+                    int read = in.read(block);
+                    if (read <= 0) {
+                        end = true;
+                        break;
                     }
-                    dp.putValue(feature, Double.parseDouble(csvr.get(feature)));
+                    blockStart = 0;
+                    blockEnd = read;
                 }
 
-                try {
-                    int frame = Integer.parseInt(csvr.get("frame"));
-                    // if(frame < 30) {
-                    baseData[frame][Integer.parseInt(csvr.get("id"))] = dp;
-                    // }
-                } catch (Exception e) {
-                    System.out.println("baseData size: basedata[" + baseData.length + "][" + baseData[0].length + "]");
-                    System.out.println(Integer.parseInt(csvr.get("frame")) + "/" + Integer.parseInt(csvr.get("id")));
-                    e.printStackTrace();
+                int start = blockStart;
+                while (blockStart < blockEnd && block[blockStart] != '\n') {
+                    blockStart++;
+                }
+                int n = blockStart - start;
+                if (length + n > line.length) {
+                    line = Arrays.copyOf(line, Math.max(2 * line.length, length + n));
+                }
+                System.arraycopy(block, start, line, length, n);
+                length += n;
+                position += n;
+
+                if (blockStart < blockEnd) {
+                    // Skip the line break
+                    blockStart++;
+                    position++;
+                    break;
                 }
             }
 
-            CSVDataSet csvd = new CSVDataSet(featurelist, baseData, deciles, file.getName(), featureMinValues,
-                    featureMaxValues);
-            SessionData.getInstance().addDataset(csvd);
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
 
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(CSVDataLoader.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IOException ex) {
-            Logger.getLogger(CSVDataLoader.class.getName()).log(Level.SEVERE, null, ex);
+        @Override
+        public void close() throws IOException {
+            in.close();
         }
+    }
+
+    /**
+     * The number of rows and the movers in a chunk of a file.
+     */
+    private static class ChunkCount {
+        long rows = 0;
+        BitSet ids = new BitSet();
+    }
 
+    /**
+     * The size and the columns of a dataset, [frame * movers + id]. Chunks write
+     * their rows directly into the columns.
+     */
+    private static class Layout {
+        final int frames;
+        final int movers;
+        final double[][] values;
+        final int[] ids;
+
+        Layout(int numFeatures, int frameIndex, int frames, int movers) {
+            this.frames = frames;
+            this.movers = movers;
+            this.values = new double[numFeatures][];
+            for (int f = 0; f < numFeatures; f++) {
+                if (f != frameIndex) {
+                    values[f] = new double[frames * movers];
+                }
+            }
+            // Cells without a row in the file keep id -1
+            this.ids = new int[frames * movers];
+            Arrays.fill(ids, -1);
+        }
     }
 
 }
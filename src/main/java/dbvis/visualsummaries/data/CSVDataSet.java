@@ -29,7 +29,7 @@ public class CSVDataSet implements DataSet {
     private List<String> features;
     private DataPoint[][] baseData;
     private HashMap<String, Double[]> deciles;
-    private HashMap<String, DataPoint[][]> orderedDataSets;
+    private HashMap<String, Ordering> orderedDataSets;
     private HashMap<String, Double> featureMins;
     private HashMap<String, Double> featureMaxs;
     private HashMap<String, StrategyStatistics> stats;
@@ -89,7 +89,8 @@ public class CSVDataSet implements DataSet {
     }
 
     /**
-     * Stores results of applied ordering strategies separately
+     * Stores results of applied ordering strategies separately, as permutations
+     * of the base data
      *
      * @param data the ordered data to store
      * @param strategyID the id of the strategy the data was ordered with
@@ -102,11 +103,12 @@ public class CSVDataSet implements DataSet {
         if (strategyID == null) {
             System.out.println("STRATID IS NULL");
         }
-        orderedDataSets.put(strategyID, data);
+        orderedDataSets.put(strategyID, Ordering.encode(data, getBaseData()));
     }
 
     /**
-     * Returns the ordered data
+     * Returns the ordered data. The DataPoint grid is created from the stored
+     * permutations on demand.
      *
      * @param strategyID the strategy for which ordered data is returned
      * @return the ordered data
@@ -115,8 +117,20 @@ public class CSVDataSet implements DataSet {
     public DataPoint[][] getData(String strategyID) {
         //System.out.println("TRYING TO GET DATA. INPUT ID: " + strategyID);
         //System.out.println("EXISTING KEYS: " + orderedDataSets.keySet());
+        Ordering ordering = orderedDataSets.get(strategyID);
+        return ordering == null ? null : ordering.getDataPoints();
+    }
+
+    @Override
+    public Ordering getOrdering(String strategyID) {
         return orderedDataSets.get(strategyID);
     }
+
+    @Override
+    public DataPoint[] getOrderedFrame(String strategyID, int frameid) {
+        Ordering ordering = orderedDataSets.get(strategyID);
+        return ordering == null ? null : ordering.getFrame(frameid);
+    }
     
     @Override
     public Set<String> getCurStrats(){
@@ -0,0 +1,234 @@
+package dbvis.visualsummaries.data;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dataset that stores positions, ids and feature values in flat primitive
+ * columns instead of a grid of DataPoints. The value of entity e in frame f is
+ * at index f * entities + e of every column.
+ *
+ * The accessors for single values and the column getters do not allocate, and
+ * are intended for loops that only need positions or a few features; see
+ * {@link Positions}. For code that works on DataPoints, {@link #getBaseData()}
+ * builds the DataPoint grid on first use and keeps it, so every caller sees the
+ * same DataPoint objects. The DataPoints hold the feature values, so the
+ * feature columns are released once the grid exists and feature values are
+ * read from the DataPoints from then on. The position and id columns are kept.
+ *
+ * A cell without a row in the file has id -1 and values 0 in the columns, and
+ * no DataPoint in the grid (null, as in {@link CSVDataSet}).
+ *
+ * Everything except the base data (ordered data, statistics, deciles) is handled
+ * as in {@link CSVDataSet}.
+ */
+public class ColumnarDataSet extends CSVDataSet {
+
+    private final int frames;
+    private final int entities;
+
+    private final double[] x;
+    private final double[] y;
+    private final int[] ids;
+    private final Set<String> columnNames;
+
+    // Released when the DataPoint grid is created
+    private volatile Map<String, double[]> columns;
+
+    private volatile DataPoint[][] baseData;
+
+    /**
+     * @param features    the list of features contained in the dataset
+     * @param frames      the number of frames
+     * @param entities    the number of entities per frame
+     * @param x           the x coordinates, [frame * entities + entity]
+     * @param y           the y coordinates, [frame * entities + entity]
+     * @param ids         the mover ids, [frame * entities + entity], -1 for
+     *                    cells without a row
+     * @param columns     the values of the other features, with the same layout
+     * @param deciles     a map containing deciles of the feature value ranges for
+     *                    each feature
+     * @param name        the name of the dataset
+     * @param featureMins the min value per feature
+     * @param featureMaxs the max value per feature
+     */
+    public ColumnarDataSet(List<String> features, int frames, int entities, double[] x, double[] y, int[] ids,
+            Map<String, double[]> columns, HashMap<String, Double[]> deciles, String name,
+            HashMap<String, Double> featureMins, HashMap<String, Double> featureMaxs) {
+        super(features, null, deciles, name, featureMins, featureMaxs);
+
+        int size = frames * entities;
+        if (x.length != size || y.length != size || ids.length != size) {
+            throw new IllegalArgumentException("Columns do not match " + frames + " frames of " + entities
+                    + " entities.");
+        }
+        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+            if (column.getValue().length != size) {
+                throw new IllegalArgumentException("Column " + column.getKey() + " does not match " + frames
+                        + " frames of " + entities + " entities.");
+            }
+        }
+
+        this.frames = frames;
+        this.entities = entities;
+        this.x = x;
+        this.y = y;
+        this.ids = ids;
+        this.columns = columns;
+        this.columnNames = new HashSet<>(columns.keySet());
+    }
+
+    /**
+     * Returns the number of frames.
+     */
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of entities in every frame.
+     */
+    public int getEntityCount() {
+        return entities;
+    }
+
+    public double getX(int frame, int entity) {
+        return x[frame * entities + entity];
+    }
+
+    public double getY(int frame, int entity) {
+        return y[frame * entities + entity];
+    }
+
+    public int getId(int frame, int entity) {
+        return ids[frame * entities + entity];
+    }
+
+    /**
+     * Returns the value of a feature of an entity in a frame. For loops over many
+     * values, get the column once with {@link #getColumn(String)}.
+     *
+     * @param frame   the frame
+     * @param entity  the entity
+     * @param feature the feature
+     * @return the value of the feature
+     */
+    public double getValue(int frame, int entity, String feature) {
+        Map<String, double[]> current = columns;
+        if (current == null) {
+            DataPoint dp = baseData[frame][entity];
+            return dp == null ? 0 : dp.getValue(feature);
+        }
+        return current.get(feature)[frame * entities + entity];
+    }
+
+    /**
+     * Returns the x coordinates, [frame * entities + entity]. The array is shared
+     * and must not be modified.
+     */
+    public double[] getXColumn() {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinates, [frame * entities + entity]. The array is shared
+     * and must not be modified.
+     */
+    public double[] getYColumn() {
+        return y;
+    }
+
+    /**
+     * Returns the mover ids, [frame * entities + entity], -1 for cells without a
+     * row. The array is shared and must not be modified.
+     */
+    public int[] getIdColumn() {
+        return ids;
+    }
+
+    /**
+     * Returns the values of a feature, [frame * entities + entity]. The array is
+     * shared and must not be modified. Once the DataPoint grid exists the column
+     * is copied from the DataPoints on every call.
+     *
+     * @param feature the feature
+     * @return the values of the feature, or null if the dataset does not have it
+     */
+    public double[] getColumn(String feature) {
+        Map<String, double[]> current = columns;
+        if (current != null) {
+            return current.get(feature);
+        }
+        if (!columnNames.contains(feature)) {
+            return null;
+        }
+
+        double[] values = new double[frames * entities];
+        for (int frame = 0; frame < frames; frame++) {
+            for (int entity = 0; entity < entities; entity++) {
+                DataPoint dp = baseData[frame][entity];
+                values[frame * entities + entity] = dp == null ? 0 : dp.getValue(feature);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the base data as DataPoints. The DataPoints are created on the first
+     * call, after which the feature columns are released.
+     *
+     * @return the base data
+     */
+    @Override
+    public DataPoint[][] getBaseData() {
+        DataPoint[][] data = baseData;
+        if (data == null) {
+            synchronized (this) {
+                data = baseData;
+                if (data == null) {
+                    data = createBaseData();
+                    baseData = data;
+                    columns = null;
+                }
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public DataPoint[] getSingleFrame(int frameid) {
+        return getBaseData()[frameid];
+    }
+
+    /**
+     * Returns whether the DataPoint view of the base data has been created.
+     */
+    public boolean hasBaseData() {
+        return baseData != null;
+    }
+
+    private DataPoint[][] createBaseData() {
+        DataPoint[][] data = new DataPoint[frames][entities];
+
+        for (int frame = 0; frame < frames; frame++) {
+            for (int entity = 0; entity < entities; entity++) {
+                int i = frame * entities + entity;
+                if (ids[i] < 0) {
+                    continue;
+                }
+
+                DataPoint dp = new DataPoint(x[i], y[i], ids[i]);
+                for (Map.Entry<String, double[]> column : columns.entrySet()) {
+                    dp.putValue(column.getKey(), column.getValue()[i]);
+                }
+                data[frame][entity] = dp;
+            }
+        }
+
+        return data;
+    }
+
+}
@@ -50,6 +50,26 @@ public interface DataSet {
      */
     public DataPoint[][] getData(String strategyID);
 
+    /**
+     * Retrieves the ordering of a strategy as permutations of the base data.
+     *
+     * @param strategyID The desired strategy
+     * @return The ordering or null if the data was not sorted according to the
+     * specified strategy.
+     */
+    public Ordering getOrdering(String strategyID);
+
+    /**
+     * Retrieves a single frame of the sorted data, without creating the sorted
+     * data of the other frames.
+     *
+     * @param strategyID The desired strategy
+     * @param frameid The ID of the data frame to be returned
+     * @return The sorted entities at the given frame id or null if the data was
+     * not sorted according to the specified strategy.
+     */
+    public DataPoint[] getOrderedFrame(String strategyID, int frameid);
+
     /**
      * Returns the minimum value of the base dataset
      *
@@ -0,0 +1,241 @@
+package dbvis.visualsummaries.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts order inversions (crossings) between two rankings of the same
+ * entities in O(n log n), instead of comparing every pair of entities.
+ *
+ * A ranking is an int array indexed by entity that holds the position of the
+ * entity, as in an entity-to-position map. A pair of entities crosses if its
+ * order is strictly different in the two rankings; it crosses in reverse if
+ * its order is strictly different once the second ranking is reversed. Pairs
+ * with equal positions in either ranking cross in neither direction.
+ *
+ * Both counts follow from one merge sort: the entities are sorted on the first
+ * ranking, the crossings are the inversions of the second ranking in that
+ * order, and the reverse crossings are the remaining pairs without ties.
+ */
+public class Inversions {
+
+    /**
+     * The number of crossings between two rankings, forwards and with the
+     * second ranking reversed.
+     */
+    public static class Counts {
+
+        private final long crossings;
+        private final long reverseCrossings;
+
+        Counts(long crossings, long reverseCrossings) {
+            this.crossings = crossings;
+            this.reverseCrossings = reverseCrossings;
+        }
+
+        public long getCrossings() {
+            return crossings;
+        }
+
+        public long getReverseCrossings() {
+            return reverseCrossings;
+        }
+
+        /**
+         * Returns whether reversing the second ranking removes crossings.
+         */
+        public boolean shouldReverse() {
+            return reverseCrossings < crossings;
+        }
+    }
+
+    /**
+     * Function counts the pairs of entities whose order differs between two
+     * rankings.
+     *
+     * @param ranksA The position of each entity in the first ranking.
+     * @param ranksB The position of each entity in the second ranking.
+     * @return The number of crossings.
+     */
+    public static long countCrossings(int[] ranksA, int[] ranksB) {
+        return count(ranksA, ranksB).getCrossings();
+    }
+
+    /**
+     * Function counts the crossings between two rankings, forwards and with the
+     * second ranking reversed.
+     *
+     * @param ranksA The position of each entity in the first ranking.
+     * @param ranksB The position of each entity in the second ranking.
+     * @return The crossings in both directions.
+     */
+    public static Counts count(int[] ranksA, int[] ranksB) {
+        if (ranksA.length != ranksB.length) {
+            throw new IllegalArgumentException("Rankings must have the same length.");
+        }
+        int n = ranksA.length;
+
+        // Sort the entities on (rankA, rankB); rankB is stored in the low bits
+        // with its sign bit flipped, so that it compares as an unsigned value
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) ranksA[i] << 32) | ((ranksB[i] ^ Integer.MIN_VALUE) & 0xffffffffL);
+        }
+        Arrays.sort(keys);
+
+        int[] sequence = new int[n];
+        for (int i = 0; i < n; i++) {
+            sequence[i] = (int) keys[i] ^ Integer.MIN_VALUE;
+        }
+
+        // Pairs tied in the first ranking, and in both rankings
+        long tiesA = 0;
+        long tiesBoth = 0;
+        for (int i = 0; i < n;) {
+            int j = i + 1;
+            while (j < n && (keys[j] >>> 32) == (keys[i] >>> 32)) {
+                j++;
+            }
+            tiesA += pairs(j - i);
+            for (int k = i; k < j;) {
+                int l = k + 1;
+                while (l < j && keys[l] == keys[k]) {
+                    l++;
+                }
+                tiesBoth += pairs(l - k);
+                k = l;
+            }
+            i = j;
+        }
+
+        long crossings = mergeSortCount(sequence, new int[n], 0, n);
+
+        // The sequence is now sorted on the second ranking
+        long tiesB = 0;
+        for (int i = 0; i < n;) {
+            int j = i + 1;
+            while (j < n && sequence[j] == sequence[i]) {
+                j++;
+            }
+            tiesB += pairs(j - i);
+            i = j;
+        }
+
+        long reverseCrossings = pairs(n) - tiesA - tiesB + tiesBoth - crossings;
+
+        return new Counts(crossings, reverseCrossings);
+    }
+
+    /**
+     * Function counts the crossings between every pair of consecutive frames.
+     * The frames are processed in parallel.
+     *
+     * @param ranks   The rankings, ranks[frame][entity].
+     * @param threads The number of worker threads.
+     * @return The crossings between frame i and frame i + 1 at index i.
+     */
+    public static Counts[] countFrames(int[][] ranks, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+
+        int numPairs = Math.max(0, ranks.length - 1);
+        Counts[] counts = new Counts[numPairs];
+        if (numPairs == 0) {
+            return counts;
+        }
+
+        if (threads == 1) {
+            countFrames(ranks, counts, 0, numPairs);
+            return counts;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int jobs = Math.min(numPairs, threads * 4);
+            int chunkSize = (numPairs + jobs - 1) / jobs;
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int lo = 0; lo < numPairs; lo += chunkSize) {
+                final int from = lo;
+                final int to = Math.min(lo + chunkSize, numPairs);
+                futures.add(executor.submit(() -> countFrames(ranks, counts, from, to)));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Function converts frames of ordered data points to rankings.
+     *
+     * @param ordered The data points in order, ordered[frame][position].
+     * @return The position of each entity id, ranks[frame][id].
+     */
+    public static int[][] toRanks(DataPoint[][] ordered) {
+        int[][] ranks = new int[ordered.length][];
+        for (int frame = 0; frame < ordered.length; frame++) {
+            ranks[frame] = new int[ordered[frame].length];
+            for (int position = 0; position < ordered[frame].length; position++) {
+                ranks[frame][ordered[frame][position].getId()] = position;
+            }
+        }
+        return ranks;
+    }
+
+    private static void countFrames(int[][] ranks, Counts[] counts, int from, int to) {
+        for (int frame = from; frame < to; frame++) {
+            counts[frame] = count(ranks[frame], ranks[frame + 1]);
+        }
+    }
+
+    private static long pairs(long n) {
+        return n * (n - 1) / 2;
+    }
+
+    /**
+     * Sorts values[lo, hi) and returns the number of strict inversions in it,
+     * using buffer[lo, hi) as scratch space.
+     */
+    private static long mergeSortCount(int[] values, int[] buffer, int lo, int hi) {
+        if (hi - lo < 2) {
+            return 0;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        long inversions = mergeSortCount(values, buffer, lo, mid) + mergeSortCount(values, buffer, mid, hi);
+
+        if (values[mid - 1] <= values[mid]) {
+            return inversions;
+        }
+
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (j >= hi || (i < mid && values[i] <= values[j])) {
+                buffer[k] = values[i++];
+            } else {
+                // values[j] is smaller than all remaining values of the left half
+                inversions += mid - i;
+                buffer[k] = values[j++];
+            }
+        }
+        System.arraycopy(buffer, lo, values, lo, hi - lo);
+
+        return inversions;
+    }
+
+}
@@ -0,0 +1,308 @@
+package dbvis.visualsummaries.data;
+
+import java.lang.ref.SoftReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The result of an ordering strategy, stored as one permutation of the entities
+ * of the base data per frame instead of a grid of DataPoint references.
+ *
+ * Each frame stores, for every position, the index of the entity in the
+ * corresponding frame of the base data. Indices are stored as shorts when there
+ * are fewer than 32768 entities. A frame that differs from the previous frame
+ * in only a few positions is stored as the changed (position, index) pairs;
+ * every {@link #KEYFRAME_INTERVAL} frames the full permutation is stored, so a
+ * frame is decoded from at most that many frames.
+ *
+ * Ordered data that is not a reordering of the base data DataPoints (for
+ * instance if a strategy created new DataPoints) is kept as a grid.
+ */
+public class Ordering {
+
+    /**
+     * Maximum distance between frames that store the full permutation.
+     */
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    private final DataPoint[][] baseData;
+    private final int frames;
+    private final int entities;
+
+    // Frame f is stored in [offsets[f], offsets[f + 1]) of the index store.
+    // Keyframes hold the permutation, other frames (position, index) pairs.
+    private final boolean[] keyframes;
+    private final int[] offsets;
+    private final short[] shortIndices;
+    private final int[] intIndices;
+
+    // Set instead of the above if the data could not be encoded
+    private final DataPoint[][] grid;
+
+    private volatile SoftReference<DataPoint[][]> view = new SoftReference<>(null);
+
+    /**
+     * Function encodes ordered data as permutations of the base data.
+     *
+     * @param ordered  The ordered data, ordered[frame][position].
+     * @param baseData The unordered base data the ordered data was created from.
+     * @return The ordering.
+     */
+    public static Ordering encode(DataPoint[][] ordered, DataPoint[][] baseData) {
+        int[][] permutations = toPermutations(ordered, baseData);
+        if (permutations == null) {
+            return new Ordering(ordered, baseData);
+        }
+        return new Ordering(permutations, baseData);
+    }
+
+    private Ordering(DataPoint[][] grid, DataPoint[][] baseData) {
+        this.baseData = baseData;
+        this.frames = grid.length;
+        this.entities = grid.length > 0 ? grid[0].length : 0;
+        this.keyframes = null;
+        this.offsets = null;
+        this.shortIndices = null;
+        this.intIndices = null;
+        this.grid = grid;
+    }
+
+    private Ordering(int[][] permutations, DataPoint[][] baseData) {
+        this.baseData = baseData;
+        this.frames = permutations.length;
+        this.entities = permutations.length > 0 ? permutations[0].length : 0;
+        this.grid = null;
+
+        // Decide per frame whether to store the full permutation or the changes
+        keyframes = new boolean[frames];
+        offsets = new int[frames + 1];
+        int sinceKeyframe = KEYFRAME_INTERVAL;
+        for (int frame = 0; frame < frames; frame++) {
+            int length = entities;
+            if (sinceKeyframe < KEYFRAME_INTERVAL) {
+                int changes = countChanges(permutations[frame - 1], permutations[frame]);
+                if (2 * changes < entities) {
+                    length = 2 * changes;
+                }
+            }
+            keyframes[frame] = length == entities;
+            sinceKeyframe = keyframes[frame] ? 1 : sinceKeyframe + 1;
+            offsets[frame + 1] = offsets[frame] + length;
+        }
+
+        int size = offsets[frames];
+        boolean small = entities <= Short.MAX_VALUE;
+        shortIndices = small ? new short[size] : null;
+        intIndices = small ? null : new int[size];
+
+        for (int frame = 0; frame < frames; frame++) {
+            int offset = offsets[frame];
+            int[] permutation = permutations[frame];
+            if (keyframes[frame]) {
+                for (int position = 0; position < entities; position++) {
+                    set(offset + position, permutation[position]);
+                }
+            } else {
+                int[] previous = permutations[frame - 1];
+                for (int position = 0; position < entities; position++) {
+                    if (permutation[position] != previous[position]) {
+                        set(offset++, position);
+                        set(offset++, permutation[position]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of frames.
+     */
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Returns whether the ordering is stored as permutations rather than as a
+     * grid of DataPoints.
+     */
+    public boolean isCompact() {
+        return grid == null;
+    }
+
+    /**
+     * Returns the ordering of a frame as indices into the same frame of the base
+     * data.
+     *
+     * @param frame The frame.
+     * @return The index of the entity at each position, or null if the ordering
+     *         is not compact and the frame is not a reordering of the base frame.
+     */
+    public int[] getPermutation(int frame) {
+        if (frame < 0 || frame >= frames) {
+            throw new IndexOutOfBoundsException("Frame " + frame + ", frames " + frames);
+        }
+
+        if (grid != null) {
+            if (baseData == null || frame >= baseData.length || grid[frame].length != baseData[frame].length) {
+                return null;
+            }
+            return toPermutation(grid[frame], baseData[frame]);
+        }
+
+        int keyframe = frame;
+        while (!keyframes[keyframe]) {
+            keyframe--;
+        }
+
+        int[] permutation = new int[entities];
+        for (int position = 0; position < entities; position++) {
+            permutation[position] = get(offsets[keyframe] + position);
+        }
+        for (int f = keyframe + 1; f <= frame; f++) {
+            for (int i = offsets[f]; i < offsets[f + 1]; i += 2) {
+                permutation[get(i)] = get(i + 1);
+            }
+        }
+        return permutation;
+    }
+
+    /**
+     * Returns the ordered DataPoints of a single frame.
+     *
+     * @param frame The frame.
+     * @return The DataPoints in order.
+     */
+    public DataPoint[] getFrame(int frame) {
+        DataPoint[][] data = view.get();
+        if (data != null) {
+            return data[frame];
+        }
+        if (grid != null) {
+            return grid[frame];
+        }
+
+        int[] permutation = getPermutation(frame);
+        DataPoint[] points = new DataPoint[entities];
+        for (int position = 0; position < entities; position++) {
+            points[position] = baseData[frame][permutation[position]];
+        }
+        return points;
+    }
+
+    /**
+     * Returns the ordered data as a grid of DataPoints, ordered[frame][position].
+     * The grid is created on demand and kept until memory runs low, so it must
+     * not be modified.
+     *
+     * @return The ordered data.
+     */
+    public DataPoint[][] getDataPoints() {
+        if (grid != null) {
+            return grid;
+        }
+
+        DataPoint[][] data = view.get();
+        if (data == null) {
+            data = new DataPoint[frames][entities];
+            int[] permutation = new int[entities];
+            for (int frame = 0; frame < frames; frame++) {
+                if (keyframes[frame]) {
+                    for (int position = 0; position < entities; position++) {
+                        permutation[position] = get(offsets[frame] + position);
+                    }
+                } else {
+                    for (int i = offsets[frame]; i < offsets[frame + 1]; i += 2) {
+                        permutation[get(i)] = get(i + 1);
+                    }
+                }
+                for (int position = 0; position < entities; position++) {
+                    data[frame][position] = baseData[frame][permutation[position]];
+                }
+            }
+            view = new SoftReference<>(data);
+        }
+        return data;
+    }
+
+    private int get(int i) {
+        return shortIndices != null ? shortIndices[i] & 0xffff : intIndices[i];
+    }
+
+    private void set(int i, int value) {
+        if (shortIndices != null) {
+            shortIndices[i] = (short) value;
+        } else {
+            intIndices[i] = value;
+        }
+    }
+
+    private static int countChanges(int[] previous, int[] permutation) {
+        int changes = 0;
+        for (int position = 0; position < permutation.length; position++) {
+            if (permutation[position] != previous[position]) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the base data index of every ordered DataPoint, or null if a frame
+     * is not a reordering of the DataPoints of the base frame.
+     */
+    private static int[][] toPermutations(DataPoint[][] ordered, DataPoint[][] baseData) {
+        if (baseData == null || ordered.length != baseData.length) {
+            return null;
+        }
+
+        int[][] permutations = new int[ordered.length][];
+        for (int frame = 0; frame < ordered.length; frame++) {
+            if (ordered[frame].length != baseData[frame].length
+                    || (frame > 0 && ordered[frame].length != ordered[0].length)) {
+                return null;
+            }
+            permutations[frame] = toPermutation(ordered[frame], baseData[frame]);
+            if (permutations[frame] == null) {
+                return null;
+            }
+        }
+        return permutations;
+    }
+
+    /**
+     * Returns the index of every DataPoint of a frame in the base frame, or null
+     * if one of them is not in the base frame.
+     */
+    private static int[] toPermutation(DataPoint[] frame, DataPoint[] baseFrame) {
+        int[] permutation = new int[frame.length];
+        Map<DataPoint, Integer> indices = null;
+
+        for (int position = 0; position < frame.length; position++) {
+            DataPoint point = frame[position];
+            if (point == null) {
+                return null;
+            }
+
+            // Base frames are usually indexed by id
+            int id = point.getId();
+            if (id >= 0 && id < baseFrame.length && baseFrame[id] == point) {
+                permutation[position] = id;
+                continue;
+            }
+
+            if (indices == null) {
+                indices = new IdentityHashMap<>();
+                for (int i = 0; i < baseFrame.length; i++) {
+                    indices.put(baseFrame[i], i);
+                }
+            }
+            Integer index = indices.get(point);
+            if (index == null) {
+                return null;
+            }
+            permutation[position] = index;
+        }
+        return permutation;
+    }
+
+}
@@ -0,0 +1,129 @@
+package dbvis.visualsummaries.data;
+
+/**
+ * The positions and ids of all entities of a dataset as flat columns, indexed
+ * by frame * entities + entity. Code that only needs positions reads these
+ * instead of the DataPoint grid: for a {@link ColumnarDataSet} the columns of
+ * the dataset are shared, so no DataPoints are created.
+ */
+public class Positions {
+
+    private final int frames;
+    private final int entities;
+    private final double[] x;
+    private final double[] y;
+    private final int[] ids;
+
+    /**
+     * @param frames   the number of frames
+     * @param entities the number of entities per frame
+     * @param x        the x coordinates, [frame * entities + entity]
+     * @param y        the y coordinates, [frame * entities + entity]
+     * @param ids      the mover ids, [frame * entities + entity]
+     */
+    public Positions(int frames, int entities, double[] x, double[] y, int[] ids) {
+        this.frames = frames;
+        this.entities = entities;
+        this.x = x;
+        this.y = y;
+        this.ids = ids;
+    }
+
+    /**
+     * Returns the positions of a dataset. The columns of a
+     * {@link ColumnarDataSet} are shared, other datasets are copied from their
+     * base data.
+     *
+     * @param dataset the dataset
+     * @return the positions
+     */
+    public static Positions of(DataSet dataset) {
+        if (dataset instanceof ColumnarDataSet) {
+            ColumnarDataSet columnar = (ColumnarDataSet) dataset;
+            return new Positions(columnar.getFrameCount(), columnar.getEntityCount(), columnar.getXColumn(),
+                    columnar.getYColumn(), columnar.getIdColumn());
+        }
+        return of(dataset.getBaseData());
+    }
+
+    /**
+     * Returns a copy of the positions of a DataPoint grid. Every frame must have
+     * the same number of entities.
+     *
+     * @param data the data, [frame][entity]
+     * @return the positions
+     */
+    public static Positions of(DataPoint[][] data) {
+        int frames = data.length;
+        int entities = frames == 0 ? 0 : data[0].length;
+
+        double[] x = new double[frames * entities];
+        double[] y = new double[frames * entities];
+        int[] ids = new int[frames * entities];
+        for (int frame = 0; frame < frames; frame++) {
+            if (data[frame].length != entities) {
+                throw new IllegalArgumentException("Frame " + frame + " does not have " + entities + " entities.");
+            }
+            for (int entity = 0; entity < entities; entity++) {
+                DataPoint p = data[frame][entity];
+                int i = frame * entities + entity;
+                x[i] = p.getX();
+                y[i] = p.getY();
+                ids[i] = p.getId();
+            }
+        }
+
+        return new Positions(frames, entities, x, y, ids);
+    }
+
+    public int getFrameCount() {
+        return frames;
+    }
+
+    public int getEntityCount() {
+        return entities;
+    }
+
+    public double getX(int frame, int entity) {
+        return x[frame * entities + entity];
+    }
+
+    public double getY(int frame, int entity) {
+        return y[frame * entities + entity];
+    }
+
+    public int getId(int frame, int entity) {
+        return ids[frame * entities + entity];
+    }
+
+    /**
+     * Returns the distance between two entities in a frame, computed exactly as
+     * in Utils.getEuclideanDistance.
+     *
+     * @param frame the frame
+     * @param a     the first entity
+     * @param b     the second entity
+     * @return the euclidean distance
+     */
+    public double distance(int frame, int a, int b) {
+        int i = frame * entities + a;
+        int j = frame * entities + b;
+        return Math.sqrt(Math.pow(x[i] - x[j], 2) + Math.pow(y[i] - y[j], 2));
+    }
+
+    /**
+     * Creates the DataPoints of a single frame, with positions and ids only.
+     *
+     * @param frame the frame
+     * @return the entities of the frame
+     */
+    public DataPoint[] createFrame(int frame) {
+        DataPoint[] points = new DataPoint[entities];
+        for (int entity = 0; entity < entities; entity++) {
+            int i = frame * entities + entity;
+            points[entity] = new DataPoint(x[i], y[i], ids[i]);
+        }
+        return points;
+    }
+
+}
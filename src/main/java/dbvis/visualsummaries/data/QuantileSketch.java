@@ -0,0 +1,233 @@
+package dbvis.visualsummaries.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mergeable quantile sketch (after Karnin, Lang and Liberty, "Optimal Quantile
+ * Approximation in Streams", 2016) with exact count, min and max.
+ *
+ * Values are kept in levels; a value on level h stands for 2^h values of the
+ * input. When a level is full it is sorted and every other value moves up a
+ * level. As long as fewer than {@link #DEFAULT_K} values were added nothing is
+ * compacted and the percentiles are exact. Sketches built on parts of the data
+ * can be merged, so chunks of a file can be summarized in parallel.
+ *
+ * Percentiles are estimated like StatUtils.percentile: the value at rank
+ * p * (n + 1) / 100, interpolated between the neighbouring ranks.
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_K = 4096;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private final List<double[]> levels = new ArrayList<>();
+    // The number of values and the capacity of every level
+    private int[] sizes = new int[0];
+    private int[] capacities = new int[0];
+
+    private long count = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    // Alternates which half of a compacted level is kept.
+    private boolean keepOdd = false;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k Capacity of the top level; the rank error is about 1 / k.
+     */
+    public QuantileSketch(int k) {
+        this.k = k;
+        addLevel();
+    }
+
+    /**
+     * Function adds a value to the sketch.
+     *
+     * @param value The value.
+     */
+    public void add(double value) {
+        count++;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+
+        append(0, value);
+        if (sizes[0] >= capacities[0]) {
+            compress();
+        }
+    }
+
+    /**
+     * Function merges another sketch into this one.
+     *
+     * @param other The sketch to merge, which is not modified.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        for (int h = 0; h < other.levels.size(); h++) {
+            while (levels.size() <= h) {
+                addLevel();
+            }
+            double[] values = other.levels.get(h);
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, values[i]);
+            }
+        }
+
+        compress();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Function estimates a percentile of the values added to the sketch.
+     *
+     * @param p The percentile, in (0, 100].
+     * @return The estimated percentile, or NaN if the sketch is empty.
+     */
+    public double percentile(double p) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        double pos = p * (count + 1) / 100;
+        if (pos < 1) {
+            return min;
+        }
+        if (pos >= count) {
+            return max;
+        }
+
+        // Collect the values with their weights, sorted by value
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        double[] values = new double[total];
+        long[] weights = new long[total];
+        Integer[] order = new Integer[total];
+
+        int n = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] level = levels.get(h);
+            for (int i = 0; i < sizes[h]; i++) {
+                values[n] = level[i];
+                weights[n] = 1L << h;
+                order[n] = n;
+                n++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        long lowerRank = (long) Math.floor(pos);
+        double lower = valueAtRank(values, weights, order, lowerRank);
+        double upper = valueAtRank(values, weights, order, lowerRank + 1);
+
+        return lower + (pos - lowerRank) * (upper - lower);
+    }
+
+    /**
+     * Returns the value that covers the given rank (starting at 1). Compaction
+     * keeps the total weight equal to the number of values added.
+     */
+    private static double valueAtRank(double[] values, long[] weights, Integer[] order, long rank) {
+        long cumulative = 0;
+        for (int i : order) {
+            cumulative += weights[i];
+            if (cumulative >= rank) {
+                return values[i];
+            }
+        }
+        return values[order[order.length - 1]];
+    }
+
+    /**
+     * Function adds an empty top level. The capacities depend on the depth
+     * below the top, so they are recomputed here rather than on every add.
+     */
+    private void addLevel() {
+        levels.add(new double[MIN_CAPACITY]);
+
+        int height = levels.size();
+        sizes = Arrays.copyOf(sizes, height);
+        capacities = new int[height];
+        for (int h = 0; h < height; h++) {
+            int depth = height - 1 - h;
+            capacities[h] = Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+        }
+    }
+
+    private void append(int level, double value) {
+        double[] values = levels.get(level);
+        int size = sizes[level];
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * values.length);
+            levels.set(level, values);
+        }
+        values[size] = value;
+        sizes[level] = size + 1;
+    }
+
+    /**
+     * Compacts full levels, lowest first, until every level is within its
+     * capacity.
+     */
+    private void compress() {
+        for (int h = 0; h < levels.size(); h++) {
+            if (sizes[h] < capacities[h]) {
+                continue;
+            }
+            if (h + 1 == levels.size()) {
+                addLevel();
+            }
+
+            double[] values = levels.get(h);
+            int size = sizes[h];
+            Arrays.sort(values, 0, size);
+
+            // With an odd size the largest value stays on this level
+            int pairs = size / 2;
+            int offset = keepOdd ? 1 : 0;
+            keepOdd = !keepOdd;
+            for (int i = 0; i < pairs; i++) {
+                append(h + 1, values[2 * i + offset]);
+            }
+
+            if (size % 2 == 1) {
+                values[0] = values[size - 1];
+                sizes[h] = 1;
+            } else {
+                sizes[h] = 0;
+            }
+        }
+    }
+
+}
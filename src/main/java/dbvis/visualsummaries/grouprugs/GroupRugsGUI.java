@@ -2,10 +2,8 @@ package dbvis.visualsummaries.grouprugs;
 
 // Import classes from util package
 import java.util.List;
-import java.util.Map;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -26,30 +24,24 @@ import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
 
 import dbvis.visualsummaries.data.CSVDataLoader;
-import dbvis.visualsummaries.data.DataPoint;
-import dbvis.visualsummaries.data.DataSet;
 import dbvis.visualsummaries.data.SessionData;
-import dbvis.visualsummaries.grouprugs.linearprogram.MGOrder;
-import dbvis.visualsummaries.grouprugs.linearprogram.ReebGraphOrderingPipeline;
+import dbvis.visualsummaries.grouprugs.experiments.ExperimentConfig;
+import dbvis.visualsummaries.grouprugs.experiments.ExperimentRunner;
+import dbvis.visualsummaries.grouprugs.linearprogram.LayerSweepOrderingSolver;
 import dbvis.visualsummaries.grouprugs.metrics.MetricsUtil;
 import dbvis.visualsummaries.grouprugs.metrics.Pearsons;
-import dbvis.visualsummaries.grouprugs.tgs.TGS;
 import dbvis.visualsummaries.grouprugs.tgs.Utils;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.*;
-import dbvis.visualsummaries.grouprugs.tgs.reebgraph.ReebGraph;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.grouprugs.visualization.PNGWriter;
 import dbvis.visualsummaries.grouprugs.visualization.SaveResults;
-import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.FuzzyPositionMapper;
 import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MapperUtils;
-import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MotionLinesPositionMapper;
-import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MotionRugsPositionMapper;
-import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.QPPositionMapper;
-import dbvis.visualsummaries.grouprugs.visualization.groupselectionstrategies.ComponentSelectionStrategy;
 import dbvis.visualsummaries.strategies.ClairvoyantPCStrategy;
 import dbvis.visualsummaries.strategies.PrincipalComponentStrategy;
 import dbvis.visualsummaries.strategies.SammonMappingStrategy;
 import dbvis.visualsummaries.strategies.Strategy;
 import dbvis.visualsummaries.strategies.TSNESimpleStrategy;
+import dbvis.visualsummaries.strategies.TSNEStrategy;
 import dbvis.visualsummaries.strategies.UMAPStrategy;
 
 // Import classes from awt package
@@ -70,12 +62,16 @@ public class GroupRugsGUI extends javax.swing.JFrame {
     private JComboBox<String> strategyComboBox;
     private JComboBox<String> imageStrategyComboBox;
     private JComboBox<String> datasetComboBox;
+    private JComboBox<String> solverComboBox;
 
     // Ordering Strategies have to be instantiated here and added below where marked
     private PrincipalComponentStrategy principalcomponentstrategy = new PrincipalComponentStrategy();
     private SammonMappingStrategy sammonmappingstrategy = new SammonMappingStrategy();
     private TSNESimpleStrategy tsnesimplestrategy = new TSNESimpleStrategy();
+    private TSNEStrategy temporaltsnestrategy = new TSNEStrategy();
     private UMAPStrategy umapstrategy = new UMAPStrategy();
+    private UMAPStrategy temporalumapstrategy = new UMAPStrategy();
+    private UMAPStrategy parallelumapstrategy = new UMAPStrategy();
     private ClairvoyantPCStrategy chasingpcstrategy = new ClairvoyantPCStrategy(1.0 / 1.9, 0.001);
 
     private List<Component> originalComponents;
@@ -138,8 +134,11 @@ public class GroupRugsGUI extends javax.swing.JFrame {
         strategyComboBox = new JComboBox<>();
         strategyComboBox.addItem("PrincipalComponentStrategy");
         strategyComboBox.addItem("UMAPStrategy");
+        strategyComboBox.addItem("Temporal UMAPStrategy");
+        strategyComboBox.addItem("Parallel UMAPStrategy");
         strategyComboBox.addItem("Stable sammon mapping");
         strategyComboBox.addItem("t-SNE (simple)");
+        strategyComboBox.addItem("Temporal t-SNE");
         // strategyComboBox.addItem("Run All Metrics");
 
         gbc.gridx = 1;
@@ -211,20 +210,43 @@ public class GroupRugsGUI extends javax.swing.JFrame {
         gbc.gridy = 1;
         comboPanel.add(mPane, gbc);
 
+        // Solver of the group order of Ordered Rugs
+        JLabel solverLabel = new JLabel("Ordering Solver:");
+        solverComboBox = new JComboBox<>(GroupRugsPipeline.ORDERING_SOLVERS);
+
+        gbc.gridx = 7;
+        gbc.gridy = 0;
+        comboPanel.add(solverLabel, gbc);
+        gbc.gridx = 7;
+        gbc.gridy = 1;
+        comboPanel.add(solverComboBox, gbc);
+
+        // Get time budget in ms entered by user for the layer sweep solver
+        JLabel solverBudgetLabel = new JLabel("Solver Budget (ms):");
+        JTextField solverBudgetPane = new JTextField(
+                String.valueOf(LayerSweepOrderingSolver.DEFAULT_TIME_BUDGET_MILLIS));
+
+        gbc.gridx = 8;
+        gbc.gridy = 0;
+        comboPanel.add(solverBudgetLabel, gbc);
+        gbc.gridx = 8;
+        gbc.gridy = 1;
+        comboPanel.add(solverBudgetPane, gbc);
+
         JPanel buttonPanel = new JPanel();
         JButton computeButton = new JButton("Compute");
         buttonPanel.add(computeButton);
 
-        gbc.gridx = 7;
+        gbc.gridx = 9;
         gbc.gridy = 0;
         gbc.gridheight = 2;
         comboPanel.add(buttonPanel, gbc);
-        gbc.gridx = 7;
+        gbc.gridx = 9;
         gbc.gridy = 1;
 
         JCheckBox metricsCheckBox = new JCheckBox("Show Metrics");
 
-        gbc.gridx = 8;
+        gbc.gridx = 10;
         gbc.gridy = 0;
         comboPanel.add(metricsCheckBox, gbc);
 
@@ -274,14 +296,18 @@ public class GroupRugsGUI extends javax.swing.JFrame {
                         Double epsilon = Double.parseDouble(epsilonPane.getText());
                         Integer delta = Integer.parseInt(deltaPane.getText());
                         Integer m = Integer.parseInt(mPane.getText());
+                        String solver = (String) solverComboBox.getSelectedItem();
+                        Long solverBudget = Long.parseLong(solverBudgetPane.getText());
 
-                        Integer[][] etpMap = computeETPMap(selectedStrategy,
+                        EtpMap etpMap = computeETPMap(selectedStrategy,
                                 selectedImageStrategy,
                                 selectedDataset,
                                 selectedMotionLinesWidth,
                                 epsilon,
                                 delta,
-                                m);
+                                m,
+                                solver,
+                                solverBudget);
 
                         boolean MR;
                         if (selectedImageStrategy.equals("MotionRugs")) {
@@ -291,18 +317,16 @@ public class GroupRugsGUI extends javax.swing.JFrame {
                         }
 
                         // Perform necessary computations with the selected values
-                        BufferedImage awtImage = computeImage(
+                        BufferedImage awtImage = GroupRugsPipeline.computeImage(
                                 etpMap,
-                                SessionData.getInstance(),
                                 selectedDataset,
-                                3,
                                 epsilon,
                                 MR);
 
                         Double[][] projections = null;
                         if (selectedImageStrategy.equals("Motion Lines")) {
                             projections = MapperUtils.readProjections(selectedStrategy, selectedDataset,
-                                    etpMap.length, etpMap[0].length);
+                                    etpMap.getFrameCount(), etpMap.getEntityCount());
                         }
 
                         // If metrics checkbox is checked, compute metrics
@@ -371,320 +395,54 @@ public class GroupRugsGUI extends javax.swing.JFrame {
 
     }
 
-    private Integer[][] computeETPMap(
+    private EtpMap computeETPMap(
             String selectedStrategy,
             String selectedImageStrategy,
             String selectedDataset,
             int selectedMotionLinesWidth,
             Double EPSILON,
             Integer DELTA,
-            Integer M) throws Exception {
-
-        /*
-         * fishdatamerge: EPSILON == 250d
-         */
-
-        /* Obtain user-selected parameters. */
-        int MOTIONLINES_WIDTH = selectedMotionLinesWidth;
-        Strategy SELECTED_STRATEGY = getSelectedStrategy(selectedStrategy);
-        String datasetName = selectedDataset;
-
-        int ENLARGEMENT_FACTOR = 3;
-
-        /* Load required dataset. */
-        SessionData sessionData = SessionData.getInstance();
-        DataSet current = sessionData.getDataset(datasetName);
-        sessionData.setCurrentDataSet(current.getName());
-        DataPoint[][] baseData = current.getBaseData(); // Do not remove, used for MotionLines
-
-        // Get number of entities and frames
-        int frames = current.getBaseData().length;
-        int entities = current.getBaseData()[0].length;
-
-        // Compute tgs
-        TGS tgs = new TGS(EPSILON, DELTA, M, datasetName);
-        ReebGraph rg = tgs.compute();
-        rg = tgs.postprocess(rg);
-
-        List<Component> originalComponents = ComponentSelectionStrategy.selectGroups(rg);
-        this.originalComponents = originalComponents;
-        List<Component> filteredComponents = filterGroups(originalComponents, DELTA, M);
-
-        MotionLinesPositionMapper mlp = new MotionLinesPositionMapper(MOTIONLINES_WIDTH, frames, entities);
-        Integer[][] etpMap = null;
-
-        // Draw image based on selected image strategy
-        switch (selectedImageStrategy) {
-            case "Fuzzy Rugs":
-
-                FuzzyPositionMapper fpp = new FuzzyPositionMapper(MOTIONLINES_WIDTH, frames, entities);
-
-                etpMap = fpp.fuzzyPositioning(
-                        filteredComponents,
-                        SELECTED_STRATEGY,
-                        sessionData,
-                        datasetName,
-                        ENLARGEMENT_FACTOR);
-
-                break;
-
-            case "Motion Lines":
-
-                etpMap = mlp.motionlinesPositioning(
-                        SELECTED_STRATEGY,
-                        sessionData,
-                        datasetName,
-                        ENLARGEMENT_FACTOR);
-
-                break;
-            case "Ordered Rugs":
-
-                // GroupLineComputer.compute2(rg, entities, frames);
-                Set<MaximalGroup> maximalgroups = GroupLineComputer.compute2(rg, entities, frames);
-                int maxTimestamp = rg.getMaxTimestamp();
-
-                String file = datasetName + "_eps" + EPSILON;
-
-                String OrderPath = file + "_treeMap.txt";
-                String GroupMapPath = file + "_groupMap.txt";
-                String LayersPath = file + "_layers.txt";
-
-                // Check if corresponding files exist
-                java.io.File OrdersFile = new java.io.File("orderedGroups/" + OrderPath);
-                java.io.File GroupMapFile = new java.io.File("orderedGroups/" + GroupMapPath);
-                java.io.File LayersFile = new java.io.File("orderedGroups/" + LayersPath);
-
-                // Get the ordered maximal groups per layer and the group map
-                List<MGOrder> orderedMGroups = null;
-                Map<Integer, MaximalGroup> IDToGroupMap = null;
-                List<Integer> layers = null;
-
-                ReebGraphOrderingPipeline rgop = new ReebGraphOrderingPipeline();
-
-                // If files exist, read from files
-                if (OrdersFile.exists() && GroupMapFile.exists() && LayersFile.exists()) {
-
-                    orderedMGroups = rgop.readTreeMapFromFile(OrdersFile.getName());
-                    IDToGroupMap = rgop.readGroupMapFromFile(GroupMapFile.getName(),
-                            maxTimestamp);
-                    layers = rgop.readLayersFromFile(LayersFile.getName());
-
-                    // Set the ordered maximal groups per layer and the group map
-                    rgop.setOrderedMGroups(orderedMGroups);
-                    rgop.setGroupMap(IDToGroupMap);
-                    rgop.setLayers(layers);
-
-                } else {
-
-                    // Run the ReebGraph ordering pipeline
-                    rgop.run(rg, maximalgroups);
-
-                    // Get the ordered maximal duration groups per layer and the group map
-                    orderedMGroups = rgop.getOrderedMGroups();
-                    IDToGroupMap = rgop.getGroupMap();
-                    layers = rgop.getLayers();
-
-                    // Write to file
-                    rgop.writeTreeMapToFile(orderedMGroups, file);
-                    rgop.writeGroupMapToFile(IDToGroupMap, file);
-                    rgop.writeLayersToFile(layers, file);
-
-                }
-
-                QPPositionMapper qp = new QPPositionMapper(
-                        MOTIONLINES_WIDTH,
-                        baseData,
-                        sessionData,
-                        SELECTED_STRATEGY,
-                        filteredComponents,
-                        datasetName,
-                        orderedMGroups,
-                        IDToGroupMap,
-                        ENLARGEMENT_FACTOR);
-
-                etpMap = qp.orderedPositioning();
-                break;
-
-            case "MotionRugs":
-                MotionRugsPositionMapper mrp = new MotionRugsPositionMapper();
-                etpMap = mrp.position(sessionData, baseData, SELECTED_STRATEGY, datasetName);
-                break;
-
-            default:
-                System.out.println("Selected image strategy not found, default to MotionLines");
-                etpMap = mlp.motionlinesPositioning(
-                        SELECTED_STRATEGY,
-                        sessionData,
-                        datasetName,
-                        ENLARGEMENT_FACTOR);
-                break;
-        }
-
-        return etpMap;
-
+            Integer M,
+            String solver,
+            Long solverBudget) throws Exception {
+
+        SessionData.getInstance().setCurrentDataSet(selectedDataset);
+
+        GroupRugsPipeline.Result result = GroupRugsPipeline.computeETPMap(
+                selectedStrategy,
+                getSelectedStrategy(selectedStrategy),
+                selectedImageStrategy,
+                selectedDataset,
+                selectedMotionLinesWidth,
+                EPSILON,
+                DELTA,
+                M,
+                solver,
+                solverBudget);
+        this.originalComponents = result.getOriginalComponents();
+
+        return result.getEtpMap();
     }
 
+    /**
+     * Function runs the experiments of experiments.properties in the background,
+     * see {@link ExperimentRunner}.
+     */
     private void computeAllMetrics() {
 
-        SessionData sessionData = SessionData.getInstance();
-
-        // Set of large datasets: t-SNE exceeds one hour limit for these datasets.
-        Set<String> largedatasets = new HashSet<String>() {
-            {
-                add("200pop1");
-                add("mergeFocus");
-            }
-        };
-
-        // Set of small datasets: t-SNE does not exceed one hour limit for these
-        // datasets.
-        Set<String> smalldatasets = new HashSet<String>() {
-            {
-                add("tryagain");
-                add("grouping");
-            }
-        };
-
-        Set<String> largeDatasetStrats = new HashSet<String>();
-        largeDatasetStrats.add("PrincipalComponentStrategy");
-        largeDatasetStrats.add("UMAPStrategy");
-        largeDatasetStrats.add("Stable sammon mapping");
-
-        // Add strategies to Set
-        Set<String> smallDatasetStrats = new HashSet<String>();
-        smallDatasetStrats.add("PrincipalComponentStrategy");
-        smallDatasetStrats.add("UMAPStrategy");
-        smallDatasetStrats.add("Stable sammon mapping");
-        smallDatasetStrats.add("t-SNE (simple)");
-
-        Set<String> imageStrategies = new HashSet<String>();
-        imageStrategies.add("Motion Lines");
-        imageStrategies.add("Fuzzy Rugs");
-        imageStrategies.add("MotionRugs");
-        imageStrategies.add("Ordered Rugs");
-
-        // Handle large datasets.
-        for (String dataset : largedatasets) {
-            for (String strat : largeDatasetStrats) {
-                for (String imageStrat : imageStrategies) {
-                    try {
-
-                        boolean MR;
-                        if (imageStrat.equals("MotionRugs")) {
-                            MR = true;
-                        } else {
-                            MR = false;
-                        }
-
-                        Integer[][] etpMap = computeETPMap(strat, imageStrat, dataset, 15, 15.0, 1,
-                                1);
-                        BufferedImage image = computeImage(etpMap, sessionData, dataset, 3, 15.0, MR);
-
-                        Double[][] projections = null;
-                        if (imageStrat.equals("Motion Lines")) {
-                            projections = MapperUtils.readProjections(strat, dataset,
-                                    etpMap.length, etpMap[0].length);
-                        }
-
-                        HashMap<String, double[]> metrics = MetricsUtil.getMetrics(
-                                dataset,
-                                strat,
-                                getSelectedStrategy(strat),
-                                imageStrat,
-                                15.0,
-                                originalComponents,
-                                etpMap,
-                                projections,
-                                imageStrat.equals("Motion Lines"),
-                                image);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        }
-
-        // Handle small datasets.
-        for (String dataset : smalldatasets) {
-            for (String strat : smallDatasetStrats) {
-                for (String imageStrat : imageStrategies) {
-                    try {
-
-                        boolean MR;
-                        if (imageStrat.equals("MotionRugs")) {
-                            MR = true;
-                        } else {
-                            MR = false;
-                        }
-
-                        Integer[][] etpMap = computeETPMap(strat, imageStrat, dataset, 15, 15.0, 1, 1);
-                        BufferedImage image = computeImage(etpMap, sessionData, dataset, 3, 15.0, MR);
-
-                        Double[][] projections = null;
-                        if (imageStrat.equals("Motion Lines")) {
-                            projections = MapperUtils.readProjections(strat, dataset,
-                                    etpMap.length, etpMap[0].length);
-                        }
-                        //
-                        // saveFinalImage(dataset, strat, imageStrat, 15.0, image);
-
-                        HashMap<String, double[]> metrics = MetricsUtil.getMetrics(
-                                dataset,
-                                strat,
-                                getSelectedStrategy(strat),
-                                imageStrat,
-                                15.0,
-                                originalComponents,
-                                etpMap,
-                                projections,
-                                imageStrat.equals("Motion Lines"),
-                                image);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        }
-
-        // Handle fishdatamerge with different parameters.
-        for (String strat : largeDatasetStrats) {
-            for (String imageStrat : imageStrategies) {
+        Thread runner = new Thread(new Runnable() {
+            @Override
+            public void run() {
                 try {
-                    boolean MR;
-                    if (imageStrat.equals("MotionRugs")) {
-                        MR = true;
-                    } else {
-                        MR = false;
-                    }
-
-                    Integer[][] etpMap = computeETPMap(strat, imageStrat, "fishdatamerge", 75, 250.0, 1, 1);
-                    BufferedImage image = computeImage(etpMap, sessionData, "fishdatamerge", 3, 250.0, MR);
-
-                    Double[][] projections = null;
-                    if (imageStrat.equals("Motion Lines")) {
-                        projections = MapperUtils.readProjections(strat, "fishdatamerge",
-                                etpMap.length, etpMap[0].length);
-                    }
-
-                    // saveFinalImage("fishdatamerge", strat, imageStrat, 250.0, image);
-
-                    HashMap<String, double[]> metrics = MetricsUtil.getMetrics(
-                            "fishdatamerge",
-                            strat,
-                            getSelectedStrategy(strat),
-                            imageStrat,
-                            250.0,
-                            originalComponents,
-                            etpMap,
-                            projections,
-                            imageStrat.equals("Motion Lines"),
-                            image);
-                } catch (Exception e) {
-                    e.printStackTrace();
+                    ExperimentConfig config = ExperimentConfig.load(new File("experiments.properties"));
+                    new ExperimentRunner(config).run();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
                 }
             }
-        }
-
+        }, "experiments");
+        runner.setDaemon(true);
+        runner.start();
     }
 
     private static void saveFinalImage(
@@ -698,9 +456,12 @@ public class GroupRugsGUI extends javax.swing.JFrame {
         stratDict.put("PrincipalComponentStrategy", "PCA");
         stratDict.put("Stable UMAPStrategy", "UMAP");
         stratDict.put("UMAPStrategy", "UMAP");
+        stratDict.put("Temporal UMAPStrategy", "TUMAP");
+        stratDict.put("Parallel UMAPStrategy", "PUMAP");
         stratDict.put("Stable Sammon Mapping", "SAM");
         stratDict.put("Stable sammon mapping", "SAM");
         stratDict.put("t-SNE (simple)", "SNE");
+        stratDict.put("Temporal t-SNE", "TSNE");
 
         HashMap<String, String> imageStratDict = new HashMap<String, String>();
         imageStratDict.put("Motion Lines", "ML");
@@ -725,31 +486,6 @@ public class GroupRugsGUI extends javax.swing.JFrame {
         }
     }
 
-    /**
-     * Function to compute the image based on the etpMap and selected parameters.
-     * 
-     * @param etpMap
-     * @param sessionData
-     * @param datasetName
-     * @param ENLARGEMENT_FACTOR
-     * @param EPSILON
-     * @return
-     * @throws Exception
-     */
-    private BufferedImage computeImage(
-            Integer[][] etpMap,
-            SessionData sessionData,
-            String datasetName,
-            int ENLARGEMENT_FACTOR,
-            Double EPSILON,
-            boolean MR) throws Exception {
-
-        PNGWriter pnGWriter = new PNGWriter();
-        BufferedImage image = pnGWriter.drawRugs(etpMap, sessionData, datasetName, ENLARGEMENT_FACTOR, EPSILON, MR);
-
-        return image;
-    }
-
     public Strategy getSelectedStrategy(String stratName) {
 
         switch (stratName) {
@@ -757,6 +493,12 @@ public class GroupRugsGUI extends javax.swing.JFrame {
                 return principalcomponentstrategy;
             case "UMAPStrategy":
                 return umapstrategy;
+            case "Temporal UMAPStrategy":
+                temporalumapstrategy.setTemporal(true);
+                return temporalumapstrategy;
+            case "Parallel UMAPStrategy":
+                parallelumapstrategy.setDeterministic(false);
+                return parallelumapstrategy;
             case "ClairvoyantPCStrategy":
                 return chasingpcstrategy;
             case "Stable sammon mapping":
@@ -765,31 +507,12 @@ public class GroupRugsGUI extends javax.swing.JFrame {
             case "t-SNE (simple)":
                 tsnesimplestrategy.setStability(true);
                 return tsnesimplestrategy;
+            case "Temporal t-SNE":
+                temporaltsnestrategy.setTemporal(true);
+                return temporaltsnestrategy;
             default:
                 return chasingpcstrategy;
         }
     }
 
-    /**
-     * Function filters maximal groups based on DELTA and M.
-     * 
-     * @param maximalGroups maximal groups
-     * @param DELTA         DELTA
-     * @param M             M
-     * @return filteredGroups filtered maximal groups that have a duration >= DELTA
-     *         and a size >= M.
-     */
-    private List<Component> filterGroups(List<Component> components, Integer DELTA, Integer M) {
-
-        List<Component> filteredGroups = new ArrayList<Component>();
-
-        for (Component mg : components) {
-            if (mg.getDuration() >= DELTA && mg.getEntities().size() >= M) {
-                filteredGroups.add(mg);
-            }
-        }
-
-        return filteredGroups;
-    }
-
 }
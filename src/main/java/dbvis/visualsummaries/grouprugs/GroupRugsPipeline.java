@@ -0,0 +1,416 @@
+package dbvis.visualsummaries.grouprugs;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.DataSet;
+import dbvis.visualsummaries.data.Positions;
+import dbvis.visualsummaries.data.SessionData;
+import dbvis.visualsummaries.grouprugs.cache.ArtifactCache;
+import dbvis.visualsummaries.grouprugs.cache.ArtifactCodecs;
+import dbvis.visualsummaries.grouprugs.cache.ArtifactKey;
+import dbvis.visualsummaries.grouprugs.linearprogram.LayerSweepOrderingSolver;
+import dbvis.visualsummaries.grouprugs.linearprogram.OrderedGroups;
+import dbvis.visualsummaries.grouprugs.linearprogram.OrderingSolver;
+import dbvis.visualsummaries.grouprugs.linearprogram.QPOrderingSolver;
+import dbvis.visualsummaries.grouprugs.linearprogram.ReebGraphOrderingPipeline;
+import dbvis.visualsummaries.grouprugs.tgs.TGS;
+import dbvis.visualsummaries.grouprugs.tgs.TGSSweep;
+import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.Component;
+import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.GroupLineComputer;
+import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.MaximalGroup;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.ReebGraph;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
+import dbvis.visualsummaries.grouprugs.visualization.PNGWriter;
+import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.FuzzyPositionMapper;
+import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MotionLinesPositionMapper;
+import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MotionRugsPositionMapper;
+import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.QPPositionMapper;
+import dbvis.visualsummaries.grouprugs.visualization.groupselectionstrategies.ComponentSelectionStrategy;
+import dbvis.visualsummaries.strategies.ClairvoyantPCStrategy;
+import dbvis.visualsummaries.strategies.PrincipalComponentStrategy;
+import dbvis.visualsummaries.strategies.SammonMappingStrategy;
+import dbvis.visualsummaries.strategies.Strategy;
+import dbvis.visualsummaries.strategies.TSNESimpleStrategy;
+import dbvis.visualsummaries.strategies.TSNEStrategy;
+import dbvis.visualsummaries.strategies.UMAPStrategy;
+
+/**
+ * The GroupRugs pipeline without user interface: computes the entity to
+ * position map and the image for a dataset, ordering strategy and image
+ * strategy.
+ *
+ * The pipeline keeps no state between calls. The Reeb graph, the orderings of
+ * the strategies, the group orders and the etp map are stored in the
+ * {@link ArtifactCache}, so concurrent calls that need the same upstream stage
+ * compute it only once.
+ */
+public class GroupRugsPipeline {
+
+    public static final int ENLARGEMENT_FACTOR = 3;
+
+    /**
+     * Solvers for the group order of Ordered Rugs. The layer sweep solver does
+     * not need Gurobi.
+     */
+    public static final String QP_SOLVER = "QP";
+    public static final String LAYER_SWEEP_SOLVER = "Layer sweep";
+    public static final String[] ORDERING_SOLVERS = { QP_SOLVER, LAYER_SWEEP_SOLVER };
+
+    /**
+     * Result of {@link GroupRugsPipeline#computeETPMap}.
+     */
+    public static class Result {
+        private final EtpMap etpMap;
+        private final List<Component> originalComponents;
+
+        Result(EtpMap etpMap, List<Component> originalComponents) {
+            this.etpMap = etpMap;
+            this.originalComponents = originalComponents;
+        }
+
+        public EtpMap getEtpMap() {
+            return etpMap;
+        }
+
+        /**
+         * Returns the components of the Reeb graph before filtering on DELTA and
+         * M.
+         */
+        public List<Component> getOriginalComponents() {
+            return originalComponents;
+        }
+    }
+
+    /**
+     * Function creates a new instance of an ordering strategy. Strategies keep
+     * state between frames, so every concurrent run needs its own instance.
+     *
+     * @param stratName Name of the strategy, as shown in the GUI.
+     * @return The strategy.
+     */
+    public static Strategy createStrategy(String stratName) {
+
+        switch (stratName) {
+            case "PrincipalComponentStrategy":
+                return new PrincipalComponentStrategy();
+            case "UMAPStrategy":
+                return new UMAPStrategy();
+            case "Temporal UMAPStrategy":
+                UMAPStrategy temporalumapstrategy = new UMAPStrategy();
+                temporalumapstrategy.setTemporal(true);
+                return temporalumapstrategy;
+            case "Parallel UMAPStrategy":
+                UMAPStrategy parallelumapstrategy = new UMAPStrategy();
+                parallelumapstrategy.setDeterministic(false);
+                return parallelumapstrategy;
+            case "Stable sammon mapping":
+                SammonMappingStrategy sammonmappingstrategy = new SammonMappingStrategy();
+                sammonmappingstrategy.setStability(true);
+                return sammonmappingstrategy;
+            case "t-SNE (simple)":
+                TSNESimpleStrategy tsnesimplestrategy = new TSNESimpleStrategy();
+                tsnesimplestrategy.setStability(true);
+                return tsnesimplestrategy;
+            case "Temporal t-SNE":
+                TSNEStrategy temporaltsnestrategy = new TSNEStrategy();
+                temporaltsnestrategy.setTemporal(true);
+                return temporaltsnestrategy;
+            default:
+                return new ClairvoyantPCStrategy(1.0 / 1.9, 0.001);
+        }
+    }
+
+    /**
+     * Function creates the solver for the group order of Ordered Rugs.
+     *
+     * @param solverName       Name of the solver, QP_SOLVER or LAYER_SWEEP_SOLVER.
+     * @param timeBudgetMillis Time budget of the layer sweep solver.
+     * @return The solver.
+     */
+    public static OrderingSolver createOrderingSolver(String solverName, long timeBudgetMillis) {
+
+        switch (solverName) {
+            case QP_SOLVER:
+                return new QPOrderingSolver();
+            case LAYER_SWEEP_SOLVER:
+                return new LayerSweepOrderingSolver(timeBudgetMillis);
+            default:
+                throw new IllegalArgumentException("Unknown ordering solver: " + solverName);
+        }
+    }
+
+    /**
+     * Function computes the entity to position map.
+     *
+     * @param selectedStrategy      Name of the ordering strategy.
+     * @param strategy              The ordering strategy.
+     * @param selectedImageStrategy Name of the image strategy.
+     * @param datasetName           Name of the dataset.
+     * @param motionLinesWidth      Width of the transitions.
+     * @param EPSILON               Distance threshold of the TGS.
+     * @param DELTA                 Minimum duration of a group.
+     * @param M                     Minimum size of a group.
+     * @param solverName            Name of the solver for the group order of
+     *                              Ordered Rugs.
+     * @param solverTimeBudget      Time budget of the layer sweep solver in
+     *                              milliseconds.
+     * @return The etp map and the components of the Reeb graph.
+     */
+    public static Result computeETPMap(
+            String selectedStrategy,
+            Strategy strategy,
+            String selectedImageStrategy,
+            String datasetName,
+            int motionLinesWidth,
+            double EPSILON,
+            int DELTA,
+            int M,
+            String solverName,
+            long solverTimeBudget) throws Exception {
+
+        /*
+         * fishdatamerge: EPSILON == 250d
+         */
+
+        /* Load required dataset. */
+        SessionData sessionData = SessionData.getInstance();
+        DataSet current = sessionData.getDataset(datasetName);
+
+        // Get number of entities and frames
+        Positions positions = Positions.of(current);
+        int frames = positions.getFrameCount();
+        int entities = positions.getEntityCount();
+
+        ArtifactCache cache = ArtifactCache.getInstance();
+
+        // Compute tgs
+        ArtifactKey tgsKey = reebGraphKey(datasetName, current, EPSILON);
+        ReebGraph rg = cache.computeIfAbsent(tgsKey, ArtifactCodecs.REEB_GRAPH, () -> {
+            TGS tgs = new TGS(EPSILON, DELTA, M, datasetName);
+            return tgs.postprocess(tgs.compute());
+        });
+
+        List<Component> originalComponents = ComponentSelectionStrategy.selectGroups(rg);
+
+        // The etp map only depends on the data and the selected parameters
+        ArtifactKey etpKey = new ArtifactKey("etp", datasetName, current)
+                .with("strategy", selectedStrategy)
+                .with("ordering", strategy.getCacheKey())
+                .with("image", selectedImageStrategy)
+                .with("width", motionLinesWidth)
+                .with("epsilon", EPSILON)
+                .with("delta", DELTA)
+                .with("m", M);
+        if (selectedImageStrategy.equals("Ordered Rugs")) {
+            withSolver(etpKey, solverName, solverTimeBudget);
+        }
+        EtpMap cachedEtpMap = cache.get(etpKey, ArtifactCodecs.ETP_MAP);
+        if (cachedEtpMap != null) {
+            return new Result(cachedEtpMap, originalComponents);
+        }
+
+        List<Component> filteredComponents = filterGroups(originalComponents, DELTA, M);
+
+        // The position mappers work on DataPoints
+        DataPoint[][] baseData = current.getBaseData();
+
+        MotionLinesPositionMapper mlp = new MotionLinesPositionMapper(motionLinesWidth, frames, entities);
+        EtpMap etpMap = null;
+
+        // Draw image based on selected image strategy
+        switch (selectedImageStrategy) {
+            case "Fuzzy Rugs":
+
+                FuzzyPositionMapper fpp = new FuzzyPositionMapper(motionLinesWidth, frames, entities);
+
+                etpMap = fpp.fuzzyPositioning(
+                        filteredComponents,
+                        strategy,
+                        sessionData,
+                        datasetName,
+                        ENLARGEMENT_FACTOR);
+
+                break;
+
+            case "Motion Lines":
+
+                etpMap = mlp.motionlinesPositioning(
+                        strategy,
+                        sessionData,
+                        datasetName,
+                        ENLARGEMENT_FACTOR);
+
+                break;
+            case "Ordered Rugs":
+
+                // Get the ordered maximal groups per layer and the group map
+                ArtifactKey orderKey = withSolver(new ArtifactKey("orderedgroups", datasetName, current)
+                        .with("epsilon", EPSILON), solverName, solverTimeBudget);
+                OrderedGroups orderedGroups = cache.computeIfAbsent(orderKey, ArtifactCodecs.ORDERED_GROUPS, () -> {
+                    Set<MaximalGroup> maximalgroups = GroupLineComputer.compute2(rg, entities, frames);
+
+                    // Run the ReebGraph ordering pipeline
+                    ReebGraphOrderingPipeline rgop = new ReebGraphOrderingPipeline(
+                            createOrderingSolver(solverName, solverTimeBudget));
+                    rgop.run(rg, maximalgroups);
+
+                    return new OrderedGroups(rgop.getOrderedMGroups(), rgop.getGroupMap(), rgop.getLayers());
+                });
+
+                QPPositionMapper qp = new QPPositionMapper(
+                        motionLinesWidth,
+                        baseData,
+                        sessionData,
+                        strategy,
+                        filteredComponents,
+                        datasetName,
+                        orderedGroups.getOrders(),
+                        orderedGroups.getGroupMap(),
+                        ENLARGEMENT_FACTOR);
+
+                etpMap = qp.orderedPositioning();
+                break;
+
+            case "MotionRugs":
+                MotionRugsPositionMapper mrp = new MotionRugsPositionMapper();
+                etpMap = mrp.position(sessionData, baseData, strategy, datasetName);
+                break;
+
+            default:
+                System.out.println("Selected image strategy not found, default to MotionLines");
+                etpMap = mlp.motionlinesPositioning(
+                        strategy,
+                        sessionData,
+                        datasetName,
+                        ENLARGEMENT_FACTOR);
+                break;
+        }
+
+        cache.put(etpKey, etpMap, ArtifactCodecs.ETP_MAP);
+        return new Result(etpMap, originalComponents);
+    }
+
+    /**
+     * Function computes the Reeb graphs of a dataset for several epsilons with a
+     * single {@link TGSSweep} and stores them in the cache, so computeETPMap does
+     * not have to run the TGS per epsilon. Epsilons that are already cached are
+     * skipped.
+     *
+     * @param datasetName Name of the dataset.
+     * @param epsilons    Distance thresholds of the TGS.
+     */
+    public static void precomputeReebGraphs(String datasetName, double[] epsilons) {
+
+        DataSet dataset = SessionData.getInstance().getDataset(datasetName);
+        ArtifactCache cache = ArtifactCache.getInstance();
+
+        List<Double> missing = new ArrayList<Double>();
+        for (double epsilon : epsilons) {
+            if (epsilon > 0 && !cache.contains(reebGraphKey(datasetName, dataset, epsilon))) {
+                missing.add(epsilon);
+            }
+        }
+        if (missing.size() < 2) {
+            return;
+        }
+
+        TGSSweep sweep = new TGSSweep(missing.stream().mapToDouble(Double::doubleValue).toArray(), datasetName);
+        double[] sorted = sweep.getEpsilons();
+        List<ReebGraph> graphs = sweep.postprocess(sweep.compute());
+
+        for (int i = 0; i < sorted.length; i++) {
+            cache.put(reebGraphKey(datasetName, dataset, sorted[i]), graphs.get(i), ArtifactCodecs.REEB_GRAPH);
+        }
+    }
+
+    private static ArtifactKey reebGraphKey(String datasetName, DataSet dataset, double epsilon) {
+        return new ArtifactKey("reebgraph", datasetName, dataset)
+                .with("epsilon", epsilon);
+    }
+
+    /**
+     * Function adds the solver of the group order to a key, so orders of
+     * different solvers or time budgets are cached separately. The QP solver
+     * has no time budget.
+     */
+    private static ArtifactKey withSolver(ArtifactKey key, String solverName, long solverTimeBudget) {
+        key.with("solver", solverName);
+        if (!solverName.equals(QP_SOLVER)) {
+            key.with("budget", solverTimeBudget);
+        }
+        return key;
+    }
+
+    /**
+     * Function to compute the image based on the etpMap and selected parameters.
+     *
+     * @param etpMap      The entity to position map.
+     * @param datasetName Name of the dataset.
+     * @param EPSILON     Distance threshold of the TGS.
+     * @param MR          Whether the image is a MotionRug.
+     * @return The image.
+     */
+    public static BufferedImage computeImage(
+            EtpMap etpMap,
+            String datasetName,
+            double EPSILON,
+            boolean MR) {
+
+        PNGWriter pnGWriter = new PNGWriter();
+        return pnGWriter.drawRugs(etpMap, SessionData.getInstance(), datasetName, ENLARGEMENT_FACTOR, EPSILON, MR);
+    }
+
+    /**
+     * Function writes the image as tiles and a zoom pyramid instead of a single
+     * image, for recordings that are too wide to render at once.
+     *
+     * @param etpMap      The entity to position map.
+     * @param datasetName Name of the dataset.
+     * @param MR          Whether the image is a MotionRug.
+     * @param directory   Directory the tiles are written to.
+     * @param tileWidth   Width of a tile in frames.
+     * @return The height of the image.
+     * @throws IOException if a tile could not be written.
+     */
+    public static int computeImageTiles(
+            EtpMap etpMap,
+            String datasetName,
+            boolean MR,
+            File directory,
+            int tileWidth) throws IOException {
+
+        PNGWriter pnGWriter = new PNGWriter();
+        pnGWriter.drawRugTiles(etpMap, SessionData.getInstance(), datasetName, ENLARGEMENT_FACTOR, MR, directory,
+                tileWidth);
+        return PNGWriter.getImageHeight(etpMap, ENLARGEMENT_FACTOR, MR);
+    }
+
+    /**
+     * Function filters maximal groups based on DELTA and M.
+     *
+     * @param components maximal groups
+     * @param DELTA      DELTA
+     * @param M          M
+     * @return filteredGroups filtered maximal groups that have a duration >= DELTA
+     *         and a size >= M.
+     */
+    static List<Component> filterGroups(List<Component> components, int DELTA, int M) {
+
+        List<Component> filteredGroups = new ArrayList<Component>();
+
+        for (Component mg : components) {
+            if (mg.getDuration() >= DELTA && mg.getEntities().size() >= M) {
+                filteredGroups.add(mg);
+            }
+        }
+
+        return filteredGroups;
+    }
+
+}
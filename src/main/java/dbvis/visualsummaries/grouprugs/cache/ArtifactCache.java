@@ -0,0 +1,501 @@
+package dbvis.visualsummaries.grouprugs.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import dbvis.visualsummaries.data.DataSet;
+import dbvis.visualsummaries.data.Positions;
+
+/**
+ * Content-addressed store for the intermediate results of the pipeline (Reeb
+ * graphs, maximal groups, group orders, orderings and etp maps).
+ *
+ * Artifacts are identified by an {@link ArtifactKey}, which contains a hash of
+ * the frames they were computed from, and stored as compressed binary files in
+ * ~/motionrugs/cache. The file name starts with the dataset name and the
+ * fingerprint of its frames, so when the data behind a dataset name changes,
+ * the artifacts of the old data are removed the first time the dataset is used.
+ * The total size of the store is bounded; when it grows too large the least
+ * recently used artifacts are evicted.
+ *
+ * Failing to read or write an artifact is never fatal: the artifact is treated
+ * as missing and recomputed.
+ */
+public class ArtifactCache {
+
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+
+    private static final int MAGIC = 0x4d524143; // "MRAC"
+    private static final int VERSION = 3;
+    private static final String EXTENSION = ".bin";
+    private static final String SEPARATOR = "__";
+
+    private static ArtifactCache instance;
+
+    // Fingerprints of the datasets seen so far.
+    private static final Map<DataSet, String> fingerprints = new WeakHashMap<>();
+
+    private final File directory;
+    private long maxBytes;
+
+    // File name -> size, least recently used first.
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    // File name -> computation of an artifact that is not stored yet.
+    private final Map<String, FutureTask<?>> inFlight = new HashMap<>();
+
+    // Dataset -> fingerprint for which stale artifacts were already removed.
+    private final Map<String, String> checkedDatasets = new HashMap<>();
+
+    /**
+     * @param directory Directory of the store, created if it does not exist.
+     * @param maxBytes  Maximum total size of the stored artifacts.
+     */
+    public ArtifactCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        loadIndex();
+    }
+
+    public static synchronized ArtifactCache getInstance() {
+        if (instance == null) {
+            String userdir = System.getProperty("user.home");
+            instance = new ArtifactCache(new File(userdir + "/motionrugs/cache"), DEFAULT_MAX_BYTES);
+        }
+        return instance;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict(null);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Function checks whether an artifact is in the store, without reading it.
+     *
+     * @param key Key of the artifact.
+     * @return Whether the artifact is in the store.
+     */
+    public synchronized boolean contains(ArtifactKey key) {
+        purgeStale(key);
+        return entries.get(fileName(key)) != null;
+    }
+
+    /**
+     * Function returns a stored artifact.
+     *
+     * @param key   Key of the artifact.
+     * @param codec Codec the artifact was written with.
+     * @return The artifact, or null if it is not in the store.
+     */
+    public synchronized <T> T get(ArtifactKey key, ArtifactCodec<T> codec) {
+        purgeStale(key);
+
+        String name = fileName(key);
+        if (entries.get(name) == null) {
+            return null;
+        }
+
+        File file = new File(directory, name);
+        T value = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new FileInputStream(file))))) {
+
+            if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(key.toString())) {
+                value = codec.read(in);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read cached artifact " + name + ": " + e.getMessage());
+        }
+
+        if (value == null) {
+            remove(name);
+            return null;
+        }
+
+        // Keep the access order across sessions
+        file.setLastModified(System.currentTimeMillis());
+        return value;
+    }
+
+    /**
+     * Function stores an artifact, replacing an artifact with the same key.
+     *
+     * @param key   Key of the artifact.
+     * @param value The artifact.
+     * @param codec Codec to write the artifact with.
+     */
+    public <T> void put(ArtifactKey key, T value, ArtifactCodec<T> codec) {
+        byte[] encoded;
+        try {
+            encoded = encode(value, codec);
+        } catch (IOException e) {
+            System.out.println("Could not encode artifact " + key + ": " + e.getMessage());
+            return;
+        }
+        store(key, encoded);
+    }
+
+    /**
+     * Function stores an encoded artifact, replacing an artifact with the same
+     * key.
+     */
+    private synchronized void store(ArtifactKey key, byte[] encoded) {
+        purgeStale(key);
+
+        String name = fileName(key);
+        File file = new File(directory, name);
+        File temp = null;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try {
+            temp = File.createTempFile("artifact", ".tmp", directory);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(new FileOutputStream(temp), deflater)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key.toString());
+                out.write(encoded);
+            }
+
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.out.println("Could not write cached artifact " + name + ": " + e.getMessage());
+            if (temp != null) {
+                temp.delete();
+            }
+            return;
+        } finally {
+            deflater.end();
+        }
+
+        Long old = entries.put(name, file.length());
+        totalBytes += file.length() - (old == null ? 0 : old);
+        evict(name);
+    }
+
+    /**
+     * Function returns a stored artifact, or computes and stores it if it is not
+     * in the store. The computation runs without holding the lock of the store.
+     * When several threads ask for the same missing artifact, it is computed once;
+     * the other threads wait and each get their own copy, decoded from the
+     * encoding that was stored. Callers may therefore modify the artifact.
+     *
+     * @param key         Key of the artifact.
+     * @param codec       Codec of the artifact.
+     * @param computation Computes the artifact.
+     * @return The artifact.
+     */
+    public <T> T computeIfAbsent(ArtifactKey key, ArtifactCodec<T> codec, Computation<T> computation)
+            throws Exception {
+        T value = get(key, codec);
+        if (value != null) {
+            return value;
+        }
+
+        String name = fileName(key);
+        FutureTask<Computed<T>> task;
+        boolean owner = false;
+
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            FutureTask<Computed<T>> running = (FutureTask<Computed<T>>) inFlight.get(name);
+            task = running;
+            if (task == null) {
+                // Another thread may have stored it since the first lookup
+                value = get(key, codec);
+                if (value != null) {
+                    return value;
+                }
+
+                task = new FutureTask<>(() -> {
+                    T computed = computation.compute();
+                    byte[] encoded = encode(computed, codec);
+                    store(key, encoded);
+                    return new Computed<>(computed, encoded);
+                });
+                inFlight.put(name, task);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    inFlight.remove(name);
+                }
+            }
+        }
+
+        Computed<T> computed;
+        try {
+            computed = task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+
+        if (owner) {
+            return computed.value;
+        }
+        return decode(computed.encoded, codec);
+    }
+
+    /**
+     * An artifact computed by {@link #computeIfAbsent} and its encoding, which
+     * the waiting threads decode.
+     */
+    private static class Computed<T> {
+        private final T value;
+        private final byte[] encoded;
+
+        Computed(T value, byte[] encoded) {
+            this.value = value;
+            this.encoded = encoded;
+        }
+    }
+
+    /**
+     * Computes an artifact that is not in the store.
+     */
+    public interface Computation<T> {
+        T compute() throws Exception;
+    }
+
+    /**
+     * Function removes all artifacts from the store.
+     */
+    public synchronized void clear() {
+        for (String name : new ArrayList<>(entries.keySet())) {
+            remove(name);
+        }
+    }
+
+    /**
+     * Function computes the fingerprint of a dataset: a SHA-256 hash over the id
+     * and coordinates of every data point in every frame. The positions are read
+     * from the columns of the dataset, see {@link Positions}. Fingerprints are
+     * remembered per dataset.
+     *
+     * @param dataset The dataset.
+     * @return The fingerprint as hexadecimal string.
+     */
+    public static String fingerprint(DataSet dataset) {
+        synchronized (fingerprints) {
+            String fingerprint = fingerprints.get(dataset);
+            if (fingerprint != null) {
+                return fingerprint;
+            }
+        }
+
+        Positions positions = Positions.of(dataset);
+        int frames = positions.getFrameCount();
+        int entities = positions.getEntityCount();
+
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(20 * 1024);
+
+        buffer.putInt(frames);
+        for (int frame = 0; frame < frames; frame++) {
+            buffer.putInt(entities);
+            for (int entity = 0; entity < entities; entity++) {
+                if (buffer.remaining() < 20) {
+                    digest.update(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+                buffer.putInt(positions.getId(frame, entity));
+                buffer.putLong(Double.doubleToLongBits(positions.getX(frame, entity)));
+                buffer.putLong(Double.doubleToLongBits(positions.getY(frame, entity)));
+            }
+            if (buffer.remaining() < 4) {
+                digest.update(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+        digest.update(buffer.array(), 0, buffer.position());
+
+        String fingerprint = toHex(digest.digest());
+        synchronized (fingerprints) {
+            fingerprints.put(dataset, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    private static <T> byte[] encode(T value, ArtifactCodec<T> codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.write(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static <T> T decode(byte[] encoded, ArtifactCodec<T> codec) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            T value = codec.read(in);
+            if (value == null) {
+                throw new IOException("Could not decode artifact");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Reads the artifacts already in the directory, least recently used first,
+     * and removes files left behind by interrupted writes.
+     */
+    private void loadIndex() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+            } else if (file.getName().endsWith(EXTENSION)) {
+                entries.put(file.getName(), file.length());
+                totalBytes += file.length();
+            }
+        }
+
+        evict(null);
+    }
+
+    /**
+     * Removes the artifacts of the dataset of the key that were computed from
+     * different data. Every dataset is checked once per fingerprint.
+     */
+    private void purgeStale(ArtifactKey key) {
+        String dataset = sanitize(key.getDataset());
+        String fingerprint = shortFingerprint(key);
+
+        if (fingerprint.equals(checkedDatasets.get(dataset))) {
+            return;
+        }
+        checkedDatasets.put(dataset, fingerprint);
+
+        List<String> stale = new ArrayList<>();
+        for (String name : entries.keySet()) {
+            String[] parts = name.split(SEPARATOR);
+            if (parts.length > 1 && parts[0].equals(dataset) && !parts[1].equals(fingerprint)) {
+                stale.add(name);
+            }
+        }
+
+        for (String name : stale) {
+            remove(name);
+        }
+
+        if (!stale.isEmpty()) {
+            System.out.println("Removed " + stale.size() + " stale cached artifacts of " + key.getDataset());
+        }
+    }
+
+    /**
+     * Evicts the least recently used artifacts until the store fits in maxBytes.
+     * The artifact that was just written is kept.
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            new File(directory, entry.getKey()).delete();
+            totalBytes -= entry.getValue();
+            it.remove();
+        }
+    }
+
+    private void remove(String name) {
+        Long size = entries.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        new File(directory, name).delete();
+    }
+
+    private static String fileName(ArtifactKey key) {
+        byte[] hash = sha256().digest(key.toString().getBytes(StandardCharsets.UTF_8));
+
+        return sanitize(key.getDataset()) + SEPARATOR
+                + shortFingerprint(key) + SEPARATOR
+                + sanitize(key.getStage()) + SEPARATOR
+                + toHex(hash).substring(0, 32) + EXTENSION;
+    }
+
+    private static String shortFingerprint(ArtifactKey key) {
+        return key.getFingerprint().substring(0, 16);
+    }
+
+    /**
+     * Replaces every character that is not safe in a file name, including '_',
+     * so that names can be split at the separator.
+     */
+    private static String sanitize(String s) {
+        return s.replaceAll("[^A-Za-z0-9.-]", "-");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+}
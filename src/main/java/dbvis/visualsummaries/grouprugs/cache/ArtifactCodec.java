@@ -0,0 +1,30 @@
+package dbvis.visualsummaries.grouprugs.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary encoding of a cached artifact.
+ *
+ * @param <T> Type of the artifact.
+ */
+public interface ArtifactCodec<T> {
+
+    /**
+     * Function writes an artifact to a stream.
+     *
+     * @param out   The stream to write to.
+     * @param value The artifact.
+     */
+    void write(DataOutputStream out, T value) throws IOException;
+
+    /**
+     * Function reads an artifact written by {@link #write}.
+     *
+     * @param in The stream to read from.
+     * @return The artifact.
+     */
+    T read(DataInputStream in) throws IOException;
+
+}
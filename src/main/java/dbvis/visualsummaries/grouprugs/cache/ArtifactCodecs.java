@@ -0,0 +1,291 @@
+package dbvis.visualsummaries.grouprugs.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dbvis.visualsummaries.grouprugs.linearprogram.MGOrder;
+import dbvis.visualsummaries.grouprugs.linearprogram.OrderedGroups;
+import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.MaximalGroup;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.REdge;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.RVertex;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.ReebGraph;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
+
+/**
+ * Codecs for the artifacts of the pipeline.
+ */
+public class ArtifactCodecs {
+
+    /**
+     * Reeb graph: vertices, then edges with the indices of their end points and
+     * their component. Maximal groups attached to edges are not stored, the graph
+     * is cached before they are computed.
+     */
+    public static final ArtifactCodec<ReebGraph> REEB_GRAPH = new ArtifactCodec<ReebGraph>() {
+
+        @Override
+        public void write(DataOutputStream out, ReebGraph rg) throws IOException {
+            List<RVertex> vertices = rg.getVertices();
+            Map<RVertex, Integer> index = new IdentityHashMap<>();
+
+            out.writeInt(vertices.size());
+            for (RVertex v : vertices) {
+                index.put(v, index.size());
+                out.writeInt(v.getId());
+                out.writeDouble(v.getTime());
+                out.writeUTF(v.getType());
+            }
+
+            List<REdge> edges = rg.getEdges();
+            out.writeInt(edges.size());
+            for (REdge e : edges) {
+                out.writeInt(index.get(e.getSource()));
+                out.writeInt(e.getDest() == null ? -1 : index.get(e.getDest()));
+                out.writeInt(e.getReebId());
+                writeInts(out, e.getComponent());
+            }
+        }
+
+        @Override
+        public ReebGraph read(DataInputStream in) throws IOException {
+            int numVertices = in.readInt();
+            ArrayList<RVertex> vertices = new ArrayList<>(numVertices);
+            for (int i = 0; i < numVertices; i++) {
+                int id = in.readInt();
+                double time = in.readDouble();
+                vertices.add(new RVertex(id, time, in.readUTF()));
+            }
+
+            int numEdges = in.readInt();
+            ArrayList<REdge> edges = new ArrayList<>(numEdges);
+            for (int i = 0; i < numEdges; i++) {
+                RVertex source = vertices.get(in.readInt());
+                int dest = in.readInt();
+                int reebId = in.readInt();
+                edges.add(new REdge(source, dest < 0 ? null : vertices.get(dest), reebId, readInts(in)));
+            }
+
+            ReebGraph rg = new ReebGraph();
+            rg.setVertices(vertices);
+            rg.setEdges(edges);
+            return rg;
+        }
+    };
+
+    /**
+     * Set of maximal groups, in iteration order.
+     */
+    public static final ArtifactCodec<Set<MaximalGroup>> MAXIMAL_GROUPS = new ArtifactCodec<Set<MaximalGroup>>() {
+
+        @Override
+        public void write(DataOutputStream out, Set<MaximalGroup> groups) throws IOException {
+            out.writeInt(groups.size());
+            for (MaximalGroup group : groups) {
+                writeGroup(out, group);
+            }
+        }
+
+        @Override
+        public Set<MaximalGroup> read(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            Set<MaximalGroup> groups = new LinkedHashSet<>();
+            for (int i = 0; i < size; i++) {
+                groups.add(readGroup(in));
+            }
+            return groups;
+        }
+    };
+
+    /**
+     * Map from group id to maximal group, as produced by the ordering pipeline.
+     */
+    public static final ArtifactCodec<Map<Integer, MaximalGroup>> GROUP_MAP = new ArtifactCodec<Map<Integer, MaximalGroup>>() {
+
+        @Override
+        public void write(DataOutputStream out, Map<Integer, MaximalGroup> groupMap) throws IOException {
+            out.writeInt(groupMap.size());
+            for (Map.Entry<Integer, MaximalGroup> entry : groupMap.entrySet()) {
+                out.writeInt(entry.getKey());
+                writeGroup(out, entry.getValue());
+            }
+        }
+
+        @Override
+        public Map<Integer, MaximalGroup> read(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            Map<Integer, MaximalGroup> groupMap = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                int id = in.readInt();
+                groupMap.put(id, readGroup(in));
+            }
+            return groupMap;
+        }
+    };
+
+    /**
+     * Order of the maximal groups per layer.
+     */
+    public static final ArtifactCodec<List<MGOrder>> MG_ORDERS = new ArtifactCodec<List<MGOrder>>() {
+
+        @Override
+        public void write(DataOutputStream out, List<MGOrder> orders) throws IOException {
+            out.writeInt(orders.size());
+            for (MGOrder order : orders) {
+                out.writeInt(order.getLayer());
+                writeInts(out, order.getOrder());
+            }
+        }
+
+        @Override
+        public List<MGOrder> read(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            List<MGOrder> orders = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int layer = in.readInt();
+                orders.add(new MGOrder(layer, readInts(in)));
+            }
+            return orders;
+        }
+    };
+
+    /**
+     * List of integers, e.g. the layers of the ordering pipeline.
+     */
+    public static final ArtifactCodec<List<Integer>> INT_LIST = new ArtifactCodec<List<Integer>>() {
+
+        @Override
+        public void write(DataOutputStream out, List<Integer> list) throws IOException {
+            writeInts(out, list);
+        }
+
+        @Override
+        public List<Integer> read(DataInputStream in) throws IOException {
+            return readInts(in);
+        }
+    };
+
+    /**
+     * Result of the ordering pipeline.
+     */
+    public static final ArtifactCodec<OrderedGroups> ORDERED_GROUPS = new ArtifactCodec<OrderedGroups>() {
+
+        @Override
+        public void write(DataOutputStream out, OrderedGroups orderedGroups) throws IOException {
+            MG_ORDERS.write(out, orderedGroups.getOrders());
+            GROUP_MAP.write(out, orderedGroups.getGroupMap());
+            INT_LIST.write(out, orderedGroups.getLayers());
+        }
+
+        @Override
+        public OrderedGroups read(DataInputStream in) throws IOException {
+            List<MGOrder> orders = MG_ORDERS.read(in);
+            Map<Integer, MaximalGroup> groupMap = GROUP_MAP.read(in);
+            return new OrderedGroups(orders, groupMap, INT_LIST.read(in));
+        }
+    };
+
+    /**
+     * Entity to position map, frame and entity counts followed by the positions
+     * frame by frame. Missing positions are stored as {@link EtpMap#UNPLACED}.
+     */
+    public static final ArtifactCodec<EtpMap> ETP_MAP = new ArtifactCodec<EtpMap>() {
+
+        @Override
+        public void write(DataOutputStream out, EtpMap etpMap) throws IOException {
+            out.writeInt(etpMap.getFrameCount());
+            out.writeInt(etpMap.getEntityCount());
+            for (int position : etpMap.getPositions()) {
+                out.writeInt(position);
+            }
+        }
+
+        @Override
+        public EtpMap read(DataInputStream in) throws IOException {
+            int frames = in.readInt();
+            int entities = in.readInt();
+            int[] positions = new int[frames * entities];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = in.readInt();
+            }
+            return new EtpMap(frames, entities, positions);
+        }
+    };
+
+    /**
+     * Ordering of a strategy, [frame][rank] -> index of the data point in the
+     * frame.
+     */
+    public static final ArtifactCodec<int[][]> ORDERING = new ArtifactCodec<int[][]>() {
+
+        @Override
+        public void write(DataOutputStream out, int[][] ordering) throws IOException {
+            out.writeInt(ordering.length);
+            for (int[] frame : ordering) {
+                out.writeInt(frame.length);
+                for (int index : frame) {
+                    out.writeInt(index);
+                }
+            }
+        }
+
+        @Override
+        public int[][] read(DataInputStream in) throws IOException {
+            int[][] ordering = new int[in.readInt()][];
+            for (int f = 0; f < ordering.length; f++) {
+                ordering[f] = new int[in.readInt()];
+                for (int i = 0; i < ordering[f].length; i++) {
+                    ordering[f][i] = in.readInt();
+                }
+            }
+            return ordering;
+        }
+    };
+
+    private static void writeGroup(DataOutputStream out, MaximalGroup group) throws IOException {
+        writeInts(out, group.getEntities());
+        out.writeInt(group.getStartFrame());
+        out.writeInt(group.getEndFrame());
+    }
+
+    private static MaximalGroup readGroup(DataInputStream in) throws IOException {
+        List<Integer> entities = readInts(in);
+        MaximalGroup group = new MaximalGroup(entities, in.readInt());
+        group.setEndFrame(in.readInt());
+        return group;
+    }
+
+    /**
+     * Writes a list of integers; null is written as length -1.
+     */
+    private static void writeInts(DataOutputStream out, List<Integer> list) throws IOException {
+        if (list == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(list.size());
+        for (int i : list) {
+            out.writeInt(i);
+        }
+    }
+
+    private static List<Integer> readInts(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(in.readInt());
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,71 @@
+package dbvis.visualsummaries.grouprugs.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import dbvis.visualsummaries.data.DataSet;
+
+/**
+ * Identifies an artifact in the {@link ArtifactCache}: the pipeline stage that
+ * produced it, the dataset and a fingerprint of its frames, and the parameters
+ * of the stage. Two keys with the same stage, fingerprint and parameters refer
+ * to the same artifact, whatever file the frames were loaded from.
+ */
+public class ArtifactKey {
+
+    private final String stage;
+    private final String dataset;
+    private final String fingerprint;
+    private final Map<String, String> params;
+
+    /**
+     * @param stage   Name of the pipeline stage, e.g. "reebgraph".
+     * @param dataset Name of the dataset.
+     * @param data    The dataset.
+     */
+    public ArtifactKey(String stage, String dataset, DataSet data) {
+        this.stage = stage;
+        this.dataset = dataset;
+        this.fingerprint = ArtifactCache.fingerprint(data);
+        this.params = new LinkedHashMap<>();
+    }
+
+    /**
+     * Function adds a parameter of the stage to the key.
+     *
+     * @param name  Name of the parameter.
+     * @param value Value of the parameter, compared by its string form.
+     * @return This key.
+     */
+    public ArtifactKey with(String name, Object value) {
+        params.put(name, String.valueOf(value));
+        return this;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public String getDataset() {
+        return dataset;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the full description of the key, which is stored in the header of
+     * the artifact file.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(stage).append('|').append(fingerprint);
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            sb.append('|').append(param.getKey()).append('=').append(param.getValue());
+        }
+        return sb.toString();
+    }
+
+}
@@ -1,10 +1,8 @@
 package dbvis.visualsummaries.grouprugs.events;
 
-import java.util.Comparator;
-import java.util.PriorityQueue;
-
 import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.data.DataSet;
+import dbvis.visualsummaries.data.Positions;
 import dbvis.visualsummaries.data.SessionData;
 import dbvis.visualsummaries.grouprugs.tgs.Utils;
 
@@ -13,24 +11,42 @@ public class EventComputer {
     public static final int START_FRAME = 1;
 
     /**
-     * Computes connect and disconnect events in the given dataset, sorted by frame
-     * number.
+     * Computes connect and disconnect events in the given dataset, sorted by time.
+     * Uses the grid-accelerated engine in {@link GridEventComputer}, which yields
+     * the same events as {@link #computeEventsBruteForce(String, double)}.
+     * 
+     * @param datasetName The name of the dataset.
+     * @param epsilon     The proximity threshold for events.
+     * @return A log of the events sorted by time.
+     */
+    public static EventLog computeEvents(String datasetName, double epsilon) {
+        DataSet dataset = SessionData.getInstance().getDataset(datasetName);
+
+        return GridEventComputer.computeEvents(Positions.of(dataset), epsilon,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Computes connect and disconnect events in the given dataset by testing every
+     * pair of entities in every frame.
      * 
      * @param datasetName The name of the dataset.
      * @param epsilon     The proximity threshold for events.
-     * @return A priority queue of events sorted by time.
+     * @return A log of the events sorted by time.
      */
-    public static PriorityQueue<Event> computeEvents(String datasetName, double epsilon) {
-        PriorityQueue<Event> events = new PriorityQueue<Event>(Comparator.comparingDouble(Event::getTime));
+    public static EventLog computeEventsBruteForce(String datasetName, double epsilon) {
+        EventLog events = new EventLog();
         DataSet dataset = SessionData.getInstance().getDataset(datasetName);
+        DataPoint[][] baseData = dataset.getBaseData();
 
-        int numFrames = dataset.getBaseData().length;
-        int numEntities = dataset.getBaseData()[0].length;
+        int numFrames = baseData.length;
+        int numEntities = baseData[0].length;
 
         for (int frame = START_FRAME; frame < numFrames - 1; frame++) {
-            processFrame(events, dataset, numEntities, frame, epsilon);
+            processFrame(events, baseData, numEntities, frame, epsilon);
         }
 
+        events.sort(1);
         return events;
 
     }
@@ -39,14 +55,14 @@ public class EventComputer {
      * Function processes a single frame in the dataset scanning for epsilon events.
      * 
      * @param events      The list of events.
-     * @param dataset     The dataset.
+     * @param baseData    The unordered base data.
      * @param numEntities The number of entities.
      * @param frame       The frame number.
      * @param epsilon     The epsilon value.
      */
     private static void processFrame(
-            PriorityQueue<Event> events,
-            DataSet dataset,
+            EventLog events,
+            DataPoint[][] baseData,
             int numEntities,
             int frame,
             double epsilon) {
@@ -55,7 +71,7 @@ public class EventComputer {
         for (int entity1 = 0; entity1 < numEntities; entity1++) {
             for (int entity2 = entity1 + 1; entity2 < numEntities; entity2++) {
 
-                processEntityPair(events, dataset, entity1, entity2, frame, epsilon);
+                processEntityPair(events, baseData, entity1, entity2, frame, epsilon);
 
             }
         }
@@ -68,24 +84,24 @@ public class EventComputer {
      * frame.
      * 
      * @param events
-     * @param dataset
+     * @param baseData
      * @param entity1
      * @param entity2
      * @param frame
      * @param epsilon
      */
     private static void processEntityPair(
-            PriorityQueue<Event> events,
-            DataSet dataset,
+            EventLog events,
+            DataPoint[][] baseData,
             int entity1,
             int entity2,
             int frame,
             double epsilon) {
 
-        DataPoint e1 = dataset.getBaseData()[frame][entity1];
-        DataPoint e2 = dataset.getBaseData()[frame][entity2];
-        DataPoint e1_prev = dataset.getBaseData()[frame - 1][entity1];
-        DataPoint e2_prev = dataset.getBaseData()[frame - 1][entity2];
+        DataPoint e1 = baseData[frame][entity1];
+        DataPoint e2 = baseData[frame][entity2];
+        DataPoint e1_prev = baseData[frame - 1][entity1];
+        DataPoint e2_prev = baseData[frame - 1][entity2];
 
         double distance = Utils.getEuclideanDistance(e1,
                 e2);
@@ -95,12 +111,12 @@ public class EventComputer {
         // Connect Event
         if (distance <= epsilon && distancePrev > epsilon) {
             double time = calculateEventTime(distance, distancePrev, frame, epsilon);
-            events.add(new Event(entity1, entity2, time, Event.Type.CONNECT));
+            events.add(entity1, entity2, time, Event.Type.CONNECT);
 
             // Disconnect Event
         } else if (distance > epsilon && distancePrev <= epsilon) {
             double time = calculateEventTime(distance, distancePrev, frame, epsilon);
-            events.add(new Event(entity1, entity2, time, Event.Type.DISCONNECT));
+            events.add(entity1, entity2, time, Event.Type.DISCONNECT);
         }
     }
 
@@ -116,7 +132,7 @@ public class EventComputer {
      * 
      * @return The exact time of the event.
      */
-    private static double calculateEventTime(
+    static double calculateEventTime(
             double distance,
             double distancePrev,
             int frame,
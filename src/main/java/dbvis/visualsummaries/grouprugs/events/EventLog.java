@@ -0,0 +1,375 @@
+package dbvis.visualsummaries.grouprugs.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Connect and disconnect events stored in parallel primitive arrays (time,
+ * entity1, entity2, type) instead of one Event object per event.
+ *
+ * Events are ordered on time, then entity1, then entity2, then type, so the
+ * order does not depend on the order in which they were added. The log keeps
+ * track of whether the events were added in that order; logs of consecutive
+ * frame ranges that are sorted on their own can be appended without sorting
+ * again. Otherwise {@link #sort(int)} sorts the log with a parallel merge sort.
+ *
+ * Iterating a log always visits the events in time order.
+ */
+public class EventLog implements Iterable<Event> {
+
+    private static final byte CONNECT = 0;
+    private static final byte DISCONNECT = 1;
+
+    /**
+     * Runs up to this length are sorted with insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Minimum number of events per task of the parallel sort.
+     */
+    private static final int MIN_EVENTS_PER_TASK = 1 << 16;
+
+    private double[] times;
+    private int[] entities1;
+    private int[] entities2;
+    private byte[] types;
+    private int size;
+
+    private boolean sorted = true;
+
+    public EventLog() {
+        this(16);
+    }
+
+    /**
+     * @param capacity The initial number of events the log can hold.
+     */
+    public EventLog(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.times = new double[capacity];
+        this.entities1 = new int[capacity];
+        this.entities2 = new int[capacity];
+        this.types = new byte[capacity];
+    }
+
+    /**
+     * Function appends an event to the log.
+     *
+     * @param entity1 The first entity.
+     * @param entity2 The second entity.
+     * @param time    The time of the event.
+     * @param type    The type of the event.
+     */
+    public void add(int entity1, int entity2, double time, Event.Type type) {
+        ensureCapacity(size + 1);
+
+        times[size] = time;
+        entities1[size] = entity1;
+        entities2[size] = entity2;
+        types[size] = type == Event.Type.CONNECT ? CONNECT : DISCONNECT;
+
+        if (sorted && size > 0 && compare(this, size - 1, this, size) > 0) {
+            sorted = false;
+        }
+        size++;
+    }
+
+    /**
+     * Function appends all events of another log. The log stays sorted if both
+     * logs are sorted and the events of the other log come after the events of
+     * this log.
+     *
+     * @param other The log to append.
+     */
+    public void addAll(EventLog other) {
+        if (other.size == 0) {
+            return;
+        }
+        ensureCapacity(size + other.size);
+
+        if (!other.sorted || (size > 0 && compare(this, size - 1, other, 0) > 0)) {
+            sorted = false;
+        }
+
+        System.arraycopy(other.times, 0, times, size, other.size);
+        System.arraycopy(other.entities1, 0, entities1, size, other.size);
+        System.arraycopy(other.entities2, 0, entities2, size, other.size);
+        System.arraycopy(other.types, 0, types, size, other.size);
+        size += other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the events are in time order.
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    public double getTime(int index) {
+        checkIndex(index);
+        return times[index];
+    }
+
+    public int getEntity1(int index) {
+        checkIndex(index);
+        return entities1[index];
+    }
+
+    public int getEntity2(int index) {
+        checkIndex(index);
+        return entities2[index];
+    }
+
+    public Event.Type getType(int index) {
+        checkIndex(index);
+        return types[index] == CONNECT ? Event.Type.CONNECT : Event.Type.DISCONNECT;
+    }
+
+    /**
+     * Returns the event at an index as an Event object.
+     *
+     * @param index The index of the event.
+     * @return A new Event.
+     */
+    public Event get(int index) {
+        return new Event(getEntity1(index), getEntity2(index), getTime(index), getType(index));
+    }
+
+    /**
+     * Function shrinks the arrays to the number of events.
+     */
+    public void trimToSize() {
+        if (times.length > size) {
+            int capacity = Math.max(1, size);
+            times = Arrays.copyOf(times, capacity);
+            entities1 = Arrays.copyOf(entities1, capacity);
+            entities2 = Arrays.copyOf(entities2, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+    }
+
+    /**
+     * Function sorts the events on time. Runs of the log are sorted on the given
+     * number of threads, and merged pairwise in parallel.
+     *
+     * @param threads The number of worker threads, at least 1 is used.
+     */
+    public void sort(int threads) {
+        if (sorted) {
+            return;
+        }
+        int workers = Math.max(1, threads);
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[size];
+
+        int tasks = (int) Math.min(workers * 4L, Math.max(1, size / MIN_EVENTS_PER_TASK));
+        int runLength = (size + tasks - 1) / tasks;
+
+        if (tasks == 1) {
+            mergeSort(order, buffer, 0, size);
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            try {
+                // Sort the runs
+                List<Future<?>> futures = new ArrayList<>();
+                for (int lo = 0; lo < size; lo += runLength) {
+                    final int from = lo;
+                    final int to = Math.min(lo + runLength, size);
+                    futures.add(executor.submit(() -> mergeSort(order, buffer, from, to)));
+                }
+                waitFor(futures);
+
+                // Merge neighbouring runs until one run is left
+                int[] src = order;
+                int[] dst = buffer;
+                for (int width = runLength; width < size; width *= 2) {
+                    futures.clear();
+                    for (int lo = 0; lo < size; lo += 2 * width) {
+                        final int from = lo;
+                        final int mid = Math.min(lo + width, size);
+                        final int to = Math.min(lo + 2 * width, size);
+                        final int[] in = src;
+                        final int[] out = dst;
+                        futures.add(executor.submit(() -> merge(in, out, from, mid, to)));
+                    }
+                    waitFor(futures);
+
+                    int[] swap = src;
+                    src = dst;
+                    dst = swap;
+                }
+                if (src != order) {
+                    System.arraycopy(src, 0, order, 0, size);
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        permute(order);
+        sorted = true;
+    }
+
+    /**
+     * Returns an iterator over the events in time order. The log is sorted first
+     * if needed.
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        sort(Runtime.getRuntime().availableProcessors());
+
+        return new Iterator<Event>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Event next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    private static void waitFor(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Compares event i of log a with event j of log b.
+     */
+    private static int compare(EventLog a, int i, EventLog b, int j) {
+        int c = Double.compare(a.times[i], b.times[j]);
+        if (c != 0) {
+            return c;
+        }
+        c = Integer.compare(a.entities1[i], b.entities1[j]);
+        if (c != 0) {
+            return c;
+        }
+        c = Integer.compare(a.entities2[i], b.entities2[j]);
+        if (c != 0) {
+            return c;
+        }
+        return Byte.compare(a.types[i], b.types[j]);
+    }
+
+    private int compare(int i, int j) {
+        return compare(this, i, this, j);
+    }
+
+    /**
+     * Sorts order[lo, hi) on the events it points to, using buffer[lo, hi) as
+     * scratch space.
+     */
+    private void mergeSort(int[] order, int[] buffer, int lo, int hi) {
+        if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+            for (int i = lo + 1; i < hi; i++) {
+                int event = order[i];
+                int j = i - 1;
+                while (j >= lo && compare(order[j], event) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = event;
+            }
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        mergeSort(order, buffer, lo, mid);
+        mergeSort(order, buffer, mid, hi);
+
+        if (compare(order[mid - 1], order[mid]) <= 0) {
+            return;
+        }
+        merge(order, buffer, lo, mid, hi);
+        System.arraycopy(buffer, lo, order, lo, hi - lo);
+    }
+
+    /**
+     * Merges the sorted ranges src[lo, mid) and src[mid, hi) into dst[lo, hi).
+     */
+    private void merge(int[] src, int[] dst, int lo, int mid, int hi) {
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (j >= hi || (i < mid && compare(src[i], src[j]) <= 0)) {
+                dst[k] = src[i++];
+            } else {
+                dst[k] = src[j++];
+            }
+        }
+    }
+
+    /**
+     * Rearranges the events so that event order[i] moves to index i.
+     */
+    private void permute(int[] order) {
+        double[] newTimes = new double[times.length];
+        int[] newEntities1 = new int[entities1.length];
+        int[] newEntities2 = new int[entities2.length];
+        byte[] newTypes = new byte[types.length];
+
+        for (int i = 0; i < size; i++) {
+            int event = order[i];
+            newTimes[i] = times[event];
+            newEntities1[i] = entities1[event];
+            newEntities2[i] = entities2[event];
+            newTypes[i] = types[event];
+        }
+
+        times = newTimes;
+        entities1 = newEntities1;
+        entities2 = newEntities2;
+        types = newTypes;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > times.length) {
+            int newCapacity = Math.max(capacity, times.length + (times.length >> 1));
+            times = Arrays.copyOf(times, newCapacity);
+            entities1 = Arrays.copyOf(entities1, newCapacity);
+            entities2 = Arrays.copyOf(entities2, newCapacity);
+            types = Arrays.copyOf(types, newCapacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+}
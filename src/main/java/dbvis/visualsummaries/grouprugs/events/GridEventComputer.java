@@ -0,0 +1,430 @@
+package dbvis.visualsummaries.grouprugs.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.Positions;
+
+/**
+ * Grid-accelerated, parallel variant of the connect/disconnect event detection
+ * in {@link EventComputer}.
+ *
+ * A pair of entities can only produce an event in frame f if they are at most
+ * epsilon apart in frame f or in frame f - 1. Each frame is therefore bucketed
+ * into a uniform grid with cells of (at least) epsilon wide, and only pairs in
+ * neighbouring cells of either frame are tested. Frames are split into chunks
+ * that are processed by a fixed thread pool, each chunk collecting its events
+ * in its own buffer. Positions are read from flat columns (see
+ * {@link Positions}), so a columnar dataset is scanned without DataPoints.
+ *
+ * The resulting events are identical to the brute-force path. Every chunk
+ * sorts its own events; since chunks cover consecutive frames their logs are
+ * appended in order without sorting the whole log again.
+ */
+public class GridEventComputer {
+
+    /**
+     * Maximum number of grid cells along one axis. Cells are enlarged when the
+     * spatial extent of a frame would exceed this, which keeps the results
+     * correct since larger cells only add candidate pairs.
+     */
+    private static final int MAX_CELLS_PER_AXIS = 46000;
+
+    /**
+     * Relative margin added to the cell size so that floating point rounding in
+     * the cell computation never places two points at distance epsilon in cells
+     * that are not neighbours.
+     */
+    private static final double CELL_MARGIN = 1e-6;
+
+    /**
+     * Offsets of the neighbouring cells that are visited from a cell, such that
+     * every pair of neighbouring cells is visited exactly once.
+     */
+    private static final int[][] FORWARD_NEIGHBOURS = { { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 } };
+
+    /**
+     * Computes connect and disconnect events in the given frames, sorted by time.
+     *
+     * @param baseData The unordered base data, baseData[frame][entity].
+     * @param epsilon  The proximity threshold for events.
+     * @param threads  The number of worker threads.
+     * @return A log of the events sorted by time.
+     */
+    public static EventLog computeEvents(DataPoint[][] baseData, double epsilon, int threads) {
+        return computeEvents(Positions.of(baseData), epsilon, threads);
+    }
+
+    /**
+     * Computes connect and disconnect events in the given positions, sorted by
+     * time.
+     *
+     * @param positions The positions of the entities in every frame.
+     * @param epsilon   The proximity threshold for events.
+     * @param threads   The number of worker threads.
+     * @return A log of the events sorted by time.
+     */
+    public static EventLog computeEvents(Positions positions, double epsilon, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+
+        EventLog events = new EventLog();
+
+        int firstFrame = EventComputer.START_FRAME;
+        int lastFrame = positions.getFrameCount() - 1; // exclusive, as in the brute-force path
+        int numFrames = lastFrame - firstFrame;
+
+        if (numFrames <= 0) {
+            return events;
+        }
+
+        // A non-positive (or NaN) epsilon can not be bucketed; use the brute-force
+        // path in that case.
+        if (!(epsilon > 0)) {
+            for (int frame = firstFrame; frame < lastFrame; frame++) {
+                processFrameBruteForce(events, positions, frame, epsilon);
+            }
+            events.sort(threads);
+            return events;
+        }
+
+        if (threads == 1) {
+            return processFrames(positions, firstFrame, lastFrame, epsilon);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int jobs = Math.min(numFrames, threads * 4);
+            int chunkSize = (numFrames + jobs - 1) / jobs;
+
+            List<Future<EventLog>> futures = new ArrayList<>();
+            for (int lo = firstFrame; lo < lastFrame; lo += chunkSize) {
+                final int from = lo;
+                final int to = Math.min(lo + chunkSize, lastFrame);
+                futures.add(executor.submit(() -> processFrames(positions, from, to, epsilon)));
+            }
+
+            List<EventLog> chunks = new ArrayList<>();
+            int total = 0;
+            for (Future<EventLog> future : futures) {
+                chunks.add(future.get());
+                total += chunks.get(chunks.size() - 1).size();
+            }
+
+            // Chunks are merged in frame order.
+            events = new EventLog(total);
+            for (EventLog chunk : chunks) {
+                events.addAll(chunk);
+            }
+
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Only needed when events of neighbouring chunks share a time
+        events.sort(threads);
+        return events;
+    }
+
+    /**
+     * Processes a consecutive range of frames. The grid of a frame is reused as
+     * the grid of the previous frame when moving on to the next frame.
+     *
+     * @param positions The positions of the entities.
+     * @param from      The first frame to process (inclusive).
+     * @param to        The last frame to process (exclusive).
+     * @param epsilon   The epsilon value.
+     * @return The events of the frames in the range, sorted by time.
+     */
+    private static EventLog processFrames(Positions positions, int from, int to, double epsilon) {
+        EventLog events = new EventLog();
+
+        FrameGrid prevGrid = new FrameGrid(positions, from - 1, epsilon);
+
+        for (int frame = from; frame < to; frame++) {
+            FrameGrid grid = new FrameGrid(positions, frame, epsilon);
+
+            processFrame(events, positions, prevGrid, grid, frame, epsilon);
+
+            prevGrid = grid;
+        }
+
+        events.sort(1);
+        events.trimToSize();
+        return events;
+    }
+
+    /**
+     * Function processes a single frame. Pairs close in the current frame are
+     * tested for connect events, pairs close in the previous frame for disconnect
+     * events.
+     *
+     * @param events    The log the events of this frame are added to.
+     * @param positions The positions of the entities.
+     * @param prevGrid  The grid of the previous frame.
+     * @param grid      The grid of the current frame.
+     * @param frame     The frame number.
+     * @param epsilon   The epsilon value.
+     */
+    private static void processFrame(
+            EventLog events,
+            Positions positions,
+            FrameGrid prevGrid,
+            FrameGrid grid,
+            int frame,
+            double epsilon) {
+
+        // Connect events: close now, apart before.
+        scanCandidatePairs(events, positions, frame, frame - 1, grid, frame, epsilon, Event.Type.CONNECT);
+
+        // Disconnect events: close before, apart now.
+        scanCandidatePairs(events, positions, frame - 1, frame, prevGrid, frame, epsilon,
+                Event.Type.DISCONNECT);
+    }
+
+    /**
+     * Tests all candidate pairs of the grid.
+     *
+     * @param events    The log the events are added to.
+     * @param positions The positions of the entities.
+     * @param close     The frame in which the pair has to be within epsilon.
+     * @param apart     The frame in which the pair has to be further than
+     *                  epsilon.
+     * @param grid      The grid built over {@code close}.
+     * @param frame     The frame number.
+     * @param epsilon   The epsilon value.
+     * @param type      The type of event that is reported.
+     */
+    private static void scanCandidatePairs(
+            EventLog events,
+            Positions positions,
+            int close,
+            int apart,
+            FrameGrid grid,
+            int frame,
+            double epsilon,
+            Event.Type type) {
+
+        forEachCandidatePair(grid, positions.getEntityCount(),
+                (a, b) -> testPair(events, positions, close, apart, a, b, frame, epsilon, type));
+    }
+
+    /**
+     * Visitor of the candidate pairs of a grid.
+     */
+    interface PairVisitor {
+        void visit(int a, int b);
+    }
+
+    /**
+     * Visits all pairs of entities in the same or neighbouring cells of the grid.
+     * Each pair of cells is visited once by only looking at the cell itself and
+     * the neighbours that come after it.
+     *
+     * @param grid    The grid.
+     * @param n       The number of entities in the grid.
+     * @param visitor The visitor that is called for every candidate pair.
+     */
+    static void forEachCandidatePair(FrameGrid grid, int n, PairVisitor visitor) {
+
+        for (int start = 0; start < n; start = grid.cellEnd(start)) {
+            int end = grid.cellEnd(start);
+
+            // Pairs within the cell itself.
+            for (int a = start; a < end; a++) {
+                for (int b = a + 1; b < end; b++) {
+                    visitor.visit(grid.entityAt(a), grid.entityAt(b));
+                }
+            }
+
+            // Pairs with the forward neighbours of the cell.
+            for (int[] offset : FORWARD_NEIGHBOURS) {
+                int other = grid.neighbourStart(start, offset[0], offset[1]);
+                if (other < 0) {
+                    continue;
+                }
+                int otherEnd = grid.cellEnd(other);
+
+                for (int a = start; a < end; a++) {
+                    for (int b = other; b < otherEnd; b++) {
+                        visitor.visit(grid.entityAt(a), grid.entityAt(b));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an event if the pair is within epsilon in {@code close} and further
+     * than epsilon apart in {@code apart}. Distances are computed exactly as in
+     * {@link EventComputer}.
+     */
+    private static void testPair(
+            EventLog events,
+            Positions positions,
+            int close,
+            int apart,
+            int a,
+            int b,
+            int frame,
+            double epsilon,
+            Event.Type type) {
+
+        double closeDistance = positions.distance(close, a, b);
+        if (!(closeDistance <= epsilon)) {
+            return;
+        }
+
+        double apartDistance = positions.distance(apart, a, b);
+        if (!(apartDistance > epsilon)) {
+            return;
+        }
+
+        int entity1 = Math.min(a, b);
+        int entity2 = Math.max(a, b);
+
+        // For a connect event the current frame is the close one.
+        double distance = type == Event.Type.CONNECT ? closeDistance : apartDistance;
+        double distancePrev = type == Event.Type.CONNECT ? apartDistance : closeDistance;
+
+        double time = EventComputer.calculateEventTime(distance, distancePrev, frame, epsilon);
+        events.add(entity1, entity2, time, type);
+    }
+
+    /**
+     * Brute-force fallback for a single frame, used when epsilon can not be used
+     * as a cell size.
+     */
+    private static void processFrameBruteForce(EventLog events, Positions positions, int frame, double epsilon) {
+        int n = positions.getEntityCount();
+
+        for (int entity1 = 0; entity1 < n; entity1++) {
+            for (int entity2 = entity1 + 1; entity2 < n; entity2++) {
+                double distance = positions.distance(frame, entity1, entity2);
+                double distancePrev = positions.distance(frame - 1, entity1, entity2);
+
+                if (distance <= epsilon && distancePrev > epsilon) {
+                    double time = EventComputer.calculateEventTime(distance, distancePrev, frame, epsilon);
+                    events.add(entity1, entity2, time, Event.Type.CONNECT);
+                } else if (distance > epsilon && distancePrev <= epsilon) {
+                    double time = EventComputer.calculateEventTime(distance, distancePrev, frame, epsilon);
+                    events.add(entity1, entity2, time, Event.Type.DISCONNECT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Uniform grid over the entities of a single frame. Entities are sorted by
+     * cell key, so the entities of a cell form a contiguous run that is found by
+     * binary search.
+     */
+    static class FrameGrid {
+
+        private final long[] cellX;
+        private final long[] cellY;
+        private final long stride;
+
+        // Sorted (key << 32 | entity) values.
+        private final long[] sorted;
+
+        FrameGrid(Positions positions, int frame, double epsilon) {
+            int n = positions.getEntityCount();
+
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                double x = positions.getX(frame, i);
+                double y = positions.getY(frame, i);
+                if (x < minX) {
+                    minX = x;
+                }
+                if (x > maxX) {
+                    maxX = x;
+                }
+                if (y < minY) {
+                    minY = y;
+                }
+                if (y > maxY) {
+                    maxY = y;
+                }
+            }
+
+            double extent = Math.max(maxX - minX, maxY - minY);
+            double cellSize = Math.max(epsilon, extent / MAX_CELLS_PER_AXIS) * (1 + CELL_MARGIN);
+
+            this.cellX = new long[n];
+            this.cellY = new long[n];
+            this.stride = MAX_CELLS_PER_AXIS + 4L;
+            this.sorted = new long[n];
+
+            for (int i = 0; i < n; i++) {
+                // NaN or infinite coordinates end up in cell 0; they never satisfy
+                // a distance test, exactly as in the brute-force path.
+                cellX[i] = clamp(Math.floor((positions.getX(frame, i) - minX) / cellSize));
+                cellY[i] = clamp(Math.floor((positions.getY(frame, i) - minY) / cellSize));
+                sorted[i] = (key(cellX[i], cellY[i]) << 32) | i;
+            }
+            Arrays.sort(sorted);
+        }
+
+        private static long clamp(double cell) {
+            if (!(cell >= 0)) {
+                return 0;
+            }
+            return (long) Math.min(cell, MAX_CELLS_PER_AXIS + 1);
+        }
+
+        private long key(long cx, long cy) {
+            // Shift by one so neighbouring cells of cell 0 have a valid key.
+            return (cx + 1) * stride + (cy + 1);
+        }
+
+        /**
+         * Returns the position in the sorted order just after the run of entities
+         * that share the cell of the entity at the given position.
+         */
+        int cellEnd(int position) {
+            long cell = sorted[position] >>> 32;
+            int end = position + 1;
+            while (end < sorted.length && (sorted[end] >>> 32) == cell) {
+                end++;
+            }
+            return end;
+        }
+
+        /**
+         * Returns the position in the sorted order of the first entity in the cell
+         * at offset (dx, dy) of the cell of the entity at the given position, or -1
+         * if that cell is empty.
+         */
+        int neighbourStart(int position, int dx, int dy) {
+            int entity = entityAt(position);
+            long target = key(cellX[entity] + dx, cellY[entity] + dy) << 32;
+            int pos = Arrays.binarySearch(sorted, target);
+            if (pos < 0) {
+                pos = -pos - 1;
+            }
+            if (pos >= sorted.length || (sorted[pos] >>> 32) != (target >>> 32)) {
+                return -1;
+            }
+            return pos;
+        }
+
+        int entityAt(int position) {
+            return (int) (sorted[position] & 0xFFFFFFFFL);
+        }
+    }
+
+}
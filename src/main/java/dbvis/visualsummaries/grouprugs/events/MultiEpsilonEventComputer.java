@@ -0,0 +1,231 @@
+package dbvis.visualsummaries.grouprugs.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dbvis.visualsummaries.data.Positions;
+
+/**
+ * Computes the connect and disconnect events for several epsilon thresholds in
+ * a single scan over the frames.
+ *
+ * The frames are bucketed into grids with cells of the largest epsilon, as in
+ * {@link GridEventComputer}. The two distances of a candidate pair are computed
+ * once; the pair connects for every epsilon in [distance, distancePrev) and
+ * disconnects for every epsilon in [distancePrev, distance), which is a range
+ * of the sorted thresholds.
+ *
+ * For every epsilon the events are identical to those of
+ * {@link GridEventComputer}.
+ */
+public class MultiEpsilonEventComputer {
+
+    /**
+     * Computes connect and disconnect events for each of the given thresholds.
+     *
+     * @param positions The positions of the entities in every frame.
+     * @param epsilons  The proximity thresholds, positive and sorted ascending.
+     * @param threads   The number of worker threads.
+     * @return A log of the events sorted by time per threshold, in the order of
+     *         {@code epsilons}.
+     */
+    public static List<EventLog> computeEvents(Positions positions, double[] epsilons,
+            int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+        for (int i = 0; i < epsilons.length; i++) {
+            if (!(epsilons[i] > 0) || (i > 0 && !(epsilons[i] > epsilons[i - 1]))) {
+                throw new IllegalArgumentException("Epsilons must be positive and strictly ascending.");
+            }
+        }
+
+        List<EventLog> events = new ArrayList<>();
+        for (int i = 0; i < epsilons.length; i++) {
+            events.add(new EventLog());
+        }
+
+        int firstFrame = EventComputer.START_FRAME;
+        int lastFrame = positions.getFrameCount() - 1; // exclusive, as in the brute-force path
+        int numFrames = lastFrame - firstFrame;
+
+        if (numFrames <= 0 || epsilons.length == 0) {
+            return events;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int jobs = Math.min(numFrames, threads * 4);
+            int chunkSize = (numFrames + jobs - 1) / jobs;
+
+            List<Future<List<EventLog>>> futures = new ArrayList<>();
+            for (int lo = firstFrame; lo < lastFrame; lo += chunkSize) {
+                final int from = lo;
+                final int to = Math.min(lo + chunkSize, lastFrame);
+                futures.add(executor.submit(() -> processFrames(positions, from, to, epsilons)));
+            }
+
+            // Futures are merged in frame order.
+            for (Future<List<EventLog>> future : futures) {
+                List<EventLog> chunk = future.get();
+                for (int i = 0; i < epsilons.length; i++) {
+                    events.get(i).addAll(chunk.get(i));
+                }
+            }
+
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Only needed when events of neighbouring chunks share a time
+        for (EventLog log : events) {
+            log.sort(threads);
+            log.trimToSize();
+        }
+        return events;
+    }
+
+    /**
+     * Processes a consecutive range of frames for all thresholds.
+     *
+     * @param positions The positions of the entities.
+     * @param from      The first frame to process (inclusive).
+     * @param to        The last frame to process (exclusive).
+     * @param epsilons  The sorted thresholds.
+     * @return The events of the frames in the range per threshold, sorted by
+     *         time.
+     */
+    private static List<EventLog> processFrames(Positions positions, int from, int to,
+            double[] epsilons) {
+        double maxEpsilon = epsilons[epsilons.length - 1];
+
+        List<EventLog> events = new ArrayList<>();
+        for (int i = 0; i < epsilons.length; i++) {
+            events.add(new EventLog());
+        }
+
+        GridEventComputer.FrameGrid prevGrid = new GridEventComputer.FrameGrid(positions, from - 1, maxEpsilon);
+
+        for (int frame = from; frame < to; frame++) {
+            GridEventComputer.FrameGrid grid = new GridEventComputer.FrameGrid(positions, frame, maxEpsilon);
+
+            processFrame(events, positions, prevGrid, grid, frame, epsilons);
+
+            prevGrid = grid;
+        }
+
+        for (EventLog log : events) {
+            log.sort(1);
+        }
+        return events;
+    }
+
+    /**
+     * Function processes a single frame. Every pair that is within the largest
+     * epsilon in the current or the previous frame is a candidate; pairs within
+     * the largest epsilon in both frames are only handled in the first scan.
+     *
+     * @param events    The logs the events of this frame are added to.
+     * @param positions The positions of the entities.
+     * @param prevGrid  The grid of the previous frame.
+     * @param grid      The grid of the current frame.
+     * @param frame     The frame number.
+     * @param epsilons  The sorted thresholds.
+     */
+    private static void processFrame(
+            List<EventLog> events,
+            Positions positions,
+            GridEventComputer.FrameGrid prevGrid,
+            GridEventComputer.FrameGrid grid,
+            int frame,
+            double[] epsilons) {
+
+        double maxEpsilon = epsilons[epsilons.length - 1];
+        int n = positions.getEntityCount();
+
+        GridEventComputer.forEachCandidatePair(grid, n, (a, b) -> {
+            double distance = positions.distance(frame, a, b);
+            if (!(distance <= maxEpsilon)) {
+                return;
+            }
+            double distancePrev = positions.distance(frame - 1, a, b);
+            addEvents(events, a, b, distance, distancePrev, frame, epsilons);
+        });
+
+        GridEventComputer.forEachCandidatePair(prevGrid, n, (a, b) -> {
+            double distancePrev = positions.distance(frame - 1, a, b);
+            if (!(distancePrev <= maxEpsilon)) {
+                return;
+            }
+            double distance = positions.distance(frame, a, b);
+            if (!(distance > maxEpsilon)) {
+                return;
+            }
+            addEvents(events, a, b, distance, distancePrev, frame, epsilons);
+        });
+    }
+
+    /**
+     * Adds the events of a pair for every threshold that lies between its
+     * distances in the previous and the current frame.
+     */
+    private static void addEvents(
+            List<EventLog> events,
+            int a,
+            int b,
+            double distance,
+            double distancePrev,
+            int frame,
+            double[] epsilons) {
+
+        Event.Type type;
+        int from;
+        int to;
+
+        if (distance < distancePrev) {
+            // Connect: distance <= epsilon < distancePrev
+            type = Event.Type.CONNECT;
+            from = lowerBound(epsilons, distance);
+            to = lowerBound(epsilons, distancePrev);
+        } else if (distancePrev < distance) {
+            // Disconnect: distancePrev <= epsilon < distance
+            type = Event.Type.DISCONNECT;
+            from = lowerBound(epsilons, distancePrev);
+            to = lowerBound(epsilons, distance);
+        } else {
+            return;
+        }
+
+        int entity1 = Math.min(a, b);
+        int entity2 = Math.max(a, b);
+
+        for (int i = from; i < to; i++) {
+            double time = EventComputer.calculateEventTime(distance, distancePrev, frame, epsilons[i]);
+            events.get(i).add(entity1, entity2, time, type);
+        }
+    }
+
+    /**
+     * Returns the index of the first threshold that is at least the given value.
+     */
+    private static int lowerBound(double[] epsilons, double value) {
+        int lo = 0;
+        int hi = epsilons.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epsilons[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+}
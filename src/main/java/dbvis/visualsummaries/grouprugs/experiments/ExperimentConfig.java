@@ -0,0 +1,166 @@
+package dbvis.visualsummaries.grouprugs.experiments;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import dbvis.visualsummaries.grouprugs.GroupRugsPipeline;
+import dbvis.visualsummaries.grouprugs.linearprogram.LayerSweepOrderingSolver;
+
+/**
+ * Configuration of the experiment runner, read from a properties file.
+ *
+ * <pre>
+ * threads=4
+ * output=/path/to/results
+ * tileWidth=4096
+ * sweeps=small,large
+ * sweep.small.datasets=tryagain,grouping
+ * sweep.small.strategies=PrincipalComponentStrategy,UMAPStrategy
+ * sweep.small.imageStrategies=Motion Lines,Ordered Rugs
+ * sweep.small.epsilons=15,20
+ * sweep.small.width=15
+ * sweep.small.delta=1
+ * sweep.small.m=1
+ * sweep.small.solver=Layer sweep
+ * sweep.small.solverBudget=10000
+ * </pre>
+ *
+ * Every sweep runs all combinations of its datasets, strategies, image
+ * strategies and epsilons. The image strategies default to all four, epsilon
+ * to 15, width to 15 and delta and m to 1. The solver orders the groups of
+ * Ordered Rugs, QP (needs Gurobi) or Layer sweep, and defaults to QP; the
+ * budget in milliseconds only applies to Layer sweep. threads defaults to the number of
+ * processors, output to ~/motionrugs/experiments. If tileWidth is set, rugs
+ * with more frames are written as tiles and a zoom pyramid instead of a single
+ * image.
+ */
+public class ExperimentConfig {
+
+    public static final String[] IMAGE_STRATEGIES = { "Motion Lines", "Fuzzy Rugs", "MotionRugs",
+            "Ordered Rugs" };
+
+    private final Properties properties;
+
+    public ExperimentConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Function reads a configuration from a properties file.
+     *
+     * @param file the properties file
+     * @return the configuration
+     * @throws IOException if the file could not be read
+     */
+    public static ExperimentConfig load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return new ExperimentConfig(properties);
+    }
+
+    /**
+     * Returns the number of jobs that run at the same time.
+     */
+    public int getThreads() {
+        String threads = properties.getProperty("threads");
+        if (threads == null || threads.trim().isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(1, Integer.parseInt(threads.trim()));
+    }
+
+    /**
+     * Returns the directory the results are written to.
+     */
+    public File getOutputDirectory() {
+        String output = properties.getProperty("output");
+        if (output == null || output.trim().isEmpty()) {
+            return new File(System.getProperty("user.home") + "/motionrugs/experiments");
+        }
+        return new File(output.trim());
+    }
+
+    /**
+     * Returns the width in frames of the tiles of wide rugs, or 0 if rugs are
+     * always written as a single image.
+     */
+    public int getTileWidth() {
+        return getInt("tileWidth", 0);
+    }
+
+    /**
+     * Function expands the sweeps into jobs. Jobs on the same dataset and epsilon
+     * are next to each other, so they can share the Reeb graph.
+     *
+     * @return the jobs, in the order of the configuration
+     */
+    public List<ExperimentJob> getJobs() {
+        List<ExperimentJob> jobs = new ArrayList<ExperimentJob>();
+
+        for (String sweep : getList("sweeps")) {
+            String prefix = "sweep." + sweep + ".";
+
+            List<String> datasets = getList(prefix + "datasets");
+            List<String> strategies = getList(prefix + "strategies");
+            List<String> imageStrategies = getList(prefix + "imageStrategies");
+            if (imageStrategies.isEmpty()) {
+                for (String imageStrategy : IMAGE_STRATEGIES) {
+                    imageStrategies.add(imageStrategy);
+                }
+            }
+            List<String> epsilons = getList(prefix + "epsilons");
+            if (epsilons.isEmpty()) {
+                epsilons.add("15");
+            }
+            int width = getInt(prefix + "width", 15);
+            int delta = getInt(prefix + "delta", 1);
+            int m = getInt(prefix + "m", 1);
+            String solver = properties.getProperty(prefix + "solver", GroupRugsPipeline.QP_SOLVER).trim();
+            long solverBudget = getInt(prefix + "solverBudget",
+                    (int) LayerSweepOrderingSolver.DEFAULT_TIME_BUDGET_MILLIS);
+
+            for (String dataset : datasets) {
+                for (String epsilon : epsilons) {
+                    for (String strategy : strategies) {
+                        for (String imageStrategy : imageStrategies) {
+                            jobs.add(new ExperimentJob(dataset, strategy, imageStrategy,
+                                    Double.parseDouble(epsilon), width, delta, m, solver, solverBudget));
+                        }
+                    }
+                }
+            }
+        }
+
+        return jobs;
+    }
+
+    private List<String> getList(String key) {
+        List<String> values = new ArrayList<String>();
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return values;
+        }
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                values.add(item.trim());
+            }
+        }
+        return values;
+    }
+
+    private int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+}
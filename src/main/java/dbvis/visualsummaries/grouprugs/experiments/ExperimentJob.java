@@ -0,0 +1,100 @@
+package dbvis.visualsummaries.grouprugs.experiments;
+
+import dbvis.visualsummaries.grouprugs.GroupRugsPipeline;
+
+/**
+ * A single run of the GroupRugs pipeline: one dataset, ordering strategy,
+ * image strategy and set of TGS parameters.
+ */
+public class ExperimentJob {
+
+    private final String dataset;
+    private final String strategy;
+    private final String imageStrategy;
+    private final double epsilon;
+    private final int width;
+    private final int delta;
+    private final int m;
+    private final String solver;
+    private final long solverTimeBudget;
+
+    /**
+     * @param dataset       name of the dataset
+     * @param strategy      name of the ordering strategy, as in the GUI
+     * @param imageStrategy name of the image strategy, as in the GUI
+     * @param epsilon       distance threshold of the TGS
+     * @param width         width of the transitions
+     * @param delta         minimum duration of a group
+     * @param m             minimum size of a group
+     * @param solver        solver of the group order of Ordered Rugs
+     * @param solverTimeBudget time budget of the layer sweep solver in
+     *                      milliseconds
+     */
+    public ExperimentJob(String dataset, String strategy, String imageStrategy, double epsilon, int width,
+            int delta, int m, String solver, long solverTimeBudget) {
+        this.dataset = dataset;
+        this.strategy = strategy;
+        this.imageStrategy = imageStrategy;
+        this.epsilon = epsilon;
+        this.width = width;
+        this.delta = delta;
+        this.m = m;
+        this.solver = solver;
+        this.solverTimeBudget = solverTimeBudget;
+    }
+
+    public String getDataset() {
+        return dataset;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public String getImageStrategy() {
+        return imageStrategy;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public int getM() {
+        return m;
+    }
+
+    public String getSolver() {
+        return solver;
+    }
+
+    public long getSolverTimeBudget() {
+        return solverTimeBudget;
+    }
+
+    /**
+     * Returns the name of the job, which is also the name of its output
+     * directory. Ordered Rugs of another solver than QP get the solver in their
+     * name.
+     */
+    public String getName() {
+        String name = dataset + "_" + strategy + "_" + imageStrategy + "_eps" + epsilon;
+        if (imageStrategy.equals("Ordered Rugs") && !solver.equals(GroupRugsPipeline.QP_SOLVER)) {
+            name += "_" + solver.replace(" ", "") + solverTimeBudget;
+        }
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+}
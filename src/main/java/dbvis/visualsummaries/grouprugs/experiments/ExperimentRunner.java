@@ -0,0 +1,229 @@
+package dbvis.visualsummaries.grouprugs.experiments;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import dbvis.visualsummaries.data.CSVDataLoader;
+import dbvis.visualsummaries.data.SessionData;
+import dbvis.visualsummaries.grouprugs.GroupRugsPipeline;
+import dbvis.visualsummaries.grouprugs.metrics.MetricsUtil;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
+import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MapperUtils;
+import dbvis.visualsummaries.strategies.Strategy;
+
+/**
+ * Runs the jobs of an {@link ExperimentConfig} without user interface.
+ *
+ * The jobs run on a fixed number of threads. Every job writes image.png (or a
+ * tiles directory for rugs wider than the tile width) and metrics.txt to its
+ * own directory in the output directory, and a line with
+ * its wall times to timings.csv. Jobs share the Reeb graph of a dataset and
+ * epsilon and the ordering of a strategy through the ArtifactCache: the first
+ * job computes them, concurrent jobs wait for that result. When a dataset is
+ * run with several epsilons, their Reeb graphs are computed up front in a
+ * single TGS sweep.
+ *
+ * Usage: ExperimentRunner [config file] [data directory]
+ */
+public class ExperimentRunner {
+
+    private final ExperimentConfig config;
+
+    private PrintWriter timings;
+
+    public ExperimentRunner(ExperimentConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        String configFile = args.length > 0 ? args[0] : "experiments.properties";
+        String dataDir = args.length > 1 ? args[1] : "data/";
+
+        ExperimentConfig config = ExperimentConfig.load(new File(configFile));
+        CSVDataLoader.checkAndLoadCSVDataSets(new String[] { dataDir });
+
+        new ExperimentRunner(config).run();
+    }
+
+    /**
+     * Function runs all jobs and waits until they are done. A failing job is
+     * reported in timings.csv and does not stop the other jobs.
+     *
+     * @throws IOException if the output directory or timings.csv could not be
+     *                     created
+     */
+    public void run() throws IOException {
+
+        File output = config.getOutputDirectory();
+        if (!output.exists() && !output.mkdirs()) {
+            throw new IOException("Could not create " + output);
+        }
+
+        List<ExperimentJob> jobs = config.getJobs();
+        int threads = config.getThreads();
+        System.out.println("Running " + jobs.size() + " jobs on " + threads + " threads");
+
+        // Reeb graphs of a dataset for several epsilons come from one TGS sweep
+        Map<String, Set<Double>> epsilons = new LinkedHashMap<>();
+        for (ExperimentJob job : jobs) {
+            epsilons.computeIfAbsent(job.getDataset(), k -> new TreeSet<>()).add(job.getEpsilon());
+        }
+        for (Map.Entry<String, Set<Double>> entry : epsilons.entrySet()) {
+            if (entry.getValue().size() > 1 && SessionData.getInstance().getDataset(entry.getKey()) != null) {
+                GroupRugsPipeline.precomputeReebGraphs(entry.getKey(),
+                        entry.getValue().stream().mapToDouble(Double::doubleValue).toArray());
+            }
+        }
+
+        timings = new PrintWriter(new FileWriter(new File(output, "timings.csv")));
+        timings.println("job,dataset,strategy,imageStrategy,epsilon,etpMs,imageMs,metricsMs,totalMs,status");
+        timings.flush();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (ExperimentJob job : jobs) {
+                futures.add(executor.submit(() -> runJob(job, output)));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+            timings.close();
+        }
+    }
+
+    /**
+     * Function runs a single job: etp map, image and metrics.
+     *
+     * @param job    the job
+     * @param output the output directory of the runner
+     */
+    private void runJob(ExperimentJob job, File output) {
+
+        long start = System.nanoTime();
+        long etpTime = 0;
+        long imageTime = 0;
+        long metricsTime = 0;
+        String status = "ok";
+
+        try {
+            File jobDir = new File(output, job.getName());
+            if (!jobDir.exists() && !jobDir.mkdirs()) {
+                throw new IOException("Could not create " + jobDir);
+            }
+
+            // Strategies keep state between frames, every job gets its own
+            Strategy strategy = GroupRugsPipeline.createStrategy(job.getStrategy());
+
+            long t = System.nanoTime();
+            GroupRugsPipeline.Result result = GroupRugsPipeline.computeETPMap(
+                    job.getStrategy(),
+                    strategy,
+                    job.getImageStrategy(),
+                    job.getDataset(),
+                    job.getWidth(),
+                    job.getEpsilon(),
+                    job.getDelta(),
+                    job.getM(),
+                    job.getSolver(),
+                    job.getSolverTimeBudget());
+            EtpMap etpMap = result.getEtpMap();
+            etpTime = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            boolean MR = job.getImageStrategy().equals("MotionRugs");
+            int tileWidth = config.getTileWidth();
+            int imageHeight;
+            if (tileWidth > 0 && etpMap.getFrameCount() > tileWidth) {
+                imageHeight = GroupRugsPipeline.computeImageTiles(
+                        etpMap,
+                        job.getDataset(),
+                        MR,
+                        new File(jobDir, "tiles"),
+                        tileWidth);
+            } else {
+                BufferedImage image = GroupRugsPipeline.computeImage(
+                        etpMap,
+                        job.getDataset(),
+                        job.getEpsilon(),
+                        MR);
+                ImageIO.write(image, "png", new File(jobDir, "image.png"));
+                imageHeight = image.getHeight();
+            }
+            imageTime = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            boolean ML = job.getImageStrategy().equals("Motion Lines");
+            Double[][] projections = null;
+            if (ML) {
+                projections = MapperUtils.readProjections(job.getStrategy(), job.getDataset(),
+                        etpMap.getFrameCount(), etpMap.getEntityCount());
+            }
+
+            HashMap<String, double[]> metrics = MetricsUtil.getMetrics(
+                    job.getDataset(),
+                    job.getStrategy(),
+                    strategy,
+                    job.getImageStrategy(),
+                    job.getEpsilon(),
+                    result.getOriginalComponents(),
+                    etpMap,
+                    projections,
+                    ML,
+                    imageHeight);
+            MetricsUtil.writeMetrics(metrics, new File(jobDir, "metrics.txt"));
+            metricsTime = System.nanoTime() - t;
+
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            status = "failed: " + ex;
+        }
+
+        long total = System.nanoTime() - start;
+        writeTiming(job, etpTime, imageTime, metricsTime, total, status);
+        System.out.println(job + " " + status + " (" + total / 1000000 + " ms)");
+    }
+
+    private synchronized void writeTiming(ExperimentJob job, long etpTime, long imageTime, long metricsTime,
+            long total, String status) {
+        timings.println(quote(job.getName()) + ","
+                + quote(job.getDataset()) + ","
+                + quote(job.getStrategy()) + ","
+                + quote(job.getImageStrategy()) + ","
+                + job.getEpsilon() + ","
+                + etpTime / 1000000 + ","
+                + imageTime / 1000000 + ","
+                + metricsTime / 1000000 + ","
+                + total / 1000000 + ","
+                + quote(status));
+        timings.flush();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+}
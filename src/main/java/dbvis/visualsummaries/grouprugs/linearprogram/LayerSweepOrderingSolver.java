@@ -0,0 +1,423 @@
+package dbvis.visualsummaries.grouprugs.linearprogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.util.Pair;
+
+/**
+ * Heuristic solver for the MLCM-TC instance that runs without Gurobi.
+ *
+ * The layers are visited in chronological order. In every layer, the maximal
+ * groups that share a parent in the layer tree (see {@link ReebToMLCM}) form a
+ * block that stays contiguous, which is what the tree constraints of {@link QP}
+ * enforce. The solver first alternates forward and backward barycenter sweeps:
+ * blocks are sorted by the mean position of their groups in the neighbouring
+ * layer, and the groups inside a block by their position in that layer. The
+ * best sweep is then refined by local search, which swaps adjacent blocks and
+ * adjacent groups within a block as long as the weighted number of crossings
+ * with both neighbouring layers decreases.
+ *
+ * Crossings are weighted as in the objective of {@link QP}: a crossing between
+ * two groups that share a parent in both layers costs 0.1, any other crossing
+ * costs 1. Only the first forward pass always completes. Once the time budget
+ * is used up, the remaining sweeps, cost evaluations and local search are
+ * skipped, and the best layout found so far is returned.
+ */
+public class LayerSweepOrderingSolver implements OrderingSolver {
+
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 10000;
+
+    private static final double WITHIN_COMPONENT_WEIGHT = 0.1;
+    private static final double OUTSIDE_COMPONENT_WEIGHT = 1;
+
+    private static final int MAX_SWEEPS = 10;
+    private static final double EPSILON = 1e-9;
+
+    private final long timeBudgetMillis;
+
+    public LayerSweepOrderingSolver() {
+        this(DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param timeBudgetMillis Time after which the solver stops improving the
+     *                         layout.
+     */
+    public LayerSweepOrderingSolver(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    @Override
+    public Map<Integer, Map<Pair<Integer, Integer>, Boolean>> solve(MLCMGraph mlcmtc) {
+
+        long deadline = System.nanoTime() + timeBudgetMillis * 1000000L;
+
+        Layout layout = new Layout(mlcmtc);
+        layout.sweep(deadline);
+        layout.localSearch(deadline);
+
+        return layout.toDecisionVariables();
+    }
+
+    /**
+     * The order of the groups in every layer, with groups and layers mapped to
+     * dense indices.
+     */
+    private static class Layout {
+
+        private final int[] frames; // layer index -> frame
+        private final int[] groupIds; // group index -> group id
+
+        private final int[][] blocks; // [layer][group] -> block of the group
+        private int[][] orders; // [layer][position] -> group
+        private int[][] positions; // [layer][group] -> position
+
+        Layout(MLCMGraph mlcmtc) {
+
+            List<Integer> layers = new ArrayList<>(mlcmtc.getLayers());
+            Collections.sort(layers);
+
+            this.frames = new int[layers.size()];
+            for (int r = 0; r < frames.length; r++) {
+                frames[r] = layers.get(r);
+            }
+
+            // Every group has a vertex in every layer
+            List<Integer> ids = new ArrayList<>();
+            for (MLCMVertex v : mlcmtc.getVerticesForLayer(frames[0])) {
+                ids.add(v.getGroupId());
+            }
+            Collections.sort(ids);
+
+            this.groupIds = new int[ids.size()];
+            Map<Integer, Integer> groupIndex = new HashMap<>();
+            for (int g = 0; g < groupIds.length; g++) {
+                groupIds[g] = ids.get(g);
+                groupIndex.put(groupIds[g], g);
+            }
+
+            int numGroups = groupIds.length;
+            this.blocks = new int[frames.length][numGroups];
+            this.orders = new int[frames.length][numGroups];
+            this.positions = new int[frames.length][numGroups];
+
+            for (int r = 0; r < frames.length; r++) {
+                List<MLCMVertex> vertices = mlcmtc.getVerticesForLayer(frames[r]);
+                if (vertices.size() != numGroups) {
+                    throw new IllegalArgumentException("Layer " + frames[r] + " does not contain every group.");
+                }
+
+                MLCMVertex[] parents = new MLCMVertex[numGroups];
+                for (MLCMVertex v : vertices) {
+                    parents[groupIndex.get(v.getGroupId())] = v.getParent();
+                }
+
+                // Groups with the same parent (or without a parent) form a block
+                Map<MLCMVertex, Integer> blockIds = new IdentityHashMap<>();
+                for (int g = 0; g < numGroups; g++) {
+                    Integer block = blockIds.get(parents[g]);
+                    if (block == null) {
+                        block = blockIds.size();
+                        blockIds.put(parents[g], block);
+                    }
+                    blocks[r][g] = block;
+                }
+            }
+        }
+
+        /**
+         * Alternates forward and backward barycenter sweeps and keeps the best
+         * layout, until the sweeps stop improving or the deadline has passed.
+         */
+        void sweep(long deadline) {
+
+            // Initial order of the first layer: by block, then by group id
+            Integer[] first = new Integer[groupIds.length];
+            for (int g = 0; g < first.length; g++) {
+                first[g] = g;
+            }
+            Arrays.sort(first, (a, b) -> blocks[0][a] != blocks[0][b]
+                    ? Integer.compare(blocks[0][a], blocks[0][b])
+                    : Integer.compare(a, b));
+            setOrder(0, first);
+
+            for (int r = 1; r < frames.length; r++) {
+                reorder(r, r - 1);
+            }
+
+            // The first pass is kept even if its cost is cut off by the deadline
+            double bestCost = cost(deadline);
+            int[][] bestOrders = copy(orders);
+
+            for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+                // A sweep cut off by the deadline is discarded
+                if (!sweepOnce(deadline)) {
+                    break;
+                }
+
+                double cost = cost(deadline);
+                if (cost < bestCost - EPSILON) {
+                    bestCost = cost;
+                    bestOrders = copy(orders);
+                } else {
+                    break;
+                }
+            }
+
+            for (int r = 0; r < frames.length; r++) {
+                for (int i = 0; i < bestOrders[r].length; i++) {
+                    orders[r][i] = bestOrders[r][i];
+                    positions[r][bestOrders[r][i]] = i;
+                }
+            }
+        }
+
+        /**
+         * Runs one backward and one forward sweep.
+         *
+         * @return false if the deadline passed before the sweep completed.
+         */
+        private boolean sweepOnce(long deadline) {
+            for (int r = frames.length - 2; r >= 0; r--) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                reorder(r, r + 1);
+            }
+            for (int r = 1; r < frames.length; r++) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                reorder(r, r - 1);
+            }
+            return true;
+        }
+
+        /**
+         * Reorders layer r by the positions of the groups in the reference layer.
+         * Blocks are sorted by the mean position of their groups, groups within a
+         * block by their own position.
+         */
+        private void reorder(int r, int reference) {
+            int numGroups = groupIds.length;
+            int[] block = blocks[r];
+            int[] referencePositions = positions[reference];
+
+            double[] sum = new double[numGroups];
+            int[] count = new int[numGroups];
+            for (int g = 0; g < numGroups; g++) {
+                sum[block[g]] += referencePositions[g];
+                count[block[g]]++;
+            }
+
+            double[] barycenter = new double[numGroups];
+            for (int b = 0; b < numGroups; b++) {
+                if (count[b] > 0) {
+                    barycenter[b] = sum[b] / count[b];
+                }
+            }
+
+            Integer[] order = new Integer[numGroups];
+            for (int g = 0; g < numGroups; g++) {
+                order[g] = g;
+            }
+            Arrays.sort(order, (a, b) -> {
+                if (block[a] != block[b]) {
+                    int c = Double.compare(barycenter[block[a]], barycenter[block[b]]);
+                    return c != 0 ? c : Integer.compare(block[a], block[b]);
+                }
+                return Integer.compare(referencePositions[a], referencePositions[b]);
+            });
+
+            setOrder(r, order);
+        }
+
+        private void setOrder(int r, Integer[] order) {
+            for (int i = 0; i < order.length; i++) {
+                orders[r][i] = order[i];
+                positions[r][order[i]] = i;
+            }
+        }
+
+        /**
+         * Improves the layout by swapping adjacent blocks and adjacent groups within
+         * a block, until no swap reduces the number of crossings or the deadline
+         * has passed.
+         */
+        void localSearch(long deadline) {
+            boolean improved = true;
+
+            while (improved) {
+                improved = false;
+
+                for (int r = 0; r < frames.length; r++) {
+                    if (System.nanoTime() > deadline) {
+                        return;
+                    }
+                    improved |= improveLayer(r);
+                }
+            }
+        }
+
+        private boolean improveLayer(int r) {
+            int[] order = orders[r];
+            int[] block = blocks[r];
+            boolean improved = false;
+
+            // Swap adjacent blocks
+            int start = 0;
+            while (start < order.length) {
+                int middle = blockEnd(r, start);
+                if (middle == order.length) {
+                    break;
+                }
+                int end = blockEnd(r, middle);
+
+                if (swapDelta(r, start, middle, end) < -EPSILON) {
+                    swap(r, start, middle, end);
+                    improved = true;
+
+                    // The swapped block may move further ahead
+                    start = start + (end - middle);
+                } else {
+                    start = middle;
+                }
+            }
+
+            // Swap adjacent groups within a block
+            for (int i = 0; i + 1 < order.length; i++) {
+                if (block[order[i]] == block[order[i + 1]] && swapDelta(r, i, i + 1, i + 2) < -EPSILON) {
+                    swap(r, i, i + 1, i + 2);
+                    improved = true;
+                }
+            }
+
+            return improved;
+        }
+
+        private int blockEnd(int r, int start) {
+            int[] order = orders[r];
+            int end = start + 1;
+            while (end < order.length && blocks[r][order[end]] == blocks[r][order[start]]) {
+                end++;
+            }
+            return end;
+        }
+
+        /**
+         * Returns the change in weighted crossings when the groups at positions
+         * [start, middle) and [middle, end) of layer r change places.
+         */
+        private double swapDelta(int r, int start, int middle, int end) {
+            double delta = 0;
+            int[] order = orders[r];
+
+            for (int s = r - 1; s <= r + 1; s += 2) {
+                if (s < 0 || s >= frames.length) {
+                    continue;
+                }
+
+                int[] other = positions[s];
+                for (int i = start; i < middle; i++) {
+                    int a = order[i];
+                    for (int j = middle; j < end; j++) {
+                        int b = order[j];
+                        double w = weight(r, s, a, b);
+
+                        // a is before b now, and after the swap b is before a
+                        delta += other[a] > other[b] ? -w : w;
+                    }
+                }
+            }
+
+            return delta;
+        }
+
+        private void swap(int r, int start, int middle, int end) {
+            int[] order = orders[r];
+            int[] moved = new int[end - start];
+
+            int n = 0;
+            for (int i = middle; i < end; i++) {
+                moved[n++] = order[i];
+            }
+            for (int i = start; i < middle; i++) {
+                moved[n++] = order[i];
+            }
+
+            for (int i = 0; i < moved.length; i++) {
+                order[start + i] = moved[i];
+                positions[r][moved[i]] = start + i;
+            }
+        }
+
+        private double weight(int r, int s, int a, int b) {
+            boolean within = blocks[r][a] == blocks[r][b] && blocks[s][a] == blocks[s][b];
+            return within ? WITHIN_COMPONENT_WEIGHT : OUTSIDE_COMPONENT_WEIGHT;
+        }
+
+        /**
+         * Returns the weighted number of crossings between consecutive layers, or
+         * infinity if the deadline passes before all layers are counted.
+         */
+        double cost(long deadline) {
+            double cost = 0;
+            for (int r = 0; r + 1 < frames.length; r++) {
+                if (System.nanoTime() > deadline) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                int[] p = positions[r];
+                int[] q = positions[r + 1];
+
+                for (int a = 0; a < groupIds.length; a++) {
+                    for (int b = a + 1; b < groupIds.length; b++) {
+                        if ((p[a] < p[b]) != (q[a] < q[b])) {
+                            cost += weight(r, r + 1, a, b);
+                        }
+                    }
+                }
+            }
+            return cost;
+        }
+
+        /**
+         * Converts the layout to decision variables. The pair (i, j) is true if
+         * group j is placed before group i.
+         */
+        Map<Integer, Map<Pair<Integer, Integer>, Boolean>> toDecisionVariables() {
+            Map<Integer, Map<Pair<Integer, Integer>, Boolean>> decisionVariables = new HashMap<>();
+
+            for (int r = 0; r < frames.length; r++) {
+                Map<Pair<Integer, Integer>, Boolean> frameMap = new HashMap<>();
+                int[] p = positions[r];
+
+                for (int a = 0; a < groupIds.length; a++) {
+                    for (int b = 0; b < groupIds.length; b++) {
+                        if (a != b) {
+                            frameMap.put(new Pair<>(groupIds[a], groupIds[b]), p[b] < p[a]);
+                        }
+                    }
+                }
+
+                decisionVariables.put(frames[r], frameMap);
+            }
+
+            return decisionVariables;
+        }
+
+        private static int[][] copy(int[][] arrays) {
+            int[][] result = new int[arrays.length][];
+            for (int i = 0; i < arrays.length; i++) {
+                result[i] = arrays[i].clone();
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package dbvis.visualsummaries.grouprugs.linearprogram;
+
+import java.util.List;
+import java.util.Map;
+
+import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.MaximalGroup;
+
+/**
+ * Result of the {@link ReebGraphOrderingPipeline}: the order of the maximal
+ * groups per layer, the maximal group of every group id, and the layers.
+ */
+public class OrderedGroups {
+
+    private final List<MGOrder> orders;
+    private final Map<Integer, MaximalGroup> groupMap;
+    private final List<Integer> layers;
+
+    public OrderedGroups(List<MGOrder> orders, Map<Integer, MaximalGroup> groupMap, List<Integer> layers) {
+        this.orders = orders;
+        this.groupMap = groupMap;
+        this.layers = layers;
+    }
+
+    public List<MGOrder> getOrders() {
+        return orders;
+    }
+
+    public Map<Integer, MaximalGroup> getGroupMap() {
+        return groupMap;
+    }
+
+    public List<Integer> getLayers() {
+        return layers;
+    }
+
+}
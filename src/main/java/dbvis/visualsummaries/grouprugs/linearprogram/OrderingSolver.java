@@ -0,0 +1,27 @@
+package dbvis.visualsummaries.grouprugs.linearprogram;
+
+import java.util.Map;
+
+import javafx.util.Pair;
+
+/**
+ * A solver for the MLCM-TC instance, which decides the relative order of the
+ * maximal groups in every layer.
+ * 
+ * The result uses the format of the decision variables of {@link QP}: for every
+ * layer, a map from pairs of group ids to a boolean. The pair (i, j) is true if
+ * group j is placed before group i. The map can be passed to
+ * {@link QPToOrder#computeOrder(Map)}.
+ */
+public interface OrderingSolver {
+
+    /**
+     * Computes the order of the maximal groups in every layer of the MLCM-TC
+     * instance.
+     * 
+     * @param mlcmtc The MLCM-TC instance.
+     * @return The decision variables per layer.
+     */
+    Map<Integer, Map<Pair<Integer, Integer>, Boolean>> solve(MLCMGraph mlcmtc);
+
+}
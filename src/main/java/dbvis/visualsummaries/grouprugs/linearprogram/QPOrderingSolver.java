@@ -0,0 +1,24 @@
+package dbvis.visualsummaries.grouprugs.linearprogram;
+
+import java.util.Map;
+
+import com.gurobi.gurobi.GRBException;
+
+import javafx.util.Pair;
+
+/**
+ * Solves the MLCM-TC instance exactly with the quadratic program in {@link QP}.
+ * Requires a licensed Gurobi installation.
+ */
+public class QPOrderingSolver implements OrderingSolver {
+
+    @Override
+    public Map<Integer, Map<Pair<Integer, Integer>, Boolean>> solve(MLCMGraph mlcmtc) {
+        try {
+            return QP.compute(mlcmtc);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -21,7 +21,8 @@ import javafx.util.Pair;
 /**
  * This class is responsible for converting the ReebGraph and the maximal groups
  * to an MLCM-TC instance, then solving the ILP to obtain the order of the
- * maximal groups in the ReebGraph to avoid crossings.
+ * maximal groups in the ReebGraph to avoid crossings. The instance is solved
+ * with Gurobi by default, or with any other {@link OrderingSolver}.
  */
 public class ReebGraphOrderingPipeline {
 
@@ -29,11 +30,20 @@ public class ReebGraphOrderingPipeline {
     // TreeMap<Integer, List<Integer>> orderedMGroups;
     List<MGOrder> orderedMGroups;
     List<Integer> layers;
+    OrderingSolver solver;
 
     public ReebGraphOrderingPipeline() {
+        this(new QPOrderingSolver());
+    }
+
+    /**
+     * @param solver The solver used for the MLCM-TC instance.
+     */
+    public ReebGraphOrderingPipeline(OrderingSolver solver) {
         this.IDToGroupMap = new HashMap<Integer, MaximalGroup>();
         this.orderedMGroups = new ArrayList<>();
         this.layers = new ArrayList<Integer>();
+        this.solver = solver;
     }
 
     /**
@@ -70,7 +80,7 @@ public class ReebGraphOrderingPipeline {
         this.layers = mlcmtc.getLayers();
 
         // Compute the decision variables
-        Map<Integer, Map<Pair<Integer, Integer>, Boolean>> decisionVariables = QP.compute(mlcmtc);
+        Map<Integer, Map<Pair<Integer, Integer>, Boolean>> decisionVariables = solver.solve(mlcmtc);
 
         // Compute the order of the maximal groups
         QPToOrder qto = new QPToOrder();
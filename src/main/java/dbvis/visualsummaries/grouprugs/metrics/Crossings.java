@@ -1,30 +1,29 @@
 package dbvis.visualsummaries.grouprugs.metrics;
 
+import dbvis.visualsummaries.data.Inversions;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
+
 public class Crossings {
 
-    public static double[] count(Integer[][] frames) {
-        double[] crossings = new double[frames.length - 1];
-        for (int i = 0; i < frames.length - 1; i++) {
-            crossings[i] = countCrossings(frames[i], frames[i + 1]);
+    /**
+     * Counts the crossings between every pair of consecutive frames.
+     *
+     * @param frames the EntityToPosition Map, frames.get(frame, entity)
+     *
+     * @return the number of crossings after each frame
+     */
+    public static double[] count(EtpMap frames) {
+        int[][] ranks = new int[frames.getFrameCount()][];
+        for (int frame = 0; frame < ranks.length; frame++) {
+            ranks[frame] = frames.copyFrame(frame);
         }
-        return crossings;
-    }
-
-    private static double countCrossings(Integer[] frame1, Integer[] frame2) {
-        double crossings = 0;
-        for (int i = 0; i < frame1.length; i++) {
-            for (int j = i + 1; j < frame1.length; j++) {
-                if (frame1[i] < frame1[j] && frame2[i] > frame2[j]) {
-                    crossings++;
-                } else if (frame1[i] > frame1[j] && frame2[i] < frame2[j]) {
-                    crossings++;
-                }
-            }
+        Inversions.Counts[] counts = Inversions.countFrames(ranks, Runtime.getRuntime().availableProcessors());
 
+        double[] crossings = new double[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            crossings[i] = counts[i].getCrossings();
         }
-
         return crossings;
-
     }
 
 }
@@ -8,8 +8,10 @@ import java.util.HashMap;
 import java.util.List;
 
 import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.DataSet;
 import dbvis.visualsummaries.data.SessionData;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.Component;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MapperUtils;
 import dbvis.visualsummaries.strategies.Strategy;
 
@@ -110,11 +112,36 @@ public class MetricsUtil {
             String selectedImageStrategy,
             double epsilon,
             List<Component> originalComponents,
-            Integer[][] etpMap,
+            EtpMap etpMap,
             Double[][] projections,
             boolean ML,
             BufferedImage awtImage) throws IOException {
 
+        return getMetrics(selectedDataset, selectedStrategy, strategy, selectedImageStrategy, epsilon,
+                originalComponents, etpMap, projections, ML, awtImage.getHeight());
+    }
+
+    /**
+     * Function computes the metrics of a group rug that was not rendered as a
+     * single image, see {@link #getMetrics(String, String, Strategy, String,
+     * double, List, EtpMap, Double[][], boolean, BufferedImage)}.
+     * 
+     * @param imageHeight the height of the group rug in pixels.
+     * @return metrics HashMap containing the metrics.
+     * @throws IOException if the file could not be read or written.
+     */
+    public static HashMap<String, double[]> getMetrics(
+            String selectedDataset,
+            String selectedStrategy,
+            Strategy strategy,
+            String selectedImageStrategy,
+            double epsilon,
+            List<Component> originalComponents,
+            EtpMap etpMap,
+            Double[][] projections,
+            boolean ML,
+            int imageHeight) throws IOException {
+
         HashMap<String, double[]> metrics = new HashMap<String, double[]>();
 
         DataPoint[][] orderedDataPoints = MapperUtils.readOrderedPoint(SessionData.getInstance(), selectedDataset,
@@ -134,11 +161,11 @@ public class MetricsUtil {
         metrics = computeMetrics(
                 originalComponents,
                 etpMap,
-                SessionData.getInstance().getDataset(selectedDataset).getBaseData(),
+                SessionData.getInstance().getDataset(selectedDataset),
                 orderedDataPoints,
                 projections,
                 ML,
-                awtImage.getHeight());
+                imageHeight);
 
         // Save metrics to file
         saveMetrics(metrics, selectedDataset, selectedStrategy, selectedImageStrategy, epsilon);
@@ -162,46 +189,56 @@ public class MetricsUtil {
         String filename = "plots/metrics/" + datasetName + "_" + stratid + "_" + imageStrat + "_" + epsilon + ".txt";
 
         try {
+            writeMetrics(metrics, new java.io.File(filename));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            // If file does not exist, create it
-            java.io.File file = new java.io.File(filename);
-            if (!file.exists()) {
-                file.createNewFile();
-            }
+    }
 
-            java.io.PrintWriter output = new java.io.PrintWriter(file);
+    /**
+     * Function to write metrics to a file, in the format read by
+     * {@link #readMetrics(String)}.
+     * 
+     * @param metrics HashMap containing the metrics.
+     * @param file    file to write the metrics to.
+     * @throws IOException if the file could not be written.
+     */
+    public static void writeMetrics(HashMap<String, double[]> metrics, java.io.File file) throws IOException {
 
-            output.println("Silhouette Score:");
-            for (int i = 0; i < metrics.get("Silhouette Score:").length; i++) {
-                output.println(metrics.get("Silhouette Score:")[i]);
-            }
+        // If file does not exist, create it
+        if (!file.exists()) {
+            file.createNewFile();
+        }
 
-            output.println("Spatial Quality Dist:");
-            for (int i = 0; i < metrics.get("Spatial Quality Dist:").length; i++) {
-                output.println(metrics.get("Spatial Quality Dist:")[i]);
-            }
+        java.io.PrintWriter output = new java.io.PrintWriter(file);
 
-            output.println("Spatial Quality Enc:");
-            for (int i = 0; i < metrics.get("Spatial Quality Enc:").length; i++) {
-                output.println(metrics.get("Spatial Quality Enc:")[i]);
-            }
+        output.println("Silhouette Score:");
+        for (int i = 0; i < metrics.get("Silhouette Score:").length; i++) {
+            output.println(metrics.get("Silhouette Score:")[i]);
+        }
 
-            output.println("Stability Dist:");
-            for (int i = 0; i < metrics.get("Stability Dist:").length; i++) {
-                output.println(metrics.get("Stability Dist:")[i]);
-            }
+        output.println("Spatial Quality Dist:");
+        for (int i = 0; i < metrics.get("Spatial Quality Dist:").length; i++) {
+            output.println(metrics.get("Spatial Quality Dist:")[i]);
+        }
 
-            output.println("Crossings:");
-            for (int i = 0; i < metrics.get("Crossings:").length; i++) {
-                output.println(metrics.get("Crossings:")[i]);
-            }
+        output.println("Spatial Quality Enc:");
+        for (int i = 0; i < metrics.get("Spatial Quality Enc:").length; i++) {
+            output.println(metrics.get("Spatial Quality Enc:")[i]);
+        }
 
-            output.close();
+        output.println("Stability Dist:");
+        for (int i = 0; i < metrics.get("Stability Dist:").length; i++) {
+            output.println(metrics.get("Stability Dist:")[i]);
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        output.println("Crossings:");
+        for (int i = 0; i < metrics.get("Crossings:").length; i++) {
+            output.println(metrics.get("Crossings:")[i]);
         }
 
+        output.close();
     }
 
     /**
@@ -256,8 +293,8 @@ public class MetricsUtil {
 
     private static HashMap<String, double[]> computeMetrics(
             List<Component> maximalGroups,
-            Integer[][] etpMap,
-            DataPoint[][] baseData,
+            EtpMap etpMap,
+            DataSet dataset,
             DataPoint[][] orderedDataPoints,
             Double[][] projections,
             boolean ML,
@@ -266,10 +303,18 @@ public class MetricsUtil {
         // Compute & print metrics
         double[] silhouetteScores = SilhouetteScore
                 .computeSilhouette(maximalGroups, etpMap, height);
-        double[] spatial_dist_metric = SpatialQuality_QS.computeKS(baseData, etpMap);
+        // Nearest neighbours in the data and in the rug, shared by the metrics
+        NearestNeighbors spatialNeighbors = NearestNeighbors.spatial(dataset);
+        NearestNeighbors etpNeighbors = NearestNeighbors.embedding(etpMap, NearestNeighbors.DEFAULT_K);
+        NearestNeighbors rugNeighbors = ML
+                ? NearestNeighbors.projections(projections, 3, NearestNeighbors.DEFAULT_K)
+                : etpNeighbors;
+
+        DataPoint[][] baseData = dataset.getBaseData();
+        double[] spatial_dist_metric = SpatialQuality_QS.computeKS(baseData, etpMap, spatialNeighbors);
         double[] spatial_dist_enc_metric = SpatialQuality_SS.computeSS(baseData, orderedDataPoints, projections, ML,
-                etpMap);
-        double[] stability_dist_metric = Stability_dist.computeKS(etpMap);
+                etpMap, rugNeighbors);
+        double[] stability_dist_metric = Stability_dist.computeKS(etpMap, etpNeighbors);
         double[] crossings = Crossings.count(etpMap);
 
         // Create Hashmaps for the metrics
@@ -0,0 +1,502 @@
+package dbvis.visualsummaries.grouprugs.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.DataSet;
+import dbvis.visualsummaries.data.Positions;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
+
+/**
+ * The k nearest neighbours of every entity in every frame, shared by the
+ * quality metrics.
+ *
+ * Each frame is put in a uniform grid with about k entities per cell, and the
+ * neighbours of an entity are collected by searching rings of cells around it
+ * until no unvisited cell can hold a closer entity. Frames are indexed in
+ * parallel.
+ *
+ * The neighbours are the same as sorting all other entities on distance with a
+ * stable sort and taking the first k: ties are broken on the index of the
+ * entity in the frame.
+ */
+public class NearestNeighbors {
+
+    public static final int DEFAULT_K = 10;
+
+    /**
+     * Relative margin on the ring distance, so that rounding in the cell
+     * computation never stops a search too early.
+     */
+    private static final double RING_MARGIN = 1e-6;
+
+    // The spatial neighbours only depend on the data, and are shared by all runs.
+    // Keyed by dataset or by DataPoint grid.
+    private static final Map<Object, FutureTask<NearestNeighbors>> SPATIAL = new WeakHashMap<>();
+
+    private final int k;
+
+    // [frame][entity index] -> ids of the neighbours, nearest first
+    private final int[][][] neighbors;
+
+    private NearestNeighbors(int k, int[][][] neighbors) {
+        this.k = k;
+        this.neighbors = neighbors;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Returns the neighbours of an entity.
+     *
+     * @param frame  The frame.
+     * @param entity The index of the entity in the frame.
+     * @return The ids of the k nearest other entities, nearest first. Fewer if the
+     *         frame has k entities or less. The array is shared and must not be
+     *         modified.
+     */
+    public int[] getNeighbors(int frame, int entity) {
+        return neighbors[frame][entity];
+    }
+
+    /**
+     * Function returns the {@link #DEFAULT_K} nearest neighbours in the original
+     * space of every entity. The positions are read from the columns of the
+     * dataset, see {@link Positions}. The result is computed once per dataset.
+     *
+     * @param dataset The dataset.
+     * @return The neighbours, as ids of the entities.
+     */
+    public static NearestNeighbors spatial(DataSet dataset) {
+        return spatial(dataset, () -> Positions.of(dataset));
+    }
+
+    /**
+     * Function returns the {@link #DEFAULT_K} nearest neighbours in the original
+     * space of every entity. The result is computed once per data array.
+     *
+     * @param data The data, [frame][entity].
+     * @return The neighbours, as ids of the DataPoints.
+     */
+    public static NearestNeighbors spatial(DataPoint[][] data) {
+        return spatial(data, () -> Positions.of(data));
+    }
+
+    private static NearestNeighbors spatial(Object data, Supplier<Positions> positions) {
+        FutureTask<NearestNeighbors> task;
+        synchronized (SPATIAL) {
+            task = SPATIAL.get(data);
+            if (task == null) {
+                task = new FutureTask<>(
+                        () -> spatial(positions.get(), DEFAULT_K, Runtime.getRuntime().availableProcessors()));
+                SPATIAL.put(data, task);
+            }
+        }
+
+        // Only the first caller computes, the others wait for it
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Function computes the k nearest neighbours in the original space of every
+     * entity. Entities with the same id as the query are skipped.
+     *
+     * @param positions The positions of the entities.
+     * @param k         The number of neighbours.
+     * @param threads   The number of worker threads.
+     * @return The neighbours, as ids of the entities.
+     */
+    public static NearestNeighbors spatial(Positions positions, int k, int threads) {
+        int n = positions.getEntityCount();
+        return compute(positions.getFrameCount(), k, threads, frame -> {
+            double[] x = new double[n];
+            double[] y = new double[n];
+            int[] ids = new int[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = positions.getX(frame, i);
+                y[i] = positions.getY(frame, i);
+                ids[i] = positions.getId(frame, i);
+            }
+            return new FrameIndex(x, y, ids);
+        });
+    }
+
+    /**
+     * Function computes the k nearest neighbours of every entity on the position
+     * axis of an entity to position map.
+     *
+     * @param etp The entity to position map, [frame][entity].
+     * @param k   The number of neighbours.
+     * @return The neighbours, as entity indices.
+     */
+    public static NearestNeighbors embedding(EtpMap etp, int k) {
+        return compute(etp.getFrameCount(), k, Runtime.getRuntime().availableProcessors(), frame -> {
+            EtpMap.Row positions = etp.row(frame);
+            double[] x = new double[positions.length()];
+            for (int i = 0; i < positions.length(); i++) {
+                x[i] = positions.get(i);
+            }
+            return new FrameIndex(x, null, null);
+        });
+    }
+
+    /**
+     * Function computes the k nearest neighbours of every entity on scaled 1D
+     * projections.
+     *
+     * @param projections The projections, [frame][entity].
+     * @param scale       The factor the projections are multiplied with.
+     * @param k           The number of neighbours.
+     * @return The neighbours, as entity indices.
+     */
+    public static NearestNeighbors projections(Double[][] projections, double scale, int k) {
+        return compute(projections.length, k, Runtime.getRuntime().availableProcessors(), frame -> {
+            Double[] values = projections[frame];
+            double[] x = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                x[i] = scale * values[i];
+            }
+            return new FrameIndex(x, null, null);
+        });
+    }
+
+    private interface FrameIndexFactory {
+        FrameIndex create(int frame);
+    }
+
+    private static NearestNeighbors compute(int frames, int k, int threads, FrameIndexFactory factory) {
+        int[][][] neighbors = new int[frames][][];
+
+        if (threads <= 1 || frames <= 1) {
+            for (int frame = 0; frame < frames; frame++) {
+                neighbors[frame] = factory.create(frame).queryAll(k);
+            }
+            return new NearestNeighbors(k, neighbors);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int jobs = Math.min(frames, threads * 4);
+            int chunkSize = (frames + jobs - 1) / jobs;
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int lo = 0; lo < frames; lo += chunkSize) {
+                final int from = lo;
+                final int to = Math.min(lo + chunkSize, frames);
+                futures.add(executor.submit(() -> {
+                    for (int frame = from; frame < to; frame++) {
+                        neighbors[frame] = factory.create(frame).queryAll(k);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+
+        return new NearestNeighbors(k, neighbors);
+    }
+
+    /**
+     * Grid over the entities of a single frame. Without y coordinates the
+     * distance is |x1 - x2|, otherwise it is computed as in
+     * Utils.getEuclideanDistance.
+     */
+    static class FrameIndex {
+
+        private final double[] x;
+        private final double[] y;
+        private final int[] ids;
+        private final int n;
+
+        private double minX;
+        private double minY;
+        private double cellSize;
+        private int width;
+        private int height;
+
+        // Entities per cell: cellEntities[cellStart[c] .. cellStart[c + 1]]
+        private int[] cellStart;
+        private int[] cellEntities;
+
+        private boolean bruteForce;
+
+        /**
+         * @param x   The x coordinates.
+         * @param y   The y coordinates, or null for 1D data.
+         * @param ids The ids returned for the entities, or null to return indices.
+         */
+        FrameIndex(double[] x, double[] y, int[] ids) {
+            this.x = x;
+            this.y = y;
+            this.ids = ids;
+            this.n = x.length;
+            build();
+        }
+
+        private void build() {
+            minX = Double.POSITIVE_INFINITY;
+            minY = y == null ? 0 : Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = y == null ? 0 : Double.NEGATIVE_INFINITY;
+            boolean finite = true;
+
+            for (int i = 0; i < n; i++) {
+                finite &= Double.isFinite(x[i]) && (y == null || Double.isFinite(y[i]));
+                minX = Math.min(minX, x[i]);
+                maxX = Math.max(maxX, x[i]);
+                if (y != null) {
+                    minY = Math.min(minY, y[i]);
+                    maxY = Math.max(maxY, y[i]);
+                }
+            }
+
+            // Distances with NaN or infinite coordinates are ordered by sorting
+            double extentX = maxX - minX;
+            double extentY = maxY - minY;
+            if (!finite || n == 0 || (extentX == 0 && extentY == 0)) {
+                bruteForce = true;
+                return;
+            }
+
+            // About DEFAULT_K entities per cell, and no more cells than entities
+            double area = y == null ? extentX : Math.max(extentX, Double.MIN_NORMAL)
+                    * Math.max(extentY, Double.MIN_NORMAL);
+            double perCell = Math.max(1.0, Math.min(n, DEFAULT_K)) / n;
+            cellSize = y == null ? area * perCell : Math.sqrt(area * perCell);
+            cellSize = Math.max(cellSize, Math.max(extentX, extentY) / n);
+
+            width = (int) Math.min(n, Math.floor(extentX / cellSize) + 1);
+            height = y == null ? 1 : (int) Math.min(n, Math.floor(extentY / cellSize) + 1);
+
+            int cells = width * height;
+            cellStart = new int[cells + 1];
+            int[] cellOf = new int[n];
+            for (int i = 0; i < n; i++) {
+                cellOf[i] = cellX(i) + width * cellY(i);
+                cellStart[cellOf[i] + 1]++;
+            }
+            for (int c = 0; c < cells; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+
+            // Entities of a cell in ascending index order
+            cellEntities = new int[n];
+            int[] fill = new int[cells];
+            for (int i = 0; i < n; i++) {
+                int c = cellOf[i];
+                cellEntities[cellStart[c] + fill[c]++] = i;
+            }
+        }
+
+        private int cellX(int i) {
+            return clamp((int) Math.floor((x[i] - minX) / cellSize), width);
+        }
+
+        private int cellY(int i) {
+            return y == null ? 0 : clamp((int) Math.floor((y[i] - minY) / cellSize), height);
+        }
+
+        private static int clamp(int cell, int size) {
+            return Math.max(0, Math.min(size - 1, cell));
+        }
+
+        private int id(int i) {
+            return ids == null ? i : ids[i];
+        }
+
+        private double distance(int a, int b) {
+            if (y == null) {
+                return Math.abs(x[a] - x[b]);
+            }
+            return Math.sqrt(Math.pow(x[a] - x[b], 2) + Math.pow(y[a] - y[b], 2));
+        }
+
+        int[][] queryAll(int k) {
+            int[][] result = new int[n][];
+            Neighbours heap = new Neighbours(k);
+            for (int i = 0; i < n; i++) {
+                result[i] = query(i, heap);
+            }
+            return result;
+        }
+
+        private int[] query(int query, Neighbours heap) {
+            heap.clear();
+            int queryId = id(query);
+
+            if (bruteForce) {
+                for (int i = 0; i < n; i++) {
+                    if (id(i) != queryId) {
+                        heap.offer(i, distance(query, i));
+                    }
+                }
+                return heap.sortedIds(this);
+            }
+
+            int cx = cellX(query);
+            int cy = cellY(query);
+            int maxRing = Math.max(Math.max(cx, width - 1 - cx), Math.max(cy, height - 1 - cy));
+
+            for (int ring = 0; ring <= maxRing; ring++) {
+
+                // Entities outside the rings visited so far are at least this far
+                if (heap.isFull() && heap.worstDistance() < (ring - 1) * cellSize * (1 - RING_MARGIN)) {
+                    break;
+                }
+
+                for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                    if (gy < 0 || gy >= height) {
+                        continue;
+                    }
+                    boolean edgeRow = gy == cy - ring || gy == cy + ring;
+                    int step = edgeRow ? 1 : 2 * ring;
+                    for (int gx = cx - ring; gx <= cx + ring; gx += Math.max(step, 1)) {
+                        if (gx < 0 || gx >= width) {
+                            continue;
+                        }
+                        int c = gx + width * gy;
+                        for (int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+                            int i = cellEntities[p];
+                            if (id(i) != queryId) {
+                                heap.offer(i, distance(query, i));
+                            }
+                        }
+                    }
+                }
+            }
+
+            return heap.sortedIds(this);
+        }
+    }
+
+    /**
+     * Bounded max-heap of the k best (distance, index) pairs.
+     */
+    private static class Neighbours {
+
+        private final int k;
+        private final int[] index;
+        private final double[] distance;
+        private int size;
+
+        Neighbours(int k) {
+            this.k = k;
+            this.index = new int[k];
+            this.distance = new double[k];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isFull() {
+            return size == k;
+        }
+
+        double worstDistance() {
+            return distance[0];
+        }
+
+        void offer(int i, double d) {
+            if (k == 0) {
+                return;
+            }
+            if (size < k) {
+                index[size] = i;
+                distance[size] = d;
+                siftUp(size++);
+            } else if (worse(0, i, d)) {
+                index[0] = i;
+                distance[0] = d;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Whether the entry at position p sorts after (i, d).
+         */
+        private boolean worse(int p, int i, double d) {
+            int c = Double.compare(distance[p], d);
+            return c > 0 || (c == 0 && index[p] > i);
+        }
+
+        private boolean worse(int p, int q) {
+            return worse(p, index[q], distance[q]);
+        }
+
+        private void siftUp(int p) {
+            while (p > 0) {
+                int parent = (p - 1) / 2;
+                if (!worse(p, parent)) {
+                    return;
+                }
+                swap(p, parent);
+                p = parent;
+            }
+        }
+
+        private void siftDown(int p) {
+            while (true) {
+                int largest = p;
+                int left = 2 * p + 1;
+                int right = left + 1;
+                if (left < size && worse(left, largest)) {
+                    largest = left;
+                }
+                if (right < size && worse(right, largest)) {
+                    largest = right;
+                }
+                if (largest == p) {
+                    return;
+                }
+                swap(p, largest);
+                p = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int i = index[a];
+            index[a] = index[b];
+            index[b] = i;
+            double d = distance[a];
+            distance[a] = distance[b];
+            distance[b] = d;
+        }
+
+        /**
+         * Empties the heap and returns the ids of its entries, nearest first.
+         */
+        int[] sortedIds(FrameIndex frame) {
+            int[] ids = new int[size];
+            for (int p = size - 1; p >= 0; p--) {
+                ids[p] = frame.id(index[0]);
+                swap(0, --size);
+                siftDown(0);
+            }
+            return ids;
+        }
+    }
+
+}
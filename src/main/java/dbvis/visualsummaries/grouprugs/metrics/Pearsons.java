@@ -3,6 +3,7 @@ package dbvis.visualsummaries.grouprugs.metrics;
 import java.util.Arrays;
 
 import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import javafx.scene.chart.PieChart.Data;
 
 public class Pearsons {
@@ -110,19 +111,19 @@ public class Pearsons {
         return correlation;
     }
 
-    public static double[] computeScores(Integer[][] etp, DataPoint[][] data) {
+    public static double[] computeScores(EtpMap etp, DataPoint[][] data) {
 
-        double[] scores = new double[etp.length];
+        double[] scores = new double[etp.getFrameCount()];
 
-        for (int frame = 0; frame < etp.length; frame++) {
+        for (int frame = 0; frame < etp.getFrameCount(); frame++) {
 
-            double[][] points2D = new double[etp[frame].length][2];
-            double[] points1D = new double[etp[frame].length];
+            double[][] points2D = new double[etp.getEntityCount()][2];
+            double[] points1D = new double[etp.getEntityCount()];
 
-            for (int i = 0; i < etp[frame].length; i++) {
+            for (int i = 0; i < etp.getEntityCount(); i++) {
                 points2D[i][0] = data[frame][i].getX();
                 points2D[i][1] = data[frame][i].getY();
-                points1D[i] = etp[frame][i];
+                points1D[i] = etp.get(frame, i);
             }
 
             double score = printScore(points2D, points1D);
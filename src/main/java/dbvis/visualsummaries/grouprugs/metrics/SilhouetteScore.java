@@ -1,9 +1,10 @@
 package dbvis.visualsummaries.grouprugs.metrics;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import dbvis.visualsummaries.grouprugs.tgs.EntitySet;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.Component;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 
 public class SilhouetteScore {
 
@@ -19,12 +20,12 @@ public class SilhouetteScore {
      */
     public static double[] computeSilhouette(
             List<Component> clustering,
-            Integer[][] etp,
+            EtpMap etp,
             int HEIGHT) {
 
-        double[] silhouetteScores = new double[etp.length];
+        double[] silhouetteScores = new double[etp.getFrameCount()];
 
-        for (int frame = 0; frame < etp.length; frame++) {
+        for (int frame = 0; frame < etp.getFrameCount(); frame++) {
             double silhouetteScoreFrame = silhouetteScoreFrame(clustering, etp, frame, HEIGHT);
 
             silhouetteScores[frame] = silhouetteScoreFrame;
@@ -47,24 +48,24 @@ public class SilhouetteScore {
      */
     public static double silhouetteScoreFrame(
             List<Component> clustering,
-            Integer[][] etp,
+            EtpMap etp,
             Integer frame,
             Integer HEIGHT) {
 
-        Integer[] framedata = etp[frame];
+        EtpMap.Row framedata = etp.row(frame);
 
         double silhouetteScoreSum = 0;
 
-        for (int entity = 0; entity < etp[frame].length; entity++) {
+        for (int entity = 0; entity < etp.getEntityCount(); entity++) {
 
-            List<Integer> ownCluster = getOwnClusterIDs(clustering, framedata, frame, entity);
-            List<Integer> otherCluster = getNearestClusterIDs(clustering, framedata, frame, entity);
+            EntitySet ownCluster = getOwnClusterIDs(clustering, framedata, frame, entity);
+            EntitySet otherCluster = getNearestClusterIDs(clustering, framedata, frame, entity);
 
             silhouetteScoreSum += silhouetteScoreEntity(ownCluster, otherCluster, framedata, frame, entity, HEIGHT);
 
         }
 
-        double silhouetteScore = silhouetteScoreSum / etp[frame].length;
+        double silhouetteScore = silhouetteScoreSum / etp.getEntityCount();
 
         return silhouetteScore;
 
@@ -84,9 +85,9 @@ public class SilhouetteScore {
      * @return The silhouette score for the entity.
      */
     private static double silhouetteScoreEntity(
-            List<Integer> ownCluster,
-            List<Integer> otherCluster,
-            Integer[] framedata,
+            EntitySet ownCluster,
+            EntitySet otherCluster,
+            EtpMap.Row framedata,
             Integer frame,
             Integer entity,
             Integer HEIGHT) {
@@ -113,13 +114,13 @@ public class SilhouetteScore {
      */
     private static double computeA(
             Integer entity,
-            List<Integer> ownCluster,
-            Integer[] framedata) {
+            EntitySet ownCluster,
+            EtpMap.Row framedata) {
 
         double sum = 0;
-        for (Integer e = 0; e < framedata.length; e++) {
+        for (int e = 0; e < framedata.length(); e++) {
             if (ownCluster.contains(e)) {
-                sum += Math.abs(framedata[entity] - framedata[e]);
+                sum += Math.abs(framedata.get(entity) - framedata.get(e));
             }
         }
 
@@ -138,16 +139,16 @@ public class SilhouetteScore {
      */
     private static double computeB(
             Integer entity,
-            List<Integer> otherCluster,
-            Integer[] framedata,
+            EntitySet otherCluster,
+            EtpMap.Row framedata,
             Integer HEIGHT) {
 
         // Edge Case: If there is only one encompassing group, pick the closest border
         // as 'dummy cluster' as average distance.
         if (otherCluster == null) {
 
-            double distTop = Math.abs(framedata[entity] - 0);
-            double distBottom = Math.abs(framedata[entity] - HEIGHT);
+            double distTop = Math.abs(framedata.get(entity) - 0);
+            double distBottom = Math.abs(framedata.get(entity) - HEIGHT);
 
             return Math.min(distTop, distBottom);
 
@@ -155,9 +156,9 @@ public class SilhouetteScore {
 
         // Regular case: Compute average distance to other cluster entities.
         double sum = 0;
-        for (Integer e = 0; e < framedata.length; e++) {
+        for (int e = 0; e < framedata.length(); e++) {
             if (otherCluster.contains(e)) {
-                sum += Math.abs(framedata[entity] - framedata[e]);
+                sum += Math.abs(framedata.get(entity) - framedata.get(e));
             }
         }
 
@@ -175,13 +176,13 @@ public class SilhouetteScore {
      * 
      * @return The cluster to which the entity belongs.
      */
-    private static List<Integer> getOwnClusterIDs(
+    private static EntitySet getOwnClusterIDs(
             List<Component> maximalGroups,
-            Integer[] framedata,
+            EtpMap.Row framedata,
             Integer frame,
             Integer entity) {
 
-        List<Integer> ownCluster = null;
+        EntitySet ownCluster = null;
 
         for (Component mg : maximalGroups) {
             if (mg.getStartFrame() <= frame) {
@@ -197,8 +198,7 @@ public class SilhouetteScore {
         if (ownCluster == null) {
             System.out.println("Entity " + entity + " not found in any cluster. Making own cluster.");
 
-            ownCluster = new ArrayList<Integer>();
-            ownCluster.add(entity);
+            ownCluster = EntitySet.of(entity);
         }
 
         return ownCluster;
@@ -219,17 +219,17 @@ public class SilhouetteScore {
      * 
      * @return The nearest cluster to which the entity does not belong.
      */
-    private static List<Integer> getNearestClusterIDs(
+    private static EntitySet getNearestClusterIDs(
             List<Component> maximalGroups,
-            Integer[] framedata,
+            EtpMap.Row framedata,
             Integer frame,
             Integer entity) {
 
-        List<Integer> nearestCluster = null;
+        EntitySet nearestCluster = null;
         double minDistance = Double.MAX_VALUE;
 
         // Create boolean visited array
-        boolean[] visited = new boolean[framedata.length];
+        boolean[] visited = new boolean[framedata.length()];
 
         // For each cluster in the frame compute the average distance to the entity
         for (Component mg : maximalGroups) {
@@ -244,7 +244,7 @@ public class SilhouetteScore {
 
                 double sum = 0;
                 for (Integer e : mg.getEntities()) {
-                    sum += Math.abs(framedata[entity] - framedata[e]);
+                    sum += Math.abs(framedata.get(entity) - framedata.get(e));
                 }
 
                 double avgDistance = sum / mg.getEntities().size();
@@ -263,13 +263,12 @@ public class SilhouetteScore {
         // is closest.
         for (int i = 0; i < visited.length; i++) {
             if (!visited[i]) {
-                double dist = Math.abs(framedata[entity] - framedata[i]);
+                double dist = Math.abs(framedata.get(entity) - framedata.get(i));
 
                 if (dist < minDistance) {
                     minDistance = dist;
 
-                    nearestCluster = new ArrayList<Integer>();
-                    nearestCluster.add(i);
+                    nearestCluster = EntitySet.of(i);
                 }
             }
         }
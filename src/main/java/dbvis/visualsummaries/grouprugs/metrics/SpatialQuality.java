@@ -9,6 +9,7 @@ import java.util.Random;
 
 import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.grouprugs.tgs.Utils;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 
 public class SpatialQuality {
 
@@ -20,12 +21,13 @@ public class SpatialQuality {
      * 
      * @return the spatial quality of the group rug for each frame
      */
-    public static double[] computeKS(DataPoint[][] data, Integer[][] etp, String metricType) {
+    public static double[] computeKS(DataPoint[][] data, EtpMap etp, String metricType) {
 
         double[] spatialQuality = new double[data.length];
+        NearestNeighbors neighbors = NearestNeighbors.spatial(data);
 
         for (int frame = 0; frame < data.length; frame++) {
-            double frameQuality = spatialQualityFrame(data[frame], etp[frame], frame, metricType);
+            double frameQuality = spatialQualityFrame(data[frame], etp.row(frame), frame, metricType, neighbors);
             spatialQuality[frame] = frameQuality;
 
             // System.out.println("Frame " + frame + " Quality: " + frameQuality);
@@ -43,16 +45,16 @@ public class SpatialQuality {
      * @param data  the data of the group rug for a single frame
      * @param etp   the EntityToPosition Map for the group rug for a single frame
      * @param frame the frame number
+     * @param neighbors the nearest neighbours of the entities
      * 
      * @return the spatial quality of the group rug for a single frame
      */
-    private static Double spatialQualityFrame(DataPoint[] data, Integer[] etp, int frame, String metricType) {
+    private static Double spatialQualityFrame(DataPoint[] data, EtpMap.Row etp, int frame, String metricType,
+            NearestNeighbors neighbors) {
 
         Double summedNumerator = 0.0;
         double summedDenominator = 0.0;
 
-        int knn = 10;
-
         HashMap<Integer, Integer> entityToRank = computeEntityToRankMapping(etp);
 
         for (int i = 0; i < data.length; i++) {
@@ -60,9 +62,9 @@ public class SpatialQuality {
             DataPoint currentDataPoint = data[i];
             Integer currentRank = entityToRank.get(currentDataPoint.getId());
 
-            Integer[] nearestNeighbors = getKNearestNeighbors(data, currentDataPoint, knn);
+            int[] nearestNeighbors = neighbors.getNeighbors(frame, i);
 
-            for (int k = 0; k < knn; k++) {
+            for (int k = 0; k < nearestNeighbors.length; k++) {
 
                 DataPoint neighbor = data[nearestNeighbors[k]];
 
@@ -105,44 +107,6 @@ public class SpatialQuality {
         return quality;
     }
 
-    /**
-     * Returns the k nearest neighbors of a data point.
-     * 
-     * @param data The data points.
-     * @param dp   The data point.
-     * @param k    The number of nearest neighbors to return.
-     * @return The k nearest neighbors of the data point.
-     */
-    private static Integer[] getKNearestNeighbors(DataPoint[] data, DataPoint dp, int k) {
-
-        List<EntityDistancePair> pq = new ArrayList<EntityDistancePair>();
-
-        for (int i = 0; i < data.length; i++) {
-
-            if (data[i].getId() != dp.getId()) {
-
-                pq.add(new EntityDistancePair(data[i].getId(), Utils.getEuclideanDistance(dp, data[i])));
-            }
-        }
-
-        // Sort on distance
-        Collections.sort(pq, new Comparator<EntityDistancePair>() {
-            @Override
-            public int compare(EntityDistancePair o1, EntityDistancePair o2) {
-                return o1.distance.compareTo(o2.distance);
-            }
-        });
-
-        Integer[] nearestNeighbors = new Integer[k];
-
-        for (int i = 0; i < k; i++) {
-            nearestNeighbors[i] = pq.get(i).entity;
-        }
-
-        return nearestNeighbors;
-
-    }
-
     /**
      * Computes a mapping from entity to rank based on the etp array. Handles
      * non-unique positions.
@@ -152,12 +116,12 @@ public class SpatialQuality {
      * @return A map where each key is an entity index and each value is the rank of
      *         that entity.
      */
-    private static HashMap<Integer, Integer> computeEntityToRankMapping(Integer[] etp) {
+    private static HashMap<Integer, Integer> computeEntityToRankMapping(EtpMap.Row etp) {
 
         List<EntityProjectionPair> pq = new ArrayList<EntityProjectionPair>();
 
-        for (int i = 0; i < etp.length; i++) {
-            pq.add(new EntityProjectionPair(i, (double) etp[i]));
+        for (int i = 0; i < etp.length(); i++) {
+            pq.add(new EntityProjectionPair(i, (double) etp.get(i)));
         }
 
         // Sort on etp value
@@ -193,22 +157,6 @@ public class SpatialQuality {
 
     }
 
-    /**
-     * A simple class to represent a pair of an entity and its distance. Used for
-     * sorting entities based on their distance in original data space.
-     */
-    private static class EntityDistancePair {
-
-        public Integer entity;
-        public Double distance;
-
-        public EntityDistancePair(Integer entity, Double distance) {
-            this.entity = entity;
-            this.distance = distance;
-        }
-
-    }
-
     // Simple test instance with an image of 10 by 10, projected along the x-axis.
     public static void main(String[] args) {
         DataPoint[][] data = new DataPoint[10][10];
@@ -241,12 +189,12 @@ public class SpatialQuality {
             System.out.println("]");
         }
 
-        Integer[][] etp = new Integer[10][10];
+        EtpMap etp = new EtpMap(10, 10);
 
         // Project along x-axis
         for (int i = 0; i < 10; i++) {
             for (int j = 0; j < 10; j++) {
-                etp[i][j] = (int) data[i][j].getX();
+                etp.set(i, j, (int) data[i][j].getX());
             }
         }
 
@@ -254,7 +202,7 @@ public class SpatialQuality {
         for (int i = 0; i < 10; i++) {
             System.out.print("[");
             for (int j = 0; j < 10; j++) {
-                System.out.print(etp[i][j] + ", ");
+                System.out.print(etp.get(i, j) + ", ");
             }
             System.out.println("]");
         }
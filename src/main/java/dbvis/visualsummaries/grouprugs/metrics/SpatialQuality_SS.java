@@ -1,12 +1,8 @@
 package dbvis.visualsummaries.grouprugs.metrics;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
 import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.grouprugs.tgs.Utils;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.MapperUtils;
 import javafx.util.Pair;
 
@@ -25,7 +21,32 @@ public class SpatialQuality_SS {
             DataPoint[][] orderedDataPoints,
             Double[][] projections,
             boolean ML,
-            Integer[][] etp) {
+            EtpMap etp) {
+
+        NearestNeighbors neighbors = ML
+                ? NearestNeighbors.projections(projections, 3, NearestNeighbors.DEFAULT_K)
+                : NearestNeighbors.embedding(etp, NearestNeighbors.DEFAULT_K);
+
+        return computeSS(data, orderedDataPoints, projections, ML, etp, neighbors);
+    }
+
+    /**
+     * Computes the spatial quality of the group rug.
+     * 
+     * @param data      the data of the group rug
+     * @param etp       the EntityToPosition Map for the group rug
+     * @param neighbors the nearest neighbours of the entities in the rug: on the
+     *                  projections for ML, on the etp map otherwise
+     * 
+     * @return the spatial quality of the group rug for each frame
+     */
+    public static double[] computeSS(
+            DataPoint[][] data,
+            DataPoint[][] orderedDataPoints,
+            Double[][] projections,
+            boolean ML,
+            EtpMap etp,
+            NearestNeighbors neighbors) {
 
         double[] spatialQuality = new double[data.length];
 
@@ -34,14 +55,14 @@ public class SpatialQuality_SS {
             // Find minmax values in the projections
             Pair<Double, Double> minmax = MapperUtils.getMinMaxProjections(projections);
             for (int frame = 0; frame < data.length; frame++) {
-                Double frameQuality = spatialQualityFrameML(data[frame], etp[frame], projections[frame], minmax, ML,
-                        frame);
+                Double frameQuality = spatialQualityFrameML(data[frame], etp.row(frame), projections[frame], minmax, ML,
+                        frame, neighbors);
                 spatialQuality[frame] = frameQuality;
             }
         } else {
 
             for (int frame = 0; frame < data.length; frame++) {
-                Double frameQuality = spatialQualityFrame(data[frame], etp[frame], frame);
+                Double frameQuality = spatialQualityFrame(data[frame], etp.row(frame), frame, neighbors);
                 spatialQuality[frame] = frameQuality;
             }
         }
@@ -62,29 +83,28 @@ public class SpatialQuality_SS {
      */
     private static Double spatialQualityFrame(
             DataPoint[] data,
-            Integer[] etp,
-            int frame) {
+            EtpMap.Row etp,
+            int frame,
+            NearestNeighbors neighbors) {
 
         Double summedNumerator = 0.0;
         Double summedDenominator = 0.0;
 
-        int knn = 10;
-
         for (int i = 0; i < data.length; i++) {
 
             DataPoint currentDataPoint = data[i];
             int id = currentDataPoint.getId();
 
-            int embLocation = etp[id];
+            int embLocation = etp.get(id);
 
-            Integer[] nearestNeighbors = getKNearestNeighbors(etp, id, knn);
+            int[] nearestNeighbors = neighbors.getNeighbors(frame, id);
 
-            for (int k = 0; k < knn; k++) {
+            for (int k = 0; k < nearestNeighbors.length; k++) {
 
                 DataPoint neighbor = data[nearestNeighbors[k]];
                 int id_neighbor = neighbor.getId();
 
-                int embLocation_neighbor = etp[id_neighbor];
+                int embLocation_neighbor = etp.get(id_neighbor);
                 Double distance = Utils.getEuclideanDistance(currentDataPoint, neighbor);
 
                 double embDiff = Math.abs(embLocation - embLocation_neighbor);
@@ -113,19 +133,18 @@ public class SpatialQuality_SS {
      */
     private static Double spatialQualityFrameML(
             DataPoint[] data,
-            Integer[] etp,
+            EtpMap.Row etp,
             Double[] projectionsFrame,
             Pair<Double, Double> minmax,
             boolean ML,
-            int frame) {
+            int frame,
+            NearestNeighbors neighbors) {
 
-        double HEIGHT = 3.0 * etp.length;
+        double HEIGHT = 3.0 * etp.length();
 
         Double summedNumerator = 0.0;
         Double summedDenominator = 0.0;
 
-        int knn = 10;
-
         for (int i = 0; i < data.length; i++) {
 
             DataPoint currentDataPoint = data[i];
@@ -134,12 +153,10 @@ public class SpatialQuality_SS {
             double embLocation = ((projectionsFrame[id] - minmax.getKey()) / (minmax.getValue() - minmax.getKey()))
                     * HEIGHT;
 
-            Integer[] nearestNeighbors;
-
             // Base k nearest neighbors on projected values.
-            nearestNeighbors = getKNearestNeighborsML(projectionsFrame, id, knn);
+            int[] nearestNeighbors = neighbors.getNeighbors(frame, id);
 
-            for (int k = 0; k < knn; k++) {
+            for (int k = 0; k < nearestNeighbors.length; k++) {
 
                 DataPoint neighbor = data[nearestNeighbors[k]];
                 int id_neighbor = neighbor.getId();
@@ -240,46 +257,6 @@ public class SpatialQuality_SS {
 
     // }
 
-    /**
-     * Returns the k nearest neighbors of an entity in the embedding space.
-     *
-     * @param data The data points.
-     * @param dp   The data point.
-     * @param k    The number of nearest neighbors to return.
-     * @return The k nearest neighbors of the data point.
-     */
-    private static Integer[] getKNearestNeighbors(Integer[] frame, int entity_id,
-            int k) {
-
-        // Get position of entity in embedding space
-        int embLocation = frame[entity_id];
-        List<EntityDistancePair> pq = new ArrayList<EntityDistancePair>();
-
-        for (int i = 0; i < frame.length; i++) {
-
-            if (i != entity_id) {
-                pq.add(new EntityDistancePair(i, Math.abs(embLocation - (double) frame[i])));
-            }
-        }
-
-        // Sort on distance
-        Collections.sort(pq, new Comparator<EntityDistancePair>() {
-            @Override
-            public int compare(EntityDistancePair o1, EntityDistancePair o2) {
-                return o1.distance.compareTo(o2.distance);
-            }
-        });
-
-        Integer[] nearestNeighbors = new Integer[k];
-
-        for (int i = 0; i < k; i++) {
-            nearestNeighbors[i] = pq.get(i).entity;
-        }
-
-        return nearestNeighbors;
-
-    }
-
     /**
      * Returns the k nearest neighbors of a data point.
      * 
@@ -321,63 +298,4 @@ public class SpatialQuality_SS {
 
     // }
 
-    /**
-     * Returns the k nearest neighbors of a data point. Used for ML projections.
-     * 
-     * @param data The data points.
-     * @param dp   The data point.
-     * @param k    The number of nearest neighbors to return.
-     * @return The k nearest neighbors of the data point.
-     */
-    private static Integer[] getKNearestNeighborsML(Double[] projections, int entity,
-            int k) {
-
-        int HEIGHT = 3;
-
-        List<EntityDistancePair> pq = new ArrayList<EntityDistancePair>();
-
-        for (int i = 0; i < projections.length; i++) {
-
-            if (i != entity) {
-
-                pq.add(new EntityDistancePair(i, Math.abs(HEIGHT * projections[entity] - HEIGHT * projections[i])));
-
-            }
-
-        }
-
-        // Sort on distance
-        Collections.sort(pq, new Comparator<EntityDistancePair>() {
-            @Override
-            public int compare(EntityDistancePair o1, EntityDistancePair o2) {
-                return o1.distance.compareTo(o2.distance);
-            }
-        });
-
-        Integer[] nearestNeighbors = new Integer[k];
-
-        for (int i = 0; i < k; i++) {
-            nearestNeighbors[i] = pq.get(i).entity;
-        }
-
-        return nearestNeighbors;
-
-    }
-
-    /**
-     * A simple class to represent a pair of an entity and its distance. Used for
-     * sorting entities based on their distance in original data space.
-     */
-    private static class EntityDistancePair {
-
-        public Integer entity;
-        public Double distance;
-
-        public EntityDistancePair(Integer entity, Double distance) {
-            this.entity = entity;
-            this.distance = distance;
-        }
-
-    }
-
 }
@@ -7,26 +7,28 @@ import java.util.Map;
 
 import java.util.*;
 
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
+
 public class Stability {
 
     // Function to compute KS for stability metric
-    public static double[] computeKSte(Integer[][] frames, int k) {
+    public static double[] computeKSte(EtpMap frames, int k) {
 
-        double[] stability = new double[frames.length - 1];
+        double[] stability = new double[frames.getFrameCount() - 1];
 
-        for (int l = 0; l < frames.length - 1; l++) {
+        for (int l = 0; l < frames.getFrameCount() - 1; l++) {
 
             double totalNumerator = 0;
             double totalDenominator = 0;
 
-            Integer[] currentFrame = frames[l];
-            Integer[] nextFrame = frames[l + 1];
+            EtpMap.Row currentFrame = frames.row(l);
+            EtpMap.Row nextFrame = frames.row(l + 1);
             Map<Integer, List<RankDiff>> currentKNN = getKNN(currentFrame, k);
             Map<Integer, List<RankDiff>> nextKNN = getFullKNN(nextFrame);
 
             // Calculate rank differences and weights for each entity in the next frame
             // based on its neighbors from the current frame
-            for (int i = 0; i < currentFrame.length; i++) {
+            for (int i = 0; i < currentFrame.length(); i++) {
                 List<RankDiff> neighbors = currentKNN.get(i);
                 if (neighbors == null)
                     continue;
@@ -65,20 +67,20 @@ public class Stability {
     }
 
     // Compute k-nearest neighbors for each entity
-    private static Map<Integer, List<RankDiff>> getKNN(Integer[] frame, int k) {
+    private static Map<Integer, List<RankDiff>> getKNN(EtpMap.Row frame, int k) {
         Map<Integer, List<Map.Entry<Integer, Integer>>> distances = new HashMap<>();
-        for (int i = 0; i < frame.length; i++) {
+        for (int i = 0; i < frame.length(); i++) {
             distances.put(i, new ArrayList<>());
-            for (int j = 0; j < frame.length; j++) {
+            for (int j = 0; j < frame.length(); j++) {
                 if (i != j) {
-                    distances.get(i).add(new AbstractMap.SimpleEntry<>(j, Math.abs(frame[i] - frame[j])));
+                    distances.get(i).add(new AbstractMap.SimpleEntry<>(j, Math.abs(frame.get(i) - frame.get(j))));
                 }
             }
             distances.get(i).sort(Map.Entry.comparingByValue());
         }
 
         Map<Integer, List<RankDiff>> knnMap = new HashMap<>();
-        for (int i = 0; i < frame.length; i++) {
+        for (int i = 0; i < frame.length(); i++) {
             // List<Integer> neighbors = new ArrayList<>();
             List<RankDiff> rankDiffs = new ArrayList<>();
             int count = 0;
@@ -106,20 +108,20 @@ public class Stability {
     }
 
     // Compute k-nearest neighbors for each entity
-    private static Map<Integer, List<RankDiff>> getFullKNN(Integer[] frame) {
+    private static Map<Integer, List<RankDiff>> getFullKNN(EtpMap.Row frame) {
         Map<Integer, List<Map.Entry<Integer, Integer>>> distances = new HashMap<>();
-        for (int i = 0; i < frame.length; i++) {
+        for (int i = 0; i < frame.length(); i++) {
             distances.put(i, new ArrayList<>());
-            for (int j = 0; j < frame.length; j++) {
+            for (int j = 0; j < frame.length(); j++) {
                 if (i != j) {
-                    distances.get(i).add(new AbstractMap.SimpleEntry<>(j, Math.abs(frame[i] - frame[j])));
+                    distances.get(i).add(new AbstractMap.SimpleEntry<>(j, Math.abs(frame.get(i) - frame.get(j))));
                 }
             }
             distances.get(i).sort(Map.Entry.comparingByValue());
         }
 
         Map<Integer, List<RankDiff>> knnMap = new HashMap<>();
-        for (int i = 0; i < frame.length; i++) {
+        for (int i = 0; i < frame.length(); i++) {
             // List<Integer> neighbors = new ArrayList<>();
             List<RankDiff> rankDiffs = new ArrayList<>();
             int rank = 0;
@@ -1,9 +1,6 @@
 package dbvis.visualsummaries.grouprugs.metrics;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 
 public class Stability_dist {
 
@@ -15,16 +12,29 @@ public class Stability_dist {
      * 
      * @return the stability of the group rug for each frame
      */
-    public static double[] computeKS(Integer[][] etp) {
+    public static double[] computeKS(EtpMap etp) {
 
-        double[] stability = new double[etp.length - 1];
+        return computeKS(etp, NearestNeighbors.embedding(etp, NearestNeighbors.DEFAULT_K));
+    }
+
+    /**
+     * Computes the stabilityof the group rug.
+     * 
+     * @param etp       the EntityToPosition Map for the group rug
+     * @param neighbors the nearest neighbours of the entities in the etp map
+     * 
+     * @return the stability of the group rug for each frame
+     */
+    public static double[] computeKS(EtpMap etp, NearestNeighbors neighbors) {
+
+        double[] stability = new double[etp.getFrameCount() - 1];
 
-        for (int frame = 0; frame < etp.length - 1; frame++) {
+        for (int frame = 0; frame < etp.getFrameCount() - 1; frame++) {
 
-            Integer[] frame1 = etp[frame];
-            Integer[] frame2 = etp[frame + 1];
+            EtpMap.Row frame1 = etp.row(frame);
+            EtpMap.Row frame2 = etp.row(frame + 1);
 
-            Double frameQuality = stabilityFrame(frame1, frame2, frame);
+            Double frameQuality = stabilityFrame(frame1, frame2, frame, neighbors);
             stability[frame] = frameQuality;
 
             // System.out.println("Frame " + frame + " Quality: " + frameQuality);
@@ -42,30 +52,29 @@ public class Stability_dist {
      * @param data  the data of the group rug for a single frame
      * @param etp2  the EntityToPosition Map for the group rug for a single frame
      * @param frame the frame number
+     * @param neighbors the nearest neighbours of the entities
      * 
      * @return the stability of the group rug for a single frame
      */
-    private static Double stabilityFrame(Integer[] etp1, Integer[] etp2, int frame) {
+    private static Double stabilityFrame(EtpMap.Row etp1, EtpMap.Row etp2, int frame, NearestNeighbors neighbors) {
 
         Double summedNumerator = 0.0;
         Double summedDenominator = 0.0;
 
-        int knn = 10;
-
-        for (int id = 0; id < etp1.length; id++) {
+        for (int id = 0; id < etp1.length(); id++) {
 
             // Integer currentDataPoint = etp1[i];
 
-            int embLocation = etp2[id];
+            int embLocation = etp2.get(id);
 
             // Integer currentRank = entityToRank.get(currentDataPoint.getId());
 
-            Integer[] nearestNeighbors = getKNearestNeighbors(etp1, id, knn);
+            int[] nearestNeighbors = neighbors.getNeighbors(frame, id);
 
-            for (int k = 0; k < knn; k++) {
+            for (int k = 0; k < nearestNeighbors.length; k++) {
 
                 int id_neighbor = nearestNeighbors[k];
-                int embLocation_neighbor = etp2[id_neighbor];
+                int embLocation_neighbor = etp2.get(id_neighbor);
 
                 Double distance = getEuclideanDistance(etp1, id, id_neighbor);
 
@@ -97,64 +106,10 @@ public class Stability_dist {
         return quality;
     }
 
-    /**
-     * Returns the k nearest neighbors of a data point.
-     * 
-     * @param data The data points.
-     * @param dp   The data point.
-     * @param k    The number of nearest neighbors to return.
-     * @return The k nearest neighbors of the data point.
-     */
-    private static Integer[] getKNearestNeighbors(Integer[] etp, Integer id, int k) {
-
-        List<EntityDistancePair> pq = new ArrayList<EntityDistancePair>();
-
-        for (int i = 0; i < etp.length; i++) {
-
-            if (i != id) {
-
-                pq.add(new EntityDistancePair(i, getEuclideanDistance(etp, id, i)));
-            }
-        }
-
-        // Sort on distance
-        Collections.sort(pq, new Comparator<EntityDistancePair>() {
-            @Override
-            public int compare(EntityDistancePair o1, EntityDistancePair o2) {
-                return o1.distance.compareTo(o2.distance);
-            }
-        });
-
-        Integer[] nearestNeighbors = new Integer[k];
-
-        for (int i = 0; i < k; i++) {
-            nearestNeighbors[i] = pq.get(i).entity;
-        }
-
-        return nearestNeighbors;
-
-    }
-
-    /**
-     * A simple class to represent a pair of an entity and its distance. Used for
-     * sorting entities based on their distance in original data space.
-     */
-    private static class EntityDistancePair {
-
-        public Integer entity;
-        public Double distance;
-
-        public EntityDistancePair(Integer entity, Double distance) {
-            this.entity = entity;
-            this.distance = distance;
-        }
-
-    }
-
-    private static double getEuclideanDistance(Integer[] etp, int current, int neighbor) {
+    private static double getEuclideanDistance(EtpMap.Row etp, int current, int neighbor) {
 
         // Compute Euclidean distance between two points
-        double distance = Math.abs(etp[current] - etp[neighbor]);
+        double distance = Math.abs(etp.get(current) - etp.get(neighbor));
 
         return distance;
     }
@@ -0,0 +1,296 @@
+package dbvis.visualsummaries.grouprugs.tgs;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * An immutable set of entity ids, used for the members of Reeb graph
+ * components and groups.
+ *
+ * The members keep the order they were added in, so an EntitySet can be used
+ * wherever the members used to be a List of Integers. Membership is stored
+ * next to them: as a dense bitset if the ids are dense enough, otherwise as a
+ * sorted array of the ids. Union, intersection and their cardinality compare
+ * 64 entities at a time if both sets are dense.
+ *
+ * EntitySets are immutable and can be shared between edges and groups without
+ * copying.
+ */
+public final class EntitySet extends AbstractList<Integer> implements RandomAccess {
+
+    public static final EntitySet EMPTY = new EntitySet(new int[0]);
+
+    // Members in insertion order
+    private final int[] members;
+
+    // Membership, either words (dense) or sorted (sparse) is set
+    private final long[] words;
+    private final int[] sorted;
+
+    private EntitySet(int[] members) {
+        this.members = members;
+
+        int max = -1;
+        for (int member : members) {
+            if (member < 0) {
+                throw new IllegalArgumentException("Entity ids must not be negative: " + member);
+            }
+            max = Math.max(max, member);
+        }
+
+        int numWords = (max >> 6) + 1;
+        if (max < 0 || numWords <= 2 * members.length) {
+            this.words = new long[max < 0 ? 0 : numWords];
+            for (int member : members) {
+                words[member >> 6] |= 1L << member;
+            }
+            this.sorted = null;
+        } else {
+            this.words = null;
+            this.sorted = members.clone();
+            Arrays.sort(sorted);
+        }
+    }
+
+    /**
+     * Function creates a set of the given entities; duplicates after the first
+     * occurrence are dropped. An EntitySet is returned as is.
+     *
+     * @param entities The entity ids.
+     * @return The set.
+     */
+    public static EntitySet of(Collection<Integer> entities) {
+        if (entities instanceof EntitySet) {
+            return (EntitySet) entities;
+        }
+        int[] ids = new int[entities.size()];
+        int i = 0;
+        for (int entity : entities) {
+            ids[i++] = entity;
+        }
+        return of(ids);
+    }
+
+    /**
+     * Function creates a set of the given entities; duplicates after the first
+     * occurrence are dropped.
+     *
+     * @param entities The entity ids.
+     * @return The set.
+     */
+    public static EntitySet of(int... entities) {
+        if (entities.length == 0) {
+            return EMPTY;
+        }
+        EntitySet set = new EntitySet(entities.clone());
+        if (set.countDistinct() == entities.length) {
+            return set;
+        }
+
+        // Drop duplicates, keeping the first occurrence
+        int[] distinct = new int[entities.length];
+        int size = 0;
+        long[] seen = new long[0];
+        for (int entity : entities) {
+            if ((entity >> 6) >= seen.length) {
+                seen = Arrays.copyOf(seen, Math.max((entity >> 6) + 1, 2 * seen.length));
+            }
+            if ((seen[entity >> 6] & (1L << entity)) == 0) {
+                seen[entity >> 6] |= 1L << entity;
+                distinct[size++] = entity;
+            }
+        }
+        return new EntitySet(Arrays.copyOf(distinct, size));
+    }
+
+    private int countDistinct() {
+        if (words != null) {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+        int count = sorted.length > 0 ? 1 : 0;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[i - 1]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Integer get(int index) {
+        return members[index];
+    }
+
+    /**
+     * Returns the entity at the given position in insertion order.
+     */
+    public int getInt(int index) {
+        return members[index];
+    }
+
+    @Override
+    public int size() {
+        return members.length;
+    }
+
+    /**
+     * Returns the number of entities in the set.
+     */
+    public int cardinality() {
+        return members.length;
+    }
+
+    /**
+     * Returns the entities in insertion order as a new array.
+     */
+    public int[] toIntArray() {
+        return members.clone();
+    }
+
+    /**
+     * Returns whether the set contains the entity.
+     */
+    public boolean contains(int entity) {
+        if (entity < 0) {
+            return false;
+        }
+        if (words != null) {
+            int word = entity >> 6;
+            return word < words.length && (words[word] & (1L << entity)) != 0;
+        }
+        return Arrays.binarySearch(sorted, entity) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains(((Integer) o).intValue());
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return contains(o) ? super.indexOf(o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return contains(o) ? super.lastIndexOf(o) : -1;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof EntitySet) {
+            EntitySet other = (EntitySet) c;
+            return other.size() <= size() && intersectionCardinality(other) == other.size();
+        }
+        return super.containsAll(c);
+    }
+
+    /**
+     * Returns whether both sets have the same entities, in any order.
+     */
+    public boolean hasSameEntities(EntitySet other) {
+        return size() == other.size() && containsAll(other);
+    }
+
+    /**
+     * Returns whether the sets have an entity in common.
+     */
+    public boolean intersects(EntitySet other) {
+        if (words != null && other.words != null) {
+            int n = Math.min(words.length, other.words.length);
+            for (int i = 0; i < n; i++) {
+                if ((words[i] & other.words[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return intersectionCardinality(other) > 0;
+    }
+
+    /**
+     * Returns the number of entities in both sets.
+     */
+    public int intersectionCardinality(EntitySet other) {
+        if (words != null && other.words != null) {
+            int n = Math.min(words.length, other.words.length);
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                count += Long.bitCount(words[i] & other.words[i]);
+            }
+            return count;
+        }
+
+        EntitySet small = size() <= other.size() ? this : other;
+        EntitySet large = small == this ? other : this;
+        int count = 0;
+        for (int member : small.members) {
+            if (large.contains(member)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of entities in either set.
+     */
+    public int unionCardinality(EntitySet other) {
+        return size() + other.size() - intersectionCardinality(other);
+    }
+
+    /**
+     * Function computes the entities of this set that are also in the other set,
+     * in the order of this set.
+     *
+     * @param other The other set.
+     * @return The intersection.
+     */
+    public EntitySet intersection(EntitySet other) {
+        if (other == this) {
+            return this;
+        }
+        int[] result = new int[Math.min(size(), other.size())];
+        int size = 0;
+        for (int member : members) {
+            if (other.contains(member)) {
+                result[size++] = member;
+            }
+        }
+        if (size == members.length) {
+            return this;
+        }
+        return size == 0 ? EMPTY : new EntitySet(Arrays.copyOf(result, size));
+    }
+
+    /**
+     * Function computes the entities in either set: the entities of this set
+     * followed by the entities of the other set that are not in this set.
+     *
+     * @param other The other set.
+     * @return The union.
+     */
+    public EntitySet union(EntitySet other) {
+        if (other == this) {
+            return this;
+        }
+        int[] result = Arrays.copyOf(members, size() + other.size());
+        int size = members.length;
+        for (int member : other.members) {
+            if (!contains(member)) {
+                result[size++] = member;
+            }
+        }
+        if (size == members.length) {
+            return this;
+        }
+        return new EntitySet(Arrays.copyOf(result, size));
+    }
+
+}
@@ -2,11 +2,10 @@ package dbvis.visualsummaries.grouprugs.tgs;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import dbvis.visualsummaries.data.*;
-import dbvis.visualsummaries.grouprugs.events.Event;
 import dbvis.visualsummaries.grouprugs.events.EventComputer;
+import dbvis.visualsummaries.grouprugs.events.EventLog;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.*;
 import dbvis.visualsummaries.grouprugs.tgs.reebgraph.PostProcessing;
 import dbvis.visualsummaries.grouprugs.tgs.reebgraph.RGWriter;
@@ -42,11 +41,12 @@ public class TGS {
         DataSet dataset = sessionData.getDataset(filename);
 
         // compute events
-        PriorityQueue<Event> events = EventComputer.computeEvents(dataset.getName(), this.epsilon);
+        EventLog events = EventComputer.computeEvents(dataset.getName(), this.epsilon);
 
         // initialize status and reeb graph
-        DataPoint[] firstFrame = dataset.getBaseData()[0];
-        int frameNum = dataset.getBaseData().length - 1;
+        Positions positions = Positions.of(dataset);
+        DataPoint[] firstFrame = positions.createFrame(0);
+        int frameNum = positions.getFrameCount() - 1;
 
         StatusGraph statusGraph = new StatusGraph(firstFrame, this.epsilon);
         ReebGraph rg = ReebGraphBuilder.build(statusGraph, events, frameNum);
@@ -0,0 +1,130 @@
+package dbvis.visualsummaries.grouprugs.tgs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dbvis.visualsummaries.data.*;
+import dbvis.visualsummaries.grouprugs.events.EventLog;
+import dbvis.visualsummaries.grouprugs.events.MultiEpsilonEventComputer;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.PostProcessing;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.ReebGraph;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.ReebGraphBuilder;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.ReebGraphHierarchy;
+import dbvis.visualsummaries.grouprugs.tgs.reebgraph.StatusGraph;
+
+/**
+ * The TGS algorithm for several epsilon thresholds at once. The frames are
+ * scanned once for the events of all thresholds, after which the Reeb graphs
+ * are built in parallel. The graph of every threshold is the same as the one
+ * of {@link TGS} with that epsilon.
+ */
+public class TGSSweep {
+
+    double[] epsilons;
+    String filename;
+
+    /**
+     * @param epsilons The thresholds; duplicates are removed and they are sorted
+     *                 ascending.
+     * @param filename The name of the dataset.
+     */
+    public TGSSweep(double[] epsilons, String filename) {
+        this.epsilons = Arrays.stream(epsilons).sorted().distinct().toArray();
+        this.filename = filename;
+    }
+
+    /**
+     * Returns the thresholds, sorted ascending. The graphs of {@link #compute()}
+     * are in this order.
+     */
+    public double[] getEpsilons() {
+        return epsilons.clone();
+    }
+
+    public List<ReebGraph> compute() {
+        SessionData sessionData = SessionData.getInstance();
+        DataSet dataset = sessionData.getDataset(filename);
+        Positions positions = Positions.of(dataset);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        // compute events for all thresholds in one scan
+        List<EventLog> events = MultiEpsilonEventComputer.computeEvents(positions, epsilons, threads);
+
+        // build a reeb graph per threshold
+        DataPoint[] firstFrame = positions.createFrame(0);
+        int frameNum = positions.getFrameCount() - 1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<ReebGraph> graphs = new ArrayList<>();
+
+        try {
+            List<Future<ReebGraph>> futures = new ArrayList<>();
+            for (int i = 0; i < epsilons.length; i++) {
+                final double epsilon = epsilons[i];
+                final EventLog epsilonEvents = events.get(i);
+                futures.add(executor.submit(() -> {
+                    StatusGraph statusGraph = new StatusGraph(firstFrame, epsilon);
+                    return ReebGraphBuilder.build(statusGraph, epsilonEvents, frameNum);
+                }));
+            }
+
+            for (Future<ReebGraph> future : futures) {
+                graphs.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+
+        return graphs;
+    }
+
+    public List<ReebGraph> postprocess(List<ReebGraph> graphs) {
+        List<ReebGraph> processed = new ArrayList<>();
+        for (ReebGraph rg : graphs) {
+            processed.add(PostProcessing.postProcess(rg));
+        }
+        return processed;
+    }
+
+    /**
+     * Function computes and post-processes the Reeb graphs of all thresholds and
+     * links every edge to the edge that contains it at the next threshold.
+     *
+     * @return The hierarchy of Reeb graphs.
+     */
+    public ReebGraphHierarchy computeHierarchy() {
+        return new ReebGraphHierarchy(getEpsilons(), postprocess(compute()));
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        // Load data
+        String[] datapath = new String[1];
+        datapath[0] = "data/";
+        CSVDataLoader.checkAndLoadCSVDataSets(datapath);
+
+        String filename = "fishdatamerge";
+        double[] EPSILONS = { 1d, 50d, 100d, 150d, 200d, 250d, 300d, 400d };
+
+        TGSSweep sweep = new TGSSweep(EPSILONS, filename);
+        ReebGraphHierarchy hierarchy = sweep.computeHierarchy();
+
+        for (int level = 0; level < hierarchy.getLevels(); level++) {
+            ReebGraph rg = hierarchy.getReebGraph(level);
+            System.out.println("epsilon " + hierarchy.getEpsilon(level) + ": "
+                    + rg.getVertices().size() + " vertices, "
+                    + rg.getEdges().size() + " edges");
+        }
+
+        System.out.println("Done");
+    }
+
+}
@@ -12,6 +12,7 @@ import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.data.DataSet;
 import dbvis.visualsummaries.data.SessionData;
 import dbvis.visualsummaries.grouprugs.tgs.reebgraph.StatusGraph;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 
 /**
  * Utility class containing various helper functions.
@@ -35,7 +36,7 @@ public class Utils {
     public static void setColor(
             TwoDColorMapper twodcolormapper,
             BufferedImage awtImage,
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             int imageX,
             int imageY,
             int dataX,
@@ -50,7 +51,7 @@ public class Utils {
                                 (int) Math.floor(data[dataX][dataY].getY()))
                         .getRGB());
 
-        entityToPosition[dataX][dataY] = imageY;
+        entityToPosition.set(dataX, dataY, imageY);
 
     }
 
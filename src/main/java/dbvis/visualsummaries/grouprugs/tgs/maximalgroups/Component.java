@@ -2,9 +2,11 @@ package dbvis.visualsummaries.grouprugs.tgs.maximalgroups;
 
 import java.util.List;
 
+import dbvis.visualsummaries.grouprugs.tgs.EntitySet;
+
 public class Component {
 
-    List<Integer> entities;
+    EntitySet entities;
     int startFrame;
     int endFrame;
     int id;
@@ -14,11 +16,12 @@ public class Component {
 
         String[] groupParts = groupString.split(" ");
 
-        this.entities = new java.util.ArrayList<Integer>();
         String[] entitiesString = groupParts[0].substring(1, groupParts[0].length() - 1).split(",");
-        for (String entity : entitiesString) {
-            this.entities.add(Integer.parseInt(entity));
+        int[] entities = new int[entitiesString.length];
+        for (int i = 0; i < entitiesString.length; i++) {
+            entities[i] = Integer.parseInt(entitiesString[i]);
         }
+        this.entities = EntitySet.of(entities);
 
         this.startFrame = startFrame;
         this.endFrame = endFrame;
@@ -26,18 +29,18 @@ public class Component {
     }
 
     public Component(List<Integer> entities, int startFrame) {
-        this.entities = entities;
+        this.entities = EntitySet.of(entities);
         this.startFrame = startFrame;
         this.endFrame = -1;
         this.id = -1;
     }
 
-    public List<Integer> getEntities() {
+    public EntitySet getEntities() {
         return this.entities;
     }
 
     public void setEntities(List<Integer> entities) {
-        this.entities = entities;
+        this.entities = EntitySet.of(entities);
     }
 
     public int getStartFrame() {
@@ -1,8 +1,14 @@
 package dbvis.visualsummaries.grouprugs.tgs.maximalgroups;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import dbvis.visualsummaries.grouprugs.tgs.reebgraph.REdge;
@@ -56,82 +62,136 @@ public class GroupLineComputer {
 
     }
 
+    /**
+     * Function computes the maximal groups of a Reeb graph: the sets of entities
+     * that follow the same path of edges from a start vertex to an end vertex.
+     *
+     * The graph is swept once in topological order. Every edge carries the
+     * groups of entities that reached it along the same path, as bitsets; at a
+     * vertex each incoming group is split over the out-edges its entities
+     * continue on. The work per vertex is linear in the size of the components
+     * of its edges.
+     *
+     * @param reebGraph  The Reeb graph.
+     * @param entities   The number of entities.
+     * @param timestamps The number of frames.
+     * @return The maximal groups, with the entities in the order of the
+     *         component of their last edge.
+     */
     public static Set<MaximalGroup> compute2(ReebGraph reebGraph, int entities, int timestamps) {
 
         Set<MaximalGroup> groupLines = new HashSet<>();
-        boolean[] visitedEntities = new boolean[entities];
 
-        // set all entities to not visited
-        for (int entity = 0; entity < entities; entity++) {
-            visitedEntities[entity] = false;
+        List<RVertex> startVertices = reebGraph.getStartVertices();
+        if (startVertices.isEmpty()) {
+            return groupLines;
         }
+        int startFrame = startVertices.get(0).getFrame();
 
-        List<RVertex> startVertices = reebGraph.getStartVertices();
+        // Number of unprocessed in-edges of every reachable vertex
+        Map<RVertex, Integer> inDegree = new IdentityHashMap<>();
+        Deque<RVertex> queue = new ArrayDeque<>(startVertices);
+        for (RVertex v : startVertices) {
+            inDegree.put(v, 0);
+        }
+        while (!queue.isEmpty()) {
+            for (REdge e : queue.poll().getOutEdges()) {
+                Integer degree = inDegree.get(e.getDest());
+                if (degree == null) {
+                    queue.add(e.getDest());
+                    degree = 0;
+                }
+                inDegree.put(e.getDest(), degree + 1);
+            }
+        }
 
-        for (int entity = 0; entity < entities; entity++) {
+        // Groups that arrived at a vertex and have not been split yet
+        Map<RVertex, List<BitSet>> arrived = new IdentityHashMap<>();
 
-            if (visitedEntities[entity]) {
-                continue;
-            }
+        // Index of the first out-edge of the current vertex that holds an entity
+        int[] outEdge = new int[entities];
+        int[] outEdgeStamp = new int[entities];
+        int stamp = 0;
 
-            visitedEntities[entity] = true;
+        queue.addAll(startVertices);
+        while (!queue.isEmpty()) {
+            RVertex v = queue.poll();
+            List<REdge> outEdges = v.getOutEdges();
+            List<BitSet> incoming = arrived.remove(v);
 
-            List<Integer> entityComponent = null;
-            REdge entityEdge = null;
+            List<List<BitSet>> outgoing = new ArrayList<>(outEdges.size());
+            for (int i = 0; i < outEdges.size(); i++) {
+                outgoing.add(new ArrayList<BitSet>());
+            }
 
-            // Find initial edge that contains the entity
-            for (RVertex v : startVertices) {
-                for (REdge e : v.getOutEdges()) {
-                    if (e.getComponent().contains(entity)) {
-                        entityComponent = e.getComponent();
-                        entityEdge = e;
+            if (v.getType().equals(RVertex.START_VERTEX)) {
+                // Every component that starts here is a single group
+                for (int i = 0; i < outEdges.size(); i++) {
+                    BitSet group = new BitSet(entities);
+                    for (int entity : outEdges.get(i).getComponent()) {
+                        group.set(entity);
+                    }
+                    outgoing.get(i).add(group);
+                }
+            } else if (incoming != null) {
+                stamp++;
+                for (int i = 0; i < outEdges.size(); i++) {
+                    for (int entity : outEdges.get(i).getComponent()) {
+                        if (outEdgeStamp[entity] != stamp) {
+                            outEdgeStamp[entity] = stamp;
+                            outEdge[entity] = i;
+                        }
                     }
                 }
-            }
-
-            while (entityEdge.getDest().getType() != RVertex.END_VERTEX) {
-
-                RVertex nextVertex = entityEdge.getDest();
-                boolean found = false;
-
-                int outEdges = nextVertex.getOutEdges().size();
-                int iter = 0;
-
-                while (!found && iter < outEdges) {
 
-                    REdge e = nextVertex.getOutEdges().get(iter);
+                // Intersect every incoming group with the components of the out-edges
+                Map<Integer, BitSet> parts = new LinkedHashMap<>();
+                for (BitSet group : incoming) {
+                    parts.clear();
+                    for (int entity = group.nextSetBit(0); entity >= 0; entity = group.nextSetBit(entity + 1)) {
+                        if (outEdgeStamp[entity] != stamp) {
+                            continue;
+                        }
+                        BitSet part = parts.get(outEdge[entity]);
+                        if (part == null) {
+                            part = new BitSet(entities);
+                            parts.put(outEdge[entity], part);
+                        }
+                        part.set(entity);
+                    }
+                    for (Map.Entry<Integer, BitSet> part : parts.entrySet()) {
+                        outgoing.get(part.getKey()).add(part.getValue());
+                    }
+                }
+            }
 
-                    if (e.getComponent().contains(entity)) {
+            for (int i = 0; i < outEdges.size(); i++) {
+                REdge e = outEdges.get(i);
+                RVertex dest = e.getDest();
 
-                        List<Integer> commonEntities = new ArrayList<>();
-                        for (int commonEntity : e.getComponent()) {
-                            if (entityComponent.contains(commonEntity)) {
-                                commonEntities.add(commonEntity);
+                if (dest.getType().equals(RVertex.END_VERTEX)) {
+                    for (BitSet group : outgoing.get(i)) {
+                        List<Integer> entityComponent = new ArrayList<>(group.cardinality());
+                        for (int entity : e.getComponent()) {
+                            if (group.get(entity)) {
+                                entityComponent.add(entity);
                             }
                         }
 
-                        entityComponent = commonEntities;
-                        entityEdge = e;
-                        found = true;
-
+                        MaximalGroup maximalGroup = new MaximalGroup(entityComponent, startFrame);
+                        maximalGroup.setEndFrame(dest.getFrame());
+                        groupLines.add(maximalGroup);
                     }
-
-                    iter++;
-
+                } else if (!outgoing.get(i).isEmpty()) {
+                    arrived.computeIfAbsent(dest, k -> new ArrayList<BitSet>()).addAll(outgoing.get(i));
                 }
 
+                int degree = inDegree.get(dest) - 1;
+                inDegree.put(dest, degree);
+                if (degree == 0) {
+                    queue.add(dest);
+                }
             }
-
-            for (int entityInComponent : entityComponent) {
-                visitedEntities[entityInComponent] = true;
-            }
-
-            // Add maximal group with entityComponent and frame == startVertex.getFrame()
-            MaximalGroup maximalGroup = new MaximalGroup(entityComponent, startVertices.get(0).getFrame());
-            maximalGroup.setEndFrame(entityEdge.getDest().getFrame());
-
-            groupLines.add(maximalGroup);
-
         }
 
         return groupLines;
@@ -2,6 +2,8 @@ package dbvis.visualsummaries.grouprugs.tgs.maximalgroups;
 
 import java.util.List;
 
+import dbvis.visualsummaries.grouprugs.tgs.EntitySet;
+
 /**
  * A maximal group is a group of entities that are epsilon-close during a
  * certain time interval, based on the chosen Group Selection Strategy. The
@@ -10,7 +12,7 @@ import java.util.List;
  */
 public class MaximalGroup {
 
-    List<Integer> entities;
+    EntitySet entities;
     int startFrame;
     int endFrame;
 
@@ -19,11 +21,12 @@ public class MaximalGroup {
 
         String[] groupParts = groupString.split(" ");
 
-        this.entities = new java.util.ArrayList<Integer>();
         String[] entitiesString = groupParts[0].substring(1, groupParts[0].length() - 1).split(",");
-        for (String entity : entitiesString) {
-            this.entities.add(Integer.parseInt(entity));
+        int[] entities = new int[entitiesString.length];
+        for (int i = 0; i < entitiesString.length; i++) {
+            entities[i] = Integer.parseInt(entitiesString[i]);
         }
+        this.entities = EntitySet.of(entities);
 
         this.startFrame = startFrame;
         this.endFrame = endFrame;
@@ -31,17 +34,17 @@ public class MaximalGroup {
     }
 
     public MaximalGroup(List<Integer> entities, int startFrame) {
-        this.entities = entities;
+        this.entities = EntitySet.of(entities);
         this.startFrame = startFrame;
         this.endFrame = -1;
     }
 
-    public List<Integer> getEntities() {
+    public EntitySet getEntities() {
         return this.entities;
     }
 
     public void setEntities(List<Integer> entities) {
-        this.entities = entities;
+        this.entities = EntitySet.of(entities);
     }
 
     public int getStartFrame() {
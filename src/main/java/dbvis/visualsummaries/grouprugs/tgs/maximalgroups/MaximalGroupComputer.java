@@ -2,12 +2,11 @@ package dbvis.visualsummaries.grouprugs.tgs.maximalgroups;
 
 import java.util.List;
 
+import dbvis.visualsummaries.grouprugs.tgs.EntitySet;
 import dbvis.visualsummaries.grouprugs.tgs.reebgraph.REdge;
 import dbvis.visualsummaries.grouprugs.tgs.reebgraph.RVertex;
 import dbvis.visualsummaries.grouprugs.tgs.reebgraph.ReebGraph;
 
-import java.util.ArrayList;
-
 /**
  * The MaximalGroupComputer class is responsible for computing the maximal
  * groups for the edges of the Reeb graph. The computation of maximal groups is
@@ -57,7 +56,7 @@ public class MaximalGroupComputer {
 
         for (REdge e : v.getOutEdges()) {
 
-            List<Integer> entities = e.getComponent();
+            EntitySet entities = e.getComponent();
             int frame = v.getFrame();
 
             e.addMaximalGroup(entities, frame);
@@ -85,11 +84,11 @@ public class MaximalGroupComputer {
         List<MaximalGroup> maximalGroups2 = inEdge2.getMaximalGroups();
 
         // Get the component of inEdge1 and inEdge2
-        List<Integer> component1 = inEdge1.getComponent();
-        List<Integer> component2 = inEdge2.getComponent();
+        EntitySet component1 = inEdge1.getComponent();
+        EntitySet component2 = inEdge2.getComponent();
 
         // new_component = component1 U component2
-        List<Integer> newComponent = union(component1, component2);
+        EntitySet newComponent = component1.union(component2);
 
         // New maximal group starting at this vertex
         MaximalGroup newMaximalGroup = new MaximalGroup(newComponent, frame);
@@ -117,7 +116,7 @@ public class MaximalGroupComputer {
         for (REdge outEdge : v.getOutEdges()) {
 
             // Get the component of the outgoing edge
-            List<Integer> component = outEdge.getComponent();
+            EntitySet component = outEdge.getComponent();
 
             for (MaximalGroup maximalGroup : maximalGroups) {
                 handleSplitVertexUtil(component, outEdge, maximalGroup, maximalGroups);
@@ -127,16 +126,16 @@ public class MaximalGroupComputer {
 
     }
 
-    private static void handleSplitVertexUtil(List<Integer> component, REdge outEdge,
+    private static void handleSplitVertexUtil(EntitySet component, REdge outEdge,
             MaximalGroup maximalGroup,
             List<MaximalGroup> maximalGroups) {
 
         // Get the intersection of the component of the outgoing edge and the entities
         // of the maximal group
-        List<Integer> intersection = intersection(component, maximalGroup.getEntities());
+        EntitySet intersection = component.intersection(maximalGroup.getEntities());
 
         // Case 1: maximal group is fully contained in component of the outgoing edge
-        if (intersection.containsAll(maximalGroup.getEntities())) {
+        if (intersection.size() == maximalGroup.getEntities().size()) {
             outEdge.addMaximalGroup(maximalGroup);
 
             // Case 2: maximal group is partially contained in the component of the outgoing
@@ -155,8 +154,7 @@ public class MaximalGroupComputer {
             // Check if outEdge already has a group with the exact same entities
             boolean alreadyExists = false;
             for (MaximalGroup group : maximalGroups) {
-                if (group.getEntities().containsAll(newMaximalGroup.getEntities())
-                        && newMaximalGroup.getEntities().containsAll(group.getEntities())) {
+                if (group.getEntities().hasSameEntities(newMaximalGroup.getEntities())) {
 
                     if (group.getStartFrame() > newMaximalGroup.getStartFrame()) {
                         group.setStartFrame(newMaximalGroup.getStartFrame());
@@ -192,52 +190,4 @@ public class MaximalGroupComputer {
 
     }
 
-    /**
-     * Function computes the union of 2 lists.
-     * 
-     * @param component1 The first list.
-     * @param component2 The second list.
-     * @return The union of the 2 lists.
-     */
-    private static List<Integer> union(List<Integer> component1, List<Integer> component2) {
-
-        List<Integer> union = new ArrayList<>();
-
-        for (Integer i : component1) {
-            if (!union.contains(i)) {
-                union.add(i);
-            }
-        }
-
-        for (Integer i : component2) {
-            if (!union.contains(i)) {
-                union.add(i);
-            }
-        }
-
-        return union;
-
-    }
-
-    /**
-     * Function computes the intersection of 2 lists.
-     * 
-     * @param component1 The first list.
-     * @param component2 The second list.
-     * @return The intersection of the 2 lists.
-     */
-    private static List<Integer> intersection(List<Integer> component1, List<Integer> component2) {
-
-        List<Integer> intersection = new ArrayList<>();
-
-        for (Integer i : component1) {
-            if (component2.contains(i)) {
-                intersection.add(i);
-            }
-        }
-
-        return intersection;
-
-    }
-
 }
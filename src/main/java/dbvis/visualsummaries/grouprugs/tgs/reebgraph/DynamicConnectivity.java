@@ -0,0 +1,722 @@
+package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fully dynamic connectivity on a fixed set of vertices 0..n-1, following Holm,
+ * de Lichtenberg and Thorup (2001).
+ *
+ * Every edge has a level between 0 and log n. F_i is a spanning forest of the
+ * edges with level at least i, with F_0 spanning the whole graph, and each
+ * forest is stored as Euler tours in treaps. Inserting an edge and connectivity
+ * queries take O(log n). Deleting a tree edge searches the smaller of the two
+ * remaining trees for a replacement, promoting the edges it visits so that the
+ * total amortized cost of a deletion is O(log^2 n).
+ *
+ * Parallel edges are counted, so an edge only disappears when it has been
+ * removed as often as it has been added.
+ */
+class DynamicConnectivity {
+
+    private static final int TREE = 0;
+    private static final int NON_TREE = 1;
+
+    private static final long NO_EDGE = -1L;
+    private static final long ONE = 1L << 32;
+
+    private final int numVertices;
+    private final int numLevels;
+
+    // Euler tour node of every vertex in every forest, created lazily.
+    private final Node[][] vertexNodes;
+
+    // Tree and non-tree edges incident to a vertex, per level.
+    private final IntSet[][] treeEdges;
+    private final IntSet[][] nonTreeEdges;
+
+    // Multiplicity, level and tree flag of every edge.
+    private final LongLongMap edges;
+
+    // Euler tour arcs of every tree edge, two per level.
+    private final Map<Long, Node[]> arcs;
+
+    private int seed = 0x2545F491;
+
+    /**
+     * Creates a graph without edges.
+     *
+     * @param numVertices The number of vertices.
+     */
+    DynamicConnectivity(int numVertices) {
+        this.numVertices = numVertices;
+        // floor(log2 n) + 1 levels are needed, one more keeps promotions in range.
+        this.numLevels = 34 - Integer.numberOfLeadingZeros(Math.max(1, numVertices));
+
+        this.vertexNodes = new Node[numLevels][numVertices];
+        this.treeEdges = new IntSet[numLevels][numVertices];
+        this.nonTreeEdges = new IntSet[numLevels][numVertices];
+        this.edges = new LongLongMap();
+        this.arcs = new HashMap<>();
+    }
+
+    /**
+     * Returns whether a path exists between u and v.
+     */
+    boolean connected(int u, int v) {
+        return u == v || root(vertexNode(0, u)) == root(vertexNode(0, v));
+    }
+
+    /**
+     * Returns the number of vertices in the connected component of v.
+     */
+    int componentSize(int v) {
+        return root(vertexNode(0, v)).vertices;
+    }
+
+    /**
+     * Adds the vertices in the connected component of v to the given list, in no
+     * particular order.
+     */
+    void collectComponent(int v, List<Integer> component) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root(vertexNode(0, v)));
+
+        while (!stack.isEmpty()) {
+            Node t = stack.pop();
+            if (t.vertex >= 0) {
+                component.add(t.vertex);
+            }
+            if (t.left != null) {
+                stack.push(t.left);
+            }
+            if (t.right != null) {
+                stack.push(t.right);
+            }
+        }
+    }
+
+    /**
+     * Adds an edge between u and v.
+     */
+    void addEdge(int u, int v) {
+        if (u == v) {
+            return;
+        }
+
+        long key = edgeKey(u, v);
+        long info = edges.get(key);
+        if (info != NO_EDGE) {
+            edges.put(key, info + ONE);
+            return;
+        }
+
+        if (connected(u, v)) {
+            addNonTreeEdge(u, v, 0);
+            edges.put(key, encode(1, 0, false));
+        } else {
+            addTreeEdge(u, v, 0);
+            edges.put(key, encode(1, 0, true));
+        }
+    }
+
+    /**
+     * Removes an edge between u and v. Removing an edge that does not exist has no
+     * effect.
+     *
+     * @return true if u and v were connected before and are no longer connected
+     *         after removing the edge.
+     */
+    boolean removeEdge(int u, int v) {
+        long key = edgeKey(u, v);
+        long info = edges.get(key);
+        if (info == NO_EDGE) {
+            return false;
+        }
+
+        if (multiplicity(info) > 1) {
+            edges.put(key, info - ONE);
+            return false;
+        }
+        edges.remove(key);
+
+        int level = level(info);
+        if (!isTree(info)) {
+            removeNonTreeEdge(u, v, level);
+            return false;
+        }
+
+        removeTreeEdge(u, v, level);
+        return !replace(u, v, level);
+    }
+
+    /**
+     * Searches a replacement for the removed tree edge (u, v) of the given level.
+     * At each level, from the edge level down to 0, the smaller of the two trees
+     * is searched: its tree edges of that level are promoted first, then its
+     * non-tree edges of that level are either promoted (both ends in the smaller
+     * tree) or returned as replacement.
+     *
+     * @return true if a replacement edge was found.
+     */
+    private boolean replace(int u, int v, int level) {
+        for (int i = level; i >= 0; i--) {
+            Node rootU = root(vertexNode(i, u));
+            Node rootV = root(vertexNode(i, v));
+            Node small = rootU.vertices <= rootV.vertices ? rootU : rootV;
+
+            for (int w : collectFlagged(small, TREE)) {
+                for (int z : treeEdges[i][w].toArray()) {
+                    promoteTreeEdge(w, z, i);
+                }
+            }
+
+            for (int w : collectFlagged(small, NON_TREE)) {
+                IntSet candidates = nonTreeEdges[i][w];
+                if (candidates == null) {
+                    continue;
+                }
+
+                for (int z : candidates.toArray()) {
+                    if (!candidates.contains(z)) {
+                        continue;
+                    }
+
+                    long key = edgeKey(w, z);
+                    long info = edges.get(key);
+                    removeNonTreeEdge(w, z, i);
+
+                    if (root(vertexNode(i, z)) == small) {
+                        addNonTreeEdge(w, z, i + 1);
+                        edges.put(key, encode(multiplicity(info), i + 1, false));
+                    } else {
+                        addTreeEdge(w, z, i);
+                        edges.put(key, encode(multiplicity(info), i, true));
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void promoteTreeEdge(int w, int z, int level) {
+        treeEdges[level][w].remove(z);
+        treeEdges[level][z].remove(w);
+        refreshFlags(level, w);
+        refreshFlags(level, z);
+
+        adjacency(treeEdges, level + 1, w).add(z);
+        adjacency(treeEdges, level + 1, z).add(w);
+        refreshFlags(level + 1, w);
+        refreshFlags(level + 1, z);
+
+        long key = edgeKey(w, z);
+        Node[] edgeArcs = arcs.get(key);
+        link(level + 1, w, z, edgeArcs);
+
+        long info = edges.get(key);
+        edges.put(key, encode(multiplicity(info), level + 1, true));
+    }
+
+    private void addTreeEdge(int u, int v, int level) {
+        adjacency(treeEdges, level, u).add(v);
+        adjacency(treeEdges, level, v).add(u);
+        refreshFlags(level, u);
+        refreshFlags(level, v);
+
+        Node[] edgeArcs = new Node[2 * numLevels];
+        arcs.put(edgeKey(u, v), edgeArcs);
+        for (int j = 0; j <= level; j++) {
+            link(j, u, v, edgeArcs);
+        }
+    }
+
+    private void removeTreeEdge(int u, int v, int level) {
+        treeEdges[level][u].remove(v);
+        treeEdges[level][v].remove(u);
+        refreshFlags(level, u);
+        refreshFlags(level, v);
+
+        Node[] edgeArcs = arcs.remove(edgeKey(u, v));
+        for (int j = 0; j <= level; j++) {
+            cut(edgeArcs[2 * j], edgeArcs[2 * j + 1]);
+        }
+    }
+
+    private void addNonTreeEdge(int u, int v, int level) {
+        adjacency(nonTreeEdges, level, u).add(v);
+        adjacency(nonTreeEdges, level, v).add(u);
+        refreshFlags(level, u);
+        refreshFlags(level, v);
+    }
+
+    private void removeNonTreeEdge(int u, int v, int level) {
+        nonTreeEdges[level][u].remove(v);
+        nonTreeEdges[level][v].remove(u);
+        refreshFlags(level, u);
+        refreshFlags(level, v);
+    }
+
+    private IntSet adjacency(IntSet[][] sets, int level, int v) {
+        IntSet set = sets[level][v];
+        if (set == null) {
+            set = new IntSet();
+            sets[level][v] = set;
+        }
+        return set;
+    }
+
+    /**
+     * Updates the flags of the Euler tour node of v that mark whether v has tree or
+     * non-tree edges of the given level, and the aggregates above it.
+     */
+    private void refreshFlags(int level, int v) {
+        IntSet tree = treeEdges[level][v];
+        IntSet nonTree = nonTreeEdges[level][v];
+
+        Node node = vertexNode(level, v);
+        node.treeFlag = tree != null && !tree.isEmpty();
+        node.nonTreeFlag = nonTree != null && !nonTree.isEmpty();
+
+        for (Node t = node; t != null; t = t.parent) {
+            update(t);
+        }
+    }
+
+    /**
+     * Returns the vertices in the tree with the given root whose tree (or
+     * non-tree) flag is set.
+     */
+    private int[] collectFlagged(Node root, int type) {
+        IntSet result = new IntSet();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            Node t = stack.pop();
+            if (!(type == TREE ? t.anyTree : t.anyNonTree)) {
+                continue;
+            }
+            if (type == TREE ? t.treeFlag : t.nonTreeFlag) {
+                result.add(t.vertex);
+            }
+            if (t.left != null) {
+                stack.push(t.left);
+            }
+            if (t.right != null) {
+                stack.push(t.right);
+            }
+        }
+
+        return result.toArray();
+    }
+
+    private Node vertexNode(int level, int v) {
+        Node node = vertexNodes[level][v];
+        if (node == null) {
+            node = new Node(v, nextPriority());
+            vertexNodes[level][v] = node;
+        }
+        return node;
+    }
+
+    private int nextPriority() {
+        // xorshift32
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    /*
+     * Euler tour operations. A tree is stored as the sequence of its Euler tour,
+     * with one node per vertex and one node per direction of every tree edge.
+     */
+
+    private void link(int level, int u, int v, Node[] edgeArcs) {
+        Node uv = new Node(-1, nextPriority());
+        Node vu = new Node(-1, nextPriority());
+        edgeArcs[2 * level] = uv;
+        edgeArcs[2 * level + 1] = vu;
+
+        Node tourU = reroot(vertexNode(level, u));
+        Node tourV = reroot(vertexNode(level, v));
+
+        joinRoots(joinRoots(joinRoots(tourU, uv), tourV), vu);
+    }
+
+    private void cut(Node first, Node second) {
+        Node root = root(first);
+        int p1 = position(first);
+        int p2 = position(second);
+        if (p1 > p2) {
+            int tmp = p1;
+            p1 = p2;
+            p2 = tmp;
+        }
+
+        // tour = A first B second C, B becomes a tree of its own.
+        Node[] a = splitRoot(root, p1);
+        Node[] b = splitRoot(a[1], 1);
+        Node[] c = splitRoot(b[1], p2 - p1 - 1);
+        Node[] d = splitRoot(c[1], 1);
+
+        joinRoots(a[0], d[1]);
+    }
+
+    private Node reroot(Node node) {
+        Node[] parts = splitRoot(root(node), position(node));
+        return joinRoots(parts[1], parts[0]);
+    }
+
+    private static Node root(Node node) {
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return node;
+    }
+
+    private static int position(Node node) {
+        int pos = size(node.left);
+        for (Node child = node, p = node.parent; p != null; child = p, p = p.parent) {
+            if (p.right == child) {
+                pos += size(p.left) + 1;
+            }
+        }
+        return pos;
+    }
+
+    private static int size(Node t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static void update(Node t) {
+        t.size = 1;
+        t.vertices = t.vertex >= 0 ? 1 : 0;
+        t.anyTree = t.treeFlag;
+        t.anyNonTree = t.nonTreeFlag;
+
+        if (t.left != null) {
+            t.size += t.left.size;
+            t.vertices += t.left.vertices;
+            t.anyTree |= t.left.anyTree;
+            t.anyNonTree |= t.left.anyNonTree;
+        }
+        if (t.right != null) {
+            t.size += t.right.size;
+            t.vertices += t.right.vertices;
+            t.anyTree |= t.right.anyTree;
+            t.anyNonTree |= t.right.anyNonTree;
+        }
+    }
+
+    private static Node joinRoots(Node a, Node b) {
+        Node t = join(a, b);
+        if (t != null) {
+            t.parent = null;
+        }
+        return t;
+    }
+
+    private static Node join(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+
+        if (a.priority > b.priority) {
+            a.right = join(a.right, b);
+            a.right.parent = a;
+            update(a);
+            return a;
+        } else {
+            b.left = join(a, b.left);
+            b.left.parent = b;
+            update(b);
+            return b;
+        }
+    }
+
+    /**
+     * Splits the tour with the given root into the first k nodes and the rest.
+     */
+    private static Node[] splitRoot(Node t, int k) {
+        Node[] parts = split(t, k);
+        if (parts[0] != null) {
+            parts[0].parent = null;
+        }
+        if (parts[1] != null) {
+            parts[1].parent = null;
+        }
+        return parts;
+    }
+
+    private static Node[] split(Node t, int k) {
+        if (t == null) {
+            return new Node[2];
+        }
+
+        if (k <= size(t.left)) {
+            Node[] parts = split(t.left, k);
+            t.left = parts[1];
+            if (t.left != null) {
+                t.left.parent = t;
+            }
+            update(t);
+            parts[1] = t;
+            return parts;
+        } else {
+            Node[] parts = split(t.right, k - size(t.left) - 1);
+            t.right = parts[0];
+            if (t.right != null) {
+                t.right.parent = t;
+            }
+            update(t);
+            parts[0] = t;
+            return parts;
+        }
+    }
+
+    /*
+     * Edge bookkeeping: multiplicity in the upper 32 bits, level and tree flag in
+     * the lower bits.
+     */
+
+    private static long edgeKey(int u, int v) {
+        return ((long) Math.min(u, v) << 32) | Math.max(u, v);
+    }
+
+    private static long encode(long multiplicity, int level, boolean tree) {
+        return (multiplicity << 32) | ((long) level << 1) | (tree ? 1 : 0);
+    }
+
+    private static long multiplicity(long info) {
+        return info >>> 32;
+    }
+
+    private static int level(long info) {
+        return (int) ((info & 0xFFFFFFFFL) >>> 1);
+    }
+
+    private static boolean isTree(long info) {
+        return (info & 1) == 1;
+    }
+
+    /**
+     * Node of an Euler tour treap. Vertex nodes carry the vertex id, arc nodes -1.
+     */
+    private static final class Node {
+        final int vertex;
+        final int priority;
+
+        Node left;
+        Node right;
+        Node parent;
+
+        int size;
+        int vertices;
+
+        boolean treeFlag;
+        boolean nonTreeFlag;
+        boolean anyTree;
+        boolean anyNonTree;
+
+        Node(int vertex, int priority) {
+            this.vertex = vertex;
+            this.priority = priority;
+            update(this);
+        }
+    }
+
+    /**
+     * Open addressing set of non-negative ints.
+     */
+    private static final class IntSet {
+        private int[] keys = newTable(4);
+        private int size;
+
+        private static int[] newTable(int capacity) {
+            int[] table = new int[capacity];
+            Arrays.fill(table, -1);
+            return table;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean contains(int key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != -1; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean add(int key) {
+            if (2 * (size + 1) > keys.length) {
+                int[] old = keys;
+                keys = newTable(2 * old.length);
+                size = 0;
+                for (int k : old) {
+                    if (k != -1) {
+                        add(k);
+                    }
+                }
+            }
+
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != -1) {
+                if (keys[i] == key) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            size++;
+            return true;
+        }
+
+        boolean remove(int key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == -1) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+
+            // Backward shift deletion keeps probe sequences intact.
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == -1) {
+                    break;
+                }
+                int home = hash(keys[j]) & mask;
+                boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!between) {
+                    keys[i] = keys[j];
+                    i = j;
+                }
+            }
+            keys[i] = -1;
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            int n = 0;
+            for (int k : keys) {
+                if (k != -1) {
+                    result[n++] = k;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Open addressing map from non-negative longs to longs.
+     */
+    private static final class LongLongMap {
+        private long[] keys = newTable(16);
+        private long[] values = new long[16];
+        private int size;
+
+        private static long[] newTable(int capacity) {
+            long[] table = new long[capacity];
+            Arrays.fill(table, -1L);
+            return table;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != -1L; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return NO_EDGE;
+        }
+
+        void put(long key, long value) {
+            if (2 * (size + 1) > keys.length) {
+                long[] oldKeys = keys;
+                long[] oldValues = values;
+                keys = newTable(2 * oldKeys.length);
+                values = new long[2 * oldKeys.length];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != -1L) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != -1L) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == -1L) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == -1L) {
+                    break;
+                }
+                int home = hash(keys[j]) & mask;
+                boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!between) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            keys[i] = -1L;
+            size--;
+        }
+    }
+}
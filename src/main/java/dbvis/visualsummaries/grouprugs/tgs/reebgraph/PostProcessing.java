@@ -1,7 +1,12 @@
 package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class PostProcessing {
 
@@ -13,72 +18,177 @@ public class PostProcessing {
      * @return The post-processed ReebGraph.
      */
     public static ReebGraph postProcess(ReebGraph rg) {
-
-        // System.out.println(
-        // "edges before collapse: " + rg.getEdges().size() + ", vertices before
-        // collapse: "
-        // + rg.getVertices().size());
-
-        ReebGraph newRg = edgeCollapse(rg);
-
-        // System.out.println(
-        // "edges after collapse: " + newRg.getEdges().size() + ", vertices after
-        // collapse: "
-        // + newRg.getVertices().size());
-
-        return newRg;
+        return edgeCollapse(rg);
     }
 
     /**
      * Collapses edges that connect vertices u and v which take place in the same
-     * frame. The function takes the first vertex u in the topological order, and
-     * copies v's outgoing edges to u. Then it removes v and all edges connected to
-     * v.
+     * frame. The function takes the first vertex u in the order of the vertex
+     * list, and copies v's outgoing edges to u. Then it removes v and all edges
+     * connected to v.
      * 
+     * The first round visits every vertex. A collapse only gives new outgoing
+     * edges to u and to the sources of v's incoming edges, so every next round
+     * only visits the vertices that got new edges in the previous round, in the
+     * order of the vertex list. Removed vertices and edges are dropped from the
+     * graph and everything is renumbered once at the end.
+     * 
+     * Collapsing an edge of a same-frame cycle would give u an edge to itself;
+     * such edges are dropped instead of collapsed, so u is never removed.
      * 
      * @param rg The ReebGraph to be processed.
      * @return The ReebGraph with collapsed edges.
      */
     private static ReebGraph edgeCollapse(ReebGraph rg) {
 
-        int edges_collapsed;
-
-        do {
-            boolean[] visited = new boolean[rg.getVertices().size()];
+        List<RVertex> vertices = rg.getVertices();
+        Collapser collapser = new Collapser(vertices);
 
-            edges_collapsed = 0;
+        List<RVertex> worklist = new ArrayList<>(vertices);
 
-            // Get list of Reeb vertices
-            List<RVertex> vertices = new ArrayList<>(rg.getVertices());
+        while (!worklist.isEmpty()) {
 
-            for (RVertex v : vertices) {
+            for (RVertex v : worklist) {
 
-                if (visited[v.getId()]) {
+                if (collapser.isRemoved(v)) {
                     continue;
                 }
 
-                visited[v.getId()] = true;
-
                 List<REdge> outEdges = new ArrayList<>(v.getOutEdges());
                 for (REdge e : outEdges) {
+                    if (collapser.isRemoved(e)) {
+                        continue;
+                    }
                     if (v.getFrame() == e.getDest().getFrame()) {
-                        visited[e.getDest().getId()] = true;
-
-                        rg.collapseEdge(e);
-                        edges_collapsed++;
+                        collapser.collapseEdge(e);
                     }
                 }
 
             }
 
-            updateRVertexIds(rg);
-            updateREdgeIds(rg);
+            worklist = collapser.nextRound();
+        }
+
+        collapser.apply(rg);
 
-        } while (edges_collapsed > 0);
+        updateRVertexIds(rg);
+        updateREdgeIds(rg);
+        rg.reindex();
 
         return rg;
     }
 
+    /**
+     * Collapses edges as {@link ReebGraph#collapseEdge(REdge)}, but only marks
+     * the removed vertices and edges instead of removing them from the lists of
+     * the graph, does not create self-loops, and keeps track of the vertices that
+     * got new outgoing edges.
+     */
+    private static class Collapser {
+
+        private final List<RVertex> vertices;
+        private final Map<RVertex, Integer> positions = new IdentityHashMap<>();
+
+        private final Set<RVertex> removedVertices = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<REdge> removedEdges = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<REdge> newEdges = new ArrayList<>();
+
+        // Positions of the vertices that got new outgoing edges in this round
+        private final BitSet touched;
+
+        Collapser(List<RVertex> vertices) {
+            this.vertices = vertices;
+            this.touched = new BitSet(vertices.size());
+
+            for (int i = 0; i < vertices.size(); i++) {
+                positions.put(vertices.get(i), i);
+            }
+        }
+
+        boolean isRemoved(RVertex v) {
+            return removedVertices.contains(v);
+        }
+
+        boolean isRemoved(REdge e) {
+            return removedEdges.contains(e);
+        }
+
+        void collapseEdge(REdge e) {
+
+            RVertex src = e.getSource();
+            RVertex dest = e.getDest();
+
+            // Add outedges to src, skipping the edges back to src
+            List<REdge> outEdges = new ArrayList<>(dest.getOutEdges());
+
+            for (REdge e2 : outEdges) {
+                if (e2.getDest() == src) {
+                    continue;
+                }
+
+                newEdges.add(new REdge(src, e2.getDest(), -1, e2.getComponent()));
+                touched.set(positions.get(src));
+            }
+
+            // Add inedges to dest, skipping the edge to src
+            List<REdge> inEdges = new ArrayList<>(dest.getInEdges());
+
+            for (REdge e2 : inEdges) {
+                if (e2.getSource() == src) {
+                    continue;
+                }
+
+                newEdges.add(new REdge(e2.getSource(), src, -1, e2.getComponent()));
+                touched.set(positions.get(e2.getSource()));
+            }
+
+            // Remove all edges from dest
+            for (REdge e2 : outEdges) {
+                removeEdge(e2);
+            }
+
+            for (REdge e2 : inEdges) {
+                removeEdge(e2);
+            }
+
+            // Collapse edge e
+            removeEdge(e);
+
+            removedVertices.add(dest);
+        }
+
+        private void removeEdge(REdge e) {
+            e.getSource().getOutEdges().remove(e);
+            e.getDest().getInEdges().remove(e);
+            removedEdges.add(e);
+        }
+
+        /**
+         * Function ends a round.
+         * 
+         * @return The vertices to visit in the next round, in the order of the
+         *         vertex list.
+         */
+        List<RVertex> nextRound() {
+            List<RVertex> next = new ArrayList<>();
+            for (int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+                next.add(vertices.get(i));
+            }
+            touched.clear();
+            return next;
+        }
+
+        /**
+         * Function drops the removed vertices and edges from the graph and adds the
+         * new edges, in the order they were created.
+         */
+        void apply(ReebGraph rg) {
+            rg.getVertices().removeIf(removedVertices::contains);
+            rg.getEdges().addAll(newEdges);
+            rg.getEdges().removeIf(removedEdges::contains);
+        }
+    }
+
     /**
      * Updates the ids of the vertices in the ReebGraph.
      * 
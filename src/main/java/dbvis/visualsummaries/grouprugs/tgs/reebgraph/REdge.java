@@ -3,6 +3,7 @@ package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
 import java.util.ArrayList;
 import java.util.List;
 
+import dbvis.visualsummaries.grouprugs.tgs.EntitySet;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.MaximalGroup;
 
 /**
@@ -16,7 +17,7 @@ public class REdge {
     private RVertex dest;
     private int reebId;
     private List<MaximalGroup> maximalGroups;
-    private List<Integer> component;
+    private EntitySet component;
 
     /**
      * Constructor for the edge.
@@ -24,7 +25,8 @@ public class REdge {
      * @param source    The source vertex.
      * @param dest      The destination vertex.
      * @param reebId    The Reeb Id of the edge.
-     * @param component The connected component associated with the edge.
+     * @param component The connected component associated with the edge, shared
+     *                  if it is an EntitySet.
      */
     public REdge(RVertex source, RVertex dest, int reebId, List<Integer> component) {
         this.source = source;
@@ -32,7 +34,7 @@ public class REdge {
 
         this.reebId = reebId;
         this.maximalGroups = new ArrayList<MaximalGroup>();
-        this.component = component;
+        this.component = component == null ? null : EntitySet.of(component);
 
         // Add this edge as outgoing edge to the source vertex.
         source.addOutEdge(this);
@@ -116,7 +118,7 @@ public class REdge {
      * 
      * @return The component of the edge.
      */
-    public List<Integer> getComponent() {
+    public EntitySet getComponent() {
         return this.component;
     }
 
@@ -2,17 +2,34 @@ package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
 
 // General imports
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 
 /**
  * The Reeb Graph class.
+ * 
+ * Next to the vertex and edge lists, the graph keeps tables indexed by vertex id
+ * and by Reeb id, so that vertices and edges can be looked up in constant time
+ * while the graph is built. The tables are kept in sync by addVertex, addEdge,
+ * collapseEdge, removeVertex and removeEdge. Code that renumbers vertices or
+ * edges directly has to call {@link #reindex()} afterwards.
  */
 public class ReebGraph {
 
     private ArrayList<RVertex> vertices;
     private ArrayList<REdge> edges;
 
+    // vertexTable[id] is the vertex with that id, edgeTable[reebId] the first edge
+    // with that Reeb id.
+    private RVertex[] vertexTable = new RVertex[16];
+    private REdge[] edgeTable = new REdge[16];
+
+    // Largest vertex time, recomputed lazily after a vertex with that time is
+    // removed.
+    private double maxTime = 0;
+    private boolean maxTimeValid = true;
+
     /**
      * Constructor for the ReebGraph class.
      * 
@@ -44,7 +61,17 @@ public class ReebGraph {
      */
     public void addVertex(int id, double time, String type) {
         RVertex v = new RVertex(id, time, type);
+        addVertex(v);
+    }
+
+    /**
+     * Adds a vertex to the graph.
+     * 
+     * @param v The vertex to add.
+     */
+    private void addVertex(RVertex v) {
         vertices.add(v);
+        indexVertex(v);
     }
 
     /**
@@ -54,12 +81,10 @@ public class ReebGraph {
      * @return The vertex with the given id.
      */
     public RVertex getVertex(int id) {
-        for (RVertex v : vertices) {
-            if (v.getId() == id) {
-                return v;
-            }
+        if (id < 0 || id >= vertexTable.length) {
+            return null;
         }
-        return null;
+        return vertexTable[id];
     }
 
     /**
@@ -73,6 +98,7 @@ public class ReebGraph {
 
     public void setVertices(ArrayList<RVertex> vertices) {
         this.vertices = vertices;
+        reindex();
     }
 
     /**
@@ -102,7 +128,7 @@ public class ReebGraph {
         RVertex v2 = getVertex(id2);
 
         REdge e = new REdge(v1, v2, reebId, component);
-        edges.add(e);
+        addEdge(e);
     }
 
     /**
@@ -112,6 +138,21 @@ public class ReebGraph {
      */
     public void addEdge(REdge e) {
         edges.add(e);
+        indexEdge(e);
+    }
+
+    /**
+     * Returns the edge with the given Reeb id. Reeb ids are unique while the graph
+     * is built; if several edges share an id, the first one added is returned.
+     * 
+     * @param reebId The Reeb id of the edge.
+     * @return The edge with the given Reeb id, or null if there is none.
+     */
+    public REdge getEdge(int reebId) {
+        if (reebId < 0 || reebId >= edgeTable.length) {
+            return null;
+        }
+        return edgeTable[reebId];
     }
 
     /**
@@ -165,7 +206,17 @@ public class ReebGraph {
      * @param v The vertex to remove.
      */
     public void removeVertex(RVertex v) {
-        vertices.remove(v);
+        if (!vertices.remove(v)) {
+            return;
+        }
+
+        int id = v.getId();
+        if (id >= 0 && id < vertexTable.length && vertexTable[id] == v) {
+            vertexTable[id] = null;
+        }
+        if (v.getTime() >= maxTime) {
+            maxTimeValid = false;
+        }
     }
 
     /**
@@ -179,6 +230,11 @@ public class ReebGraph {
         e.getDest().getInEdges().remove(e);
 
         edges.remove(e);
+
+        int reebId = e.getReebId();
+        if (reebId >= 0 && reebId < edgeTable.length && edgeTable[reebId] == e) {
+            edgeTable[reebId] = null;
+        }
     }
 
     /**
@@ -197,16 +253,67 @@ public class ReebGraph {
      */
     public void setEdges(ArrayList<REdge> edges) {
         this.edges = edges;
+        reindex();
     }
 
+    /**
+     * Returns the largest frame of any vertex in the graph.
+     * 
+     * @return The largest timestamp, or 0 if the graph has no vertices.
+     */
     public int getMaxTimestamp() {
-        int max = 0;
+        if (!maxTimeValid) {
+            maxTime = 0;
+            for (RVertex v : vertices) {
+                maxTime = Math.max(maxTime, v.getTime());
+            }
+            maxTimeValid = true;
+        }
+        return (int) maxTime;
+    }
+
+    /**
+     * Rebuilds the vertex and edge tables from the vertex and edge lists. Has to be
+     * called after vertex ids or Reeb ids were changed outside of this class.
+     */
+    public void reindex() {
+        Arrays.fill(vertexTable, null);
+        Arrays.fill(edgeTable, null);
+        maxTime = 0;
+        maxTimeValid = true;
+
         for (RVertex v : vertices) {
-            if (v.getTime() > max) {
-                max = (int) v.getTime();
+            indexVertex(v);
+        }
+        for (REdge e : edges) {
+            indexEdge(e);
+        }
+    }
+
+    private void indexVertex(RVertex v) {
+        int id = v.getId();
+        if (id >= 0) {
+            if (id >= vertexTable.length) {
+                vertexTable = Arrays.copyOf(vertexTable, Math.max(id + 1, 2 * vertexTable.length));
             }
+            vertexTable[id] = v;
+        }
+
+        maxTime = Math.max(maxTime, v.getTime());
+    }
+
+    private void indexEdge(REdge e) {
+        int reebId = e.getReebId();
+        if (reebId < 0) {
+            return;
+        }
+
+        if (reebId >= edgeTable.length) {
+            edgeTable = Arrays.copyOf(edgeTable, Math.max(reebId + 1, 2 * edgeTable.length));
+        }
+        if (edgeTable[reebId] == null) {
+            edgeTable[reebId] = e;
         }
-        return max;
     }
 
     /**
@@ -291,7 +398,7 @@ public class ReebGraph {
 
             // Create a new vertex in the reeb graph
             RVertex vertex = new RVertex(vertexId, frame, RVertex.START_VERTEX);
-            vertices.add(vertex);
+            addVertex(vertex);
 
             // Make a list of ids of the vertices in the connected component
             List<Integer> vertexIds = new ArrayList<>();
@@ -301,7 +408,7 @@ public class ReebGraph {
 
             // Create new edge between vertex and null
             REdge edge = new REdge(vertex, null, reebId, vertexIds);
-            edges.add(edge);
+            addEdge(edge);
 
             // Set reebId of each vertex in connected component to reebId of reeb node.
             for (StatusGraph.Vertex v : component) {
@@ -1,9 +1,9 @@
 package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
 
 import java.util.List;
-import java.util.PriorityQueue;
 
 import dbvis.visualsummaries.grouprugs.events.Event;
+import dbvis.visualsummaries.grouprugs.events.EventLog;
 
 public class ReebGraphBuilder {
 
@@ -14,9 +14,9 @@ public class ReebGraphBuilder {
      * 
      * @param statusGraph The status graph.
      * @param reebGraph   The Reeb graph.
-     * @param events      The list of events.
+     * @param events      The events, which are processed in time order.
      */
-    public static ReebGraph build(StatusGraph statusGraph, PriorityQueue<Event> events,
+    public static ReebGraph build(StatusGraph statusGraph, EventLog events,
             int frameNum) {
 
         ReebGraph reebGraph = new ReebGraph(statusGraph);
@@ -112,43 +112,17 @@ public class ReebGraphBuilder {
         // Add edge between v1 and v2 (becomes 1 connected component)
         statusGraph.addEdge(v1, v2);
 
-        // Update Reeb ID for all vertices in the connected component
-        List<StatusGraph.Vertex> component1 = statusGraph.getConnectedComponent(v1.getReebId());
-        for (StatusGraph.Vertex v : component1) {
-            v.setReebId(currentReebEdgeId);
-        }
-
-        List<StatusGraph.Vertex> component2 = statusGraph.getConnectedComponent(v2.getReebId());
-        for (StatusGraph.Vertex v : component2) {
-            v.setReebId(currentReebEdgeId);
-        }
-
-        // new_component = component1 + component2
-        List<StatusGraph.Vertex> newComp = component1;
-        newComp.addAll(component2);
-
-        // Convert to vertex ids
-        List<Integer> newCompInt = statusGraph.getVertexIds(newComp);
-
-        // Find Reeb edge with reebId = prevReebId1
-        for (REdge e : reebGraph.getEdges()) {
-            if (e.getReebId() == prevReebEdgeId1) {
-
-                // Set this edge to have v2 = currentReebVertexId
-                e.setDestAddEdge(reebGraph.getVertex(currentReebVertexId));
-                break;
-            }
-        }
+        // Update Reeb ID of the merged connected component
+        v1.setReebId(currentReebEdgeId);
 
-        // Find Reeb edge with reebId = prevReebId2
-        for (REdge e : reebGraph.getEdges()) {
-            if (e.getReebId() == prevReebEdgeId2) {
+        // new_component = component1 + component2, as vertex ids
+        List<Integer> newCompInt = statusGraph.getComponentIds(v1);
 
-                // Set this edge to have v2 = currentReebVertexId
-                e.setDestAddEdge(reebGraph.getVertex(currentReebVertexId));
-                break;
-            }
-        }
+        // Set Reeb edges with reebId = prevReebId1 and prevReebId2 to have v2 =
+        // currentReebVertexId
+        RVertex mergeVertex = reebGraph.getVertex(currentReebVertexId);
+        closeEdge(reebGraph, prevReebEdgeId1, mergeVertex);
+        closeEdge(reebGraph, prevReebEdgeId2, mergeVertex);
 
         // Create new edge between newReebId and null
         reebGraph.addEdge(currentReebVertexId, -1, currentReebEdgeId, newCompInt);
@@ -200,66 +174,35 @@ public class ReebGraphBuilder {
 
         reebGraph.addVertex(currentReebVertexId, time, RVertex.SPLIT_VERTEX);
 
-        // Find the connected components that contain v1 and v2
-        List<List<StatusGraph.Vertex>> components = statusGraph.getConnectedComponents();
-
-        // Find the connected component that contains v1
-        List<StatusGraph.Vertex> component1 = null;
-        for (List<StatusGraph.Vertex> component : components) {
-            if (component.contains(v1)) {
-                component1 = component;
-                break;
-            }
-        }
-
-        // Find the connected component that contains v2
-        List<StatusGraph.Vertex> component2 = null;
-        for (List<StatusGraph.Vertex> component : components) {
-            if (component.contains(v2)) {
-                component2 = component;
-                break;
-            }
-        }
-
         // Update Reeb ID for new connected components
-        for (StatusGraph.Vertex v : component1) {
-            v.setReebId(currentReebEdgeId1);
-        }
-        for (StatusGraph.Vertex v : component2) {
-            v.setReebId(currentReebEdgeId2);
-        }
-
-        // Find Reeb edge with v1 = prevReebId and v2 = null and reebId =
-        // currentReebEdgeId1
-        for (REdge e : reebGraph.getEdges()) {
-            if (e.getReebId() == currentReebEdgeId1) {
-
-                // Set this edge to have v2 = currentReebVertexId
-                e.setDestAddEdge(reebGraph.getVertex(currentReebVertexId));
-
-                break;
-            }
-        }
-
-        // Find Reeb edge with reebId = prevReebId
-        for (REdge e : reebGraph.getEdges()) {
-            if (e.getReebId() == prevVertexReebId) {
+        v1.setReebId(currentReebEdgeId1);
+        v2.setReebId(currentReebEdgeId2);
 
-                // Set this edge to have v2 = currentReebVertexId
-                e.setDestAddEdge(reebGraph.getVertex(currentReebVertexId));
-
-                break;
-            }
-        }
+        // Set Reeb edge with reebId = prevReebId to have v2 = currentReebVertexId
+        closeEdge(reebGraph, prevVertexReebId, reebGraph.getVertex(currentReebVertexId));
 
-        List<Integer> component1Int = statusGraph.getVertexIds(component1);
-        List<Integer> component2Int = statusGraph.getVertexIds(component2);
+        List<Integer> component1Int = statusGraph.getComponentIds(v1);
+        List<Integer> component2Int = statusGraph.getComponentIds(v2);
 
         // Create new edges with only start vertex, end vertex is set to -1
         reebGraph.addEdge(currentReebVertexId, -1, currentReebEdgeId1, component1Int);
         reebGraph.addEdge(currentReebVertexId, -1, currentReebEdgeId2, component2Int);
     }
 
+    /**
+     * Function sets the destination of the Reeb edge with the given Reeb id.
+     * 
+     * @param reebGraph The Reeb graph.
+     * @param reebId    The Reeb id of the edge.
+     * @param dest      The destination vertex.
+     */
+    private static void closeEdge(ReebGraph reebGraph, int reebId, RVertex dest) {
+        REdge e = reebGraph.getEdge(reebId);
+        if (e != null) {
+            e.setDestAddEdge(dest);
+        }
+    }
+
     /**
      * Function to process the final edges in the Reeb graph: add destination
      * vertex.
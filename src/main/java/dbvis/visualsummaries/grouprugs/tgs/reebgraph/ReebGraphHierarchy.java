@@ -0,0 +1,131 @@
+package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reeb graphs of the same dataset for increasing epsilon thresholds.
+ *
+ * Entities within epsilon of each other are also within any larger epsilon, so
+ * the component of an edge is contained in a component of the graph of the
+ * next threshold at every moment. The parent of an edge is the edge of the next
+ * graph that contains its entities halfway through its lifetime.
+ */
+public class ReebGraphHierarchy {
+
+    private final double[] epsilons;
+    private final List<ReebGraph> graphs;
+    private final List<Map<REdge, REdge>> parents;
+
+    /**
+     * @param epsilons The thresholds, sorted ascending.
+     * @param graphs   The Reeb graph per threshold.
+     */
+    public ReebGraphHierarchy(double[] epsilons, List<ReebGraph> graphs) {
+        if (epsilons.length != graphs.size()) {
+            throw new IllegalArgumentException("Expected one Reeb graph per epsilon.");
+        }
+
+        this.epsilons = epsilons;
+        this.graphs = graphs;
+        this.parents = new ArrayList<>();
+
+        for (int level = 0; level + 1 < graphs.size(); level++) {
+            parents.add(computeParents(graphs.get(level), graphs.get(level + 1)));
+        }
+    }
+
+    public int getLevels() {
+        return graphs.size();
+    }
+
+    public double getEpsilon(int level) {
+        return epsilons[level];
+    }
+
+    public ReebGraph getReebGraph(int level) {
+        return graphs.get(level);
+    }
+
+    /**
+     * Returns the edge of the next level that contains the given edge.
+     *
+     * @param level The level of the edge.
+     * @param edge  The edge.
+     * @return The parent edge, or null on the last level or if the edge has no
+     *         entities.
+     */
+    public REdge getParent(int level, REdge edge) {
+        if (level + 1 >= graphs.size()) {
+            return null;
+        }
+        return parents.get(level).get(edge);
+    }
+
+    /**
+     * Function maps every edge of a graph to the edge of the coarser graph that
+     * holds its first entity halfway through its lifetime.
+     *
+     * @param fine   The graph of the smaller threshold.
+     * @param coarse The graph of the larger threshold.
+     * @return The parent of every edge of the fine graph.
+     */
+    private static Map<REdge, REdge> computeParents(ReebGraph fine, ReebGraph coarse) {
+
+        // Edges of the coarse graph per entity, sorted by start time
+        Map<Integer, List<REdge>> edgesPerEntity = new HashMap<>();
+        for (REdge e : coarse.getEdges()) {
+            if (e.getComponent() == null) {
+                continue;
+            }
+            for (int entity : e.getComponent()) {
+                edgesPerEntity.computeIfAbsent(entity, k -> new ArrayList<>()).add(e);
+            }
+        }
+        for (List<REdge> edges : edgesPerEntity.values()) {
+            edges.sort((a, b) -> Double.compare(a.getSource().getTime(), b.getSource().getTime()));
+        }
+
+        Map<REdge, REdge> parents = new IdentityHashMap<>();
+        for (REdge e : fine.getEdges()) {
+            if (e.getComponent() == null || e.getComponent().isEmpty()) {
+                continue;
+            }
+
+            List<REdge> candidates = edgesPerEntity.get(e.getComponent().get(0));
+            if (candidates == null) {
+                continue;
+            }
+
+            // An entity is in one edge at a time: take the last edge that starts
+            // before the time
+            double time = (e.getSource().getTime() + endTime(e)) / 2;
+            int lo = 0;
+            int hi = candidates.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (candidates.get(mid).getSource().getTime() <= time) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            REdge parent = null;
+            if (lo > 0 && endTime(candidates.get(lo - 1)) >= time) {
+                parent = candidates.get(lo - 1);
+            }
+            parents.put(e, parent);
+        }
+
+        return parents;
+    }
+
+    private static double endTime(REdge e) {
+        return e.getDest() == null ? Double.POSITIVE_INFINITY : e.getDest().getTime();
+    }
+
+}
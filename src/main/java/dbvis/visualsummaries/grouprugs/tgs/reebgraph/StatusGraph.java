@@ -1,20 +1,36 @@
 package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
 
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import dbvis.visualsummaries.data.*;
 import dbvis.visualsummaries.grouprugs.tgs.Utils;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * The status graph holds the entities of the current frame, with an edge between
+ * every pair of entities that are within epsilon of each other.
+ *
+ * Connectivity is maintained incrementally: edges are stored in a
+ * {@link DynamicConnectivity} structure and every vertex points to the component
+ * it belongs to. Components carry the Reeb id of the Reeb edge they belong to, so
+ * connectivity queries and relabelling a component take constant time. When
+ * components merge the vertices of the smaller one are moved to the larger one,
+ * and when a component splits only the vertices of the smaller side get a new
+ * component.
+ */
 public class StatusGraph {
     private ArrayList<StatusGraph.Vertex> vertices;
+    private Map<Integer, StatusGraph.Vertex> verticesById;
+    private DynamicConnectivity connectivity;
     double epsilon;
 
     public StatusGraph(DataPoint[] firstFrame, double epsilon) {
         this.vertices = new ArrayList<>();
+        this.verticesById = new HashMap<>();
         this.epsilon = epsilon;
 
         // Call initialize function
@@ -32,18 +48,20 @@ public class StatusGraph {
         private int id;
         private double x;
         private double y;
-        private int reebId;
 
-        // Adjacency list of the vertex
-        private List<Vertex> neighbors;
+        // Position of the vertex in the vertex list, used by the connectivity
+        // structure.
+        private int index;
+
+        // Connected component the vertex belongs to.
+        private Component component;
 
         public Vertex(int id, double x, double y) {
             this.id = id;
             this.x = x;
             this.y = y;
 
-            this.reebId = -1;
-            this.neighbors = new ArrayList<>();
+            this.component = new Component(-1);
         }
 
         public int getId() {
@@ -58,18 +76,33 @@ public class StatusGraph {
             return this.y;
         }
 
+        /**
+         * Returns the Reeb id of the connected component of this vertex.
+         */
         public int getReebId() {
-            return this.reebId;
+            return this.component.reebId;
         }
 
+        /**
+         * Sets the Reeb id of the connected component of this vertex.
+         */
         public void setReebId(int reebId) {
-            this.reebId = reebId;
+            this.component.reebId = reebId;
         }
 
-        public List<Vertex> getNeighbors() {
-            return neighbors;
-        }
+    }
 
+    /**
+     * A connected component of the status graph.
+     */
+    private static class Component {
+        private int reebId;
+        private int size;
+
+        Component(int reebId) {
+            this.reebId = reebId;
+            this.size = 1;
+        }
     }
 
     /**
@@ -107,6 +140,8 @@ public class StatusGraph {
             addVertex(vertex);
         }
 
+        this.connectivity = new DynamicConnectivity(vertices.size());
+
         // For each pair of vertices in the graph
         for (int i = 0; i < vertices.size(); i++) {
             StatusGraph.Vertex v1 = vertices.get(i);
@@ -124,46 +159,69 @@ public class StatusGraph {
 
     }
 
-    public void addVertex(StatusGraph.Vertex vertex) {
+    /**
+     * Adds a vertex to the graph. Vertices can only be added during
+     * initialization, before the connectivity structure is created.
+     */
+    private void addVertex(StatusGraph.Vertex vertex) {
+        vertex.index = vertices.size();
         vertices.add(vertex);
+        verticesById.put(vertex.getId(), vertex);
     }
 
     /**
-     * Add an edge between two vertices.
+     * Add an edge between two vertices. If the vertices were in different
+     * components, the vertices of the smaller component are moved to the larger
+     * one, which keeps its Reeb id.
      * 
      * @param v1 The first vertex.
      * @param v2 The second vertex.
      */
     public void addEdge(StatusGraph.Vertex v1, StatusGraph.Vertex v2) {
 
-        v1.getNeighbors().add(v2);
-        v2.getNeighbors().add(v1);
+        if (v1.component != v2.component) {
+            StatusGraph.Vertex small = v1.component.size < v2.component.size ? v1 : v2;
+            StatusGraph.Vertex large = small == v1 ? v2 : v1;
+
+            Component target = large.component;
+            target.size += small.component.size;
+            for (StatusGraph.Vertex v : getComponentVertices(small)) {
+                v.component = target;
+            }
+        }
 
+        connectivity.addEdge(v1.index, v2.index);
     }
 
     /**
-     * Remove an edge between two vertices.
+     * Remove an edge between two vertices. If this disconnects the vertices, the
+     * vertices on the smaller side are moved to a new component, which starts out
+     * with the Reeb id of the old one.
      * 
      * @param v1 The first vertex.
      * @param v2 The second vertex.
      */
     public void removeEdge(StatusGraph.Vertex v1, StatusGraph.Vertex v2) {
 
-        if (v1.getNeighbors().contains(v2)) {
-            v1.getNeighbors().remove(v2);
-            v2.getNeighbors().remove(v1);
-        }
+        if (connectivity.removeEdge(v1.index, v2.index)) {
+            int size1 = connectivity.componentSize(v1.index);
+            int size2 = connectivity.componentSize(v2.index);
+            StatusGraph.Vertex small = size1 <= size2 ? v1 : v2;
 
-    }
+            Component source = small.component;
+            Component split = new Component(source.reebId);
+            split.size = Math.min(size1, size2);
+            source.size -= split.size;
 
-    public StatusGraph.Vertex getVertex(int id) {
-        for (StatusGraph.Vertex vertex : vertices) {
-            if (vertex.getId() == id) {
-                return vertex;
+            for (StatusGraph.Vertex v : getComponentVertices(small)) {
+                v.component = split;
             }
         }
 
-        return null;
+    }
+
+    public StatusGraph.Vertex getVertex(int id) {
+        return verticesById.get(id);
     }
 
     /**
@@ -174,38 +232,48 @@ public class StatusGraph {
      * @return true if a path exists between the two vertices, false otherwise.
      */
     public boolean pathExists(StatusGraph.Vertex start, StatusGraph.Vertex end) {
-        Set<StatusGraph.Vertex> visited = new HashSet<>();
-
-        return path(start, end, visited);
+        return start.component == end.component;
     }
 
     /**
-     * Recursive function to check if a path exists between two vertices.
+     * Returns the number of vertices in the connected component of a vertex.
      * 
-     * @param current The current vertex.
-     * @param end     The end vertex.
-     * @param visited Set of visited vertices.
-     * @return true if a path exists between the two vertices, false otherwise.
+     * @param vertex The vertex.
+     * @return Size of the connected component.
      */
-    private boolean path(StatusGraph.Vertex current, StatusGraph.Vertex end, Set<StatusGraph.Vertex> visited) {
-
-        visited.add(current);
-
-        if (current.equals(end)) {
-            return true;
-        }
+    public int getComponentSize(StatusGraph.Vertex vertex) {
+        return vertex.component.size;
+    }
 
-        List<StatusGraph.Vertex> neighbors = current.getNeighbors();
+    /**
+     * Returns the vertices in the connected component of a vertex, in no
+     * particular order.
+     * 
+     * @param vertex The vertex.
+     * @return List of vertices in the connected component.
+     */
+    public List<StatusGraph.Vertex> getComponentVertices(StatusGraph.Vertex vertex) {
+        List<Integer> indices = new ArrayList<>(vertex.component.size);
+        connectivity.collectComponent(vertex.index, indices);
 
-        for (StatusGraph.Vertex neighbor : neighbors) {
-            if (!visited.contains(neighbor)) {
-                if (path(neighbor, end, visited)) {
-                    return true;
-                }
-            }
+        List<StatusGraph.Vertex> component = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            component.add(vertices.get(index));
         }
+        return component;
+    }
 
-        return false;
+    /**
+     * Returns the sorted ids of the vertices in the connected component of a
+     * vertex.
+     * 
+     * @param vertex The vertex.
+     * @return Sorted list of vertex ids.
+     */
+    public List<Integer> getComponentIds(StatusGraph.Vertex vertex) {
+        List<Integer> ids = getVertexIds(getComponentVertices(vertex));
+        Collections.sort(ids);
+        return ids;
     }
 
     /**
@@ -226,45 +294,27 @@ public class StatusGraph {
     }
 
     /**
-     * Get connected components of the graph.
+     * Get connected components of the graph. Components are ordered by their
+     * first vertex, and the vertices of a component are in insertion order.
      *
      * @return List of connected components, where each component is represented by
      *         a list of vertices.
      */
     public List<List<StatusGraph.Vertex>> getConnectedComponents() {
         List<List<StatusGraph.Vertex>> connectedComponents = new ArrayList<>();
-        Set<StatusGraph.Vertex> visited = new HashSet<>();
+        Map<Component, List<StatusGraph.Vertex>> componentLists = new HashMap<>();
 
         for (StatusGraph.Vertex vertex : vertices) {
-            if (!visited.contains(vertex)) {
-                List<StatusGraph.Vertex> component = new ArrayList<>();
-                exploreConnectedComponent(vertex, visited, component);
+            List<StatusGraph.Vertex> component = componentLists.get(vertex.component);
+            if (component == null) {
+                component = new ArrayList<>();
+                componentLists.put(vertex.component, component);
                 connectedComponents.add(component);
             }
+            component.add(vertex);
         }
 
         return connectedComponents;
     }
 
-    /**
-     * Explore a connected component of the graph.
-     *
-     * @param vertex    The vertex to start the exploration from.
-     * @param visited   Set of visited vertices.
-     * @param component List of vertices in the connected component.
-     */
-    private void exploreConnectedComponent(StatusGraph.Vertex vertex, Set<StatusGraph.Vertex> visited,
-            List<StatusGraph.Vertex> component) {
-        visited.add(vertex);
-        component.add(vertex);
-
-        List<StatusGraph.Vertex> neighbors = vertex.getNeighbors();
-
-        for (StatusGraph.Vertex neighbor : neighbors) {
-            if (!visited.contains(neighbor)) {
-                exploreConnectedComponent(neighbor, visited, component);
-            }
-        }
-    }
-
 }
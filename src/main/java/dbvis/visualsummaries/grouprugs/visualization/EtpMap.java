@@ -0,0 +1,186 @@
+package dbvis.visualsummaries.grouprugs.visualization;
+
+import java.util.Arrays;
+
+/**
+ * The entityToPosition map: the vertical position of every entity in every
+ * frame of a rug. The positions are stored in one flat int array, frame by
+ * frame; the position of entity e in frame f is at index f * entities + e.
+ *
+ * Entities that have not been placed in a frame yet (for instance in the
+ * frames that are later filled with motion lines) hold {@link #UNPLACED}.
+ */
+public class EtpMap {
+
+    /**
+     * Position of an entity that has not been placed.
+     */
+    public static final int UNPLACED = Integer.MIN_VALUE;
+
+    private final int frames;
+    private final int entities;
+    private final int[] positions;
+
+    /**
+     * Creates a map in which no entity is placed.
+     *
+     * @param frames   The number of frames.
+     * @param entities The number of entities.
+     */
+    public EtpMap(int frames, int entities) {
+        this(frames, entities, new int[frames * entities]);
+        Arrays.fill(positions, UNPLACED);
+    }
+
+    /**
+     * Creates a map backed by the given positions.
+     *
+     * @param frames    The number of frames.
+     * @param entities  The number of entities.
+     * @param positions The positions, [frame * entities + entity].
+     */
+    public EtpMap(int frames, int entities, int[] positions) {
+        if (positions.length != frames * entities) {
+            throw new IllegalArgumentException("Positions do not match " + frames + " frames of " + entities
+                    + " entities.");
+        }
+        this.frames = frames;
+        this.entities = entities;
+        this.positions = positions;
+    }
+
+    public int getFrameCount() {
+        return frames;
+    }
+
+    public int getEntityCount() {
+        return entities;
+    }
+
+    public int get(int frame, int entity) {
+        return positions[frame * entities + entity];
+    }
+
+    public void set(int frame, int entity, int position) {
+        positions[frame * entities + entity] = position;
+    }
+
+    /**
+     * Returns whether the entity has been placed in the frame.
+     */
+    public boolean isPlaced(int frame, int entity) {
+        return positions[frame * entities + entity] != UNPLACED;
+    }
+
+    /**
+     * Returns whether every entity has been placed in every frame.
+     */
+    public boolean isComplete() {
+        for (int position : positions) {
+            if (position == UNPLACED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a view of the positions in a single frame.
+     *
+     * @param frame The frame.
+     * @return The row of the frame, backed by this map.
+     */
+    public Row row(int frame) {
+        if (frame < 0 || frame >= frames) {
+            throw new IndexOutOfBoundsException("Frame " + frame + ", frames " + frames);
+        }
+        return new Row(frame * entities);
+    }
+
+    /**
+     * Returns the positions, [frame * entities + entity]. The array is shared
+     * with the map.
+     */
+    public int[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * Returns the positions of a frame as a new array.
+     *
+     * @param frame The frame.
+     * @return The position of every entity in the frame.
+     */
+    public int[] copyFrame(int frame) {
+        return Arrays.copyOfRange(positions, frame * entities, (frame + 1) * entities);
+    }
+
+    /**
+     * Returns the lowest and highest position of all placed entities.
+     *
+     * @return {min, max}, or {0, 0} if no entity is placed.
+     */
+    public int[] getMinMax() {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int position : positions) {
+            if (position == UNPLACED) {
+                continue;
+            }
+            min = Math.min(min, position);
+            max = Math.max(max, position);
+        }
+        return min > max ? new int[] { 0, 0 } : new int[] { min, max };
+    }
+
+    /**
+     * Converts a boxed entityToPosition array; null cells become
+     * {@link #UNPLACED}.
+     *
+     * @param etp The positions, etp[frame][entity].
+     * @return The map.
+     */
+    public static EtpMap fromArray(Integer[][] etp) {
+        int frames = etp.length;
+        int entities = frames > 0 ? etp[0].length : 0;
+        EtpMap map = new EtpMap(frames, entities);
+        for (int frame = 0; frame < frames; frame++) {
+            for (int entity = 0; entity < entities; entity++) {
+                Integer position = etp[frame][entity];
+                if (position != null) {
+                    map.set(frame, entity, position);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * The positions of the entities in one frame.
+     */
+    public class Row {
+
+        private final int offset;
+
+        private Row(int offset) {
+            this.offset = offset;
+        }
+
+        public int length() {
+            return entities;
+        }
+
+        public int get(int entity) {
+            return positions[offset + entity];
+        }
+
+        public void set(int entity, int position) {
+            positions[offset + entity] = position;
+        }
+
+        public boolean isPlaced(int entity) {
+            return positions[offset + entity] != UNPLACED;
+        }
+    }
+
+}
@@ -25,7 +25,7 @@ public class Interpolater {
      * @param data             Data points.
      */
     public static void interpolateCubic(
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             int mlWidth,
             int x0,
             int y0,
@@ -45,7 +45,7 @@ public class Interpolater {
 
             int yInt = (int) Math.floor(y);
 
-            entityToPosition[frame][entityId] = yInt;
+            entityToPosition.set(frame, entityId, yInt);
 
             alpha = (double) i / x2;
             alpha = alpha * alpha * (3 - 2 * alpha);
@@ -83,7 +83,7 @@ public class Interpolater {
      * @param data             Data points.
      */
     public static void interpolateNaturalSpline(
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             int mlWidth,
             int x0,
             int y0,
@@ -127,7 +127,7 @@ public class Interpolater {
 
             int yInt = (int) Math.floor(y);
 
-            entityToPosition[frame][entityId] = yInt;
+            entityToPosition.set(frame, entityId, yInt);
         }
 
     }
@@ -145,7 +145,7 @@ public class Interpolater {
      * @param data             Data points.
      */
     public static void interpolateBezierSpline(
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             int mlWidth,
             int x0,
             int y0,
@@ -157,10 +157,10 @@ public class Interpolater {
         // Edge case: if x0 == x2, take the value at x0 or x2
         if (x0 == x2) {
             if (x0 > 0) {
-                entityToPosition[x0][entityId] = y0;
+                entityToPosition.set(x0, entityId, y0);
                 return;
             } else {
-                entityToPosition[x0][entityId] = y2;
+                entityToPosition.set(x0, entityId, y2);
                 return;
             }
         }
@@ -187,7 +187,7 @@ public class Interpolater {
         for (int frame = x0; frame < x2; frame++) {
             double y = approximateYForX(cubic, frame, 0.01);
             int yInt = (int) Math.floor(y);
-            entityToPosition[frame][entityId] = yInt;
+            entityToPosition.set(frame, entityId, yInt);
         }
 
     }
@@ -212,7 +212,7 @@ public class Interpolater {
      * @param ENLARGEMENT_FACTOR The enlargement factor.
      */
     public static void interpolateBezierMotionLine(
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             int mlWidth,
             int x0,
             int y0,
@@ -228,10 +228,10 @@ public class Interpolater {
         // Edge case: if x0 == x2, take the value at x0 or x2
         if (x0 == x2) {
             if (x0 > 0) {
-                entityToPosition[x0][entityId] = y0;
+                entityToPosition.set(x0, entityId, y0);
                 return;
             } else {
-                entityToPosition[x0][entityId] = y2;
+                entityToPosition.set(x0, entityId, y2);
                 return;
             }
         }
@@ -282,7 +282,7 @@ public class Interpolater {
             double y_final = (1 - alpha) * y_bezier + alpha * y_scaled_proj;
 
             int yInt = (int) Math.floor(y_final);
-            entityToPosition[frame][entityId] = yInt;
+            entityToPosition.set(frame, entityId, yInt);
         }
 
     }
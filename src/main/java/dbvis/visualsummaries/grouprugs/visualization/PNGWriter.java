@@ -10,7 +10,6 @@ import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
-import dbvis.visualsummaries.color.TwoDColorMapper;
 import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.data.DataSet;
 import dbvis.visualsummaries.data.SessionData;
@@ -35,7 +34,7 @@ public class PNGWriter {
      * @return BufferedImage object.
      */
     public BufferedImage drawRugs(
-        Integer[][] etp,
+        EtpMap etp,
         SessionData sd, 
         String dsname, 
         int ENLARGEMENT_FACTOR, 
@@ -44,7 +43,6 @@ public class PNGWriter {
 
         DataSet current = sd.getDataset(dsname);
         DataPoint[][] data = current.getBaseData();
-        TwoDColorMapper twodcolormapper = initializeColorMapper(current);
 
         BufferedImage img;
 
@@ -54,23 +52,7 @@ public class PNGWriter {
             img = initializeImage(etp, ENLARGEMENT_FACTOR);
         }
 
-        for (int frame = 0; frame < etp.length; frame++) {
-
-            for (int entity = 0; entity < etp[0].length; entity++) {
-
-                // System.out.println("frame: " + frame + " entity: " + entity + " location: " +
-                // etp[frame][entity]);
-
-                int location = etp[frame][entity];
-
-                img.setRGB(frame, location,
-                        twodcolormapper
-                                .getColor1((int) Math.floor(data[frame][entity].getX()),
-                                        (int) Math.floor(data[frame][entity].getY()))
-                                .getRGB());
-
-            }
-        }
+        RugRasterizer.draw(img, etp, data, current, Runtime.getRuntime().availableProcessors());
 
         // Get image height and width
         int width = img.getWidth();
@@ -91,19 +73,71 @@ public class PNGWriter {
     }
 
     /**
-     * Function initializes the TwoDColorMapper object.
+     * Function draws the groupRugs as tiles and a zoom pyramid, see
+     * {@link TiledRugWriter}. The rug is never held in memory as a whole.
      * 
-     * @param current DataSet object.
-     * @return TwoDColorMapper object.
+     * @param etp                2D array of entity positions.
+     * @param sd                 SessionData object.
+     * @param dsname             Name of the dataset.
+     * @param ENLARGEMENT_FACTOR Enlargement factor.
+     * @param MR                 Whether the image is a MotionRug.
+     * @param directory          Directory the tiles are written to.
+     * @param tileWidth          Width of a tile in frames.
+     * @throws IOException if a tile could not be written.
      */
-    private TwoDColorMapper initializeColorMapper(DataSet current) {
-        TwoDColorMapper twodcolormapper = new TwoDColorMapper();
-        int maxx = (int) Math.ceil(current.getMax("x"));
-        int maxy = (int) Math.ceil(current.getMax("y"));
-        twodcolormapper.setScale(maxx, maxy);
+    public void drawRugTiles(
+            EtpMap etp,
+            SessionData sd,
+            String dsname,
+            int ENLARGEMENT_FACTOR,
+            boolean MR,
+            File directory,
+            int tileWidth) throws IOException {
 
-        return twodcolormapper;
+        DataSet current = sd.getDataset(dsname);
 
+        TiledRugWriter writer = new TiledRugWriter(
+                etp,
+                current.getBaseData(),
+                current,
+                getImageHeight(etp, ENLARGEMENT_FACTOR, MR),
+                !MR,
+                directory,
+                tileWidth,
+                Runtime.getRuntime().availableProcessors());
+        writer.write();
+    }
+
+    /**
+     * Function returns the height of the image of drawRugs.
+     * 
+     * @param etp                2D array of entity positions.
+     * @param ENLARGEMENT_FACTOR Enlargement factor.
+     * @param MR                 Whether the image is a MotionRug.
+     * @return Height in pixels.
+     */
+    public static int getImageHeight(EtpMap etp, int ENLARGEMENT_FACTOR, boolean MR) {
+
+        if (!MR) {
+            return ENLARGEMENT_FACTOR * etp.getEntityCount();
+        }
+
+        int BUFFER = 1;
+
+        // get max and min value in etp
+        int max = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < etp.getFrameCount(); i++) {
+            for (int j = 0; j < etp.getEntityCount(); j++) {
+                if (etp.get(i, j) > max) {
+                    max = etp.get(i, j);
+                } else if (etp.get(i, j) < min) {
+                    min = etp.get(i, j);
+                }
+            }
+        }
+
+        return (max + min) + BUFFER;
     }
 
     /**
@@ -113,16 +147,12 @@ public class PNGWriter {
      * @param ENLARGEMENT_FACTOR Enlargement factor.
      * @return BufferedImage object.
      */
-    private BufferedImage initializeImage(Integer[][] etp, int ENLARGEMENT_FACTOR) {
-        BufferedImage img = new BufferedImage(etp.length, ENLARGEMENT_FACTOR * etp[0].length,
+    private BufferedImage initializeImage(EtpMap etp, int ENLARGEMENT_FACTOR) {
+        BufferedImage img = new BufferedImage(etp.getFrameCount(), getImageHeight(etp, ENLARGEMENT_FACTOR, false),
                 BufferedImage.TYPE_INT_RGB);
 
         // Set background color to white
-        for (int i = 0; i < etp.length; i++) {
-            for (int j = 0; j < ENLARGEMENT_FACTOR * etp[0].length; j++) {
-                img.setRGB(i, j, 0xFFFFFF);
-            }
-        }
+        RugRasterizer.fill(img, 0xFFFFFF);
 
         return img;
     }
@@ -130,25 +160,11 @@ public class PNGWriter {
     /**
      * Initialize image
      */
-    private BufferedImage initializeImage2(Integer[][] etp) {
-
-        int BUFFER = 1;
-
-        // get max and min value in etp
-        int max = 0;
-        int min = Integer.MAX_VALUE;
-        for (int i = 0; i < etp.length; i++) {
-            for (int j = 0; j < etp[0].length; j++) {
-                if (etp[i][j] > max) {
-                    max = etp[i][j];
-                } else if (etp[i][j] < min) {
-                    min = etp[i][j];
-                }
-            }
-        }
+    private BufferedImage initializeImage2(EtpMap etp) {
 
         // create image
-        BufferedImage img = new BufferedImage(etp.length, (max + min) + BUFFER, BufferedImage.TYPE_INT_RGB);
+        BufferedImage img = new BufferedImage(etp.getFrameCount(), getImageHeight(etp, 0, true),
+                BufferedImage.TYPE_INT_RGB);
 
         return img;
 
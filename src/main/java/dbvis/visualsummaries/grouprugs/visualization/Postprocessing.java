@@ -3,6 +3,7 @@ package dbvis.visualsummaries.grouprugs.visualization;
 import java.util.ArrayList;
 import java.util.List;
 
+import dbvis.visualsummaries.data.Inversions;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.Component;
 
 public class Postprocessing {
@@ -15,41 +16,35 @@ public class Postprocessing {
      * @param components The maximal groups
      * @param etpMap     The entityToPosition map
      */
-    public static void postProcess(List<Component> components, Integer[][] etpMap) {
+    public static void postProcess(List<Component> components, EtpMap etpMap) {
 
         for (Component component : components) {
 
             int startFrame = component.getStartFrame();
             int endFrame = component.getEndFrame();
+            List<Integer> entities = component.getEntities();
+            if (endFrame <= startFrame) {
+                continue;
+            }
 
-            for (int frame = startFrame; frame < endFrame; frame++) {
-
-                int crossingsBefore = 0;
-                int crossingsAfter = 0;
-
-                // First pass to count crossings before and after swapping
-                for (int entity1 : component.getEntities()) {
-                    for (int entity2 : component.getEntities()) {
-
-                        if (entity1 == entity2) {
-                            continue;
-                        }
-
-                        int entity1Pos = etpMap[frame][entity1];
-                        int entity2Pos = etpMap[frame][entity2];
+            // Positions of the entities of the component in its frames
+            int[][] ranks = new int[endFrame - startFrame + 1][entities.size()];
+            for (int frame = startFrame; frame <= endFrame; frame++) {
+                for (int i = 0; i < entities.size(); i++) {
+                    ranks[frame - startFrame][i] = etpMap.get(frame, entities.get(i));
+                }
+            }
 
-                        int entity1PosNext = etpMap[frame + 1][entity1];
-                        int entity2PosNext = etpMap[frame + 1][entity2];
+            // Counted up front: the decision for a frame only depends on that frame
+            // and the next one, which have not been changed at that point. A component
+            // only spans a few entities, so the frames are counted without a pool
+            Inversions.Counts[] counts = Inversions.countFrames(ranks, 1);
+            long pairs = (long) entities.size() * (entities.size() - 1) / 2;
 
-                        if (entity1Pos < entity2Pos && entity1PosNext > entity2PosNext
-                                || entity1Pos > entity2Pos && entity1PosNext < entity2PosNext) {
-                            crossingsBefore++;
-                        } else {
-                            crossingsAfter++;
-                        }
+            for (int frame = startFrame; frame < endFrame; frame++) {
 
-                    }
-                }
+                long crossingsBefore = counts[frame - startFrame].getCrossings();
+                long crossingsAfter = pairs - crossingsBefore;
 
                 if (crossingsAfter < crossingsBefore) {
 
@@ -58,7 +53,7 @@ public class Postprocessing {
                     List<Integer> orderedPositions = new ArrayList<>();
                     for (int entity : component.getEntities()) {
                         currentOrder.add(entity);
-                        orderedPositions.add(etpMap[frame][entity]);
+                        orderedPositions.add(etpMap.get(frame, entity));
                     }
 
                     // Iterate through the current order map reversed
@@ -67,7 +62,7 @@ public class Postprocessing {
                         // position is orderedPositions.size - 1 - i
                         int position = orderedPositions.get(orderedPositions.size() - 1 - i);
 
-                        etpMap[frame][entity] = position; // Swap positions
+                        etpMap.set(frame, entity, position); // Swap positions
                     }
 
                 } // else do nothing
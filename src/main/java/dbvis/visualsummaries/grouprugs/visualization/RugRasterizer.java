@@ -0,0 +1,182 @@
+package dbvis.visualsummaries.grouprugs.visualization;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dbvis.visualsummaries.color.TwoDColorMapper;
+import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.DataSet;
+
+/**
+ * Draws the entities of an entity to position map into the int pixel buffer of
+ * a TYPE_INT_RGB image, instead of calling setRGB and allocating a Color per
+ * pixel.
+ *
+ * The 2D color map is read once per dataset into a lookup table. Frames are
+ * split into column stripes that are drawn in parallel; within a frame the
+ * entities are drawn in order, so the image is identical to drawing every
+ * pixel with setRGB.
+ */
+public class RugRasterizer {
+
+    private static final Map<DataSet, ColorTable> COLOR_TABLES = new WeakHashMap<>();
+
+    /**
+     * The color map of a dataset as packed RGB values, row by row.
+     */
+    static class ColorTable {
+
+        private final int[] colors;
+        private final int width;
+        private final int height;
+
+        ColorTable(TwoDColorMapper mapper) {
+            this.colors = mapper.getColorTable();
+            this.width = mapper.getScaledWidth();
+            this.height = mapper.getScaledHeight();
+        }
+
+        /**
+         * Returns the color of a data point, as TwoDColorMapper.getColor1 on the
+         * floored coordinates.
+         */
+        int getColor(DataPoint point) {
+            int x = (int) Math.floor(point.getX());
+            int y = (int) Math.floor(point.getY());
+            if (x < 0 || x >= width || y < 0 || y >= height) {
+                throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+            }
+            return colors[y * width + x];
+        }
+    }
+
+    /**
+     * Function returns the color lookup table of a dataset, which is created on
+     * first use.
+     *
+     * @param dataset The dataset.
+     * @return The color table scaled to the extent of the dataset.
+     */
+    static ColorTable getColorTable(DataSet dataset) {
+        synchronized (COLOR_TABLES) {
+            ColorTable table = COLOR_TABLES.get(dataset);
+            if (table == null) {
+                TwoDColorMapper mapper = new TwoDColorMapper();
+                int maxx = (int) Math.ceil(dataset.getMax("x"));
+                int maxy = (int) Math.ceil(dataset.getMax("y"));
+                mapper.setScale(maxx, maxy);
+                table = new ColorTable(mapper);
+                COLOR_TABLES.put(dataset, table);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Function draws every entity at its position in the column of its
+     * frame.
+     *
+     * @param img     The image, of type TYPE_INT_RGB and at least as wide as the
+     *                number of frames.
+     * @param etp     The entity to position map.
+     * @param data    The base data the colors are taken from, [frame][entity].
+     * @param dataset The dataset of the base data.
+     * @param threads The number of worker threads.
+     */
+    public static void draw(BufferedImage img, EtpMap etp, DataPoint[][] data, DataSet dataset, int threads) {
+        draw(img, etp, data, dataset, 0, etp.getFrameCount(), threads);
+    }
+
+    /**
+     * Function draws a range of frames; frame f is drawn in column f - from of
+     * the image.
+     *
+     * @param img     The image, of type TYPE_INT_RGB and at least to - from
+     *                pixels wide.
+     * @param etp     The entity to position map.
+     * @param data    The base data the colors are taken from, [frame][entity].
+     * @param dataset The dataset of the base data.
+     * @param from    The first frame to draw (inclusive).
+     * @param to      The last frame to draw (exclusive).
+     * @param threads The number of worker threads.
+     */
+    public static void draw(BufferedImage img, EtpMap etp, DataPoint[][] data, DataSet dataset, int from, int to,
+            int threads) {
+        if (img.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("Image must be of type TYPE_INT_RGB.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+
+        ColorTable colors = getColorTable(dataset);
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int frames = to - from;
+
+        if (threads == 1 || frames < 2) {
+            drawFrames(pixels, width, height, etp, data, colors, from, from, to);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int jobs = Math.min(frames, threads * 4);
+            int chunkSize = (frames + jobs - 1) / jobs;
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int lo = from; lo < to; lo += chunkSize) {
+                final int chunkFrom = lo;
+                final int chunkTo = Math.min(lo + chunkSize, to);
+                futures.add(executor.submit(
+                        () -> drawFrames(pixels, width, height, etp, data, colors, from, chunkFrom, chunkTo)));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Function fills the whole image with a single color.
+     *
+     * @param img The image, of type TYPE_INT_RGB.
+     * @param rgb The color.
+     */
+    public static void fill(BufferedImage img, int rgb) {
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, rgb & 0xFFFFFF);
+    }
+
+    private static void drawFrames(int[] pixels, int width, int height, EtpMap etp, DataPoint[][] data,
+            ColorTable colors, int firstFrame, int from, int to) {
+        int entities = etp.getEntityCount();
+        for (int frame = from; frame < to; frame++) {
+            EtpMap.Row positions = etp.row(frame);
+            int column = frame - firstFrame;
+            for (int entity = 0; entity < entities; entity++) {
+                int location = positions.get(entity);
+                if (column >= width || location < 0 || location >= height) {
+                    throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+                }
+                pixels[location * width + column] = colors.getColor(data[frame][entity]);
+            }
+        }
+    }
+
+}
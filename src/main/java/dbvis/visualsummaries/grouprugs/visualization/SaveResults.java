@@ -19,7 +19,7 @@ public class SaveResults {
      */
     public static void saveResults(
             BufferedImage img,
-            Integer[][] etp,
+            EtpMap etp,
             String directoryname) {
 
         // Define the path to save the results to
@@ -63,9 +63,9 @@ public class SaveResults {
             File etpFile = new File(resultsPath + "etp.csv");
             try {
                 BufferedWriter writer = new BufferedWriter(new FileWriter(etpFile));
-                for (int i = 0; i < etp.length; i++) {
-                    for (int j = 0; j < etp[0].length; j++) {
-                        writer.write(etp[i][j] + ",");
+                for (int i = 0; i < etp.getFrameCount(); i++) {
+                    for (int j = 0; j < etp.getEntityCount(); j++) {
+                        writer.write((etp.isPlaced(i, j) ? String.valueOf(etp.get(i, j)) : "null") + ",");
                     }
                     writer.write("\n");
                 }
@@ -84,7 +84,7 @@ public class SaveResults {
     public static void main(String[] args) {
         // Example usage
         BufferedImage exampleImage = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB); // Placeholder image
-        Integer[][] exampleEtpMap = { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 9 } }; // Placeholder ETP map
+        EtpMap exampleEtpMap = EtpMap.fromArray(new Integer[][] { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 9 } }); // Placeholder ETP map
         String exampleFilename = "example.png";
 
         saveResults(exampleImage, exampleEtpMap, exampleFilename);
@@ -0,0 +1,233 @@
+package dbvis.visualsummaries.grouprugs.visualization;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import javax.imageio.ImageIO;
+
+import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.DataSet;
+
+/**
+ * Writes a rug as a sequence of fixed-width PNG tiles plus a zoom pyramid, for
+ * recordings that are too wide for a single BufferedImage.
+ *
+ * Level 0 holds one pixel column per frame. Every next level halves the width:
+ * a column of level l + 1 is the average color of two neighbouring columns of
+ * level l, so it summarises 2^(l + 1) frames. Levels are added until a level
+ * fits in a single tile.
+ *
+ * Tile t of level l is written to [directory]/[l]/[t].png. The tiles are
+ * rendered one at a time and every level keeps at most one half-filled tile,
+ * so the full rug is never held in memory. The layout is described in
+ * {@link #INDEX_FILE}.
+ */
+public class TiledRugWriter {
+
+    public static final int DEFAULT_TILE_WIDTH = 4096;
+
+    public static final String INDEX_FILE = "tiles.properties";
+
+    // Distance between the white frame markers at the bottom of the rug
+    private static final int TICK_INTERVAL = 50;
+
+    private final EtpMap etp;
+    private final DataPoint[][] data;
+    private final DataSet dataset;
+    private final int height;
+    private final boolean whiteBackground;
+    private final File directory;
+    private final int tileWidth;
+    private final int threads;
+
+    // widths[l] is the number of columns of level l
+    private final int[] widths;
+    private final BufferedImage[] pending;
+
+    /**
+     * Creates a writer for the rug of an entity to position map.
+     *
+     * @param etp             The entity to position map.
+     * @param data            The base data the colors are taken from.
+     * @param dataset         The dataset of the base data.
+     * @param height          The height of the rug in pixels.
+     * @param whiteBackground Whether the background is white instead of black.
+     * @param directory       The directory the tiles are written to.
+     * @param tileWidth       The width of a tile in pixels, a positive even
+     *                        number.
+     * @param threads         The number of worker threads used to draw a tile.
+     */
+    public TiledRugWriter(
+            EtpMap etp,
+            DataPoint[][] data,
+            DataSet dataset,
+            int height,
+            boolean whiteBackground,
+            File directory,
+            int tileWidth,
+            int threads) {
+
+        if (tileWidth < 2 || tileWidth % 2 != 0) {
+            throw new IllegalArgumentException("Tile width must be a positive even number.");
+        }
+        this.etp = etp;
+        this.data = data;
+        this.dataset = dataset;
+        this.height = height;
+        this.whiteBackground = whiteBackground;
+        this.directory = directory;
+        this.tileWidth = tileWidth;
+        this.threads = threads;
+
+        int levels = 1;
+        for (int width = etp.getFrameCount(); width > tileWidth; width = (width + 1) / 2) {
+            levels++;
+        }
+        widths = new int[levels];
+        widths[0] = etp.getFrameCount();
+        for (int level = 1; level < levels; level++) {
+            widths[level] = (widths[level - 1] + 1) / 2;
+        }
+        pending = new BufferedImage[levels];
+    }
+
+    /**
+     * Returns the number of levels of the pyramid.
+     */
+    public int getLevelCount() {
+        return widths.length;
+    }
+
+    /**
+     * Returns the number of tiles of a level.
+     */
+    public int getTileCount(int level) {
+        return (widths[level] + tileWidth - 1) / tileWidth;
+    }
+
+    /**
+     * Function renders all tiles and levels and writes them and the index file to
+     * the directory.
+     *
+     * @throws IOException if a tile could not be written
+     */
+    public void write() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        for (int level = 0; level < widths.length; level++) {
+            File levelDir = new File(directory, String.valueOf(level));
+            if (!levelDir.exists() && !levelDir.mkdirs()) {
+                throw new IOException("Could not create " + levelDir);
+            }
+        }
+
+        int frames = etp.getFrameCount();
+        BufferedImage tile = null;
+        for (int t = 0; t < getTileCount(0); t++) {
+            int from = t * tileWidth;
+            int to = Math.min(from + tileWidth, frames);
+
+            if (tile == null || tile.getWidth() != to - from) {
+                tile = new BufferedImage(to - from, height, BufferedImage.TYPE_INT_RGB);
+            }
+            RugRasterizer.fill(tile, whiteBackground ? 0xFFFFFF : 0);
+            RugRasterizer.draw(tile, etp, data, dataset, from, to, threads);
+            drawTicks(tile, from);
+
+            emit(0, t, tile);
+        }
+
+        writeIndex();
+    }
+
+    /**
+     * Function writes a finished tile and adds its downsampled columns to the
+     * pending tile of the next level, which is emitted once it is complete.
+     */
+    private void emit(int level, int t, BufferedImage tile) throws IOException {
+        ImageIO.write(tile, "png", new File(directory, level + File.separator + t + ".png"));
+
+        if (level + 1 >= widths.length) {
+            return;
+        }
+
+        int parentWidth = Math.min(tileWidth, widths[level + 1] - (t / 2) * tileWidth);
+        BufferedImage parent = pending[level + 1];
+        if (parent == null || parent.getWidth() != parentWidth) {
+            parent = new BufferedImage(parentWidth, height, BufferedImage.TYPE_INT_RGB);
+            pending[level + 1] = parent;
+        }
+
+        int offset = (t % 2) * (tileWidth / 2);
+        downsample(tile, parent, offset);
+
+        if (offset + (tile.getWidth() + 1) / 2 == parentWidth) {
+            emit(level + 1, t / 2, parent);
+        }
+    }
+
+    /**
+     * Function halves the width of an image; each target column is the average
+     * of two source columns, or a copy of the last source column if the width is
+     * odd.
+     */
+    private static void downsample(BufferedImage source, BufferedImage target, int offset) {
+        int[] src = ((DataBufferInt) source.getRaster().getDataBuffer()).getData();
+        int[] dst = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        int sourceWidth = source.getWidth();
+        int targetWidth = target.getWidth();
+
+        for (int y = 0; y < source.getHeight(); y++) {
+            int row = y * sourceWidth;
+            int targetRow = y * targetWidth + offset;
+            for (int x = 0; x < sourceWidth; x += 2) {
+                int a = src[row + x];
+                int b = x + 1 < sourceWidth ? src[row + x + 1] : a;
+                dst[targetRow + x / 2] = average(a, b);
+            }
+        }
+    }
+
+    private static int average(int a, int b) {
+        int red = (((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) + 1) >> 1;
+        int green = (((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + 1) >> 1;
+        int blue = ((a & 0xFF) + (b & 0xFF) + 1) >> 1;
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Function draws the white frame markers of PNGWriter.drawRugs that fall in
+     * a tile.
+     */
+    private void drawTicks(BufferedImage tile, int firstFrame) {
+        int first = Math.max(TICK_INTERVAL, (firstFrame + TICK_INTERVAL - 1) / TICK_INTERVAL * TICK_INTERVAL);
+        for (int frame = first; frame < firstFrame + tile.getWidth(); frame += TICK_INTERVAL) {
+            for (int y = Math.max(0, height - 3); y < height; y++) {
+                tile.setRGB(frame - firstFrame, y, 0xFFFFFF);
+            }
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Properties index = new Properties();
+        index.setProperty("frames", String.valueOf(etp.getFrameCount()));
+        index.setProperty("height", String.valueOf(height));
+        index.setProperty("tileWidth", String.valueOf(tileWidth));
+        index.setProperty("levels", String.valueOf(widths.length));
+        for (int level = 0; level < widths.length; level++) {
+            index.setProperty("level." + level + ".width", String.valueOf(widths[level]));
+            index.setProperty("level." + level + ".tiles", String.valueOf(getTileCount(level)));
+            index.setProperty("level." + level + ".framesPerColumn", String.valueOf(1L << level));
+        }
+        try (OutputStream out = new FileOutputStream(new File(directory, INDEX_FILE))) {
+            index.store(out, "Tiled rug, tiles are [level]/[tile].png");
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.data.DataSet;
 import dbvis.visualsummaries.data.SessionData;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.Component;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.strategies.Strategy;
 import javafx.util.Pair;
 
@@ -38,7 +39,7 @@ public class FuzzyPositionMapper {
      * 
      * @throws Exception
      */
-    public Integer[][] fuzzyPositioning(
+    public EtpMap fuzzyPositioning(
             List<Component> components,
             Strategy selectedStrategy,
             SessionData sd,
@@ -46,7 +47,7 @@ public class FuzzyPositionMapper {
             Integer ENLARGEMENT_FACTOR
 
     ) throws Exception {
-        Integer[][] entityToPosition = new Integer[frames][entities];
+        EtpMap entityToPosition = new EtpMap(frames, entities);
         String stratid = selectedStrategy.getName();
 
         DataSet current = sd.getDataset(dsname);
@@ -120,7 +121,7 @@ public class FuzzyPositionMapper {
                         }
 
                         // Store entityLocInt in entityToPosition
-                        entityToPosition[frame][orderedPointsFull[frame][i].getId()] = entityLocInt;
+                        entityToPosition.set(frame, orderedPointsFull[frame][i].getId(), entityLocInt);
 
                         groupcount += 1;
 
@@ -148,7 +149,7 @@ public class FuzzyPositionMapper {
      * @param HEIGHT            The height of the visualization
      */
     private void drawRugs(
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             DataPoint[][] orderedPointsFull,
             Double[][] projections,
             List<Component> maximalGroups,
@@ -185,7 +186,7 @@ public class FuzzyPositionMapper {
      * @param HEIGHT            The height of the visualization
      */
     private void drawStrip(
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             DataPoint[][] orderedPointsFull,
             Double[][] projections,
             List<Component> maximalGroups,
@@ -230,7 +231,7 @@ public class FuzzyPositionMapper {
      */
     private void drawComponentStrip(
             Component component,
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             DataPoint[][] orderedPointsFull,
             Double[][] projections,
             Pair<Double, Double> minmax,
@@ -259,7 +260,7 @@ public class FuzzyPositionMapper {
                         HEIGHT);
 
                 // Store entityLocInt in entityToPosition
-                entityToPosition[frame][orderedPointsFull[frame][entity].getId()] = entityLoc;
+                entityToPosition.set(frame, orderedPointsFull[frame][entity].getId(), entityLoc);
 
                 groupCount += 1;
 
@@ -5,11 +5,18 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.DataSet;
 import dbvis.visualsummaries.data.SessionData;
+import dbvis.visualsummaries.grouprugs.cache.ArtifactCache;
+import dbvis.visualsummaries.grouprugs.cache.ArtifactCodecs;
+import dbvis.visualsummaries.grouprugs.cache.ArtifactKey;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.Component;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.grouprugs.visualization.Interpolater;
 import dbvis.visualsummaries.strategies.Strategy;
 import javafx.scene.shape.CubicCurve;
@@ -38,6 +45,12 @@ public class MapperUtils {
             case "Stable UMAPStrategy":
                 projfile = new File(projfolder + "/" + dsname + "_UMAP_1D.csv");
                 break;
+            case "Temporal UMAPStrategy":
+                projfile = new File(projfolder + "/" + dsname + "_Temporal UMAP_1D.csv");
+                break;
+            case "Parallel UMAPStrategy":
+                projfile = new File(projfolder + "/" + dsname + "_Parallel UMAP_1D.csv");
+                break;
             case "Stable sammon mapping":
                 projfile = new File(projfolder + "/" + dsname + "_Stable Sammon mapping_1D.csv");
                 break;
@@ -47,6 +60,9 @@ public class MapperUtils {
             case "t-SNE (simple)":
                 projfile = new File(projfolder + "/" + dsname + "_Stable t-SNE (simple)_1D.csv");
                 break;
+            case "Temporal t-SNE":
+                projfile = new File(projfolder + "/" + dsname + "_Temporal t-SNE_1D.csv");
+                break;
             case "First principal component":
                 projfile = new File(projfolder + "/" + dsname + "_First principal component_1D.csv");
                 break;
@@ -81,70 +97,72 @@ public class MapperUtils {
 
     }
 
+    /**
+     * Function returns the data points of every frame ordered by the selected
+     * strategy. Orderings are kept in the {@link ArtifactCache} under the cache
+     * key of the strategy (see {@link Strategy#getCacheKey()}), so a strategy
+     * only runs once per dataset and settings, also when several threads ask
+     * for it at once.
+     * 
+     * @param sd               The session data.
+     * @param dsname           Name of the dataset.
+     * @param selectedStrategy The strategy that orders the data points.
+     * @return Ordered data points, [frame][rank].
+     */
     public static DataPoint[][] readOrderedPoint(SessionData sd, String dsname,
             Strategy selectedStrategy) {
 
-        DataPoint[][] data = sd.getDataset(dsname).getBaseData();
-        DataPoint[][] orderedPointsFull = new DataPoint[data.length][data[0].length];
+        DataSet dataset = sd.getDataset(dsname);
+        DataPoint[][] data = dataset.getBaseData();
 
-        // Step 1: check if file exists
-        String userdir = System.getProperty("user.home");
-        File projfolder = new File(userdir + "/motionrugs/ordering");
+        ArtifactKey key = new ArtifactKey("ordering", dsname, dataset)
+                .with("strategy", selectedStrategy.getCacheKey())
+                .with("class", selectedStrategy.getClass().getName());
 
-        if (!projfolder.exists()) {
-            System.out.println("ERROR: No projections found.");
+        int[][] ordering;
+        try {
+            ordering = ArtifactCache.getInstance().computeIfAbsent(key, ArtifactCodecs.ORDERING,
+                    () -> toOrdering(data, selectedStrategy.getOrderedValues(data, dsname)));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
 
-        File orderFile = null;
-
-        switch (selectedStrategy.getName()) {
-            case "First principal component":
-                orderFile = new File(projfolder + "/" + dsname + "_First principal component_ordering.csv");
-                break;
-            case "UMAPStrategy":
-                orderFile = new File(projfolder + "/" + dsname +
-                        "_UMAP_ordering.csv");
-                break;
-            case "Stable sammon mapping":
-                orderFile = new File(projfolder + "/" + dsname + "_Stable Sammon mapping_ordering.csv");
-                break;
-            case "t-SNE (simple)":
-                orderFile = new File(projfolder + "/" + dsname + "_t-SNE (simple)_ordering.csv");
-                break;
-            default:
-                System.out.println("File not found, computing orders from scratch.");
-                orderFile = null;
-                break;
+        DataPoint[][] orderedPointsFull = new DataPoint[data.length][];
+        for (int frame = 0; frame < data.length; frame++) {
+            orderedPointsFull[frame] = new DataPoint[ordering[frame].length];
+            for (int i = 0; i < ordering[frame].length; i++) {
+                orderedPointsFull[frame][i] = data[frame][ordering[frame][i]];
+            }
         }
 
-        if (orderFile == null || !orderFile.exists()) {
-            DataPoint[][] orderedPoints = selectedStrategy.getOrderedValues(data,
-                    dsname);
-            // StatWriter.saveOrdering(sd, selectedStrategy.getName());
-            return orderedPoints;
-        }
+        return orderedPointsFull;
+    }
 
-        // Read through lines of file and store in orderedPointsFull
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(orderFile));
-            String line;
+    /**
+     * Converts ordered data points to the index of every data point in its frame.
+     */
+    private static int[][] toOrdering(DataPoint[][] data, DataPoint[][] orderedPoints) {
+        int[][] ordering = new int[orderedPoints.length][];
 
-            // Skip first line
-            br.readLine();
-            int frame = 0;
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                for (int i = 0; i < values.length; i++) {
-                    orderedPointsFull[frame][i] = data[frame][Integer.parseInt(values[i])];
+        for (int frame = 0; frame < orderedPoints.length; frame++) {
+            Map<DataPoint, Integer> index = new IdentityHashMap<>();
+            for (int i = 0; i < data[frame].length; i++) {
+                index.put(data[frame][i], i);
+            }
+
+            ordering[frame] = new int[orderedPoints[frame].length];
+            for (int i = 0; i < orderedPoints[frame].length; i++) {
+                Integer position = index.get(orderedPoints[frame][i]);
+                if (position == null) {
+                    throw new IllegalStateException("Strategy returned a data point that is not in frame " + frame);
                 }
-                frame++;
+                ordering[frame][i] = position;
             }
-            br.close();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
 
-        return orderedPointsFull;
+        return ordering;
     }
 
     /**
@@ -157,8 +175,8 @@ public class MapperUtils {
      * @param data
      * @return
      */
-    public static Integer[][] drawMotionLines2(
-            Integer[][] entityToPosition,
+    public static EtpMap drawMotionLines2(
+            EtpMap entityToPosition,
             DataPoint[][] orderedPointsFull,
             DataPoint[][] data,
             String stratid,
@@ -169,16 +187,16 @@ public class MapperUtils {
         Double[][] projectedPoints = MapperUtils.readProjections(
                 stratid,
                 dsname,
-                entityToPosition.length,
-                entityToPosition[0].length);
+                entityToPosition.getFrameCount(),
+                entityToPosition.getEntityCount());
 
         Pair<Double, Double> minMaxProjections = MapperUtils.getMinMaxProjections(projectedPoints);
 
         // Iterate through entityToPositionMapper and draw motionlines. Anchor Points
-        for (int frame = 0; frame < entityToPosition.length; frame++) {
-            for (int entity = 0; entity < entityToPosition[frame].length; entity++) {
+        for (int frame = 0; frame < entityToPosition.getFrameCount(); frame++) {
+            for (int entity = 0; entity < entityToPosition.getEntityCount(); entity++) {
 
-                if (entityToPosition[frame][entity] == null) {
+                if (!entityToPosition.isPlaced(frame, entity)) {
 
                     int nextFrame = findClosestFrame(entityToPosition, frame, entity);
                     int transitionWidth = nextFrame - frame;
@@ -188,18 +206,18 @@ public class MapperUtils {
                     double omega;
 
                     // Full MotionLines projection
-                    if (frame == 0 && nextFrame == entityToPosition.length - 1) {
+                    if (frame == 0 && nextFrame == entityToPosition.getFrameCount() - 1) {
 
                         for (int i = frame; i < nextFrame; i++) {
 
                             double yProjection = (projectedPoints[i][entity] - minMaxProjections.getKey())
                                     / (minMaxProjections.getValue() - minMaxProjections.getKey()) * (HEIGHT - 1);
                             int yInt = (int) Math.floor(yProjection);
-                            entityToPosition[i][entity] = yInt;
+                            entityToPosition.set(i, entity, yInt);
 
                         }
 
-                    } else if (nextFrame == entityToPosition.length - 1) {
+                    } else if (nextFrame == entityToPosition.getFrameCount() - 1) {
 
                         // Get yProjection for nextFrame
                         double yNextProjection = (projectedPoints[nextFrame][entity] - minMaxProjections.getKey())
@@ -212,7 +230,7 @@ public class MapperUtils {
                                 entityToPosition,
                                 transitionWidth,
                                 frame - 1,
-                                entityToPosition[frame - 1][entity],
+                                entityToPosition.get(frame - 1, entity),
                                 nextFrame,
                                 yNextInt,
                                 entity,
@@ -236,7 +254,7 @@ public class MapperUtils {
                             omega = omega * omega * (3 - 2 * omega);
 
                             int yInt = (int) Math.floor((1 - omega) * yProjection + omega * yBézier);
-                            entityToPosition[i][entity] = yInt;
+                            entityToPosition.set(i, entity, yInt);
 
                         }
 
@@ -255,7 +273,7 @@ public class MapperUtils {
                                 frame - 1,
                                 yPrevInt,
                                 nextFrame,
-                                entityToPosition[nextFrame][entity],
+                                entityToPosition.get(nextFrame, entity),
                                 entity,
                                 data);
 
@@ -277,7 +295,7 @@ public class MapperUtils {
                             omega = omega * omega * (3 - 2 * omega);
 
                             int yInt = (int) Math.floor(omega * yProjection + (1 - omega) * yBézier);
-                            entityToPosition[i][entity] = yInt;
+                            entityToPosition.set(i, entity, yInt);
                         }
 
                     } else {
@@ -286,9 +304,9 @@ public class MapperUtils {
                                 entityToPosition,
                                 transitionWidth,
                                 frame - 1,
-                                entityToPosition[frame - 1][entity],
+                                entityToPosition.get(frame - 1, entity),
                                 nextFrame,
-                                entityToPosition[nextFrame][entity],
+                                entityToPosition.get(nextFrame, entity),
                                 entity,
                                 data);
 
@@ -316,7 +334,7 @@ public class MapperUtils {
                             omega *= 0.0;
 
                             int yInt = (int) Math.floor(omega * yProjection + (1 - omega) * yBézier);
-                            entityToPosition[i][entity] = yInt;
+                            entityToPosition.set(i, entity, yInt);
   
                         }
 
@@ -345,7 +363,7 @@ public class MapperUtils {
      * @param data             Data points.
      */
     public static CubicCurve interpolateBezierSpline(
-            Integer[][] entityToPosition,
+            EtpMap entityToPosition,
             int mlWidth,
             int x0,
             int y0,
@@ -357,12 +375,12 @@ public class MapperUtils {
         // Edge case: if x0 == x2, take the value at x0 or x2
         if (x0 == x2) {
             if (x0 > 0) {
-                entityToPosition[x0][entityId] = y0;
+                entityToPosition.set(x0, entityId, y0);
                 System.out.println("No motion line drawn because x0 == x2.");
                 return null;
             } else {
                 System.out.println("No motion line drawn because x0 == x2.");
-                entityToPosition[x0][entityId] = y2;
+                entityToPosition.set(x0, entityId, y2);
                 return null;
             }
         }
@@ -437,19 +455,19 @@ public class MapperUtils {
      * @param data
      * @return
      */
-    public static Integer[][] drawMotionLines(Integer[][] entityToPosition, DataPoint[][] orderedPointsFull,
+    public static EtpMap drawMotionLines(EtpMap entityToPosition, DataPoint[][] orderedPointsFull,
             DataPoint[][] data) {
 
         // Iterate through entityToPositionMapper and draw motionlines. Anchor Points
-        for (int frame = 0; frame < entityToPosition.length; frame++) {
-            for (int entity = 0; entity < entityToPosition[frame].length; entity++) {
+        for (int frame = 0; frame < entityToPosition.getFrameCount(); frame++) {
+            for (int entity = 0; entity < entityToPosition.getEntityCount(); entity++) {
 
-                if (entityToPosition[frame][entity] == null) {
+                if (!entityToPosition.isPlaced(frame, entity)) {
 
                     int nextFrame = findClosestFrame(entityToPosition, frame, entity);
                     int motionLineWidth = nextFrame - frame;
 
-                    if (frame == 0 && nextFrame == (entityToPosition.length - 1)) {
+                    if (frame == 0 && nextFrame == (entityToPosition.getFrameCount() - 1)) {
 
                         // Determine position by picking first position in ordered.
                         int position = findEntityPosition(orderedPointsFull[frame], frame, entity);
@@ -470,21 +488,21 @@ public class MapperUtils {
                                 entityToPosition,
                                 motionLineWidth,
                                 frame,
-                                entityToPosition[nextFrame][entity],
+                                entityToPosition.get(nextFrame, entity),
                                 nextFrame,
-                                entityToPosition[nextFrame][entity],
+                                entityToPosition.get(nextFrame, entity),
                                 entity,
                                 data);
 
-                    } else if (nextFrame == entityToPosition.length - 1) {
+                    } else if (nextFrame == entityToPosition.getFrameCount() - 1) {
 
                         Interpolater.interpolateBezierSpline(
                                 entityToPosition,
                                 motionLineWidth,
                                 frame,
-                                entityToPosition[frame - 1][entity],
+                                entityToPosition.get(frame - 1, entity),
                                 nextFrame,
-                                entityToPosition[frame - 1][entity],
+                                entityToPosition.get(frame - 1, entity),
                                 entity,
                                 data);
 
@@ -494,9 +512,9 @@ public class MapperUtils {
                                 entityToPosition,
                                 motionLineWidth,
                                 frame,
-                                entityToPosition[frame - 1][entity],
+                                entityToPosition.get(frame - 1, entity),
                                 nextFrame,
-                                entityToPosition[nextFrame][entity],
+                                entityToPosition.get(nextFrame, entity),
                                 entity,
                                 data);
 
@@ -541,11 +559,11 @@ public class MapperUtils {
      *         entity is not present in any future frames (and thus never part of a
      *         group again).
      */
-    public static Integer findClosestFrame(Integer[][] entityToPosition, int frame, int entity) {
-        int closestFrame = entityToPosition.length - 1;
+    public static Integer findClosestFrame(EtpMap entityToPosition, int frame, int entity) {
+        int closestFrame = entityToPosition.getFrameCount() - 1;
 
-        for (int i = frame; i < entityToPosition.length; i++) {
-            if (entityToPosition[i][entity] != null) {
+        for (int i = frame; i < entityToPosition.getFrameCount(); i++) {
+            if (entityToPosition.isPlaced(i, entity)) {
                 closestFrame = i;
                 break;
             }
@@ -5,6 +5,7 @@ import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.data.DataSet;
 import dbvis.visualsummaries.data.SessionData;
 import dbvis.visualsummaries.grouprugs.tgs.Utils;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.strategies.Strategy;
 
 public class MotionLinesPositionMapper {
@@ -31,12 +32,12 @@ public class MotionLinesPositionMapper {
      * 
      * @return The entityToPosition A map that contains the position of the entities
      */
-    public Integer[][] motionlinesPositioning(
+    public EtpMap motionlinesPositioning(
             Strategy selectedStrategy,
             SessionData sd,
             String dsname,
             Integer ENLARGEMENT_FACTOR) {
-        Integer[][] entityToPosition = new Integer[frames][entities];
+        EtpMap entityToPosition = new EtpMap(frames, entities);
         String stratid = selectedStrategy.getName();
 
         DataSet current = sd.getDataset(dsname);
@@ -85,7 +86,7 @@ public class MotionLinesPositionMapper {
                 int position = (int) (((y - mini) / (maxi - mini)) * (HEIGHT - 1));
 
                 // Store position in entityToPosition
-                entityToPosition[frame][entity] = position;
+                entityToPosition.set(frame, entity, position);
             }
 
         }
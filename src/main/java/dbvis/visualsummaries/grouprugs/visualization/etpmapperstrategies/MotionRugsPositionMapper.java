@@ -2,13 +2,14 @@ package dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies;
 
 import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.data.SessionData;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.strategies.Strategy;
 
 public class MotionRugsPositionMapper {
 
-    public Integer[][] position(SessionData sd, DataPoint[][] data, Strategy selectedStrategy, String dsname) {
+    public EtpMap position(SessionData sd, DataPoint[][] data, Strategy selectedStrategy, String dsname) {
 
-        Integer[][] etp = new Integer[data.length][data[0].length];
+        EtpMap etp = new EtpMap(data.length, data[0].length);
 
         // =====================================================================
         DataPoint[][] orderedPointsFull = MapperUtils.readOrderedPoint(sd, dsname, selectedStrategy);
@@ -18,7 +19,7 @@ public class MotionRugsPositionMapper {
             for (int location = 0; location < orderedPointsFull[frame].length; location++) {
 
                 int id = orderedPointsFull[frame][location].getId();
-                etp[frame][id] = location;
+                etp.set(frame, id, location);
 
             }
 
@@ -10,6 +10,7 @@ import dbvis.visualsummaries.data.SessionData;
 import dbvis.visualsummaries.grouprugs.linearprogram.MGOrder;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.Component;
 import dbvis.visualsummaries.grouprugs.tgs.maximalgroups.MaximalGroup;
+import dbvis.visualsummaries.grouprugs.visualization.EtpMap;
 import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.placementheuristic.CompGroupData;
 import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.placementheuristic.ComponentOrderComputer;
 import dbvis.visualsummaries.grouprugs.visualization.etpmapperstrategies.placementheuristic.EquationSolver;
@@ -95,9 +96,9 @@ public class QPPositionMapper {
      * 
      * @return The entityToPosition array.
      */
-    public Integer[][] orderedPositioning() {
+    public EtpMap orderedPositioning() {
 
-        Integer[][] entityToPosition = new Integer[WIDTH][data[0].length];
+        EtpMap entityToPosition = new EtpMap(WIDTH, data[0].length);
 
         HashMap<Component, CompGroupData> compToData = new HashMap<Component, CompGroupData>();
 
@@ -121,7 +122,7 @@ public class QPPositionMapper {
      * 
      * @param entityToPosition
      */
-    private void drawRugs(Integer[][] etp, HashMap<Component, CompGroupData> compToData) {
+    private void drawRugs(EtpMap etp, HashMap<Component, CompGroupData> compToData) {
 
         positionComponents(compToData);
         fillEntityToPosition(etp, compToData);
@@ -415,7 +416,7 @@ public class QPPositionMapper {
      * @param etp        The entityToPosition array.
      * @param compToData The list of CompGroupData objects.
      */
-    private void fillEntityToPosition(Integer[][] etp, HashMap<Component, CompGroupData> compToData) {
+    private void fillEntityToPosition(EtpMap etp, HashMap<Component, CompGroupData> compToData) {
 
         for (HashMap.Entry<Component, CompGroupData> entry : compToData.entrySet()) {
             Component comp = entry.getKey();
@@ -432,7 +433,7 @@ public class QPPositionMapper {
                 // Iterate through orderedDataPoints and place entities in the entityToPosition
                 for (DataPoint dp : orderedDataPoints[frame]) {
                     if (comp.getEntities().contains(dp.getId())) {
-                        etp[frame][dp.getId()] = position;
+                        etp.set(frame, dp.getId(), position);
                         position += 1;
                     }
                 }
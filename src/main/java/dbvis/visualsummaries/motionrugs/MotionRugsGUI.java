@@ -31,6 +31,7 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import dbvis.visualsummaries.data.CSVDataLoader;
 import dbvis.visualsummaries.data.DataPoint;
 import dbvis.visualsummaries.data.DataSet;
+import dbvis.visualsummaries.data.Inversions;
 import dbvis.visualsummaries.data.QualityStats;
 import dbvis.visualsummaries.data.SessionData;
 import dbvis.visualsummaries.data.StrategyStatistics;
@@ -48,6 +49,7 @@ import dbvis.visualsummaries.strategies.SNNClusterStrategy;
 import dbvis.visualsummaries.strategies.SammonMappingStrategy;
 import dbvis.visualsummaries.strategies.Strategy;
 import dbvis.visualsummaries.strategies.TSNESimpleStrategy;
+import dbvis.visualsummaries.strategies.TSNEStrategy;
 import dbvis.visualsummaries.strategies.UMAPStrategy;
 import dbvis.visualsummaries.strategies.XComponentStrategy;
 import dbvis.visualsummaries.strategies.YComponentStrategy;
@@ -86,7 +88,7 @@ public class MotionRugsGUI extends javax.swing.JFrame implements RugMouseMotionL
     private CompLinkClusteringStrategy complinkcluststrategy = new CompLinkClusteringStrategy();
     private SNNClusterStrategy snncluststrategy = new SNNClusterStrategy(knn);
     private SammonMappingStrategy sammonmappingstrategy = new SammonMappingStrategy();
-    // private TSNEStrategy tsnestrategy = new TSNEStrategy();
+    private TSNEStrategy tsnestrategy = new TSNEStrategy();
     private TSNESimpleStrategy tsnesimplestrategy = new TSNESimpleStrategy();
     private ClusterPCStrategy clusterpcstrategy = new ClusterPCStrategy();
     private ClairvoyantClusterPCStrategy interpolateclusterpcstrategy = new ClairvoyantClusterPCStrategy(1.0 / 1.9);
@@ -170,6 +172,7 @@ public class MotionRugsGUI extends javax.swing.JFrame implements RugMouseMotionL
         jComboBox6.addItem("Clairvoyant (interpolate)");
         jComboBox6.addItem("Clairvoyant (slow chase)");
         jComboBox6.addItem("UMAPStrategy");
+        jComboBox6.addItem("Parallel UMAPStrategy");
         jComboBox6.addItem("X-component");
         jComboBox6.addItem("Y-component");
         jComboBox6.addItem("Complete-linkage clustering");
@@ -330,6 +333,11 @@ public class MotionRugsGUI extends javax.swing.JFrame implements RugMouseMotionL
                         orderedpoints = xcomponentstrategy.getOrderedValues(current.getBaseData(), current.getName());
                         break;
                     case "UMAPStrategy":
+                        umapstrategy.setDeterministic(true);
+                        orderedpoints = umapstrategy.getOrderedValues(current.getBaseData(), current.getName());
+                        break;
+                    case "Parallel UMAPStrategy":
+                        umapstrategy.setDeterministic(false);
                         orderedpoints = umapstrategy.getOrderedValues(current.getBaseData(), current.getName());
                         break;
                     case "Y-component":
@@ -352,14 +360,14 @@ public class MotionRugsGUI extends javax.swing.JFrame implements RugMouseMotionL
                         orderedpoints = sammonmappingstrategy.getOrderedValues(current.getBaseData(),
                                 current.getName());
                         break;
-                    // case "Stable t-SNE":
-                    // tsnestrategy.setStability(true);
-                    // orderedpoints = tsnestrategy.getOrderedValues(current.getBaseData());
-                    // break;
-                    // case "t-SNE":
-                    // tsnestrategy.setStability(false);
-                    // orderedpoints = tsnestrategy.getOrderedValues(current.getBaseData());
-                    // break;
+                    case "Stable t-SNE":
+                        tsnestrategy.setTemporal(true);
+                        orderedpoints = tsnestrategy.getOrderedValues(current.getBaseData(), current.getName());
+                        break;
+                    case "t-SNE":
+                        tsnestrategy.setTemporal(false);
+                        orderedpoints = tsnestrategy.getOrderedValues(current.getBaseData(), current.getName());
+                        break;
                     case "CLC + PCA":
                         orderedpoints = clusterpcstrategy.getOrderedValues(current.getBaseData(), current.getName());
                         break;
@@ -475,7 +483,7 @@ public class MotionRugsGUI extends javax.swing.JFrame implements RugMouseMotionL
                 stratid = "Clairvoyant (interpolate) 0.526";
             }
             if (!stratid.equals("")) {
-                frame = sd.getCurrentDataSet().getData(stratid)[i];
+                frame = sd.getCurrentDataSet().getOrderedFrame(stratid, i);
             }
 
             BufferedImage image = new BufferedImage(1743, 1024, BufferedImage.TYPE_INT_BGR);
@@ -601,6 +609,10 @@ public class MotionRugsGUI extends javax.swing.JFrame implements RugMouseMotionL
             }
         }
 
+        // Position of each entity id per frame, and the crossings between frames
+        int[][] ranks = Inversions.toRanks(orderedpoints);
+        Inversions.Counts[] frameCrossings = Inversions.countFrames(ranks, Runtime.getRuntime().availableProcessors());
+
         int jumps = 0;
         int crossings = 0;
         double KSdistNum = 0.0;
@@ -817,34 +829,23 @@ public class MotionRugsGUI extends javax.swing.JFrame implements RugMouseMotionL
                 double[] db = new double[orders[frame].length];
                 for (int entity = 0; entity < orders[frame].length; entity++) {
                     da[entity] = entity + 0.0;
-                    db[entity] = indexOfIntArray(orders[frame + 1], orders[frame][entity]) + 0.0;
+                    db[entity] = ranks[frame + 1][orders[frame][entity]] + 0.0;
                 }
                 kendalls.addValue(new KendallsCorrelation().correlation(da, db));
 
                 // System.out.println("Frame " + frame + " " + indexOfIntArray(orders[frame],
                 // 103) + "-"+ indexOfIntArray(orders[frame+1],103));
                 int framejumps = 0;
-                int framecross = 0;
 
                 for (int ent = 0; ent < orders[frame].length; ent++) {
                     int id = orders[frame][ent];
                     int pos1 = ent;
-                    int pos2 = indexOfIntArray(orders[frame + 1], id);
-                    int idcross = 0;
-                    // We cross everything which was larger befor and now is smaller
-                    for (int cross = ent + 1; cross < orders[frame].length; cross++) {
-                        int id2 = orders[frame][cross];
-                        int bpos1 = cross;
-                        int bpos2 = indexOfIntArray(orders[frame + 1], id2);
-
-                        if (bpos1 > pos1 && bpos2 < pos2) {
-                            idcross++;
-                        }
-                    }
+                    int pos2 = ranks[frame + 1][id];
                     framejumps += Math.abs(pos2 - pos1);
-                    framecross += idcross;
-
                 }
+                // We cross everything which was larger befor and now is smaller
+                int framecross = (int) frameCrossings[frame].getCrossings();
+
                 // System.out.println("Jumps in frame " + frame + ": " + framejumps);
                 // System.out.println("Crossings in frame " + frame + ": " + framecross);
 
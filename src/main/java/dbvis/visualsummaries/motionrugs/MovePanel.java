@@ -44,7 +44,7 @@ public class MovePanel extends JPanel {
         DataPoint[] frame = sd.getCurrentDataSet().getSingleFrame(curX);
         
         if (!stratid.equals("")) {
-            frame = sd.getCurrentDataSet().getData(stratid)[curX];
+            frame = sd.getCurrentDataSet().getOrderedFrame(stratid, curX);
         }
         
 
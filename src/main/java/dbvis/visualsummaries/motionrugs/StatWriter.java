@@ -71,7 +71,7 @@ public class StatWriter {
     public static void saveStats(SessionData sd, String stratid, double timingInMs) {
         DataSet current = sd.getCurrentDataSet();
         StrategyStatistics stratStats = current.getStatisticsOfStrategy(stratid);
-        int nrOfFrames = current.getData(stratid).length;
+        int nrOfFrames = current.getOrdering(stratid).getFrameCount();
         String dsname = current.getName();
 
         String userdir = System.getProperty("user.home");
@@ -75,6 +75,11 @@ public class ClairvoyantClusterPCStrategy implements Strategy {
         return "CLC + SPC";
     }
 
+    @Override
+    public String getCacheKey() {
+        return getName() + ",v1,threshold=" + thresholdConstant + ",speed=" + chaseSpeed;
+    }
+
     @Override
     public DataPoint[][] getOrderedValues(DataPoint[][] unsorted, String dsName) {
         DataPoint[][] result = new DataPoint[unsorted.length][unsorted[0].length];
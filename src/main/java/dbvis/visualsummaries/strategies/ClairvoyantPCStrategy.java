@@ -57,6 +57,11 @@ public class ClairvoyantPCStrategy implements Strategy {
         return "Clairvoyant PC chasing";
     }
 
+    @Override
+    public String getCacheKey() {
+        return getName() + ",v1,threshold=" + thresholdConstant + ",speed=" + chaseSpeed;
+    }
+
     /**
      * Returns dataset ordered along the first principal component (at every
      * point in time)
@@ -0,0 +1,341 @@
+package dbvis.visualsummaries.strategies;
+
+import java.util.concurrent.ExecutorService;
+
+import dbvis.visualsummaries.data.DataPoint;
+
+/**
+ * Exact t-SNE of the movers of a frame to 1D, as used by
+ * {@link TSNESimpleStrategy}.
+ *
+ * All buffers are allocated once for the number of movers. Values of a pair
+ * of movers i and j < i are stored in triangular arrays at i * (i - 1) / 2 + j.
+ * The loops over the pairs are split into chunks of rows that run in
+ * parallel, and sums are taken afterwards in a fixed order, so the projections
+ * do not depend on the number of threads.
+ */
+public class ExactTSne1D {
+
+    private final int n;
+    private final RowChunks chunks;
+
+    // Squared distances in the original space, triangular
+    private final double[] squaredDistances;
+    // Conditional probabilities p_j|i at i * n + j
+    private final double[] conditionalPs;
+    // Joint probabilities p_ij, triangular
+    private final double[] similarities;
+
+    // (1 + distance^2)^-1 in the current projection, triangular
+    private double[] kernel;
+    // The same for a candidate step: computed the way the cost of a step is
+    // (candidateKernel) and the way the next iteration needs it (nextKernel)
+    private double[] nextKernel;
+    private final double[] candidateKernel;
+
+    private final double[] costTerms;
+    private final double[] gradient;
+    private final double[] candidate;
+
+    /**
+     * Creates the buffers for frames of n movers.
+     *
+     * @param n       The number of movers per frame.
+     * @param threads The number of threads to use.
+     */
+    public ExactTSne1D(int n, int threads) {
+        this(n, threads, null);
+    }
+
+    /**
+     * Creates the buffers for frames of n movers, running on the given
+     * threads.
+     *
+     * @param n        The number of movers per frame.
+     * @param threads  The number of threads to use.
+     * @param executor The threads to run on, or null to create a pool.
+     */
+    public ExactTSne1D(int n, int threads, ExecutorService executor) {
+        this.n = n;
+        this.chunks = new RowChunks(n, threads, executor);
+
+        int pairs = n * (n - 1) / 2;
+
+        squaredDistances = new double[pairs];
+        conditionalPs = new double[n * n];
+        similarities = new double[pairs];
+        kernel = new double[pairs];
+        nextKernel = new double[pairs];
+        candidateKernel = new double[pairs];
+        costTerms = new double[pairs];
+        gradient = new double[n];
+        candidate = new double[n];
+    }
+
+    /**
+     * Function stops the threads, unless they were passed in.
+     */
+    public void shutdown() {
+        chunks.shutdown();
+    }
+
+    /**
+     * Function computes the joint probabilities of the movers in a frame, with
+     * the sigma of every mover chosen to match the perplexity.
+     *
+     * @param frame           The movers in the frame.
+     * @param sigmaLowerBound The smallest sigma to search from.
+     * @param perplexity      The perplexity.
+     * @param precision       The precision of the search for sigma.
+     */
+    public void computeSimilarities(DataPoint[] frame, double sigmaLowerBound, double perplexity,
+            double precision) {
+
+        for (int i = 0; i < n; i++) {
+            int row = i * (i - 1) / 2;
+            for (int j = 0; j < i; j++) {
+                double dist = Math.sqrt(Math.pow(frame[i].getX() - frame[j].getX(), 2)
+                        + Math.pow(frame[i].getY() - frame[j].getY(), 2));
+                squaredDistances[row + j] = Math.pow(dist, 2);
+            }
+        }
+
+        chunks.forEachRows((from, to) -> {
+            double[] numerators = new double[n];
+            for (int i = from; i < to; i++) {
+                double sigma = binarySearchSigma(i, sigmaLowerBound, perplexity, precision, numerators);
+                double denom = computeNumerators(i, sigma, numerators);
+                for (int j = 0; j < n; j++) {
+                    conditionalPs[i * n + j] = conditionalP(i, j, numerators, denom);
+                }
+            }
+        });
+
+        for (int i = 0; i < n; i++) {
+            int row = i * (i - 1) / 2;
+            for (int j = 0; j < i; j++) {
+                similarities[row + j] = (conditionalPs[i * n + j] + conditionalPs[j * n + i]) / (2 * n);
+            }
+        }
+    }
+
+    private double binarySearchSigma(int i, double lowerBound, double perplexity, double precision,
+            double[] numerators) {
+        double upperBound = lowerBound + 1.0;
+
+        // perp grows monotonically as upperBound grows, so we eventually find a value
+        // for perp such that perplexity < perp
+        double perp = computePerplexity(i, upperBound, numerators);
+        while (perplexity >= perp) {
+            lowerBound = upperBound;
+            upperBound *= 2;
+
+            perp = computePerplexity(i, upperBound, numerators);
+        }
+
+        // binary search for right value of sigma (will be in {@code lowerBound} at end
+        // of loop)
+        while (upperBound - lowerBound > precision) {
+            double h = (lowerBound + upperBound) / 2;
+
+            perp = computePerplexity(i, h, numerators);
+
+            if (perp <= perplexity) {
+                lowerBound = h;
+            } else {
+                upperBound = h;
+            }
+        }
+
+        return lowerBound;
+    }
+
+    private double computePerplexity(int i, double sigma, double[] numerators) {
+        double denom = computeNumerators(i, sigma, numerators);
+
+        double entropy = 0.0;
+        for (int j = 0; j < n; j++) {
+            double Pji = conditionalP(i, j, numerators, denom);
+            if (Pji != 0.0) {
+                entropy += -1 * Pji * Math.log(Pji) / Math.log(2);
+            }
+        }
+
+        return Math.pow(2, entropy);
+    }
+
+    /**
+     * Function computes the Gaussian of the distance from mover i to every other
+     * mover.
+     *
+     * @return The sum of the Gaussians, the denominator of p_j|i.
+     */
+    private double computeNumerators(int i, double sigma, double[] numerators) {
+        double denom = 0.0;
+        for (int k = 0; k < n; k++) {
+            if (k == i) {
+                numerators[k] = 0;
+            } else {
+                double squaredDistance = k < i ? squaredDistances[i * (i - 1) / 2 + k]
+                        : squaredDistances[k * (k - 1) / 2 + i];
+                numerators[k] = Math.exp(-1 * squaredDistance / (2 * Math.pow(sigma, 2)));
+                denom += numerators[k];
+            }
+        }
+        return denom;
+    }
+
+    private static double conditionalP(int i, int j, double[] numerators, double denom) {
+        double num = j == i ? 0 : numerators[j];
+        return num == 0.0 ? num : num / denom;
+    }
+
+    /**
+     * Function minimizes the cost of the projection by gradient descent. The
+     * step size is halved until a step lowers the cost, and doubled after every
+     * step.
+     *
+     * @param projections   The projection to start from, [moverid]; updated in
+     *                      place.
+     * @param maxIterations The maximum number of steps.
+     * @param epsilonStart  The initial step size.
+     * @param precision     The smallest step size.
+     */
+    public void minimize(double[] projections, int maxIterations, double epsilonStart, double precision) {
+        double epsilon = epsilonStart;
+
+        chunks.forEachLowerPairs((from, to) -> computeKernel(projections, from, to));
+        double sumOfQDistributions = sumKernel(kernel);
+        double cost = computeCost(kernel, sumOfQDistributions);
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+
+            final double sum = sumOfQDistributions;
+            chunks.forEachRows((from, to) -> computeGradient(projections, sum, from, to));
+
+            // halve epsilon until the step lowers the cost
+            boolean accepted = false;
+            while (true) {
+                final double step = epsilon;
+                chunks.forEachLowerPairs((from, to) -> computeCandidate(projections, step, from, to));
+                double candidateCost = computeCost(candidateKernel, sumKernel(candidateKernel));
+
+                if (!(cost <= candidateCost)) {
+                    accepted = true;
+                    break;
+                }
+
+                epsilon = epsilon / 2;
+                if (epsilon < precision) {
+                    break;
+                }
+            }
+
+            if (accepted) {
+                // The candidate is the new projection, and its kernel the current one
+                System.arraycopy(candidate, 0, projections, 0, n);
+                double[] swap = kernel;
+                kernel = nextKernel;
+                nextKernel = swap;
+            } else {
+                for (int i = 0; i < n; i++) {
+                    projections[i] += -1 * epsilon * gradient[i];
+                }
+            }
+
+            if (iteration == maxIterations - 1 || epsilon < precision) {
+                break;
+            }
+
+            sumOfQDistributions = sumKernel(kernel);
+            cost = computeCost(kernel, sumOfQDistributions);
+
+            // gamma can also increase if we are just going down towards minimum
+            epsilon = 2 * epsilon;
+        }
+    }
+
+    private void computeKernel(double[] projections, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int row = i * (i - 1) / 2;
+            for (int j = 0; j < i; j++) {
+                double qdistance = Math.abs(projections[i] - projections[j]);
+                kernel[row + j] = 1.0 / (1 + Math.pow(qdistance, 2));
+            }
+        }
+    }
+
+    private void computeCandidate(double[] projections, double epsilon, int from, int to) {
+        for (int i = from; i < to; i++) {
+            candidate[i] = projections[i] - (epsilon * gradient[i]);
+        }
+        for (int i = from; i < to; i++) {
+            int row = i * (i - 1) / 2;
+            double newProji = projections[i] - (epsilon * gradient[i]);
+            for (int j = 0; j < i; j++) {
+                double newProjj = projections[j] - (epsilon * gradient[j]);
+                double denom = 1 + Math.pow(Math.abs(newProji - newProjj), 2);
+                candidateKernel[row + j] = Math.pow(denom, -1);
+                nextKernel[row + j] = 1.0 / denom;
+            }
+        }
+    }
+
+    private void computeGradient(double[] projections, double sumOfQDistributions, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int row = i * (i - 1) / 2;
+            double partDeriv = 0;
+            for (int j = 0; j < n; j++) {
+                int pair;
+                if (j < i) {
+                    pair = row + j;
+                } else if (i < j) {
+                    pair = j * (j - 1) / 2 + i;
+                } else {
+                    continue;
+                }
+                double affinity = kernel[pair] / sumOfQDistributions;
+                partDeriv += (similarities[pair] - affinity) * (projections[i] - projections[j]) * kernel[pair];
+            }
+            gradient[i] = 4 * partDeriv;
+        }
+    }
+
+    // Sum of the kernel over all ordered pairs
+    private double sumKernel(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += 2 * value;
+        }
+        return sum;
+    }
+
+    /**
+     * Function computes the Kullback-Leibler divergence of the similarities and
+     * the affinities of a kernel. Every pair is computed once, the sum runs over
+     * all ordered pairs in order.
+     */
+    private double computeCost(double[] values, double sumOfQDistributions) {
+        chunks.forEachLowerPairs((from, to) -> {
+            for (int i = from; i < to; i++) {
+                int row = i * (i - 1) / 2;
+                for (int j = 0; j < i; j++) {
+                    double affinity = values[row + j] / sumOfQDistributions;
+                    costTerms[row + j] = similarities[row + j] * Math.log(similarities[row + j] / affinity);
+                }
+            }
+        });
+
+        double result = 0;
+        for (int i = 0; i < n; i++) {
+            int row = i * (i - 1) / 2;
+            for (int j = 0; j < i; j++) {
+                result += costTerms[row + j];
+            }
+            for (int j = i + 1; j < n; j++) {
+                result += costTerms[j * (j - 1) / 2 + i];
+            }
+        }
+        return result;
+    }
+}
@@ -21,6 +21,11 @@ public class HilbertCurveStrategy implements Strategy {
         return "Hilbert curve";
     }
 
+    @Override
+    public String getCacheKey() {
+        return getName() + ",v1,order=" + hilbertOrder;
+    }
+
     /**
      * Returns dataset in hilbert ordering
      *
@@ -0,0 +1,133 @@
+package dbvis.visualsummaries.strategies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the rows of a frame of n movers into chunks that run in parallel, as
+ * used by {@link SammonMapping1D} and {@link ExactTSne1D}.
+ *
+ * The chunk boundaries depend only on n and the number of threads. Small
+ * frames run inline on the calling thread.
+ */
+class RowChunks {
+
+    // Frames with fewer pairs are not worth splitting over threads
+    private static final int MIN_PARALLEL_PAIRS = 1 << 14;
+
+    interface RowTask {
+        void run(int from, int to);
+    }
+
+    private final int n;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+
+    // Chunk boundaries, rows with an equal number of movers, of pairs j < i
+    // and of pairs j > i
+    private final int[] rows;
+    private final int[] lowerPairs;
+    private final int[] upperPairs;
+
+    /**
+     * Creates the chunks for frames of n movers.
+     *
+     * @param n        The number of movers per frame.
+     * @param threads  The number of threads to use.
+     * @param executor The threads to run the chunks on, or null to create a
+     *                 pool of the given number of threads.
+     */
+    RowChunks(int n, int threads, ExecutorService executor) {
+        this.n = n;
+
+        int pairs = n * (n - 1) / 2;
+        int jobs = threads > 1 && pairs >= MIN_PARALLEL_PAIRS ? Math.min(n, threads * 4) : 1;
+        if (jobs == 1) {
+            this.executor = null;
+        } else if (executor != null) {
+            this.executor = executor;
+        } else {
+            this.executor = Executors.newFixedThreadPool(threads);
+        }
+        this.ownExecutor = jobs > 1 && executor == null;
+
+        rows = new int[jobs + 1];
+        lowerPairs = new int[jobs + 1];
+        upperPairs = new int[jobs + 1];
+        for (int c = 1; c <= jobs; c++) {
+            rows[c] = (int) ((long) n * c / jobs);
+            // Row r starts at about r^2 / 2 pairs j < i
+            int lower = (int) Math.round(n * Math.sqrt((double) c / jobs));
+            lowerPairs[c] = Math.max(lowerPairs[c - 1], Math.min(n, lower));
+            // The rows after row r have about (n - r)^2 / 2 pairs j > i
+            int upper = (int) Math.round(n * (1 - Math.sqrt(1 - (double) c / jobs)));
+            upperPairs[c] = Math.max(upperPairs[c - 1], Math.min(n, upper));
+        }
+        lowerPairs[jobs] = n;
+        upperPairs[jobs] = n;
+    }
+
+    /**
+     * Function stops the threads, unless they were passed in.
+     */
+    void shutdown() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Function runs the task on chunks with an equal number of rows.
+     */
+    void forEachRows(RowTask task) {
+        forEachChunk(rows, task);
+    }
+
+    /**
+     * Function runs the task on chunks with an equal number of pairs j < i,
+     * for loops over the pairs of row i below the diagonal.
+     */
+    void forEachLowerPairs(RowTask task) {
+        forEachChunk(lowerPairs, task);
+    }
+
+    /**
+     * Function runs the task on chunks with an equal number of pairs j > i,
+     * for loops over the pairs of row i above the diagonal.
+     */
+    void forEachUpperPairs(RowTask task) {
+        forEachChunk(upperPairs, task);
+    }
+
+    /**
+     * Function runs the task on every chunk of rows, in parallel if there is
+     * more than one chunk.
+     */
+    private void forEachChunk(int[] chunks, RowTask task) {
+        if (executor == null) {
+            task.run(0, n);
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c + 1 < chunks.length; c++) {
+            final int from = chunks[c];
+            final int to = chunks[c + 1];
+            if (from < to) {
+                futures.add(executor.submit(() -> task.run(from, to)));
+            }
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -26,6 +26,11 @@ public class SNNClusterStrategy extends CompLinkClusteringStrategy {
         return "SNN clustering";
     }
 
+    @Override
+    public String getCacheKey() {
+        return getName() + ",v1,knn=" + knn;
+    }
+
     /**
      * Returns dataset ordered using optimal ordering of complete-linkage
      * clustering of the point set
@@ -0,0 +1,216 @@
+package dbvis.visualsummaries.strategies;
+
+import java.util.concurrent.ExecutorService;
+
+import dbvis.visualsummaries.data.DataPoint;
+
+/**
+ * Sammon mapping of the movers of a frame to 1D, as used by
+ * {@link SammonMappingStrategy}.
+ *
+ * The distances of a frame are packed in a double[] per pair i < j, row by
+ * row: pair (i, j) is at {@link #index(int, int, int)}. The gradient and the
+ * stress are computed in parallel over chunks of rows, and the stress is
+ * summed afterwards in a fixed order, so the projections do not depend on the
+ * number of threads.
+ */
+public class SammonMapping1D {
+
+    private final int n;
+    private final RowChunks chunks;
+
+    private double[] distances;
+    private double sumOfDistances;
+
+    private final double[] stressTerms;
+    private final double[] gradient;
+    private final double[] candidate;
+
+    /**
+     * Creates the buffers for frames of n movers.
+     *
+     * @param n       The number of movers per frame.
+     * @param threads The number of threads to use.
+     */
+    public SammonMapping1D(int n, int threads) {
+        this(n, threads, null);
+    }
+
+    /**
+     * Creates the buffers for frames of n movers, running on the given
+     * threads.
+     *
+     * @param n        The number of movers per frame.
+     * @param threads  The number of threads to use.
+     * @param executor The threads to run on, or null to create a pool.
+     */
+    public SammonMapping1D(int n, int threads, ExecutorService executor) {
+        this.n = n;
+        this.chunks = new RowChunks(n, threads, executor);
+
+        stressTerms = new double[getPairCount(n)];
+        gradient = new double[n];
+        candidate = new double[n];
+    }
+
+    /**
+     * Returns the number of pairs of n movers.
+     */
+    public static int getPairCount(int n) {
+        return n * (n - 1) / 2;
+    }
+
+    /**
+     * Returns the position of the pair i < j in the packed distances of n
+     * movers.
+     */
+    public static int index(int i, int j, int n) {
+        return i * (2 * n - i - 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Function stops the threads, unless they were passed in.
+     */
+    public void shutdown() {
+        chunks.shutdown();
+    }
+
+    /**
+     * Function computes the distances between the movers of a frame.
+     *
+     * @param frame     The movers in the frame.
+     * @param distances The packed distances, filled in.
+     * @return The sum of the distances.
+     */
+    public static double computeDistances(DataPoint[] frame, double[] distances) {
+        int n = frame.length;
+        double sumOfDistances = 0.0;
+        for (int y = 0; y < n; y++) {
+            for (int i = 0; i < y; i++) {
+                double dist = Math.sqrt(Math.pow(frame[y].getX() - frame[i].getX(), 2)
+                        + Math.pow(frame[y].getY() - frame[i].getY(), 2));
+                distances[index(i, y, n)] = dist;
+                sumOfDistances += dist;
+            }
+        }
+        return sumOfDistances;
+    }
+
+    /**
+     * Function sets the distances of the frame to project.
+     *
+     * @param distances      The packed distances, see
+     *                       {@link #computeDistances(DataPoint[], double[])}.
+     * @param sumOfDistances The sum of the distances.
+     */
+    public void setDistances(double[] distances, double sumOfDistances) {
+        this.distances = distances;
+        this.sumOfDistances = sumOfDistances;
+    }
+
+    /**
+     * Function minimizes the stress of the projection by gradient descent. The
+     * step size is halved until a step lowers the stress, and doubled after
+     * every step. The descent stops early once a step lowers the stress by no
+     * more than the tolerance, relative to the stress.
+     *
+     * @param projections   The projection to start from, [moverid]; updated in
+     *                      place.
+     * @param maxIterations The maximum number of steps.
+     * @param gammaStart    The initial step size.
+     * @param precision     The smallest step size.
+     * @param tolerance     The relative stress tolerance, 0 to never stop early.
+     * @return The number of steps taken.
+     */
+    public int minimize(double[] projections, int maxIterations, double gammaStart, double precision,
+            double tolerance) {
+        double gamma = gammaStart;
+        double stress = computeStress(projections);
+
+        int iteration = 0;
+        for (; iteration < maxIterations; iteration++) {
+
+            chunks.forEachRows((from, to) -> computeGradient(projections, from, to));
+
+            // halve gamma until the step lowers the stress
+            double candidateStress;
+            while (true) {
+                for (int i = 0; i < n; i++) {
+                    candidate[i] = projections[i] - (gamma * gradient[i]);
+                }
+                candidateStress = computeStress(candidate);
+
+                if (!(stress <= candidateStress)) {
+                    break;
+                }
+
+                gamma = gamma / 2;
+                if (gamma < precision) {
+                    break;
+                }
+            }
+
+            for (int i = 0; i < n; i++) {
+                projections[i] += -1 * gamma * gradient[i];
+            }
+
+            if (iteration == maxIterations - 1 || gamma < precision) {
+                break;
+            }
+
+            // The step was taken, so the projection has the stress of the candidate
+            if (stress - candidateStress <= tolerance * stress) {
+                break;
+            }
+            stress = candidateStress;
+
+            // gamma can also increase if we are just going down towards minimum
+            gamma = 2 * gamma;
+        }
+
+        return iteration + 1;
+    }
+
+    private void computeGradient(double[] projections, int from, int to) {
+        for (int node = from; node < to; node++) {
+            double partialDerivative = 0;
+            for (int toNode = 0; toNode < n; toNode++) {
+                if (node == toNode) {
+                    continue;
+                }
+
+                double nodeProj = projections[node];
+                double toNodeProj = projections[toNode];
+                double dist = node < toNode ? distances[index(node, toNode, n)]
+                        : distances[index(toNode, node, n)];
+
+                partialDerivative += 2 * (dist - Math.abs(nodeProj - toNodeProj))
+                        * (toNodeProj - nodeProj) / (dist * Math.abs(nodeProj - toNodeProj));
+            }
+
+            // multiply partial derivative by constant part of formula
+            partialDerivative *= 1 / sumOfDistances;
+            gradient[node] = partialDerivative;
+        }
+    }
+
+    private double computeStress(double[] projections) {
+        chunks.forEachUpperPairs((from, to) -> {
+            for (int i = from; i < to; i++) {
+                int pair = index(i, i + 1, n);
+                for (int j = i + 1; j < n; j++, pair++) {
+                    double dist = distances[pair];
+                    stressTerms[pair] = Math.pow(dist - Math.abs(projections[i] - projections[j]), 2) / dist;
+                }
+            }
+        });
+
+        double result = 0;
+        for (int pair = 0; pair < stressTerms.length; pair++) {
+            result += stressTerms[pair];
+        }
+
+        result *= 1 / sumOfDistances;
+        return result;
+    }
+}
@@ -11,6 +11,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,25 +28,44 @@ public class SammonMappingStrategy implements Strategy {
 
     private boolean stable = false;
     private final int maxIterations = 1000;
-    private double gamma = 0.5;
+    private final double gammaStart = 0.5;
     private final double precision = 0.00001;
+    // stop once a step lowers the stress by less than this fraction
+    private final double tolerance = 1e-9;
     private String name = "Sammon mapping";
+    // the threads of the projection, null to create a pool per run
+    private ExecutorService executor;
 
     @Override
     public String getName() {
         return name;
     }
 
+    @Override
+    public String getCacheKey() {
+        return getName() + ",v1,stable=" + stable + ",iterations=" + maxIterations + ",gamma=" + gammaStart
+                + ",precision=" + precision + ",tolerance=" + tolerance;
+    }
+
     public void setName(String name) {
         this.name = name;
 
     }
 
+    /**
+     * Sets the threads to project the frames on, shared with other runs; null
+     * (the default) creates a pool for every run.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     @Override
     public DataPoint[][] getOrderedValues(DataPoint[][] unsorted, String dsName) {
         DataPoint[][] result = new DataPoint[unsorted.length][unsorted[0].length];
 
-        ArrayList<Projection1D> prevProjections = new ArrayList<>();
+        // projected points of the previous frame, by id
+        double[] prevValues = null;
 
         // code to extract 1D values
         String userdir = System.getProperty("user.home");
@@ -58,115 +81,61 @@ public class SammonMappingStrategy implements Strategy {
             orderingfile = new File(orderingsfolder + "/" + dsName + "_Sammon mapping_1D.csv");
         }
 
+        int movers = unsorted[0].length;
+        SammonMapping1D sammon = new SammonMapping1D(movers, Runtime.getRuntime().availableProcessors(), executor);
+
+        // The distances of the next frame are computed while the current frame is
+        // projected, alternating between two buffers
+        ExecutorService distanceExecutor = Executors.newSingleThreadExecutor();
+        double[][] distanceBuffers = new double[][] { new double[SammonMapping1D.getPairCount(movers)],
+                new double[SammonMapping1D.getPairCount(movers)] };
+
         try {
             // writer for 1D values
             FileWriter writer = new FileWriter(orderingfile);
             writer.write("projections sorted on id, one frame per line\n");
 
+            Future<Double> nextDistances = distanceExecutor
+                    .submit(() -> SammonMapping1D.computeDistances(unsorted[0], distanceBuffers[0]));
+
             // find order per frame
             for (int x = 0; x < unsorted.length; x++) {
 
                 DataPoint[] frame = unsorted[x];
-                // arraylist to save remaining clusters in
-                ArrayList<Projection1D> projections = new ArrayList<>();
-                // matrix containing distances in original space
-                ArrayList<ArrayList<Double>> distances = new ArrayList<>();
+
+                double sumOfDistances = nextDistances.get();
+                sammon.setDistances(distanceBuffers[x % 2], sumOfDistances);
+
+                if (x + 1 < unsorted.length) {
+                    final int next = x + 1;
+                    nextDistances = distanceExecutor
+                            .submit(() -> SammonMapping1D.computeDistances(unsorted[next], distanceBuffers[next % 2]));
+                }
 
                 // initialize projections for this frame
-                if (stable && prevProjections.size() > 0) {
+                double[] values;
+                if (stable && prevValues != null) {
                     // all but first frame use previous projections as starting point (for
                     // stability)
-                    projections = prevProjections;
+                    values = prevValues;
                 } else {
+                    values = new double[frame.length];
                     for (int y = 0; y < frame.length; y++) {
                         // first frame sorts fishes on identifier
-                        projections.add(new Projection1D(y, frame[y].getId()));
+                        values[y] = frame[y].getId();
                     }
                 }
 
-                double sumOfDistances = 0.0;
-                // calculate distances in original space
-                for (int y = 0; y < frame.length; y++) {
-                    distances.add(new ArrayList());
-
-                    // store distances in "bottom" triangle of matrix (index 0-y for y-th element of
-                    // frame)
-                    for (int i = 0; i < y; i++) {
-                        double dist = getDistance(frame[i], frame[y]);
-                        distances.get(y).add(dist);
-                        sumOfDistances += dist;
-                    }
-                    // add diagonal value in adjacency matrix
-                    distances.get(y).add(0.0);
-                }
-
-                gamma = 0.5;
-
-                for (int iteration = 0; iteration < maxIterations; iteration++) {
+                sammon.minimize(values, maxIterations, gammaStart, precision, tolerance);
 
-                    // store partial deriviatives to update all projections later
-                    double[] partialDerivatives = new double[projections.size()];
-
-                    // calculate the partial derivative for each dimension of the stress function -
-                    // so for all projections of the points
-                    for (int node = 0; node < frame.length; node++) {
-
-                        // we are going to calculate the partial derivative of the stress function for
-                        // this node
-                        // add variable part depending on current projection of two nodes
-                        for (int toNode = 0; toNode < unsorted[x].length; toNode++) {
-                            if (node == toNode) {
-                                continue;
-                            }
-
-                            double nodeProj = projections.get(node).getProjection();
-                            double toNodeProj = projections.get(toNode).getProjection();
-                            double dist;
-                            if (node < toNode) {
-                                dist = distances.get(toNode).get(node);
-                            } else { // toNode < node
-                                dist = distances.get(node).get(toNode);
-                            }
-
-                            partialDerivatives[node] += 2 * (dist - Math.abs(nodeProj - toNodeProj))
-                                    * (toNodeProj - nodeProj) / (dist * Math.abs(nodeProj - toNodeProj));
-                        }
-
-                        // multiply partial derivative by constant part of formula
-                        partialDerivatives[node] *= 1 / sumOfDistances;
-                    }
-
-                    // check how close we are compared to last iteration and update {@code gamma}
-                    // accordingly by either halving
-                    while (computeStress(frame, projections, distances, sumOfDistances) <= computeStress(frame,
-                            projections, distances, sumOfDistances, gamma, partialDerivatives)) {
-                        // System.out.println("Gamma halved to " + gamma);
-                        gamma = gamma / 2;
-
-                        if (gamma < precision) {
-                            break;
-                        }
-                    }
-
-                    // calculate the new projection for each node using gradient descent to minimize
-                    // the stress function
-                    for (int i = 0; i < projections.size(); i++) {
-                        projections.get(i).addToProjection(-1 * gamma * partialDerivatives[i]);
-                    }
-
-                    if (iteration == maxIterations - 1 || gamma < precision) {
-                        // System.out.println("Stopped at iteration " + iteration);
-                        break;
-                    }
+                // save the current projections as a starting point for the next iteration
+                prevValues = values;
 
-                    // gamma can also increase if we are just going down towards minimum
-                    gamma = 2 * gamma;
+                ArrayList<Projection1D> projections = new ArrayList<>();
+                for (int y = 0; y < values.length; y++) {
+                    projections.add(new Projection1D(y, values[y]));
                 }
 
-                // save the current projections as a starting point for the next iteration
-                // (sTaBiLiTyYyYyY)
-                prevProjections = deepCopy(projections);
-
                 // sort the projections according to their projection to get the 1D ordering
                 Collections.sort(projections);
 
@@ -179,16 +148,8 @@ public class SammonMappingStrategy implements Strategy {
                     System.out.println("Frame " + x + " done!");
                 }
 
-                // writing the 1D values
+                // writing the 1D values in order of ids
                 StringBuilder sb = new StringBuilder();
-                double[] values = new double[projections.size()];
-
-                // create array that stores ranking per id, instead of ids per rank
-                for (int y = 0; y < projections.size(); y++) {
-                    values[projections.get(y).getID()] = projections.get(y).getProjection();
-                }
-
-                // output ranking in order of ids
                 sb.append(values[0]);
                 for (int y = 1; y < values.length; y++) {
                     sb.append(",");
@@ -204,6 +165,11 @@ public class SammonMappingStrategy implements Strategy {
 
         } catch (IOException ex) {
             Logger.getLogger(SammonMappingStrategy.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            distanceExecutor.shutdown();
+            sammon.shutdown();
         }
 
         writeOrderedToFile(result, dsName);
@@ -253,59 +219,4 @@ public class SammonMappingStrategy implements Strategy {
         }
         this.stable = stable;
     }
-
-    private ArrayList<Projection1D> deepCopy(ArrayList<Projection1D> projections) {
-        ArrayList<Projection1D> result = new ArrayList();
-
-        for (Projection1D element : projections) {
-            result.add(element);
-        }
-
-        return result;
-    }
-
-    private double getDistance(DataPoint from, DataPoint to) {
-        return Math.sqrt(Math.pow(to.getX() - from.getX(), 2) + Math.pow(to.getY() - from.getY(), 2));
-    }
-
-    private double computeStress(DataPoint[] frame, ArrayList<Projection1D> projections,
-            ArrayList<ArrayList<Double>> distances, double sumOfDistances) {
-        double result = 0;
-
-        for (int i = 0; i < frame.length - 1; i++) {
-            for (int j = i + 1; j < frame.length; j++) {
-                double nodeProj = projections.get(i).getProjection();
-                double toNodeProj = projections.get(j).getProjection();
-                double dist = distances.get(j).get(i);
-
-                result += Math.pow(dist - Math.abs(nodeProj - toNodeProj), 2) / dist;
-            }
-        }
-
-        result *= 1 / sumOfDistances;
-
-        // System.out.println("Stress now is " + result);
-        return result;
-    }
-
-    private double computeStress(DataPoint[] frame, ArrayList<Projection1D> projections,
-            ArrayList<ArrayList<Double>> distances, double sumOfDistances, double epsilon,
-            double[] partialDerivatives) {
-        double result = 0;
-
-        for (int i = 0; i < frame.length - 1; i++) {
-            for (int j = i + 1; j < frame.length; j++) {
-                double nodeProj = projections.get(i).getProjection() - (epsilon * partialDerivatives[i]);
-                double toNodeProj = projections.get(j).getProjection() - (epsilon * partialDerivatives[j]);
-                double dist = distances.get(j).get(i);
-
-                result += Math.pow(dist - Math.abs(nodeProj - toNodeProj), 2) / dist;
-            }
-        }
-
-        result *= 1 / sumOfDistances;
-
-        // System.out.println("Stress with gamma " + epsilon + " is " + result);
-        return result;
-    }
 }
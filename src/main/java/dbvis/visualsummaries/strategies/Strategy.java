@@ -18,6 +18,17 @@ public interface Strategy {
      */
     public String getName();
 
+    /**
+     * Retrieves the key under which orderings of the strategy are cached.
+     * Strategies with settings that change the ordering override this to add
+     * those settings and a version, which is raised when the ordering changes.
+     *
+     * @return the name of the strategy, by default.
+     */
+    public default String getCacheKey() {
+        return getName();
+    }
+
     /**
      * Sorts unordered values
      * 
@@ -0,0 +1,219 @@
+package dbvis.visualsummaries.strategies;
+
+import java.util.Arrays;
+
+/**
+ * The nearest neighbours of the movers in consecutive frames, in the format
+ * Umap expects: row i holds mover i itself followed by its nearest neighbours,
+ * nearest first.
+ *
+ * The neighbours are exact. Every frame the movers are put in a uniform grid,
+ * and each mover only searches the cells within the distance of its farthest
+ * neighbour in the previous frame, widened until enough movers are found.
+ * Movers barely move between frames, so the search stays local and the graph
+ * of a frame costs about linear time instead of comparing all pairs.
+ */
+public class TemporalKnnGraph {
+
+    private final int k;
+
+    private int[][] indices;
+    private float[][] distances;
+
+    // Grid of the current frame: the movers sorted by cell, cellStart[c] is the
+    // first of cell c in sortedMovers
+    private double minX;
+    private double minY;
+    private double cellSize;
+    private int columns;
+    private int rows;
+    private int[] cellStart;
+    private int[] sortedMovers;
+
+    /**
+     * Creates an empty graph.
+     *
+     * @param k The number of neighbours per mover, including the mover itself.
+     */
+    public TemporalKnnGraph(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of neighbours must be positive.");
+        }
+        this.k = k;
+    }
+
+    /**
+     * Function updates the neighbours to the positions of the next frame.
+     *
+     * @param points The positions of the movers, [mover][x/y].
+     */
+    public void update(double[][] points) {
+        int n = points.length;
+        if (n < k) {
+            throw new IllegalArgumentException("Need at least " + k + " movers.");
+        }
+
+        float[][] previous = distances != null && distances.length == n ? distances : null;
+
+        buildGrid(points, previous);
+
+        indices = new int[n][k];
+        distances = new float[n][k];
+
+        for (int i = 0; i < n; i++) {
+            double radius = previous == null || previous[i][k - 1] <= 0 ? cellSize : previous[i][k - 1] * 1.05;
+            while (search(points, i, radius) < k) {
+                radius = Math.max(2 * radius, cellSize);
+            }
+        }
+    }
+
+    /**
+     * Returns the indices of the neighbours, [mover][neighbour].
+     */
+    public int[][] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Returns the distances to the neighbours, [mover][neighbour].
+     */
+    public float[][] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Function sorts the movers into grid cells. The cell size is the average
+     * distance to the farthest neighbour in the previous frame, or for the first
+     * frame the size of a square holding k movers on average.
+     */
+    private void buildGrid(double[][] points, float[][] previous) {
+        int n = points.length;
+
+        minX = Double.MAX_VALUE;
+        minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (double[] point : points) {
+            minX = Math.min(minX, point[0]);
+            minY = Math.min(minY, point[1]);
+            maxX = Math.max(maxX, point[0]);
+            maxY = Math.max(maxY, point[1]);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+
+        if (previous != null) {
+            double sum = 0;
+            for (float[] row : previous) {
+                sum += row[k - 1];
+            }
+            cellSize = sum / n;
+        } else {
+            cellSize = Math.sqrt(width * height * k / n);
+        }
+
+        // At most about n cells, and at least one
+        cellSize = Math.max(cellSize, Math.max(Math.sqrt(width * height / n), Math.max(width, height) / n));
+        if (!(cellSize > 0)) {
+            cellSize = Math.max(Math.max(width, height), 1);
+        }
+
+        columns = (int) (width / cellSize) + 1;
+        rows = (int) (height / cellSize) + 1;
+
+        // Counting sort of the movers by cell
+        cellStart = new int[columns * rows + 1];
+        int[] cells = new int[n];
+        for (int i = 0; i < n; i++) {
+            cells[i] = cell(column(points[i][0]), row(points[i][1]));
+            cellStart[cells[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+        sortedMovers = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedMovers[next[cells[i]]++] = i;
+        }
+    }
+
+    /**
+     * Function searches the nearest neighbours of mover i among the movers within
+     * the radius.
+     *
+     * @return The number of neighbours found, the search is complete if this is
+     *         k.
+     */
+    private int search(double[][] points, int i, double radius) {
+        double x = points[i][0];
+        double y = points[i][1];
+
+        int size = insert(i, i, 0, 0);
+
+        int fromColumn = column(x - radius);
+        int toColumn = column(x + radius);
+        int fromRow = row(y - radius);
+        int toRow = row(y + radius);
+
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                int cell = cell(c, r);
+                for (int s = cellStart[cell]; s < cellStart[cell + 1]; s++) {
+                    int j = sortedMovers[s];
+                    if (j == i) {
+                        continue;
+                    }
+                    double dx = points[j][0] - x;
+                    double dy = points[j][1] - y;
+                    double distance = Math.sqrt(dx * dx + dy * dy);
+                    if (distance <= radius) {
+                        size = insert(i, j, (float) distance, size);
+                    }
+                }
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Function inserts a candidate into the sorted neighbours of mover i if it
+     * is closer than the farthest one. Candidates at equal distance keep the
+     * order they were inserted in, so the mover itself stays first.
+     *
+     * @return The number of neighbours of i after inserting.
+     */
+    private int insert(int i, int candidate, float distance, int size) {
+        int[] rowIndices = indices[i];
+        float[] rowDistances = distances[i];
+
+        if (size == k && distance >= rowDistances[k - 1]) {
+            return size;
+        }
+
+        int position = Math.min(size, k - 1);
+        while (position > 0 && rowDistances[position - 1] > distance) {
+            rowIndices[position] = rowIndices[position - 1];
+            rowDistances[position] = rowDistances[position - 1];
+            position--;
+        }
+        rowIndices[position] = candidate;
+        rowDistances[position] = distance;
+
+        return Math.min(size + 1, k);
+    }
+
+    private int column(double x) {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - minY) / cellSize)));
+    }
+
+    private int cell(int column, int row) {
+        return row * columns + column;
+    }
+}
@@ -8,10 +8,16 @@ import java.io.File;
 import java.io.FileWriter;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.data.Inversions;
 import tagbio.umap.Umap;
 
 /**
@@ -20,11 +26,77 @@ import tagbio.umap.Umap;
  */
 public class UMAPStrategy implements Strategy {
 
+    // Epochs of a projection from scratch and of a projection that starts from
+    // the embedding of the previous frame
+    private static final int EPOCHS = 150;
+    private static final int WARM_EPOCHS = 30;
+
+    private static final int NEAREST_NEIGHBOURS = 4;
+
+    // Frames per chunk of the temporal mode, fixed so the rugs do not depend on
+    // the number of cores. A chunk starts from scratch, so its order does not
+    // continue the one of the chunk before (warming up over earlier frames does
+    // not change that); datasets up to this length are a single chunk.
+    // ensureStability runs over all frames, so no chunk starts flipped
+    private static final int CHUNK_FRAMES = 1024;
+
     private float[][] lastEmbedding = null;
+    private boolean temporal = false;
+    private boolean deterministic = true;
+    private String name = "UMAPStrategy";
 
     @Override
     public String getName() {
-        return "UMAPStrategy";
+        return name;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return getName() + ",v1,epochs=" + EPOCHS + ",warm=" + WARM_EPOCHS
+                + ",neighbours=" + NEAREST_NEIGHBOURS + ",chunk=" + CHUNK_FRAMES;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Function switches the temporal mode on or off. The temporal mode splits
+     * the frames into chunks of a fixed size and projects the chunks in
+     * parallel. Within a chunk, the nearest neighbours are updated from the
+     * previous frame (see {@link TemporalKnnGraph}) and every frame starts from
+     * the embedding of the previous frame with fewer epochs.
+     * 
+     * @param temporal Whether to use the temporal mode.
+     */
+    public void setTemporal(boolean temporal) {
+        this.temporal = temporal;
+        updateName();
+    }
+
+    /**
+     * Function switches the deterministic mode on or off (default on). Outside
+     * the deterministic mode the epochs of the non-temporal mode are optimized
+     * in parallel without locking (Parallel UMAPStrategy), which is faster but
+     * gives different rugs between runs. The temporal mode ignores this
+     * setting: it projects every frame of a chunk on a single thread, so its
+     * rugs are reproducible.
+     *
+     * @param deterministic Whether the rugs must be reproducible.
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+        updateName();
+    }
+
+    private void updateName() {
+        if (temporal) {
+            setName("Temporal UMAPStrategy");
+        } else if (!deterministic) {
+            setName("Parallel UMAPStrategy");
+        } else {
+            setName("UMAPStrategy");
+        }
     }
 
     @Override
@@ -40,7 +112,11 @@ public class UMAPStrategy implements Strategy {
             orderingsfolder.mkdir();
         }
 
-        File orderingfile = new File(orderingsfolder + "/" + dsName + "_UMAP_1D.csv");
+        File orderingfile = new File(orderingsfolder + "/" + dsName + "_" + getFilePrefix() + "_1D.csv");
+
+        // The non-temporal mode runs the frames one by one on the same threads
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = temporal ? null : Executors.newFixedThreadPool(threads);
 
         try {
 
@@ -51,18 +127,17 @@ public class UMAPStrategy implements Strategy {
 
             writer.write("projections sorted on id, one frame per line\n");
 
+            double[][][] results = temporal ? projectTemporal(unsorted) : null;
+
             // for each frame, we extract the positions of the movers
             for (int i = 0; i < unsorted.length; i++) {
-                System.out.println("FRAME " + i + "/" + unsorted.length);
-                // holds the positions of each mover in the frame [moverid][x/y]
-                double[][] framevalues = new double[unsorted[i].length][2];
-                // fill in the position per id
-                for (int j = 0; j < unsorted[i].length; j++) {
-                    framevalues[j][0] = unsorted[i][j].getX();
-                    framevalues[j][1] = unsorted[i][j].getY();
+                if (temporal) {
+                    result = results[i];
+                } else {
+                    System.out.println("FRAME " + i + "/" + unsorted.length);
+                    // do Umap magic on the data
+                    result = dUMAPmagic(getFrameValues(unsorted[i]), threads, executor);
                 }
-                // do Umap magic on the data
-                result = dUMAPmagic(framevalues);
 
                 StringBuilder sb = new StringBuilder();
                 // double[] values = new double[result.length];
@@ -104,144 +179,193 @@ public class UMAPStrategy implements Strategy {
 
         } catch (Exception ex) {
             Logger.getLogger(UMAPStrategy.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
         }
 
         // Make stable
         ordered = ensureStability(ordered);
-        writeOrderedToFile(ordered, dsName);
+        writeOrderedToFile(ordered, dsName, getFilePrefix());
 
         return ordered;
 
     }
 
+    private String getFilePrefix() {
+        if (temporal) {
+            return "Temporal UMAP";
+        }
+        return deterministic ? "UMAP" : "Parallel UMAP";
+    }
+
+    // holds the positions of each mover in the frame [moverid][x/y]
+    private static double[][] getFrameValues(DataPoint[] frame) {
+        double[][] framevalues = new double[frame.length][2];
+        // fill in the position per id
+        for (int j = 0; j < frame.length; j++) {
+            framevalues[j][0] = frame[j].getX();
+            framevalues[j][1] = frame[j].getY();
+        }
+        return framevalues;
+    }
+
     // does umap magic. parameters arbitrary so far.
-    private double[][] dUMAPmagic(double[][] values) {
+    private double[][] dUMAPmagic(double[][] values, int threads, ExecutorService executor) {
+        Umap umap = createUmap(EPOCHS, threads, deterministic); // use > 1 threads to enable parallelism
+        umap.setExecutor(executor);
+
+        double[][] currentEmbedding = umap.fitTransform(values, lastEmbedding);
+
+        lastEmbedding = toFloat(currentEmbedding);
+
+        return currentEmbedding;
+    }
+
+    private static Umap createUmap(int epochs, int threads, boolean deterministic) {
         Umap umap = new Umap();
         umap.setNumberComponents(1); // number of dimensions in result
         // Set nearest neighbors to half the number of entities
         // umap.setNumberNearestNeighbours(values.length);
-        umap.setNumberNearestNeighbours(4); // Low number of nearest neighbors to capture local structure
-        umap.setThreads(10); // use > 1 to enable parallelism
+        umap.setNumberNearestNeighbours(NEAREST_NEIGHBOURS); // Low number of nearest neighbors to capture local structure
+        umap.setThreads(threads);
+        umap.setDeterministic(deterministic);
 
         // Adjusting parameters for better embedding
         umap.setSpread(1.5F); // Controls how clumped the embedded points are
         umap.setMinDist(0.2F); // Controls minimum distance between points in final embedding
         umap.setLearningRate(0.01F); // Smaller learning rate for smooth convergence
-        umap.setNumberEpochs(150); // Avoid overfitting.
+        umap.setNumberEpochs(epochs); // Avoid overfitting.
 
-        double[][] currentEmbedding = umap.fitTransform(values, lastEmbedding);
+        return umap;
+    }
 
-        // double to float conversion
-        float[][] currEmbeddingFloat = new float[currentEmbedding.length][currentEmbedding[0].length];
-        for (int i = 0; i < currentEmbedding.length; i++) {
-            for (int j = 0; j < currentEmbedding[0].length; j++) {
-                currEmbeddingFloat[i][j] = (float) currentEmbedding[i][j];
+    // double to float conversion
+    private static float[][] toFloat(double[][] embedding) {
+        float[][] embeddingFloat = new float[embedding.length][embedding[0].length];
+        for (int i = 0; i < embedding.length; i++) {
+            for (int j = 0; j < embedding[0].length; j++) {
+                embeddingFloat[i][j] = (float) embedding[i][j];
             }
         }
-
-        lastEmbedding = currEmbeddingFloat;
-
-        return currentEmbedding;
+        return embeddingFloat;
     }
 
     /**
-     * Ensures that the order of the entities in the frames is stable, to prevent
-     * the dataset from flipping from frame to frame.
+     * Function projects all frames in the temporal mode. The frames are split
+     * into chunks of CHUNK_FRAMES frames, which are projected in parallel. The
+     * chunks do not depend on the number of threads, so neither do the results.
      * 
-     * @param ordered The ordered entities in the frames.
-     * @return The ordered entities in the frames with stable order.
+     * @param unsorted The movers per frame.
+     * @return The 1D projection per frame, [frame][moverid][0].
      */
-    private static DataPoint[][] ensureStability(DataPoint[][] ordered) {
+    private static double[][][] projectTemporal(DataPoint[][] unsorted) {
+        int frames = unsorted.length;
+        double[][][] results = new double[frames][][];
 
-        Integer[][] countCrossingsOrdered = new Integer[ordered.length][ordered[0].length];
-        for (int frame = 0; frame < ordered.length; frame++) {
-            for (int entityorder = 0; entityorder < ordered[frame].length; entityorder++) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int lo = 0; lo < frames; lo += CHUNK_FRAMES) {
+                final int from = lo;
+                final int to = Math.min(lo + CHUNK_FRAMES, frames);
+                futures.add(executor.submit(() -> projectChunk(unsorted, results, from, to)));
+            }
 
-                // get entity id
-                int entityid = ordered[frame][entityorder].getId();
-                countCrossingsOrdered[frame][entityid] = entityorder;
+            for (Future<?> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
         }
 
-        for (int frame = 0; frame < countCrossingsOrdered.length - 1; frame++) {
-
-            int crossings = 0;
-            int reverseCrossings = 0;
-
-            for (int entity = 0; entity < countCrossingsOrdered[frame].length; entity++) {
-                for (int entity2 = entity + 1; entity2 < countCrossingsOrdered[frame].length; entity2++) {
-
-                    // If entity < entity2 in frame 1 and entity > entity2 in frame 2
-                    if (countCrossingsOrdered[frame][entity] < countCrossingsOrdered[frame][entity2]
-                            && countCrossingsOrdered[frame + 1][entity] > countCrossingsOrdered[frame + 1][entity2]) {
-                        crossings++;
-
-                    } // If entity > entity2 in frame 1 and entity < entity2 in frame 2
-
-                    else if (countCrossingsOrdered[frame][entity] > countCrossingsOrdered[frame][entity2]
-                            && countCrossingsOrdered[frame + 1][entity] < countCrossingsOrdered[frame + 1][entity2]) {
-                        crossings++;
-                    }
-
-                    if (countCrossingsOrdered[frame][entity] < countCrossingsOrdered[frame][entity2]
-                            && countCrossingsOrdered[frame + 1][entity] < countCrossingsOrdered[frame].length - 1
-                                    - countCrossingsOrdered[frame + 1][entity2]) {
-                        reverseCrossings++;
-                    } else if (countCrossingsOrdered[frame][entity] > countCrossingsOrdered[frame][entity2]
-                            && countCrossingsOrdered[frame + 1][entity] > countCrossingsOrdered[frame].length - 1
-                                    - countCrossingsOrdered[frame + 1][entity2]) {
-                        reverseCrossings++;
-                    }
-
-                }
-            }
+        return results;
+    }
 
-            if (crossings > reverseCrossings) {
+    /**
+     * Function projects a chunk of consecutive frames. The first frame is
+     * projected from scratch, every next frame starts from the embedding and
+     * the nearest neighbours of the frame before it.
+     * 
+     * @param unsorted The movers per frame.
+     * @param results  The projections per frame, filled in for the chunk.
+     * @param from     The first frame of the chunk (inclusive).
+     * @param to       The last frame of the chunk (exclusive).
+     */
+    private static void projectChunk(DataPoint[][] unsorted, double[][][] results, int from, int to) {
 
-                boolean[] swapped = new boolean[ordered[frame].length];
-                // fill swapped with false
-                for (int i = 0; i < swapped.length; i++) {
-                    swapped[i] = false;
-                }
+        TemporalKnnGraph knn = createKnnGraph(unsorted[from].length);
 
-                // Reverse the order of the entities in the frame+1
-                for (int entity = 0; entity < countCrossingsOrdered[frame].length; entity++) {
+        float[][] embedding = null;
+        for (int i = from; i < to; i++) {
+            results[i] = projectFrame(getFrameValues(unsorted[i]), knn, embedding,
+                    embedding == null ? EPOCHS : WARM_EPOCHS);
+            embedding = toFloat(results[i]);
+        }
+    }
 
-                    // Get order before
-                    int orderBefore = countCrossingsOrdered[frame + 1][entity];
+    // The neighbours include the mover itself, as in Umap. With at most
+    // NEAREST_NEIGHBOURS movers Umap truncates the neighbours and compares all
+    // pairs itself, so there is no graph for such frames
+    private static TemporalKnnGraph createKnnGraph(int movers) {
+        return movers > NEAREST_NEIGHBOURS ? new TemporalKnnGraph(NEAREST_NEIGHBOURS) : null;
+    }
 
-                    // Set new order
-                    int orderafter = countCrossingsOrdered[frame].length - 1 - countCrossingsOrdered[frame + 1][entity];
+    // projects one frame of the temporal mode, from scratch if embedding is null
+    private static double[][] projectFrame(double[][] framevalues, TemporalKnnGraph knn, float[][] embedding,
+            int epochs) {
+        Umap umap = createUmap(epochs, 1, true);
+        if (knn == null) {
+            return umap.fitTransform(framevalues, embedding);
+        }
+        knn.update(framevalues);
+        return umap.fitTransform(framevalues, knn.getIndices(), knn.getDistances(), embedding);
+    }
 
-                    if (swapped[orderBefore] || swapped[orderafter]) {
-                        continue;
-                    }
+    /**
+     * Ensures that the order of the entities in the frames is stable, to prevent
+     * the dataset from flipping from frame to frame. A frame is reversed if that
+     * gives fewer crossings with the (possibly reversed) frame before it.
+     * 
+     * @param ordered The ordered entities in the frames.
+     * @return The ordered entities in the frames with stable order.
+     */
+    private static DataPoint[][] ensureStability(DataPoint[][] ordered) {
 
-                    // Get corresponding entities
-                    DataPoint entity1 = ordered[frame + 1][orderBefore];
-                    DataPoint entity2 = ordered[frame + 1][orderafter];
+        // Crossings between the frames as computed, in both directions
+        Inversions.Counts[] counts = Inversions.countFrames(Inversions.toRanks(ordered),
+                Runtime.getRuntime().availableProcessors());
 
-                    // Swap entities
-                    ordered[frame + 1][orderBefore] = entity2;
-                    ordered[frame + 1][orderafter] = entity1;
+        // Reversing frame + 1 swaps its forward and reverse crossings with
+        // frame + 2, so whether frame + 1 is reversed only depends on whether
+        // frame is reversed
+        boolean reversed = false;
+        for (int frame = 0; frame < counts.length; frame++) {
 
-                    // Update the countCrossingsOrdered
-                    countCrossingsOrdered[frame + 1][entity] = countCrossingsOrdered[frame].length - 1
-                            - countCrossingsOrdered[frame + 1][entity];
+            long crossings = reversed ? counts[frame].getReverseCrossings() : counts[frame].getCrossings();
+            long reverseCrossings = reversed ? counts[frame].getCrossings() : counts[frame].getReverseCrossings();
 
-                    // Mark as swapped
-                    swapped[orderBefore] = true;
-                    swapped[orderafter] = true;
+            reversed = crossings > reverseCrossings;
 
+            if (reversed) {
+                // Reverse the order of the entities in the frame+1
+                DataPoint[] next = ordered[frame + 1];
+                for (int i = 0, j = next.length - 1; i < j; i++, j--) {
+                    DataPoint swap = next[i];
+                    next[i] = next[j];
+                    next[j] = swap;
                 }
             }
-
         }
 
         return ordered;
     }
 
-    private static void writeOrderedToFile(DataPoint[][] ordered, String dsName) {
+    private static void writeOrderedToFile(DataPoint[][] ordered, String dsName, String filePrefix) {
 
         // code to extract 1D values
         String userdir = System.getProperty("user.home");
@@ -251,7 +375,7 @@ public class UMAPStrategy implements Strategy {
 
         }
 
-        File orderingfile = new File(orderingsfolder + "/" + dsName + "_UMAP_ordering.csv");
+        File orderingfile = new File(orderingsfolder + "/" + dsName + "_" + filePrefix + "_ordering.csv");
 
         try {
 
@@ -6,6 +6,7 @@
 package tagbio.umap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ExecutionException;
@@ -17,14 +18,22 @@ import tagbio.umap.metric.Metric;
 
 /**
  * Nearest neighbor descent for a specified distance metric.
- * Nondeterministic parallel version.
+ * Deterministic parallel version: every round the candidate updates of fixed
+ * blocks of vertices are computed in parallel, each block with its own random
+ * source, and then pushed onto the graph in block order. The graph therefore
+ * only depends on the random source, not on the number of threads. With one
+ * thread the blocks run inline.
  * @author Leland McInnes (Python)
  * @author Sean A. Irvine
  * @author Richard Littin
  */
 class ParallelNearestNeighborDescent extends  NearestNeighborDescent {
 
+  // Number of vertices per block, fixed so the result does not depend on the threads
+  private static final int BLOCK_SIZE = 1024;
+
   private final int mThreads;
+  private final ExecutorService mExecutor;
 
   /**
    * Construct a nearest neighbor descent object for the given metric.
@@ -32,11 +41,24 @@ class ParallelNearestNeighborDescent extends  NearestNeighborDescent {
    * @param threads number of threads
    */
   ParallelNearestNeighborDescent(final Metric metric, final int threads) {
+    this(metric, threads, null);
+  }
+
+  /**
+   * Construct a nearest neighbor descent object for the given metric, running
+   * on a shared executor.
+   * @param metric distance function
+   * @param threads number of threads
+   * @param executor executor to run on, or null to create a thread pool for each
+   *                 descent with more than one thread
+   */
+  ParallelNearestNeighborDescent(final Metric metric, final int threads, final ExecutorService executor) {
     super(metric);
     if (threads < 1) {
       throw new IllegalArgumentException();
     }
     mThreads = threads;
+    mExecutor = executor;
   }
 
   @Override
@@ -46,58 +68,42 @@ class ParallelNearestNeighborDescent extends  NearestNeighborDescent {
 
   @Override
   Heap descent(final Matrix data, final int nNeighbors, final Random random, final int maxCandidates, final boolean rpTreeInit, final int nIters, final List<FlatTree> forest, final float delta, final float rho) {
-    final ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+    final ExecutorService executor = mThreads == 1 ? null
+        : mExecutor != null ? mExecutor : Executors.newFixedThreadPool(mThreads);
     try {
       UmapProgress.incTotal(nIters);
 
-      final List<Future<Integer>> futures = new ArrayList<>();
-
       final int nVertices = data.rows();
       final Heap currentGraph = new Heap(data.rows(), nNeighbors);
+      final float[][] weights = currentGraph.weights();
 
-      final int jobs = (int)(mThreads * (1 + MathUtils.log2(mThreads)));
-      final int chunkSize = (nVertices + jobs - 1) / jobs;
-
-      for (int t = 0; t < jobs; ++t) {
-        final int lo = t * chunkSize;
-        final int hi = Math.min((t + 1) * chunkSize, nVertices);
-        futures.add(executor.submit(() -> {
-          for (int i = lo; i < hi; ++i) {
-            final float[] iRow = data.row(i);
-            for (final int index : Utils.rejectionSample(nNeighbors, data.rows(), random)) {
-              final float d = mMetric.distance(iRow, data.row(index));
-              currentGraph.push(i, d, index, true);
-              currentGraph.push(index, d, i, true);
-            }
+      final int blocks = (nVertices + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+      final Random[] initRandoms = Utils.splitRandom(random, blocks);
+      update(executor, currentGraph, blocks, (block, updates) -> {
+        final Random blockRandom = initRandoms[block];
+        for (int i = block * BLOCK_SIZE; i < Math.min((block + 1) * BLOCK_SIZE, nVertices); ++i) {
+          final float[] iRow = data.row(i);
+          for (final int index : Utils.rejectionSample(nNeighbors, data.rows(), blockRandom)) {
+            updates.add(i, index, mMetric.distance(iRow, data.row(index)));
           }
-          return 0;
-        }));
-      }
-      waitForFutures(futures);
+        }
+      });
 
       if (rpTreeInit) {
-        final int cs = (forest.size() + jobs - 1) / jobs;
-        for (int t = 0; t < jobs; ++t) {
-          final int lo = t * cs;
-          final int hi = Math.min((t + 1) * cs, forest.size());
-          futures.add(executor.submit(() -> {
-            //System.out.println("T: " + lo + ":" + hi + " : " + leafArray.length);
-            for (int l = lo; l < hi; ++l) {
-              for (final int[] leaf : forest.get(l).getIndices()) {
-                for (int i = 0; i < leaf.length; ++i) {
-                  final float[] iRow = data.row(leaf[i]);
-                  for (int j = i + 1; j < leaf.length; ++j) {
-                    final float d = mMetric.distance(iRow, data.row(leaf[j]));
-                    currentGraph.push(leaf[i], d, leaf[j], true);
-                    currentGraph.push(leaf[j], d, leaf[i], true);
-                  }
+        update(executor, currentGraph, forest.size(), (tree, updates) -> {
+          for (final int[] leaf : forest.get(tree).getIndices()) {
+            for (int i = 0; i < leaf.length; ++i) {
+              final float[] iRow = data.row(leaf[i]);
+              for (int j = i + 1; j < leaf.length; ++j) {
+                final float d = mMetric.distance(iRow, data.row(leaf[j]));
+                if (d < weights[leaf[i]][0] || d < weights[leaf[j]][0]) {
+                  updates.add(leaf[i], leaf[j], d);
                 }
               }
             }
-            return 0;
-          }));
-        }
-        waitForFutures(futures);
+          }
+        });
       }
 
       for (int n = 0; n < nIters; ++n) {
@@ -107,43 +113,35 @@ class ParallelNearestNeighborDescent extends  NearestNeighborDescent {
 
         final Heap candidateNeighbors = currentGraph.buildCandidates(nVertices, nNeighbors, maxCandidates, random);
 
-        for (int t = 0; t < jobs; ++t) {
-          final int lo = t * chunkSize;
-          final int hi = Math.min((t + 1) * chunkSize, nVertices);
-          futures.add(executor.submit(() -> {
-            final boolean[] rejectStatus = new boolean[maxCandidates];
-            int c = 0;
-            for (int i = lo; i < hi; ++i) {
-              for (int j = 0; j < maxCandidates; ++j) {
-                rejectStatus[j] = random.nextFloat() < rho;
+        final Random[] randoms = Utils.splitRandom(random, blocks);
+        final int c = update(executor, currentGraph, blocks, (block, updates) -> {
+          final Random blockRandom = randoms[block];
+          final boolean[] rejectStatus = new boolean[maxCandidates];
+          for (int i = block * BLOCK_SIZE; i < Math.min((block + 1) * BLOCK_SIZE, nVertices); ++i) {
+            for (int j = 0; j < maxCandidates; ++j) {
+              rejectStatus[j] = blockRandom.nextFloat() < rho;
+            }
+
+            for (int j = 0; j < maxCandidates; ++j) {
+              final int p = candidateNeighbors.index(i, j);
+              if (p < 0) {
+                continue;
               }
 
-              for (int j = 0; j < maxCandidates; ++j) {
-                final int p = candidateNeighbors.index(i, j);
-                if (p < 0) {
+              for (int k = 0; k <= j; ++k) {
+                final int q = candidateNeighbors.index(i, k);
+                if (q < 0 || (rejectStatus[j] && rejectStatus[k]) || (!candidateNeighbors.isNew(i, j) && !candidateNeighbors.isNew(i, k))) {
                   continue;
                 }
 
-                for (int k = 0; k <= j; ++k) {
-                  final int q = candidateNeighbors.index(i, k);
-                  if (q < 0 || (rejectStatus[j] && rejectStatus[k]) || (!candidateNeighbors.isNew(i, j) && !candidateNeighbors.isNew(i, k))) {
-                    continue;
-                  }
-
-                  final float d = mMetric.distance(data.row(p), data.row(q));
-                  if (currentGraph.push(p, d, q, true)) {
-                    ++c;
-                  }
-                  if (currentGraph.push(q, d, p, true)) {
-                    ++c;
-                  }
+                final float d = mMetric.distance(data.row(p), data.row(q));
+                if (d < weights[p][0] || d < weights[q][0]) {
+                  updates.add(p, q, d);
                 }
               }
             }
-            return c;
-          }));
-        }
-        final int c = waitForFutures(futures);
+          }
+        });
 
         if (c <= delta * nNeighbors * data.rows()) {
           UmapProgress.update(nIters - n);
@@ -156,7 +154,96 @@ class ParallelNearestNeighborDescent extends  NearestNeighborDescent {
     } catch (InterruptedException | ExecutionException ex) {
       throw new RuntimeException(ex);
     } finally {
-      executor.shutdown();
+      if (executor != null && executor != mExecutor) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Compute the updates of all blocks in parallel, then push them onto the
+   * graph. Each job pushes the updates of a range of rows, in block order, so
+   * every row sees its updates in the same order whatever the number of jobs.
+   * Without an executor everything runs inline, as a single job.
+   * @return number of updates that changed the graph
+   */
+  private int update(final ExecutorService executor, final Heap graph, final int blocks, final BlockTask task) throws InterruptedException, ExecutionException {
+    final Updates[] updates = new Updates[blocks];
+    final int rows = graph.indices().length;
+    if (executor == null) {
+      for (int block = 0; block < blocks; ++block) {
+        updates[block] = new Updates();
+        task.run(block, updates[block]);
+      }
+      return push(graph, updates, 0, rows);
+    }
+
+    final List<Future<Integer>> futures = new ArrayList<>();
+    for (int b = 0; b < blocks; ++b) {
+      final int block = b;
+      updates[block] = new Updates();
+      futures.add(executor.submit(() -> {
+        task.run(block, updates[block]);
+        return 0;
+      }));
+    }
+    waitForFutures(futures);
+
+    final int jobs = Math.min(rows, mThreads);
+    for (int t = 0; t < jobs; ++t) {
+      final int lo = (int) ((long) rows * t / jobs);
+      final int hi = (int) ((long) rows * (t + 1) / jobs);
+      futures.add(executor.submit(() -> push(graph, updates, lo, hi)));
+    }
+    return waitForFutures(futures);
+  }
+
+  /**
+   * Push the updates of all blocks onto the rows from lo (inclusive) to hi
+   * (exclusive) of the graph.
+   * @return number of updates that changed the graph
+   */
+  private static int push(final Heap graph, final Updates[] updates, final int lo, final int hi) {
+    int c = 0;
+    for (final Updates u : updates) {
+      for (int m = 0; m < u.mSize; ++m) {
+        final int p = u.mFrom[m];
+        final int q = u.mTo[m];
+        final float d = u.mDistances[m];
+        if (p >= lo && p < hi && graph.push(p, d, q, true)) {
+          ++c;
+        }
+        if (q >= lo && q < hi && graph.push(q, d, p, true)) {
+          ++c;
+        }
+      }
+    }
+    return c;
+  }
+
+  private interface BlockTask {
+    void run(int block, Updates updates);
+  }
+
+  /**
+   * Candidate edges of a block, to be pushed onto the graph in both directions.
+   */
+  private static final class Updates {
+    private int[] mFrom = new int[BLOCK_SIZE];
+    private int[] mTo = new int[BLOCK_SIZE];
+    private float[] mDistances = new float[BLOCK_SIZE];
+    private int mSize = 0;
+
+    void add(final int from, final int to, final float distance) {
+      if (mSize == mFrom.length) {
+        mFrom = Arrays.copyOf(mFrom, 2 * mSize);
+        mTo = Arrays.copyOf(mTo, 2 * mSize);
+        mDistances = Arrays.copyOf(mDistances, 2 * mSize);
+      }
+      mFrom[mSize] = from;
+      mTo[mSize] = to;
+      mDistances[mSize] = distance;
+      ++mSize;
     }
   }
 
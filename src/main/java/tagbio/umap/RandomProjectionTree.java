@@ -517,12 +517,16 @@ final class RandomProjectionTree {
   }
 
   static List<FlatTree> makeForest(final Matrix data, final int nNeighbors, final int nTrees, final Random random, final boolean angular, int threads) {
+    return makeForest(data, nNeighbors, nTrees, random, angular, threads, null);
+  }
+
+  static List<FlatTree> makeForest(final Matrix data, final int nNeighbors, final int nTrees, final Random random, final boolean angular, int threads, final ExecutorService sharedExecutor) {
     if (threads == 1) {
       return makeForest(data, nNeighbors, nTrees, random, angular);
     }
     final Random[] randoms = Utils.splitRandom(random, nTrees);  // insure same set of random numbers for 1 and multiple threads
 
-    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final ExecutorService executor = sharedExecutor != null ? sharedExecutor : Executors.newFixedThreadPool(threads);
     try {
       final List<Future<FlatTree>> futures = new ArrayList<>();
 
@@ -543,7 +547,9 @@ final class RandomProjectionTree {
       }
       return result;
     } finally {
-      executor.shutdown();
+      if (sharedExecutor == null) {
+        executor.shutdown();
+      }
     }
   }
 }
@@ -5,10 +5,15 @@
  */
 package tagbio.umap;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import tagbio.umap.metric.CategoricalMetric;
 import tagbio.umap.metric.EuclideanMetric;
@@ -32,6 +37,8 @@ public class Umap {
   private static final float MIN_K_DIST_SCALE = 1e-3F;
 
   private static final int SMALL_PROBLEM_THRESHOLD = 4096;
+  // Epochs over fewer edges are not worth splitting over threads
+  private static final int MIN_PARALLEL_EDGES = 4096;
 
   /**
    * Compute a continuous version of the distance to the kth nearest
@@ -153,6 +160,9 @@ public class Umap {
    * @param metric     The metric to use for the computation.
    * @param angular    Whether to use angular rp trees in NN approximation.
    * @param random     The random state to use for approximate NN computations.
+   * @param threads    The number of threads to use.
+   * @param executor   The executor to run on, or null to create a thread pool
+   *                   where needed.
    * @param verbose    Whether to print status data during the computation.
    * @return knnIndices: array of shape <code>(nSamples, nNeighbors)</code>
    *         The indices on the <code>nNeighbors</code> closest points in the
@@ -162,7 +172,8 @@ public class Umap {
    *         dataset.
    */
   static IndexedDistances nearestNeighbors(final Matrix instances, final int nNeighbors, final Metric metric,
-      boolean angular, final Random random, final int threads, final boolean verbose) {
+      boolean angular, final Random random, final int threads, final ExecutorService executor,
+      final boolean verbose) {
     if (verbose) {
       Utils.message("Finding nearest neighbors");
     }
@@ -219,8 +230,10 @@ public class Umap {
         // knnIndices = (int[][]) nn[0];
         // knnDists = (float[][]) nn[1];
       } else {
-        final NearestNeighborDescent metricNearestNeighborsDescent = threads == 1 ? new NearestNeighborDescent(metric)
-            : new ParallelNearestNeighborDescent(metric, threads);
+        // The block-based descent for any number of threads, so the graph does not
+        // depend on the threads
+        final NearestNeighborDescent metricNearestNeighborsDescent = new ParallelNearestNeighborDescent(metric,
+            threads, executor);
         final int nTrees = 5 + (int) (Math.round(Math.pow(instances.rows(), 0.5) / 20.0));
         final int nIters = Math.max(5, (int) (Math.round(MathUtils.log2(instances.rows()))));
         UmapProgress.incTotal(nIters + nTrees + 2);
@@ -228,7 +241,8 @@ public class Umap {
         if (verbose) {
           Utils.message("Building random projection forest with " + nTrees + " trees");
         }
-        rpForest = RandomProjectionTree.makeForest(instances, nNeighbors, nTrees, random, isAngular, threads);
+        rpForest = RandomProjectionTree.makeForest(instances, nNeighbors, nTrees, random, isAngular, threads,
+            executor);
         if (verbose) {
           long nodeCount = 0;
           for (final FlatTree tree : rpForest) {
@@ -376,6 +390,8 @@ public class Umap {
    *                          the local intrinsic
    *                          dimension of the manifold.
    * @param threads           Number of threads
+   * @param executor          Executor to run on, or null to create a thread pool
+   *                          where needed.
    * @param verbose           Whether to report information on the current
    *                          progress of the algorithm.
    * @return A fuzzy simplicial set represented as a sparse matrix. The
@@ -385,10 +401,11 @@ public class Umap {
    */
   static Matrix fuzzySimplicialSet(final Matrix instances, final int nNeighbors, final Random random,
       final Metric metric, int[][] knnIndices, float[][] knnDists, final boolean angular, final float setOpMixRatio,
-      final int localConnectivity, final int threads, final boolean verbose) {
+      final int localConnectivity, final int threads, final ExecutorService executor, final boolean verbose) {
 
     if (knnIndices == null || knnDists == null) {
-      final IndexedDistances nn = nearestNeighbors(instances, nNeighbors, metric, angular, random, threads, verbose);
+      final IndexedDistances nn = nearestNeighbors(instances, nNeighbors, metric, angular, random, threads, executor,
+          verbose);
       knnIndices = nn.getIndices();
       knnDists = nn.getDistances();
     }
@@ -521,6 +538,12 @@ public class Umap {
    * @param initialAlpha       Initial learning rate for the SGD.
    * @param negativeSampleRate Number of negative samples to use per positive
    *                           sample.
+   * @param threads            The number of threads to use. With more than one
+   *                           thread the edges are split over the threads,
+   *                           which update the embedding without locking, so
+   *                           the result is not deterministic.
+   * @param executor           The executor to run on, or null to create a
+   *                           thread pool if needed.
    * @param verbose            Whether to report information on the current
    *                           progress of the algorithm.
    * @return array of shape <code>(nSamples, nComponents)</code> The optimized
@@ -529,83 +552,144 @@ public class Umap {
   private Matrix optimizeLayout(final Matrix headEmbedding, final Matrix tailEmbedding, final int[] head,
       final int[] tail, final int nEpochs, final int nVertices, final float[] epochsPerSample, final float a,
       final float b, final Random random, final float gamma, final float initialAlpha, final float negativeSampleRate,
-      final boolean verbose) {
+      final int threads, final ExecutorService executor, final boolean verbose) {
 
     if (!(headEmbedding instanceof DefaultMatrix)) {
       throw new UnsupportedOperationException("Require matrix we can set entries on");
     }
 
-    final int dim = headEmbedding.cols();
-    final boolean moveOther = headEmbedding.rows() == tailEmbedding.rows();
-    float alpha = initialAlpha;
-
+    final int nEdges = epochsPerSample.length;
     final float[] epochsPerNegativeSample = MathUtils.divide(epochsPerSample, negativeSampleRate);
     final float[] epochOfNextNegativeSample = Arrays.copyOf(epochsPerNegativeSample, epochsPerNegativeSample.length);
     final float[] epochOfNextSample = Arrays.copyOf(epochsPerSample, epochsPerSample.length);
 
-    for (int n = 0; n < nEpochs; ++n) {
-      for (int i = 0; i < epochsPerSample.length; ++i) {
-        if (epochOfNextSample[i] <= n) {
-          final int j = head[i];
-          final int k = tail[i];
-          // Note this assumes that "current" is a pointer to the internal matrix data,
-          // not ideal from a data encapsulation point of view.
-          final float[] current = headEmbedding.row(j);
-          float[] other = tailEmbedding.row(k);
-
-          float distSquared = ReducedEuclideanMetric.SINGLETON.distance(current, other);
-
-          float gradCoeff;
-          if (distSquared > 0.0) {
-            gradCoeff = (float) ((-2.0 * a * b * Math.pow(distSquared, b - 1.0))
-                / (a * Math.pow(distSquared, b) + 1.0));
-          } else {
-            gradCoeff = 0;
-          }
+    // Hogwild: each job owns a contiguous range of edges and its own random
+    // source, and all jobs update the embedding without locking
+    final int jobs = threads > 1 && nEdges >= MIN_PARALLEL_EDGES ? Math.min(nEdges, threads * 4) : 1;
+    final Random[] randoms = new Random[jobs];
+    if (jobs == 1) {
+      randoms[0] = random;
+    } else {
+      for (int t = 0; t < jobs; ++t) {
+        randoms[t] = new Random(random.nextLong());
+      }
+    }
 
-          for (int d = 0; d < dim; ++d) {
-            final float gradD = clip(gradCoeff * (current[d] - other[d]));
-            current[d] += gradD * alpha;
-            if (moveOther) {
-              other[d] += -gradD * alpha;
-            }
+    final ExecutorService jobExecutor = jobs == 1 ? null
+        : executor != null ? executor : Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      float alpha = initialAlpha;
+
+      for (int n = 0; n < nEpochs; ++n) {
+        if (jobExecutor == null) {
+          optimizeEdges(headEmbedding, tailEmbedding, head, tail, 0, nEdges, n, nVertices, epochsPerSample,
+              epochOfNextSample, epochsPerNegativeSample, epochOfNextNegativeSample, a, b, random, gamma, alpha);
+        } else {
+          for (int t = 0; t < jobs; ++t) {
+            final int lo = (int) ((long) nEdges * t / jobs);
+            final int hi = (int) ((long) nEdges * (t + 1) / jobs);
+            final Random jobRandom = randoms[t];
+            final int epoch = n;
+            final float epochAlpha = alpha;
+            futures.add(jobExecutor.submit(() -> optimizeEdges(headEmbedding, tailEmbedding, head, tail, lo, hi, epoch,
+                nVertices, epochsPerSample, epochOfNextSample, epochsPerNegativeSample, epochOfNextNegativeSample, a,
+                b, jobRandom, gamma, epochAlpha)));
+          }
+          for (final Future<?> future : futures) {
+            future.get();
           }
+          futures.clear();
+        }
 
-          epochOfNextSample[i] += epochsPerSample[i];
+        alpha = initialAlpha * (1 - (float) n / (float) nEpochs);
 
-          final int nNegSamples = (int) ((n - epochOfNextNegativeSample[i]) / epochsPerNegativeSample[i]);
+        if (verbose && n % (nEpochs / 10) == 0) {
+          Utils.message("Completed " + n + "/" + nEpochs);
+        }
+        UmapProgress.update();
+      }
+    } catch (InterruptedException | ExecutionException ex) {
+      throw new RuntimeException(ex);
+    } finally {
+      if (jobExecutor != null && jobExecutor != executor) {
+        jobExecutor.shutdown();
+      }
+    }
+    return headEmbedding;
+  }
 
-          for (int p = 0; p < nNegSamples; ++p) {
-            final int kr = random.nextInt(nVertices);
-            other = tailEmbedding.row(kr);
-            distSquared = ReducedEuclideanMetric.SINGLETON.distance(current, other);
+  /**
+   * Perform one epoch of stochastic gradient descent on a range of the edges,
+   * see {@link #optimizeLayout}.
+   *
+   * @param lo    The first edge (inclusive).
+   * @param hi    The last edge (exclusive).
+   * @param n     The current epoch.
+   * @param alpha The learning rate of the epoch.
+   */
+  private static void optimizeEdges(final Matrix headEmbedding, final Matrix tailEmbedding, final int[] head,
+      final int[] tail, final int lo, final int hi, final int n, final int nVertices, final float[] epochsPerSample,
+      final float[] epochOfNextSample, final float[] epochsPerNegativeSample, final float[] epochOfNextNegativeSample,
+      final float a, final float b, final Random random, final float gamma, final float alpha) {
 
-            if (distSquared > 0) {
-              gradCoeff = 2.0F * gamma * b / (float) ((0.001 + distSquared) * (a * Math.pow(distSquared, b) + 1));
-            } else if (j == kr) {
-              continue;
-            } else {
-              gradCoeff = 0;
-            }
+    final int dim = headEmbedding.cols();
+    final boolean moveOther = headEmbedding.rows() == tailEmbedding.rows();
 
-            for (int d = 0; d < dim; ++d) {
-              final float gradD = gradCoeff > 0.0 ? clip(gradCoeff * (current[d] - other[d])) : 4;
-              current[d] += gradD * alpha;
-            }
-          }
+    for (int i = lo; i < hi; ++i) {
+      if (epochOfNextSample[i] <= n) {
+        final int j = head[i];
+        final int k = tail[i];
+        // Note this assumes that "current" is a pointer to the internal matrix data,
+        // not ideal from a data encapsulation point of view.
+        final float[] current = headEmbedding.row(j);
+        float[] other = tailEmbedding.row(k);
+
+        float distSquared = ReducedEuclideanMetric.SINGLETON.distance(current, other);
+
+        float gradCoeff;
+        if (distSquared > 0.0) {
+          // d^(b-1) = d^b / d
+          final double powB = Math.pow(distSquared, b);
+          gradCoeff = (float) ((-2.0 * a * b * powB / distSquared) / (a * powB + 1.0));
+        } else {
+          gradCoeff = 0;
+        }
 
-          epochOfNextNegativeSample[i] += nNegSamples * epochsPerNegativeSample[i];
+        for (int d = 0; d < dim; ++d) {
+          final float gradD = clip(gradCoeff * (current[d] - other[d]));
+          current[d] += gradD * alpha;
+          if (moveOther) {
+            other[d] += -gradD * alpha;
+          }
         }
-      }
 
-      alpha = initialAlpha * (1 - (float) n / (float) nEpochs);
+        epochOfNextSample[i] += epochsPerSample[i];
+
+        final int nNegSamples = (int) ((n - epochOfNextNegativeSample[i]) / epochsPerNegativeSample[i]);
+
+        for (int p = 0; p < nNegSamples; ++p) {
+          final int kr = random.nextInt(nVertices);
+          other = tailEmbedding.row(kr);
+          distSquared = ReducedEuclideanMetric.SINGLETON.distance(current, other);
 
-      if (verbose && n % (nEpochs / 10) == 0) {
-        Utils.message("Completed " + n + "/" + nEpochs);
+          if (distSquared > 0) {
+            gradCoeff = 2.0F * gamma * b / (float) ((0.001 + distSquared) * (a * Math.pow(distSquared, b) + 1));
+          } else if (j == kr) {
+            continue;
+          } else {
+            gradCoeff = 0;
+          }
+
+          for (int d = 0; d < dim; ++d) {
+            final float gradD = gradCoeff > 0.0 ? clip(gradCoeff * (current[d] - other[d])) : 4;
+            current[d] += gradD * alpha;
+          }
+        }
+
+        epochOfNextNegativeSample[i] += nNegSamples * epochsPerNegativeSample[i];
       }
-      UmapProgress.update();
     }
-    return headEmbedding;
   }
 
   /**
@@ -729,7 +813,7 @@ public class Umap {
     // so (head, tail, epochsPerSample) is like a CooMatrix
 
     return optimizeLayout(embedding, embedding, head, tail, nEpochs, nVertices, epochsPerSample, a, b, random, gamma,
-        initialAlpha, negativeSampleRate, verbose);
+        initialAlpha, negativeSampleRate, mDeterministic ? 1 : mThreads, mExecutor, verbose);
   }
 
   /**
@@ -806,6 +890,8 @@ public class Umap {
   // private final Float mB = null;
   private Random mRandom = new Random(42);
   private int mThreads = 1;
+  private boolean mDeterministic = true;
+  private ExecutorService mExecutor = null;
 
   private float mInitialAlpha;
   private int mRunNNeighbors;
@@ -1144,6 +1230,31 @@ public class Umap {
     mThreads = threads;
   }
 
+  /**
+   * Whether the optimization of the embedding must be deterministic (default
+   * true). If false and more than one thread is set, the epochs of the
+   * optimization are split over the threads, which update the embedding
+   * without locking. This is faster, but the embedding then differs between
+   * runs even with the same seed.
+   * 
+   * @param deterministic true for a reproducible embedding
+   */
+  public void setDeterministic(final boolean deterministic) {
+    mDeterministic = deterministic;
+  }
+
+  /**
+   * Set a long-lived executor to run the parallel parts of the computation on,
+   * instead of creating a thread pool for each of them (default none). The
+   * executor should have the number of threads given to
+   * {@link #setThreads(int)}, and it is not shut down.
+   * 
+   * @param executor executor, or null to create thread pools where needed
+   */
+  public void setExecutor(final ExecutorService executor) {
+    mExecutor = executor;
+  }
+
   private void validateParameters() {
     if (mMinDist > mSpread) {
       throw new IllegalArgumentException("minDist must be less than or equal to spread");
@@ -1177,6 +1288,25 @@ public class Umap {
    * @throws IllegalArgumentException if the matrix contains non-finite elements.
    */
   private void fit(Matrix instances, float[] y, float[][] init) {
+    fit(instances, y, init, null, null);
+  }
+
+  /**
+   * Fit instances into an embedded space, optionally with precomputed nearest
+   * neighbors.
+   * 
+   * @param instances  array of shape <code>(nSamples, nFeatures)</code>.
+   * @param y          array of shape <code>(nSamples)</code> or null.
+   * @param init       initial embedding or null for a random one.
+   * @param knnIndices array of shape <code>(nSamples, nNeighbors)</code> or
+   *                   null. The indices of the nearest neighbors of each
+   *                   sample, starting with the sample itself.
+   * @param knnDists   array of shape <code>(nSamples, nNeighbors)</code> or
+   *                   null. The distances to those neighbors.
+   * @throws IllegalArgumentException if the matrix contains non-finite elements
+   *                                  or the neighbors do not match the data.
+   */
+  private void fit(Matrix instances, float[] y, float[][] init, int[][] knnIndices, float[][] knnDists) {
 
     if (!instances.isFinite()) {
       throw new IllegalArgumentException("Supplied matrix of instances contains non-finite elements");
@@ -1224,23 +1354,35 @@ public class Umap {
     }
     UmapProgress.update();
 
-    // Handle small cases efficiently by computing all distances
-    if (instances.rows() < SMALL_PROBLEM_THRESHOLD) {
+    if (knnIndices != null) {
+      if (knnIndices.length != instances.rows() || knnDists.length != instances.rows()
+          || knnIndices[0].length != mRunNNeighbors || knnDists[0].length != mRunNNeighbors) {
+        throw new IllegalArgumentException("Nearest neighbors must have shape (" + instances.rows() + ", "
+            + mRunNNeighbors + ")");
+      }
+      // Transform computes all distances to the raw data, as for small cases
+      mSmallData = true;
+      mKnnIndices = knnIndices;
+      mKnnDists = knnDists;
+      mGraph = fuzzySimplicialSet(instances, mRunNNeighbors, mRandom, mMetric, mKnnIndices, mKnnDists,
+          mAngularRpForest, mSetOpMixRatio, mLocalConnectivity, mThreads, mExecutor, mVerbose);
+    } else if (instances.rows() < SMALL_PROBLEM_THRESHOLD) {
+      // Handle small cases efficiently by computing all distances
       mSmallData = true;
       final Matrix dmat = PairwiseDistances.pairwiseDistances(instances, mMetric);
       mGraph = fuzzySimplicialSet(dmat, mRunNNeighbors, mRandom, PrecomputedMetric.SINGLETON, null, null,
-          mAngularRpForest, mSetOpMixRatio, mLocalConnectivity, mThreads, mVerbose);
+          mAngularRpForest, mSetOpMixRatio, mLocalConnectivity, mThreads, mExecutor, mVerbose);
     } else {
       mSmallData = false;
       // Standard case
       final IndexedDistances nn = nearestNeighbors(instances, mRunNNeighbors, mMetric, mAngularRpForest, mRandom,
-          mThreads, mVerbose);
+          mThreads, mExecutor, mVerbose);
       mKnnIndices = nn.getIndices();
       mKnnDists = nn.getDistances();
       mRpForest = nn.getForest();
 
       mGraph = fuzzySimplicialSet(instances, mNNeighbors, mRandom, mMetric, mKnnIndices, mKnnDists, mAngularRpForest,
-          mSetOpMixRatio, mLocalConnectivity, mThreads, mVerbose);
+          mSetOpMixRatio, mLocalConnectivity, mThreads, mExecutor, mVerbose);
 
       final Metric distanceFunc = mMetric;
       if (mMetric == PrecomputedMetric.SINGLETON) {
@@ -1266,11 +1408,11 @@ public class Umap {
         if (y.length < SMALL_PROBLEM_THRESHOLD) {
           final Matrix ydmat = PairwiseDistances.pairwiseDistances(MathUtils.promoteTranspose(y), mTargetMetric);
           targetGraph = fuzzySimplicialSet(ydmat, targetNNeighbors, mRandom, PrecomputedMetric.SINGLETON, null, null,
-              false, 1, 1, mThreads, false);
+              false, 1, 1, mThreads, mExecutor, false);
         } else {
           // Standard case
           targetGraph = fuzzySimplicialSet(MathUtils.promoteTranspose(y), targetNNeighbors, mRandom, mTargetMetric,
-              null, null, false, 1, 1, mThreads, false);
+              null, null, false, 1, 1, mThreads, mExecutor, false);
         }
         mGraph = generalSimplicialSetIntersection(mGraph, targetGraph, mTargetWeight);
         mGraph = resetLocalConnectivity(mGraph);
@@ -1374,13 +1516,38 @@ public class Umap {
    *         Embedding of the training data in low-dimensional space.
    */
   public double[][] fitTransform(final double[][] instances, float[][] init) {
+    return fitTransform(instances, null, null, init);
+  }
+
+  /**
+   * Fit instances into an embedded space using precomputed nearest neighbors
+   * and return that transformed output. This skips the nearest neighbor search,
+   * for callers that can update the neighbors of similar data cheaply.
+   * This version internally converts all the doubles to floats.
+   * 
+   * @param instances  array of shape <code>(nSamples, nFeatures)</code>.
+   * @param knnIndices array of shape <code>(nSamples, nNeighbors)</code>
+   *                   The indices of the nearest neighbors of each sample,
+   *                   starting with the sample itself, or null to search them.
+   *                   <code>nNeighbors</code> is the number of nearest
+   *                   neighbors, or <code>nSamples - 1</code> if that is
+   *                   smaller.
+   * @param knnDists   array of shape <code>(nSamples, nNeighbors)</code>
+   *                   The distances to those neighbors, or null.
+   * @param init       initial embedding or null for a random one.
+   * @return array of shape <code>(nSamples, nComponents)</code>
+   *         Embedding of the training data in low-dimensional space.
+   */
+  public double[][] fitTransform(final double[][] instances, final int[][] knnIndices, final float[][] knnDists,
+      float[][] init) {
     final float[][] input = new float[instances.length][instances[0].length];
     for (int k = 0; k < instances.length; ++k) {
       for (int j = 0; j < instances[0].length; ++j) {
         input[k][j] = (float) instances[k][j];
       }
     }
-    final Matrix result = fitTransform(new DefaultMatrix(input), null, init);
+    fit(new DefaultMatrix(input), null, init, knnIndices, knnDists);
+    final Matrix result = mEmbedding;
     final double[][] output = new double[result.rows()][result.cols()];
     for (int k = 0; k < result.rows(); ++k) {
       for (int j = 0; j < result.cols(); ++j) {
@@ -1480,7 +1647,8 @@ public class Umap {
     UmapProgress.update();
     UmapProgress.incTotal(nEpochs);
     final Matrix matrix = optimizeLayout(embedding, mEmbedding.copy(), head, tail, nEpochs, graph.cols(),
-        epochsPerSample, mRunA, mRunB, mRandom, mRepulsionStrength, mInitialAlpha, mNegativeSampleRate, mVerbose);
+        epochsPerSample, mRunA, mRunB, mRandom, mRepulsionStrength, mInitialAlpha, mNegativeSampleRate,
+        mDeterministic ? 1 : mThreads, mExecutor, mVerbose);
 
     UmapProgress.finished();
 
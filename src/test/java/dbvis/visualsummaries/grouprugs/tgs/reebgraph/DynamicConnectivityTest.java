@@ -0,0 +1,156 @@
+package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link DynamicConnectivity} with a breadth-first search over the
+ * same multigraph after every edge insertion and deletion.
+ */
+public class DynamicConnectivityTest {
+
+    @Test
+    public void testRandomUpdatesSparse() {
+        runRandomUpdates(40, 3000, 1);
+    }
+
+    @Test
+    public void testRandomUpdatesDense() {
+        runRandomUpdates(25, 3000, 2);
+    }
+
+    @Test
+    public void testRandomUpdatesParallelEdges() {
+        // Few vertices, so the same edge is often added more than once
+        runRandomUpdates(8, 2000, 3);
+    }
+
+    @Test
+    public void testPathSplitsAndMerges() {
+        int n = 64;
+        DynamicConnectivity connectivity = new DynamicConnectivity(n);
+        for (int i = 0; i + 1 < n; i++) {
+            connectivity.addEdge(i, i + 1);
+        }
+        assertEquals(n, connectivity.componentSize(0));
+
+        // Cutting the path in the middle splits it in two halves
+        assertTrue(connectivity.removeEdge(31, 32));
+        assertFalse(connectivity.connected(0, n - 1));
+        assertEquals(32, connectivity.componentSize(0));
+        assertEquals(32, connectivity.componentSize(n - 1));
+
+        // Closing the path to a cycle gives a replacement edge for every cut
+        connectivity.addEdge(31, 32);
+        connectivity.addEdge(0, n - 1);
+        assertTrue(connectivity.connected(0, n - 1));
+        assertFalse(connectivity.removeEdge(10, 11));
+        assertTrue(connectivity.connected(10, 11));
+
+        // Removing an edge that does not exist has no effect
+        assertFalse(connectivity.removeEdge(10, 11));
+        assertEquals(n, connectivity.componentSize(5));
+    }
+
+    /**
+     * Applies random insertions and deletions, with deletions of existing
+     * edges, and checks all components after every update.
+     */
+    private static void runRandomUpdates(int n, int updates, long seed) {
+        Random random = new Random(seed);
+        DynamicConnectivity connectivity = new DynamicConnectivity(n);
+
+        int[][] multiplicity = new int[n][n];
+        List<int[]> edges = new ArrayList<>();
+
+        for (int step = 0; step < updates; step++) {
+            // Keep the graph around the size where components merge and split
+            boolean add = edges.isEmpty() || random.nextInt(2 * n) >= edges.size();
+
+            int u;
+            int v;
+            if (add) {
+                u = random.nextInt(n);
+                v = random.nextInt(n);
+                if (u == v) {
+                    continue;
+                }
+                edges.add(new int[] { u, v });
+                multiplicity[u][v]++;
+                multiplicity[v][u]++;
+                connectivity.addEdge(u, v);
+            } else {
+                int[] edge = edges.remove(random.nextInt(edges.size()));
+                u = edge[0];
+                v = edge[1];
+                boolean wasConnected = components(multiplicity)[u] == components(multiplicity)[v];
+                multiplicity[u][v]--;
+                multiplicity[v][u]--;
+                int[] after = components(multiplicity);
+
+                boolean split = connectivity.removeEdge(u, v);
+                assertEquals("split reported at step " + step, wasConnected && after[u] != after[v], split);
+            }
+
+            assertSameComponents(connectivity, components(multiplicity), step);
+        }
+    }
+
+    private static void assertSameComponents(DynamicConnectivity connectivity, int[] labels, int step) {
+        int n = labels.length;
+        for (int u = 0; u < n; u++) {
+            List<Integer> expected = new ArrayList<>();
+            for (int v = 0; v < n; v++) {
+                if (labels[v] == labels[u]) {
+                    expected.add(v);
+                }
+                assertEquals("connected(" + u + ", " + v + ") at step " + step, labels[u] == labels[v],
+                        connectivity.connected(u, v));
+            }
+
+            List<Integer> actual = new ArrayList<>();
+            connectivity.collectComponent(u, actual);
+            Collections.sort(actual);
+            assertEquals("component of " + u + " at step " + step, expected, actual);
+            assertEquals("size of component of " + u + " at step " + step, expected.size(),
+                    connectivity.componentSize(u));
+        }
+    }
+
+    /**
+     * Labels every vertex with the smallest vertex of its component.
+     */
+    private static int[] components(int[][] multiplicity) {
+        int n = multiplicity.length;
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int s = 0; s < n; s++) {
+            if (labels[s] >= 0) {
+                continue;
+            }
+            labels[s] = s;
+            queue.add(s);
+            while (!queue.isEmpty()) {
+                int u = queue.poll();
+                for (int v = 0; v < n; v++) {
+                    if (multiplicity[u][v] > 0 && labels[v] < 0) {
+                        labels[v] = s;
+                        queue.add(v);
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+}
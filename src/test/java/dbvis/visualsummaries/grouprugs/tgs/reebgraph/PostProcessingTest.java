@@ -0,0 +1,102 @@
+package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link PostProcessing} collapses all same-frame edges and leaves
+ * a graph in which every edge connects two of its vertices.
+ */
+public class PostProcessingTest {
+
+    @Test
+    public void testSplitAndMergeInOneFrame() {
+        // A group splits at frame 3 and merges again in the same frame, once
+        // directly and once through a second split, which makes a cycle when
+        // the edges are collapsed
+        ReebGraph rg = new ReebGraph();
+        rg.addVertex(0, 0, RVertex.START_VERTEX);
+        rg.addVertex(1, 3, RVertex.SPLIT_VERTEX);
+        rg.addVertex(2, 3, RVertex.SPLIT_VERTEX);
+        rg.addVertex(3, 3, RVertex.MERGE_VERTEX);
+        rg.addVertex(4, 9, RVertex.END_VERTEX);
+        rg.addEdge(0, 1, 0, Arrays.asList(0, 1, 2));
+        rg.addEdge(1, 3, 1, Arrays.asList(0));
+        rg.addEdge(1, 2, 2, Arrays.asList(1, 2));
+        rg.addEdge(2, 3, 3, Arrays.asList(1, 2));
+        rg.addEdge(3, 4, 4, Arrays.asList(0, 1, 2));
+
+        PostProcessing.postProcess(rg);
+
+        assertValid(rg);
+        assertEquals(3, rg.getVertices().size());
+        assertEquals(2, rg.getEdges().size());
+        assertEquals(3, rg.getVertices().get(1).getFrame());
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            ReebGraph rg = new ReebGraph();
+            int n = 5 + random.nextInt(30);
+
+            // Vertices in time order, with many vertices sharing a frame
+            List<Integer> frames = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                frames.add(random.nextInt(n / 3 + 1));
+            }
+            Collections.sort(frames);
+            for (int i = 0; i < n; i++) {
+                rg.addVertex(i, frames.get(i), RVertex.MERGE_VERTEX);
+            }
+
+            // Edges only go forward in the vertex list, as in the builder
+            int reebId = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (random.nextInt(n) < 2) {
+                        rg.addEdge(i, j, reebId++, Arrays.asList(i, j));
+                    }
+                }
+            }
+
+            PostProcessing.postProcess(rg);
+            assertValid(rg);
+        }
+    }
+
+    private static void assertValid(ReebGraph rg) {
+        List<RVertex> vertices = rg.getVertices();
+        for (int i = 0; i < vertices.size(); i++) {
+            assertEquals("vertex id", i, vertices.get(i).getId());
+            assertSame(vertices.get(i), rg.getVertex(i));
+        }
+
+        for (int i = 0; i < rg.getEdges().size(); i++) {
+            REdge e = rg.getEdges().get(i);
+            assertEquals("edge id", i, e.getReebId());
+            assertTrue("source of " + i + " in graph", containsVertex(vertices, e.getSource()));
+            assertTrue("dest of " + i + " in graph", containsVertex(vertices, e.getDest()));
+            assertNotEquals("edge " + i + " within a frame", e.getSource().getFrame(), e.getDest().getFrame());
+            assertTrue(e.getSource().getOutEdges().contains(e));
+            assertTrue(e.getDest().getInEdges().contains(e));
+        }
+    }
+
+    private static boolean containsVertex(List<RVertex> vertices, RVertex v) {
+        for (RVertex w : vertices) {
+            if (w == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
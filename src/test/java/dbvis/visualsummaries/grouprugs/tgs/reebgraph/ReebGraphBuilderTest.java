@@ -0,0 +1,274 @@
+package dbvis.visualsummaries.grouprugs.tgs.reebgraph;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import dbvis.visualsummaries.data.CSVDataLoader;
+import dbvis.visualsummaries.data.DataPoint;
+import dbvis.visualsummaries.grouprugs.events.Event;
+import dbvis.visualsummaries.grouprugs.events.EventLog;
+import dbvis.visualsummaries.grouprugs.events.GridEventComputer;
+import dbvis.visualsummaries.grouprugs.tgs.Utils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the Reeb graph of {@link ReebGraphBuilder} on the sample dataset
+ * with the Reeb graph of the previous builder, which relabelled components by
+ * searching the status graph for every event. The previous builder is kept
+ * here as {@link PreviousBuilder}.
+ */
+public class ReebGraphBuilderTest {
+
+    private static final File SAMPLE = new File("data/tryagain.csv");
+
+    @Test
+    public void testSameReebGraphAsPreviousBuilder() {
+        DataPoint[][] baseData = CSVDataLoader.loadFile(SAMPLE).getBaseData();
+
+        for (double epsilon : new double[] { 5, 15, 40 }) {
+            assertSameReebGraph(baseData, epsilon);
+        }
+    }
+
+    @Test
+    public void testSameReebGraphOnRandomWalks() {
+        // Movers that wander through a small box merge and split often
+        Random random = new Random(42);
+        for (int run = 0; run < 5; run++) {
+            DataPoint[][] baseData = new DataPoint[200][30];
+            for (int id = 0; id < 30; id++) {
+                double x = 100 * random.nextDouble();
+                double y = 100 * random.nextDouble();
+                for (int frame = 0; frame < baseData.length; frame++) {
+                    x = Math.max(0, Math.min(100, x + 4 * random.nextGaussian()));
+                    y = Math.max(0, Math.min(100, y + 4 * random.nextGaussian()));
+                    baseData[frame][id] = new DataPoint(x, y, id);
+                }
+            }
+            assertSameReebGraph(baseData, 8 + 4 * run);
+        }
+    }
+
+    private static void assertSameReebGraph(DataPoint[][] baseData, double epsilon) {
+        EventLog events = GridEventComputer.computeEvents(baseData, epsilon, 1);
+        int frameNum = baseData.length - 1;
+
+        ReebGraph actual = ReebGraphBuilder.build(new StatusGraph(baseData[0], epsilon), events, frameNum);
+        PreviousBuilder expected = new PreviousBuilder(baseData[0], epsilon);
+        expected.build(events, frameNum);
+
+        assertEquals("vertices at epsilon " + epsilon, expected.vertices, describeVertices(actual));
+        assertEquals("edges at epsilon " + epsilon, expected.edges, describeEdges(actual));
+    }
+
+    private static List<String> describeVertices(ReebGraph reebGraph) {
+        List<String> result = new ArrayList<>();
+        for (RVertex v : reebGraph.getVertices()) {
+            result.add(v.getId() + " " + v.getTime() + " " + v.getType());
+        }
+        return result;
+    }
+
+    private static List<String> describeEdges(ReebGraph reebGraph) {
+        List<String> result = new ArrayList<>();
+        for (REdge e : reebGraph.getEdges()) {
+            List<Integer> component = new ArrayList<>(e.getComponent());
+            Collections.sort(component);
+            result.add(e.getReebId() + " " + e.getSource().getId() + " " + e.getDest().getId() + " " + component);
+        }
+        return result;
+    }
+
+    /**
+     * The previous Reeb graph builder: the status graph is an adjacency list,
+     * connectivity is a depth-first search, and components are relabelled by
+     * scanning all vertices. Vertices and edges are described as strings in the
+     * format of {@link #describeVertices} and {@link #describeEdges}.
+     */
+    private static class PreviousBuilder {
+
+        private final List<Integer> ids = new ArrayList<>();
+        private final Map<Integer, List<Integer>> neighbors = new HashMap<>();
+        private final Map<Integer, Integer> reebIds = new HashMap<>();
+
+        private final List<String> vertices = new ArrayList<>();
+        private final List<String> edges = new ArrayList<>();
+
+        // Source, destination and component of every Reeb edge, by Reeb id
+        private final List<Integer> sources = new ArrayList<>();
+        private final List<Integer> dests = new ArrayList<>();
+        private final List<List<Integer>> components = new ArrayList<>();
+
+        PreviousBuilder(DataPoint[] firstFrame, double epsilon) {
+            for (DataPoint p : firstFrame) {
+                ids.add(p.getId());
+                neighbors.put(p.getId(), new ArrayList<>());
+            }
+            for (int i = 0; i < firstFrame.length; i++) {
+                for (int j = i + 1; j < firstFrame.length; j++) {
+                    if (Utils.getEuclideanDistance(firstFrame[i], firstFrame[j]) <= epsilon) {
+                        addEdge(firstFrame[i].getId(), firstFrame[j].getId());
+                    }
+                }
+            }
+
+            for (List<Integer> component : connectedComponents()) {
+                int id = vertices.size();
+                addVertex(0, RVertex.START_VERTEX);
+                addReebEdge(id, component);
+                for (int v : component) {
+                    reebIds.put(v, id);
+                }
+            }
+        }
+
+        void build(EventLog events, int frameNum) {
+            for (Event event : events) {
+                int v1 = event.getEntity1();
+                int v2 = event.getEntity2();
+
+                if (event.getType() == Event.Type.CONNECT) {
+                    if (pathExists(v1, v2)) {
+                        addEdge(v1, v2);
+                    } else {
+                        merge(event, v1, v2);
+                    }
+                } else if (event.getType() == Event.Type.DISCONNECT) {
+                    int prevReebId = reebIds.get(v1);
+                    removeEdge(v1, v2);
+                    if (!pathExists(v1, v2)) {
+                        split(event, v1, v2, prevReebId);
+                    }
+                }
+            }
+
+            for (int e = 0; e < dests.size(); e++) {
+                if (dests.get(e) < 0) {
+                    dests.set(e, vertices.size());
+                    addVertex(frameNum, RVertex.END_VERTEX);
+                }
+            }
+
+            for (int e = 0; e < dests.size(); e++) {
+                List<Integer> component = new ArrayList<>(components.get(e));
+                Collections.sort(component);
+                edges.add(e + " " + sources.get(e) + " " + dests.get(e) + " " + component);
+            }
+        }
+
+        private void merge(Event event, int v1, int v2) {
+            int prevReebId1 = reebIds.get(v1);
+            int prevReebId2 = reebIds.get(v2);
+
+            int vertex = vertices.size();
+            int reebId = sources.size();
+            addVertex(event.getTime(), RVertex.MERGE_VERTEX);
+
+            addEdge(v1, v2);
+
+            List<Integer> component = new ArrayList<>();
+            for (int v : ids) {
+                int id = reebIds.get(v);
+                if (id == prevReebId1 || id == prevReebId2) {
+                    component.add(v);
+                    reebIds.put(v, reebId);
+                }
+            }
+
+            dests.set(prevReebId1, vertex);
+            dests.set(prevReebId2, vertex);
+            addReebEdge(vertex, component);
+        }
+
+        private void split(Event event, int v1, int v2, int prevReebId) {
+            int vertex = vertices.size();
+            int reebId1 = sources.size();
+            int reebId2 = reebId1 + 1;
+            addVertex(event.getTime(), RVertex.SPLIT_VERTEX);
+
+            List<Integer> component1 = null;
+            List<Integer> component2 = null;
+            for (List<Integer> component : connectedComponents()) {
+                if (component.contains(v1)) {
+                    component1 = component;
+                }
+                if (component.contains(v2)) {
+                    component2 = component;
+                }
+            }
+            for (int v : component1) {
+                reebIds.put(v, reebId1);
+            }
+            for (int v : component2) {
+                reebIds.put(v, reebId2);
+            }
+
+            dests.set(prevReebId, vertex);
+            addReebEdge(vertex, component1);
+            addReebEdge(vertex, component2);
+        }
+
+        private void addVertex(double time, String type) {
+            vertices.add(vertices.size() + " " + time + " " + type);
+        }
+
+        private void addReebEdge(int source, List<Integer> component) {
+            sources.add(source);
+            dests.add(-1);
+            components.add(component);
+        }
+
+        private void addEdge(int v1, int v2) {
+            neighbors.get(v1).add(v2);
+            neighbors.get(v2).add(v1);
+        }
+
+        private void removeEdge(int v1, int v2) {
+            if (neighbors.get(v1).contains(v2)) {
+                neighbors.get(v1).remove(Integer.valueOf(v2));
+                neighbors.get(v2).remove(Integer.valueOf(v1));
+            }
+        }
+
+        private boolean pathExists(int start, int end) {
+            return explore(start, new HashSet<>(), new ArrayList<>()).contains(end);
+        }
+
+        private List<List<Integer>> connectedComponents() {
+            List<List<Integer>> result = new ArrayList<>();
+            Set<Integer> visited = new HashSet<>();
+            for (int v : ids) {
+                if (!visited.contains(v)) {
+                    result.add(explore(v, visited, new ArrayList<>()));
+                }
+            }
+            return result;
+        }
+
+        private List<Integer> explore(int start, Set<Integer> visited, List<Integer> component) {
+            List<Integer> stack = new ArrayList<>();
+            stack.add(start);
+            visited.add(start);
+            while (!stack.isEmpty()) {
+                int v = stack.remove(stack.size() - 1);
+                component.add(v);
+                for (int w : neighbors.get(v)) {
+                    if (visited.add(w)) {
+                        stack.add(w);
+                    }
+                }
+            }
+            return component;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package tagbio.umap;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import tagbio.umap.metric.EuclideanMetric;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the approximate nearest neighbours of {@link Umap} do not depend
+ * on the number of threads.
+ */
+public class NearestNeighborsTest {
+
+    @Test
+    public void testSameGraphForAnyNumberOfThreads() {
+        Random random = new Random(1);
+        float[][] points = new float[5000][2];
+        for (float[] p : points) {
+            p[0] = 100 * random.nextFloat();
+            p[1] = 100 * random.nextFloat();
+        }
+        Matrix instances = new DefaultMatrix(points);
+
+        int[][] expected = nearestNeighbors(instances, 1);
+        for (int threads : new int[] { 2, 8 }) {
+            int[][] actual = nearestNeighbors(instances, threads);
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals("neighbours of " + i + " with " + threads + " threads", expected[i], actual[i]);
+            }
+        }
+    }
+
+    private static int[][] nearestNeighbors(Matrix instances, int threads) {
+        return Umap.nearestNeighbors(instances, 15, EuclideanMetric.SINGLETON, false, new Random(42), threads, null,
+                false).getIndices();
+    }
+}
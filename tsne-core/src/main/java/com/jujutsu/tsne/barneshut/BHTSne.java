@@ -47,6 +47,7 @@ public class BHTSne implements BarnesHutTSne {
 
     protected final Distance distance = new EuclideanDistance();
     protected volatile boolean abort = false;
+    protected boolean silent = false;
 
     @Override
     public double[][] tsne(TSneConfiguration config, double[][] oldY) {
@@ -83,6 +84,7 @@ public class BHTSne implements BarnesHutTSne {
         int D = parameterObject.getXStartDim();
         double[][] Xin = parameterObject.getXin();
         boolean exact = (parameterObject.getTheta() == .0);
+        silent = parameterObject.silent();
 
         if (exact) {
             throw new IllegalArgumentException("The Barnes Hut implementation does not support exact inference yet (theta==0.0), if you want exact t-SNE please use one of the standard t-SNE implementations (FastTSne for instance)");
@@ -92,7 +94,9 @@ public class BHTSne implements BarnesHutTSne {
             PrincipalComponentAnalysis pca = new PrincipalComponentAnalysis();
             Xin = pca.pca(Xin, parameterObject.getInitialDims());
             D = parameterObject.getInitialDims();
-            System.out.println("X:Shape after PCA is = " + Xin.length + " x " + Xin[0].length);
+            if (!silent) {
+                System.out.println("X:Shape after PCA is = " + Xin.length + " x " + Xin[0].length);
+            }
         }
 
         double[] X = flatten(Xin);
@@ -100,13 +104,17 @@ public class BHTSne implements BarnesHutTSne {
         int no_dims = parameterObject.getOutputDims();
 
         double[] Y = new double[N * no_dims];
-        System.out.println("X:Shape is = " + N + " x " + D);
+        if (!silent) {
+            System.out.println("X:Shape is = " + N + " x " + D);
+        }
         // Determine whether we are using an exact algorithm
         double perplexity = parameterObject.getPerplexity();
         if (N - 1 < 3 * perplexity) {
             throw new IllegalArgumentException("Perplexity too large for the number of data points!\n");
         }
-        System.out.printf("Using no_dims = %d, perplexity = %f, and theta = %f\n", no_dims, perplexity, parameterObject.getTheta());
+        if (!silent) {
+            System.out.printf("Using no_dims = %d, perplexity = %f, and theta = %f\n", no_dims, perplexity, parameterObject.getTheta());
+        }
 
         // Set learning parameters
         double total_time = 0;
@@ -123,7 +131,9 @@ public class BHTSne implements BarnesHutTSne {
         }
 
         // Normalize input data (to prevent numerical problems)
-        System.out.println("Computing input similarities...");
+        if (!silent) {
+            System.out.println("Computing input similarities...");
+        }
         long start = System.currentTimeMillis();
         //zeroMean(X, N, D);
         double max_X = .0;
@@ -155,7 +165,9 @@ public class BHTSne implements BarnesHutTSne {
             computeGaussianPerplexity(X, N, D, P, perplexity);
 
             // Symmetrize input similarities
-            System.out.println("Symmetrizing...");
+            if (!silent) {
+                System.out.println("Symmetrizing...");
+            }
             int nN = 0;
             for (int n = 0; n < N; n++) {
                 int mN = 0;
@@ -201,7 +213,9 @@ public class BHTSne implements BarnesHutTSne {
 //		else {      for(int i = 0; i < row_P[N]; i++) val_P[i] *= 12.0; }
         // Initialize solution (randomly)
         if (oldY == null) {
-            System.out.println("Seed");
+            if (!silent) {
+                System.out.println("Seed");
+            }
             for (int i = 0; i < N * no_dims; i++) {
                 Y[i] = ThreadLocalRandom.current().nextDouble() * 0.0001;
 //                System.out.println("" + Y[i] + ",");
@@ -215,9 +229,9 @@ public class BHTSne implements BarnesHutTSne {
         }
 
         // Perform main training loop
-        if (exact) {
+        if (!silent && exact) {
             System.out.printf("Done in %4.2f seconds!\nLearning embedding...\n", (end - start) / 1000.0);
-        } else {
+        } else if (!silent) {
             System.out.printf("Done in %4.2f seconds (sparsity = %f)!\nLearning embedding...\n", (end - start) / 1000.0, (double) row_P[N] / ((double) N * (double) N));
         }
         start = System.currentTimeMillis();
@@ -439,7 +453,9 @@ public class BHTSne implements BarnesHutTSne {
             }
         }
 
-        System.out.println("Error now is " + C);
+        if (!silent) {
+            System.out.println("Error now is " + C);
+        }
         return C;
     }
 
@@ -483,7 +499,9 @@ public class BHTSne implements BarnesHutTSne {
             }
         }
 
-        System.out.println("Error with eta " + eta + " is " + C);
+        if (!silent) {
+            System.out.println("Error with eta " + eta + " is " + C);
+        }
         return C;
     }
 
@@ -604,12 +622,14 @@ public class BHTSne implements BarnesHutTSne {
         //			TreePrinter printer = new TreePrinter(pp);
         //			printer.printTreeHorizontal(tree.getRoot());
         // Loop over all points to find nearest neighbors
-        System.out.println("Building tree...");
+        if (!silent) {
+            System.out.println("Building tree...");
+        }
         List<DataPoint> indices = new ArrayList<>();
         List<Double> distances = new ArrayList<>();
         for (int n = 0; n < N; n++) {
 
-            if (n % 10000 == 0) {
+            if (!silent && n % 10000 == 0) {
                 System.out.printf(" - point %d of %d\n", n, N);
             }
 
@@ -126,13 +126,10 @@ public class ParallelBHTsne extends BHTSne {
 		protected void compute() {
 			if ( (endIdx-startIdx) <= limit ) {
 				for (int n = startIdx; n < endIdx; n++) {
-					// Update gains
-					gains[n] = (sign_tsne(dY[n]) != sign_tsne(uY[n])) ? (gains[n] + .2) : (gains[n] * .8);
-					if(gains[n] < .01) gains[n] = .01;
-
-					// Perform gradient update (with momentum and gains)
-					Y[n] = Y[n] + uY[n];
-					uY[n] = momentum * uY[n] - eta * gains[n] * dY[n];
+					// Perform gradient update, the same step as BHTSne: the line
+					// search picks eta for this step, momentum and gains make
+					// the embedding diverge
+					Y[n] = Y[n] - eta * dY[n];
 				}
 			}
 			else {